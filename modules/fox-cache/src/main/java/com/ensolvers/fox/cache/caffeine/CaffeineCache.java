@@ -0,0 +1,136 @@
+package com.ensolvers.fox.cache.caffeine;
+
+import com.ensolvers.fox.cache.common.GenericCache;
+import com.ensolvers.fox.cache.exception.CacheExecutionException;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * An in-memory cache backed by Caffeine, a drop-in replacement for
+ * {@link com.ensolvers.fox.cache.guava.GuavaCache} that scales better under
+ * concurrent reads and evicts using W-TinyLFU (keeping frequently used entries
+ * instead of just recently used ones) when bounded. Loads can be awaited
+ * asynchronously through {@link #getAsync(String)}, and entries can be
+ * refreshed in background after a write (see
+ * {@link Caffeine#refreshAfterWrite(long, TimeUnit)}) when the cache is built
+ * from a custom {@link Caffeine} specification.
+ *
+ * @param <T> Type of objects that will be stored in the cache
+ */
+public class CaffeineCache<T> implements GenericCache<T> {
+
+    private final AsyncLoadingCache<String, T> asyncCache;
+    private final LoadingCache<String, T> cache;
+    private final String keyPrefix;
+    private CacheMetrics metrics = CacheMetrics.DISABLED;
+
+    /**
+     * Creates a cache where entries expire after not being accessed for the given
+     * time, like {@link com.ensolvers.fox.cache.guava.GuavaCache}
+     *
+     * @param fetchingFunction        the function to fetch the object if not found
+     *                                in the cache
+     * @param keyPrefix               an identifier for the cache
+     * @param expirationTimeInSeconds time in seconds since the last access for an
+     *                                entry to expire
+     * @param maximumSize             max amount of entries
+     */
+    public CaffeineCache(Function<String, T> fetchingFunction, String keyPrefix, int expirationTimeInSeconds, long maximumSize) {
+        this(fetchingFunction, keyPrefix,
+                Caffeine.newBuilder().expireAfterAccess(expirationTimeInSeconds, TimeUnit.SECONDS).maximumSize(maximumSize));
+    }
+
+    /**
+     * Creates a cache from a custom specification, e.g. to bound it by weight (see
+     * {@link Caffeine#maximumWeight(long)}), refresh entries in background or load
+     * them in a custom executor
+     *
+     * @param fetchingFunction the function to fetch the object if not found in the
+     *                         cache
+     * @param keyPrefix        an identifier for the cache
+     * @param specification    the Caffeine builder used to create the cache
+     */
+    public CaffeineCache(Function<String, T> fetchingFunction, String keyPrefix, Caffeine<Object, Object> specification) {
+        this.keyPrefix = keyPrefix;
+        this.asyncCache = specification.buildAsync(key -> {
+            long startTime = metrics.startTimer();
+            try {
+                return fetchingFunction.apply(key);
+            } finally {
+                metrics.recordLatency(Operation.FETCH, startTime);
+            }
+        });
+        this.cache = this.asyncCache.synchronous();
+    }
+
+    /**
+     * Records hits, misses and latencies of this cache in the given metrics (see
+     * {@link com.ensolvers.fox.cache.metrics.CacheMetricsRegistry}).
+     *
+     * @param metrics the metrics of the cache
+     * 
+     * @return this cache
+     */
+    public CaffeineCache<T> withMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    @Override
+    public T get(String key) {
+        long startTime = this.metrics.startTimer();
+        T value = this.cache.getIfPresent(key);
+        this.metrics.recordLatency(Operation.GET, startTime);
+        if (value != null) {
+            this.metrics.recordHit();
+            return value;
+        }
+
+        this.metrics.recordMiss();
+        try {
+            return this.cache.get(key);
+        } catch (CompletionException e) {
+            throw new CacheExecutionException("Error when trying to get an item from the cache with prefix " + keyPrefix, e.getCause());
+        }
+    }
+
+    /**
+     * Gets the object without blocking the caller if it has to be fetched,
+     * concurrent requests for the same key share the same load
+     *
+     * @param key the key of the object
+     * 
+     * @return a future completed with the object, or null if it could not be
+     *         fetched
+     */
+    public CompletableFuture<T> getAsync(String key) {
+        return this.asyncCache.get(key);
+    }
+
+    @Override
+    public void invalidate(String key) {
+        this.cache.invalidate(key);
+    }
+
+    /** Removes every entry from the cache */
+    public void invalidateAll() {
+        this.cache.invalidateAll();
+    }
+
+    @Override
+    public void put(String key, T object) {
+        this.cache.put(key, object);
+    }
+
+    /** @return the approximate amount of entries in the cache */
+    public long size() {
+        return this.cache.estimatedSize();
+    }
+}
@@ -0,0 +1,44 @@
+package com.ensolvers.fox.cache.codec;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Converts cached values from/to their binary representation, so caches can
+ * store compact payloads instead of JSON text.
+ *
+ * @param <T> type of the values handled by the codec
+ */
+public interface CacheCodec<T> {
+
+    /**
+     * Encodes a value. Implementations must never return an empty array for a
+     * non-null value, since caches use it to represent a cached null.
+     *
+     * @param value the value to encode, never null
+     *
+     * @return the binary representation of the value
+     */
+    byte[] encode(T value);
+
+    /**
+     * Decodes a value previously encoded by {@link #encode(Object)}.
+     *
+     * @param bytes the binary representation of the value
+     *
+     * @return the decoded value
+     */
+    T decode(byte[] bytes);
+
+    /**
+     * Same as {@link #decode(byte[])} but reads the remaining bytes of the buffer.
+     *
+     * @param buffer the binary representation of the value
+     *
+     * @return the decoded value
+     */
+    default T decode(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return this.decode(bytes);
+    }
+}
@@ -0,0 +1,141 @@
+package com.ensolvers.fox.cache.codec;
+
+import com.ensolvers.fox.cache.exception.CacheSerializingException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+/**
+ * A {@link CacheCodec} that compresses (using LZ4) the values encoded by
+ * another codec when they are larger than a given threshold. Every value is
+ * prefixed with a one-byte header telling whether it was compressed (in which
+ * case the header is followed by the original length) or stored raw. Values
+ * without any of those headers are decoded as they are, so entries written
+ * before enabling compression can still be read.
+ *
+ * @param <T> type of the values handled by the codec
+ */
+public class CompressingCacheCodec<T> implements CacheCodec<T> {
+    /**
+     * Headers of raw and compressed values. They can never be the first byte of a
+     * JSON, Smile or CBOR document (in CBOR they are reserved values).
+     */
+    static final byte RAW_HEADER = 0x1D;
+    static final byte COMPRESSED_HEADER = 0x1F;
+    private static final int HEADER_LENGTH = 5;
+
+    private final CacheCodec<T> delegate;
+    private final int threshold;
+    private final LZ4Compressor compressor;
+    private final LZ4FastDecompressor decompressor;
+
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder rawCount = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressionNanos = new LongAdder();
+    private final LongAdder decompressionNanos = new LongAdder();
+
+    /**
+     * @param delegate  the codec used to encode the values before compressing them
+     * @param threshold min size in bytes of an encoded value to be compressed
+     */
+    public CompressingCacheCodec(CacheCodec<T> delegate, int threshold) {
+        this.delegate = delegate;
+        this.threshold = threshold;
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        this.compressor = factory.fastCompressor();
+        this.decompressor = factory.fastDecompressor();
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        byte[] raw = this.delegate.encode(value);
+        if (raw.length < this.threshold) {
+            this.rawCount.increment();
+            byte[] result = new byte[raw.length + 1];
+            result[0] = RAW_HEADER;
+            System.arraycopy(raw, 0, result, 1, raw.length);
+            return result;
+        }
+
+        long fromTime = System.nanoTime();
+        byte[] compressed = new byte[HEADER_LENGTH + this.compressor.maxCompressedLength(raw.length)];
+        compressed[0] = COMPRESSED_HEADER;
+        writeInt(compressed, 1, raw.length);
+        int compressedLength = this.compressor.compress(raw, 0, raw.length, compressed, HEADER_LENGTH, compressed.length - HEADER_LENGTH);
+        byte[] result = Arrays.copyOf(compressed, HEADER_LENGTH + compressedLength);
+
+        this.compressionNanos.add(System.nanoTime() - fromTime);
+        this.compressedCount.increment();
+        this.uncompressedBytes.add(raw.length);
+        this.compressedBytes.add(result.length);
+        return result;
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        if (bytes.length > 0 && bytes[0] == RAW_HEADER) {
+            return this.delegate.decode(Arrays.copyOfRange(bytes, 1, bytes.length));
+        }
+        if (bytes.length < HEADER_LENGTH || bytes[0] != COMPRESSED_HEADER) {
+            return this.delegate.decode(bytes);
+        }
+
+        long fromTime = System.nanoTime();
+        byte[] raw = new byte[readInt(bytes, 1)];
+        try {
+            this.decompressor.decompress(bytes, HEADER_LENGTH, raw, 0, raw.length);
+        } catch (LZ4Exception e) {
+            throw new CacheSerializingException("Error when trying to decompress a cached value", e);
+        }
+        this.decompressionNanos.add(System.nanoTime() - fromTime);
+
+        return this.delegate.decode(raw);
+    }
+
+    /** @return the amount of values that were compressed */
+    public long getCompressedCount() {
+        return compressedCount.sum();
+    }
+
+    /** @return the amount of values that were stored raw (below the threshold) */
+    public long getRawCount() {
+        return rawCount.sum();
+    }
+
+    /**
+     * @return the ratio between the original and the compressed size of the
+     *         compressed values (e.g. 4.0 means they take 4 times less space), 0 if
+     *         nothing was compressed yet
+     */
+    public double getCompressionRatio() {
+        long compressed = compressedBytes.sum();
+        return compressed == 0 ? 0 : (double) uncompressedBytes.sum() / compressed;
+    }
+
+    /** @return the total time spent compressing values, in nanoseconds */
+    public long getCompressionNanos() {
+        return compressionNanos.sum();
+    }
+
+    /** @return the total time spent decompressing values, in nanoseconds */
+    public long getDecompressionNanos() {
+        return decompressionNanos.sum();
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) | ((bytes[offset + 2] & 0xFF) << 8)
+                | (bytes[offset + 3] & 0xFF);
+    }
+}
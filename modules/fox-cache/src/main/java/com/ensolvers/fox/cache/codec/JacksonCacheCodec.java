@@ -0,0 +1,81 @@
+package com.ensolvers.fox.cache.codec;
+
+import com.ensolvers.fox.cache.exception.CacheSerializingException;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * A {@link CacheCodec} backed by Jackson. Besides plain JSON, it supports the
+ * Smile and CBOR binary formats, which produce smaller payloads and are cheaper
+ * to parse while keeping the same object mapping rules.
+ *
+ * @param <T> type of the values handled by the codec
+ */
+public class JacksonCacheCodec<T> implements CacheCodec<T> {
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory());
+    private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory());
+
+    private final JavaType type;
+    private final ObjectReader reader;
+    private final ObjectWriter writer;
+
+    /**
+     * @param objectMapper the mapper that defines the format and mapping rules
+     * @param type         type of the values handled by the codec
+     */
+    public JacksonCacheCodec(ObjectMapper objectMapper, JavaType type) {
+        this.type = type;
+        this.reader = objectMapper.readerFor(type);
+        this.writer = objectMapper.writerFor(type);
+    }
+
+    public static <T> JacksonCacheCodec<T> json(Class<T> valueClass) {
+        return json(f -> f.constructType(valueClass));
+    }
+
+    public static <T> JacksonCacheCodec<T> json(Function<TypeFactory, JavaType> typeFactory) {
+        return new JacksonCacheCodec<>(JSON_MAPPER, typeFactory.apply(JSON_MAPPER.getTypeFactory()));
+    }
+
+    public static <T> JacksonCacheCodec<T> smile(Class<T> valueClass) {
+        return smile(f -> f.constructType(valueClass));
+    }
+
+    public static <T> JacksonCacheCodec<T> smile(Function<TypeFactory, JavaType> typeFactory) {
+        return new JacksonCacheCodec<>(SMILE_MAPPER, typeFactory.apply(SMILE_MAPPER.getTypeFactory()));
+    }
+
+    public static <T> JacksonCacheCodec<T> cbor(Class<T> valueClass) {
+        return cbor(f -> f.constructType(valueClass));
+    }
+
+    public static <T> JacksonCacheCodec<T> cbor(Function<TypeFactory, JavaType> typeFactory) {
+        return new JacksonCacheCodec<>(CBOR_MAPPER, typeFactory.apply(CBOR_MAPPER.getTypeFactory()));
+    }
+
+    @Override
+    public byte[] encode(T value) {
+        try {
+            return this.writer.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new CacheSerializingException("Error when trying to serialize object of type: [" + type.getTypeName() + "]", e);
+        }
+    }
+
+    @Override
+    public T decode(byte[] bytes) {
+        try {
+            return this.reader.readValue(bytes);
+        } catch (IOException e) {
+            throw new CacheSerializingException("Error when trying to deserialize object of type: [" + type.getTypeName() + "]", e);
+        }
+    }
+}
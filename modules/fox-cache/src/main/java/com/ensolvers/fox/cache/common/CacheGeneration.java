@@ -0,0 +1,185 @@
+package com.ensolvers.fox.cache.common;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tracks the generation (version) of the entries of a cache, so every entry can
+ * be invalidated in O(1) by moving to a new generation instead of deleting the
+ * keys one by one. The generation is embedded in the computed keys (see
+ * {@link #namespace(String)}), so entries of previous generations are simply
+ * never read again and can be left to expire or be removed in background.
+ *
+ * The generation is shared among nodes through the cache backend itself. It is
+ * read when the cache is created and then refreshed in background at most once
+ * per refresh interval, so a clear made by another node becomes visible shortly
+ * after that interval and reading the current generation never blocks on I/O
+ * (it can be safely used from async or reactive callers).
+ */
+public class CacheGeneration {
+    private static final Logger logger = LoggerFactory.getLogger(CacheGeneration.class);
+
+    public static final long DEFAULT_REFRESH_INTERVAL_IN_MILLIS = 1000;
+    public static final String SEPARATOR = "#";
+
+    // shared by every generation, each one has at most a single refresh queued
+    private static final Executor REFRESH_EXECUTOR = newRefreshExecutor();
+
+    private final Supplier<String> reader;
+    private final Consumer<String> writer;
+    private final long refreshIntervalInMillis;
+    private final Executor refreshExecutor;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile long generation;
+    private volatile long nextRefreshTime;
+    private volatile Namespace lastNamespace;
+
+    /**
+     * @param reader                  reads the stored generation, returning null if
+     *                                it was never stored (or was evicted)
+     * @param writer                  stores a new generation
+     * @param refreshIntervalInMillis time in millis between reads of the stored
+     *                                generation
+     */
+    public CacheGeneration(Supplier<String> reader, Consumer<String> writer, long refreshIntervalInMillis) {
+        this(reader, writer, refreshIntervalInMillis, REFRESH_EXECUTOR);
+    }
+
+    /**
+     * @param reader                  reads the stored generation, returning null if
+     *                                it was never stored (or was evicted)
+     * @param writer                  stores a new generation
+     * @param refreshIntervalInMillis time in millis between reads of the stored
+     *                                generation
+     * @param refreshExecutor         the executor used to read the stored
+     *                                generation in background
+     */
+    public CacheGeneration(Supplier<String> reader, Consumer<String> writer, long refreshIntervalInMillis, Executor refreshExecutor) {
+        this.reader = reader;
+        this.writer = writer;
+        this.refreshIntervalInMillis = refreshIntervalInMillis;
+        this.refreshExecutor = refreshExecutor;
+
+        try {
+            this.refresh();
+        } catch (RuntimeException e) {
+            // keep generation 0 until a refresh in background succeeds
+            logger.warn("Error when reading the generation of a cache, it will be read again in background", e);
+            this.nextRefreshTime = 0;
+        }
+    }
+
+    /**
+     * Returns the last known generation without doing any I/O, scheduling a refresh
+     * in background if the refresh interval elapsed.
+     *
+     * @return the current generation, 0 if the cache was never cleared
+     */
+    public long current() {
+        if (System.currentTimeMillis() >= this.nextRefreshTime && this.refreshing.compareAndSet(false, true)) {
+            try {
+                this.refreshExecutor.execute(this::refreshInBackground);
+            } catch (RejectedExecutionException e) {
+                this.refreshing.set(false);
+            }
+        }
+        return this.generation;
+    }
+
+    private void refreshInBackground() {
+        try {
+            this.refresh();
+        } catch (RuntimeException e) {
+            logger.warn("Error when refreshing the generation of a cache", e);
+        } finally {
+            this.refreshing.set(false);
+        }
+    }
+
+    private void refresh() {
+        this.nextRefreshTime = System.currentTimeMillis() + this.refreshIntervalInMillis;
+        String stored = this.reader.get();
+        if (stored != null) {
+            this.advanceTo(Long.parseLong(stored));
+        } else if (this.generation > 0) {
+            // the stored generation was evicted, restore it so previous
+            // generations are not read again
+            this.writer.accept(String.valueOf(this.generation));
+        }
+    }
+
+    /**
+     * Generations only grow, so a refresh that read the stored generation before a
+     * concurrent {@link #increment()} does not move the cache back
+     */
+    private synchronized void advanceTo(long next) {
+        if (next > this.generation) {
+            this.generation = next;
+        }
+    }
+
+    /**
+     * Moves the cache to a new generation. Generations are based on the current
+     * time so they keep growing even if the stored one is lost.
+     *
+     * @return the new generation
+     */
+    public long increment() {
+        long next = Math.max(System.currentTimeMillis(), this.generation + 1);
+        this.writer.accept(String.valueOf(next));
+        this.advanceTo(next);
+        this.nextRefreshTime = System.currentTimeMillis() + this.refreshIntervalInMillis;
+        return next;
+    }
+
+    /**
+     * @param prefix the prefix used by the keys of the cache
+     *
+     * @return the prefix for the keys of the current generation, the prefix itself
+     *         for generation 0 so keys stored before the first clear are still read
+     */
+    public String namespace(String prefix) {
+        long current = this.current();
+        if (current == 0) {
+            return prefix;
+        }
+
+        // keep the last namespace so it is not built again on every key
+        Namespace last = this.lastNamespace;
+        if (last == null || last.generation != current || !last.prefix.equals(prefix)) {
+            last = new Namespace(prefix, current);
+            this.lastNamespace = last;
+        }
+        return last.value;
+    }
+
+    private static Executor newRefreshExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "fox-cache-generation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static final class Namespace {
+        private final String prefix;
+        private final long generation;
+        private final String value;
+
+        private Namespace(String prefix, long generation) {
+            this.prefix = prefix;
+            this.generation = generation;
+            this.value = prefix + SEPARATOR + generation;
+        }
+    }
+}
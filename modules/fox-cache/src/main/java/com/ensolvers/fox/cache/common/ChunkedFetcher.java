@@ -0,0 +1,175 @@
+package com.ensolvers.fox.cache.common;
+
+import com.ensolvers.fox.cache.exception.CacheExecutionException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Splits large key sets in chunks so they can be fetched in parallel and then
+ * merged, instead of fetching thousands of misses (or doing a huge multi get)
+ * in a single call on the caller thread. Every chunk but the last one is
+ * fetched in the given executor, the last one in the caller thread; key sets
+ * that fit in a single chunk are fetched directly in the caller thread.
+ */
+public class ChunkedFetcher {
+    /** Fetches every key set in a single chunk, in the caller thread */
+    public static final ChunkedFetcher DISABLED = new ChunkedFetcher(Integer.MAX_VALUE, Runnable::run);
+
+    private final int chunkSize;
+    private final Executor executor;
+
+    /**
+     * @param chunkSize max amount of keys fetched by each call
+     * @param executor  the executor used to fetch chunks, it should be bounded
+     *                  (e.g. see {@link #newFetchExecutor(int)})
+     */
+    public ChunkedFetcher(int chunkSize, Executor executor) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+
+        this.chunkSize = chunkSize;
+        this.executor = executor;
+    }
+
+    public int getChunkSize() {
+        return this.chunkSize;
+    }
+
+    /**
+     * @param keys the keys
+     * @param <K>  the type of the keys
+     *
+     * @return the keys split in chunks of at most {@link #getChunkSize()} keys
+     */
+    public <K> List<List<K>> split(Collection<K> keys) {
+        List<List<K>> chunks = new ArrayList<>(keys.size() / this.chunkSize + 1);
+        List<K> chunk = new ArrayList<>(Math.min(keys.size(), this.chunkSize));
+        for (K key : keys) {
+            if (chunk.size() == this.chunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(this.chunkSize);
+            }
+            chunk.add(key);
+        }
+        chunks.add(chunk);
+        return chunks;
+    }
+
+    /**
+     * Fetches the given keys in chunks, in parallel, and merges the results. Since
+     * chunks run in other threads, the fetch function must not depend on thread
+     * bound state (e.g. the current transaction).
+     *
+     * @param keys          the keys to fetch
+     * @param fetchFunction fetches the values of a chunk of keys
+     * @param <K>           the type of the keys
+     * @param <V>           the type of the values
+     *
+     * @return the merged results of every chunk
+     */
+    public <K, V> Map<K, V> fetch(Collection<K> keys, Function<Collection<K>, Map<K, V>> fetchFunction) {
+        if (keys.size() <= this.chunkSize) {
+            return fetchFunction.apply(keys);
+        }
+
+        List<List<K>> chunks = this.split(keys);
+        List<CompletableFuture<Map<K, V>>> futures = new ArrayList<>(chunks.size() - 1);
+        for (List<K> chunk : chunks.subList(0, chunks.size() - 1)) {
+            futures.add(CompletableFuture.supplyAsync(() -> fetchFunction.apply(chunk), this.executor));
+        }
+
+        Map<K, V> result = new HashMap<>((int) (keys.size() / 0.75f) + 1);
+        result.putAll(fetchFunction.apply(chunks.get(chunks.size() - 1)));
+        for (CompletableFuture<Map<K, V>> future : futures) {
+            try {
+                result.putAll(future.join());
+            } catch (CompletionException e) {
+                throw unwrap(e.getCause());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Issues an asynchronous multi get for every chunk of keys (e.g. through
+     * {@link net.spy.memcached.MemcachedClient#asyncGetBulk(Collection)}), all of
+     * them before waiting for any, and merges the results.
+     *
+     * @param keys            the keys to get
+     * @param asyncGet        issues the multi get of a chunk of keys
+     * @param timeoutInMillis max time to wait for each multi get
+     * @param <K>             the type of the keys
+     * @param <V>             the type of the values
+     *
+     * @return the merged results of every chunk
+     */
+    public <K, V> Map<K, V> getAll(Collection<K> keys, Function<Collection<K>, ? extends Future<Map<K, V>>> asyncGet,
+            long timeoutInMillis) {
+        List<Future<Map<K, V>>> futures = new ArrayList<>();
+        for (List<K> chunk : this.split(keys)) {
+            futures.add(asyncGet.apply(chunk));
+        }
+
+        Map<K, V> result = new HashMap<>((int) (keys.size() / 0.75f) + 1);
+        for (Future<Map<K, V>> future : futures) {
+            try {
+                result.putAll(future.get(timeoutInMillis, TimeUnit.MILLISECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CacheExecutionException("Interrupted while waiting for a multi get", e);
+            } catch (ExecutionException e) {
+                throw unwrap(e.getCause());
+            } catch (TimeoutException e) {
+                futures.forEach(pending -> pending.cancel(true));
+                throw new CacheExecutionException("Timeout while waiting for a multi get", e);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a bounded executor suitable for fetching chunks. When every thread is
+     * busy and the queue is full, chunks are fetched in the caller thread.
+     *
+     * @param threads amount of threads used to fetch chunks
+     *
+     * @return the executor
+     */
+    public static ThreadPoolExecutor newFetchExecutor(int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(threads * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "fox-cache-fetch");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+
+        return new CacheExecutionException("Error trying to fetch a chunk of keys", cause);
+    }
+}
@@ -0,0 +1,54 @@
+package com.ensolvers.fox.cache.common;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Weighs cache entries by the size in bytes of their JSON representation, as an
+ * estimate of the memory they retain, so in-memory caches can be bounded by
+ * weight instead of by amount of entries (large maps returned by bulk methods
+ * weigh more than single objects). The JSON is counted as it is written,
+ * without buffering it. Usable both as a Guava and as a Caffeine weigher, any
+ * other estimation (e.g. one based on JOL) can be plugged instead.
+ */
+public class SerializedSizeWeigher
+        implements com.google.common.cache.Weigher<String, Object>, com.github.benmanes.caffeine.cache.Weigher<String, Object> {
+    private static final Logger logger = LoggerFactory.getLogger(SerializedSizeWeigher.class);
+
+    /** Weight of the values that cannot be serialized */
+    public static final int DEFAULT_WEIGHT = 1024;
+
+    private final ObjectWriter writer;
+
+    public SerializedSizeWeigher() {
+        this(new ObjectMapper());
+    }
+
+    /**
+     * @param objectMapper the mapper used to serialize the values
+     */
+    public SerializedSizeWeigher(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writer();
+    }
+
+    @Override
+    public int weigh(String key, Object value) {
+        CountingOutputStream counter = new CountingOutputStream(ByteStreams.nullOutputStream());
+        try {
+            this.writer.writeValue(counter, value);
+        } catch (JsonProcessingException e) {
+            logger.warn("Value of key {} could not be serialized to compute its weight, using the default", key, e);
+            return DEFAULT_WEIGHT;
+        } catch (IOException e) {
+            // the null stream never fails
+            throw new IllegalStateException(e);
+        }
+        return (int) Math.min(Integer.MAX_VALUE, key.length() + counter.getCount());
+    }
+}
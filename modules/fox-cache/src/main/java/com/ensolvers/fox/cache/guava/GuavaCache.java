@@ -2,6 +2,8 @@ package com.ensolvers.fox.cache.guava;
 
 import com.ensolvers.fox.cache.common.GenericCache;
 import com.ensolvers.fox.cache.exception.CacheExecutionException;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
@@ -18,19 +20,47 @@ public class GuavaCache<T> implements GenericCache<T> {
 
     private final LoadingCache<String, T> cache;
     private final String keyPrefix;
+    private CacheMetrics metrics = CacheMetrics.DISABLED;
 
     public GuavaCache(Function<String, T> fetchingFunction, String keyPrefix, int expirationTimeInSeconds) {
         this.keyPrefix = keyPrefix;
         this.cache = CacheBuilder.newBuilder().expireAfterAccess(expirationTimeInSeconds, TimeUnit.SECONDS).build(new CacheLoader<>() {
             @Override
             public T load(String key) {
-                return fetchingFunction.apply(key);
+                long startTime = metrics.startTimer();
+                try {
+                    return fetchingFunction.apply(key);
+                } finally {
+                    metrics.recordLatency(Operation.FETCH, startTime);
+                }
             }
         });
     }
 
+    /**
+     * Records hits, misses and latencies of this cache in the given metrics (see
+     * {@link com.ensolvers.fox.cache.metrics.CacheMetricsRegistry}).
+     *
+     * @param metrics the metrics of the cache
+     * 
+     * @return this cache
+     */
+    public GuavaCache<T> withMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
     @Override
     public T get(String key) {
+        long startTime = this.metrics.startTimer();
+        T value = this.cache.getIfPresent(key);
+        this.metrics.recordLatency(Operation.GET, startTime);
+        if (value != null) {
+            this.metrics.recordHit();
+            return value;
+        }
+
+        this.metrics.recordMiss();
         try {
             return this.cache.get(key);
         } catch (ExecutionException e) {
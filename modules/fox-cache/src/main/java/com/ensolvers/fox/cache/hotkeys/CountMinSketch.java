@@ -0,0 +1,79 @@
+package com.ensolvers.fox.cache.hotkeys;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * A lock-free count-min sketch: estimates how many times every key was seen
+ * using a fixed amount of memory, never underestimating the real count.
+ * Counters can be halved periodically so old accesses weigh less than recent
+ * ones.
+ */
+final class CountMinSketch {
+    private static final long[] SEEDS = { 0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L };
+    private static final int MIN_WIDTH = 16;
+    private static final LongUnaryOperator HALVE = value -> value >>> 1;
+
+    private final AtomicLongArray counters;
+    private final int width;
+    private final int shift;
+
+    /**
+     * @param width amount of counters per row, rounded up to a power of 2
+     */
+    CountMinSketch(int width) {
+        int roundedWidth = MIN_WIDTH;
+        while (roundedWidth < width) {
+            roundedWidth <<= 1;
+        }
+        this.width = roundedWidth;
+        this.shift = Long.SIZE - Integer.numberOfTrailingZeros(roundedWidth);
+        this.counters = new AtomicLongArray(roundedWidth * SEEDS.length);
+    }
+
+    /**
+     * Counts an occurrence of the key
+     *
+     * @param key the key
+     *
+     * @return the estimated count of the key, including this occurrence
+     */
+    long increment(String key) {
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, this.counters.incrementAndGet(this.indexOf(hash, row)));
+        }
+        return estimate;
+    }
+
+    /**
+     * @param key the key
+     *
+     * @return the estimated count of the key
+     */
+    long estimate(String key) {
+        int hash = key.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, this.counters.get(this.indexOf(hash, row)));
+        }
+        return estimate;
+    }
+
+    /** Halves every counter, so the estimates decay over time */
+    void halve() {
+        for (int i = 0; i < this.counters.length(); i++) {
+            this.counters.getAndUpdate(i, HALVE);
+        }
+    }
+
+    int width() {
+        return this.width;
+    }
+
+    private int indexOf(int hash, int row) {
+        // multiply-shift hashing, a different odd multiplier per row
+        return row * this.width + (int) ((hash * SEEDS[row]) >>> this.shift);
+    }
+}
@@ -0,0 +1,32 @@
+package com.ensolvers.fox.cache.hotkeys;
+
+/**
+ * A key detected as hot by a {@link HotKeyDetector}, along with its estimated
+ * amount of accesses
+ */
+public class HotKey {
+    private final String key;
+    private final long estimatedAccesses;
+
+    public HotKey(String key, long estimatedAccesses) {
+        this.key = key;
+        this.estimatedAccesses = estimatedAccesses;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the estimated amount of recent accesses to the key (older accesses
+     *         decay over time)
+     */
+    public long getEstimatedAccesses() {
+        return estimatedAccesses;
+    }
+
+    @Override
+    public String toString() {
+        return key + "=" + estimatedAccesses;
+    }
+}
@@ -0,0 +1,140 @@
+package com.ensolvers.fox.cache.hotkeys;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects the most accessed keys of a cache. A sample of the accesses is
+ * counted in a {@link CountMinSketch}, and the keys whose estimated count is
+ * high enough are kept in a bounded top-K. Recording an access is lock-free (a
+ * random draw plus a few atomic increments for sampled accesses), only keys
+ * entering the top-K take a lock. Counts are halved periodically, so keys that
+ * stop being accessed eventually leave the top-K.
+ */
+public class HotKeyDetector {
+    public static final double DEFAULT_SAMPLE_RATE = 0.01;
+    private static final int COUNTERS_PER_TOP_KEY = 256;
+    private static final int SAMPLES_PER_COUNTER = 10;
+
+    private final double sampleRate;
+    private final int topK;
+    private final long minSampledCount;
+    private final CountMinSketch sketch;
+    private final long samplesPerPeriod;
+    private final AtomicLong samples = new AtomicLong();
+    private final Map<String, Long> topKeys = new ConcurrentHashMap<>();
+    private volatile long admissionCount;
+
+    /**
+     * @param sampleRate  fraction of the accesses that are counted (between 0 and
+     *                    1), e.g. {@link #DEFAULT_SAMPLE_RATE}
+     * @param topK        max amount of hot keys tracked
+     * @param minAccesses approximate amount of recent accesses needed for a key to
+     *                    be considered hot
+     */
+    public HotKeyDetector(double sampleRate, int topK, long minAccesses) {
+        if (sampleRate <= 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1, but was " + sampleRate);
+        }
+        if (topK < 1) {
+            throw new IllegalArgumentException("At least one hot key must be tracked, but top-K was " + topK);
+        }
+        this.sampleRate = sampleRate;
+        this.topK = topK;
+        this.minSampledCount = Math.max(1, (long) Math.ceil(minAccesses * sampleRate));
+        this.sketch = new CountMinSketch(topK * COUNTERS_PER_TOP_KEY);
+        this.samplesPerPeriod = (long) this.sketch.width() * SAMPLES_PER_COUNTER;
+        this.admissionCount = this.minSampledCount - 1;
+    }
+
+    /**
+     * Records an access to the key, only a sample of the accesses is counted
+     *
+     * @param key the accessed key
+     */
+    public void record(String key) {
+        if (this.sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= this.sampleRate) {
+            return;
+        }
+
+        long count = this.sketch.increment(key);
+        if (this.topKeys.replace(key, count) == null && count > this.admissionCount) {
+            this.admit(key, count);
+        }
+        if (this.samples.incrementAndGet() % this.samplesPerPeriod == 0) {
+            this.age();
+        }
+    }
+
+    /**
+     * @param key the key
+     *
+     * @return true if the key is currently among the top-K hot keys
+     */
+    public boolean isHot(String key) {
+        return this.topKeys.containsKey(key);
+    }
+
+    /**
+     * @return the current hot keys, most accessed first
+     */
+    public List<HotKey> getTopKeys() {
+        List<HotKey> hotKeys = new ArrayList<>(this.topKeys.size());
+        this.topKeys.forEach((key, count) -> hotKeys.add(new HotKey(key, Math.round(count / this.sampleRate))));
+        hotKeys.sort(Comparator.comparingLong(HotKey::getEstimatedAccesses).reversed());
+        return hotKeys;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    private synchronized void admit(String key, long count) {
+        if (count <= this.admissionCount) {
+            // another key was admitted meanwhile and raised the bar
+            return;
+        }
+
+        this.topKeys.put(key, count);
+        if (this.topKeys.size() > this.topK) {
+            this.topKeys.remove(this.coldestKey());
+        }
+        this.updateAdmissionCount();
+    }
+
+    /**
+     * Halves every count so recent accesses weigh more, and drops the keys that are
+     * no longer hot enough
+     */
+    private synchronized void age() {
+        this.sketch.halve();
+        this.topKeys.replaceAll((key, count) -> count >>> 1);
+        this.topKeys.values().removeIf(count -> count < this.minSampledCount);
+        this.updateAdmissionCount();
+    }
+
+    private void updateAdmissionCount() {
+        if (this.topKeys.size() < this.topK) {
+            this.admissionCount = this.minSampledCount - 1;
+        } else {
+            this.admissionCount = this.topKeys.get(this.coldestKey());
+        }
+    }
+
+    private String coldestKey() {
+        String coldestKey = null;
+        long coldestCount = Long.MAX_VALUE;
+        for (Map.Entry<String, Long> entry : this.topKeys.entrySet()) {
+            if (entry.getValue() < coldestCount) {
+                coldestKey = entry.getKey();
+                coldestCount = entry.getValue();
+            }
+        }
+        return coldestKey;
+    }
+}
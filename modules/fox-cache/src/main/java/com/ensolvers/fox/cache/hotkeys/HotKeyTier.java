@@ -0,0 +1,75 @@
+package com.ensolvers.fox.cache.hotkeys;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small in-process tier for the hot keys of a remote cache: accesses are
+ * recorded in a {@link HotKeyDetector} and the values of the keys it considers
+ * hot are kept locally for a short time, so they stop hitting a single Redis
+ * shard or memcached node on every access. Local copies are not invalidated in
+ * other nodes (unlike {@link com.ensolvers.fox.cache.tiered.TieredCache}), so
+ * the local expiration time bounds how stale they can be.
+ *
+ * @param <V> Type of objects that will be stored in the cache
+ */
+public class HotKeyTier<V> {
+    private final HotKeyDetector detector;
+    private final Cache<String, V> promoted;
+
+    /**
+     * @param detector                     the detector used to choose which keys
+     *                                     are kept locally
+     * @param localExpirationTimeInSeconds time in seconds for the local copies to
+     *                                     expire
+     */
+    public HotKeyTier(HotKeyDetector detector, int localExpirationTimeInSeconds) {
+        this.detector = detector;
+        this.promoted = CacheBuilder.newBuilder().maximumSize(detector.getTopK())
+                .expireAfterWrite(localExpirationTimeInSeconds, TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * Records an access to the key
+     *
+     * @param key the key
+     *
+     * @return the local copy of the value if the key was promoted, null otherwise
+     */
+    public V get(String key) {
+        this.detector.record(key);
+        return this.promoted.getIfPresent(key);
+    }
+
+    /**
+     * Keeps a local copy of the value if the key is hot, null values are never kept
+     *
+     * @param key   the key
+     * @param value the value obtained from the remote cache
+     */
+    public void offer(String key, V value) {
+        if (value != null && this.detector.isHot(key)) {
+            this.promoted.put(key, value);
+        }
+    }
+
+    public void invalidate(String key) {
+        this.promoted.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        this.promoted.invalidateAll();
+    }
+
+    /** @return the current hot keys, see {@link HotKeyDetector#getTopKeys()} */
+    public List<HotKey> getTopKeys() {
+        return this.detector.getTopKeys();
+    }
+
+    /** @return the amount of values currently kept locally */
+    public long promotedSize() {
+        return this.promoted.size();
+    }
+}
@@ -1,19 +1,22 @@
 package com.ensolvers.fox.cache.memcached;
 
-import com.ensolvers.fox.cache.common.CacheString;
+import com.ensolvers.fox.cache.common.ChunkedFetcher;
 import com.ensolvers.fox.cache.common.GenericBulkCache;
-import com.ensolvers.fox.cache.exception.CacheSerializingException;
+import com.ensolvers.fox.cache.codec.CacheCodec;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import net.spy.memcached.MemcachedClient;
 
-import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class MemcachedBulkCache<T> extends MemcachedCache<T> implements GenericBulkCache<T> {
     private final Function<Collection<String>, Map<String, T>> fetchMultiFunction;
+    private ChunkedFetcher chunkedFetcher = ChunkedFetcher.DISABLED;
 
     protected MemcachedBulkCache(MemcachedClient memcachedClient, Function<String, T> fetchFunction,
             Function<Collection<String>, Map<String, T>> fetchMultiFunction, String keyPrefix,
@@ -46,6 +49,31 @@ public class MemcachedBulkCache<T> extends MemcachedCache<T> implements GenericB
                 allowNullValues, null, null);
     }
 
+    public MemcachedBulkCache(MemcachedClient memcachedClient, Function<String, T> fetchFunction,
+            Function<Collection<String>, Map<String, T>> fetchMultiFunction, String keyPrefix, Class<T> objectClass, CacheCodec<T> codec,
+            int expirationTimeInSeconds, boolean allowNullValues) {
+        super(memcachedClient, fetchFunction, keyPrefix, f -> f.constructType(objectClass), expirationTimeInSeconds, allowNullValues, null,
+                null, codec);
+        this.fetchMultiFunction = fetchMultiFunction;
+    }
+
+    /**
+     * Splits bulk gets of more keys than the chunk size in several multi gets,
+     * issued concurrently, and fetches the misses in chunks, in parallel (see
+     * {@link ChunkedFetcher}), instead of passing every missed key to the fetch
+     * function in a single call.
+     *
+     * @param chunkSize max amount of keys of each multi get or fetch
+     * @param executor  the executor used to fetch chunks, e.g. see
+     *                  {@link ChunkedFetcher#newFetchExecutor(int)}
+     * 
+     * @return this cache
+     */
+    public MemcachedBulkCache<T> withChunkedFetch(int chunkSize, Executor executor) {
+        this.chunkedFetcher = new ChunkedFetcher(chunkSize, executor);
+        return this;
+    }
+
     @Override
     /**
      * Uses the fetch lambda Functions
@@ -62,44 +90,75 @@ public class MemcachedBulkCache<T> extends MemcachedCache<T> implements GenericB
         Map<String, String> cacheKeyToOriginalKey = keySet.stream().collect(Collectors.toMap(this::computeKey, Function.identity()));
 
         // Get cached objects: computedKey -> object (String)
-        Map<String, Object> hits = this.memcachedClient.getBulk(cacheKeyToOriginalKey.keySet());
+        long startTime = this.metrics.startTimer();
+        Map<String, Object> hits = this.getMulti(cacheKeyToOriginalKey.keySet());
+        this.metrics.recordLatency(Operation.GET, startTime);
+        this.metrics.recordHits(hits.size());
+        this.metrics.recordMisses(cacheKeyToOriginalKey.size() - (long) hits.size());
 
         // Map to originalKey -> object (T)
         Map<String, T> objects = new HashMap<>(keys.size());
 
         // Convert hits to objects (T)
         hits.forEach((cacheKey, value) -> {
-            try {
-                if (!value.equals(CacheString.NULL_STRING)) {
-                    objects.put(cacheKeyToOriginalKey.get(cacheKey), this.convertToObject((String) value));
-                }
-
-                // Remove the hit
-                cacheKeyToOriginalKey.remove(cacheKey);
-            } catch (IOException e) {
-                throw CacheSerializingException.with(keyPrefix, objectType.getTypeName(), (String) value, e);
+            T object = this.decodeHit(value);
+            if (object != null) {
+                objects.put(cacheKeyToOriginalKey.get(cacheKey), object);
             }
+
+            // Remove the hit
+            cacheKeyToOriginalKey.remove(cacheKey);
         });
 
         // Check hits missed
         if (!cacheKeyToOriginalKey.isEmpty()) {
-            logger.info("Cache missed for {} objects for class {}", cacheKeyToOriginalKey.size(), this.objectType.getTypeName());
+            logger.debug("Cache missed for {} objects for class {}", cacheKeyToOriginalKey.size(), this.objectType.getTypeName());
+
+            // Keys already being loaded by other threads are awaited instead of fetched
+            Map<String, CompletableFuture<T>> ownedLoads = new HashMap<>();
+            Map<String, CompletableFuture<T>> inFlightLoads = this.registerLoads(cacheKeyToOriginalKey.values(), ownedLoads);
+
+            if (!ownedLoads.isEmpty()) {
+                // cache miss, go get the object
+                Map<String, T> freshObjects;
+                try {
+                    startTime = this.metrics.startTimer();
+                    freshObjects = this.chunkedFetcher.fetch(new HashSet<>(ownedLoads.keySet()), fetchMultiFunction);
+                    this.metrics.recordLatency(Operation.FETCH, startTime);
+
+                    // Save the fresh objects to the cache
+                    ownedLoads.keySet().forEach(originalMissedKey -> {
+                        this.put(originalMissedKey, freshObjects.get(originalMissedKey));
+                    });
+                } catch (RuntimeException e) {
+                    this.completeLoads(ownedLoads, null, e);
+                    throw e;
+                }
+                this.completeLoads(ownedLoads, freshObjects, null);
 
-            // cache miss, go get the object
-            Map<String, T> freshObjects = fetchMultiFunction.apply(cacheKeyToOriginalKey.values());
+                // Add fresh objects to the result
+                objects.putAll(freshObjects);
+            }
 
-            // Save the fresh objects to the cache
-            cacheKeyToOriginalKey.values().forEach(originalMissedKey -> {
-                this.put(originalMissedKey, freshObjects.get(originalMissedKey));
+            inFlightLoads.forEach((originalMissedKey, load) -> {
+                T object = this.awaitLoad(load);
+                if (object != null) {
+                    objects.put(originalMissedKey, object);
+                }
             });
-
-            // Add fresh objects to the result
-            objects.putAll(freshObjects);
         }
 
         return objects;
     }
 
+    private Map<String, Object> getMulti(Collection<String> cacheKeys) {
+        if (cacheKeys.size() <= this.chunkedFetcher.getChunkSize()) {
+            return this.memcachedClient.getBulk(cacheKeys);
+        }
+
+        return this.chunkedFetcher.getAll(cacheKeys, this.memcachedClient::asyncGetBulk, this.memcachedClient.getOperationTimeout());
+    }
+
     @Override
     public List<T> getList(Collection<String> keys) {
         Map<String, T> resultMap = getMap(keys);
@@ -20,13 +20,37 @@ package com.ensolvers.fox.cache.memcached;
 
 import com.ensolvers.fox.cache.common.CacheString;
 import com.ensolvers.fox.cache.common.GenericCache;
+import com.ensolvers.fox.cache.codec.CacheCodec;
+import com.ensolvers.fox.cache.exception.CacheExecutionException;
 import com.ensolvers.fox.cache.exception.CacheInvalidArgumentException;
 import com.ensolvers.fox.cache.exception.CacheSerializingException;
+import com.ensolvers.fox.cache.hotkeys.HotKey;
+import com.ensolvers.fox.cache.hotkeys.HotKeyDetector;
+import com.ensolvers.fox.cache.hotkeys.HotKeyTier;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.TypeFactory;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import net.spy.memcached.MemcachedClient;
 import org.slf4j.Logger;
@@ -52,10 +76,59 @@ public class MemcachedCache<T> implements GenericCache<T> {
     private final ObjectMapper objectMapper;
     private Function<T, String> customSerializer;
     private Function<String, T> customDeserializer;
+    private final CacheCodec<T> codec;
+
+    private static final String LEASE_SUFFIX = "-lease";
+    private static final long LEASE_POLLING_INTERVAL_IN_MILLIS = 50;
+    private final ConcurrentMap<String, CompletableFuture<T>> inFlightLoads = new ConcurrentHashMap<>();
+    private int leaseTimeInSeconds;
+
+    // stale-while-revalidate envelopes start with a record separator (which no
+    // JSON, Smile or CBOR document starts with) followed by a version
+    private static final String TIMESTAMPED_STRING_PREFIX = "\u001E1:";
+    private static final byte TIMESTAMPED_BINARY_HEADER = 0x1E;
+    private static final byte TIMESTAMPED_BINARY_VERSION = 1;
+    private static final int TIMESTAMPED_BINARY_HEADER_LENGTH = 10;
+    private int softExpirationTimeInSeconds;
+    private Executor refreshExecutor;
+
+    protected CacheMetrics metrics = CacheMetrics.DISABLED;
+    protected HotKeyTier<T> hotKeys;
 
     public MemcachedCache(MemcachedClient memcachedClient, Function<String, T> fetchFunction, String keyPrefix,
             Function<TypeFactory, JavaType> objectTypeFactory, int expirationTimeInSeconds, boolean allowNullValues,
             Function<T, String> customSerializer, Function<String, T> customDeserializer) {
+        this(memcachedClient, fetchFunction, keyPrefix, objectTypeFactory, expirationTimeInSeconds, allowNullValues, customSerializer,
+                customDeserializer, null);
+    }
+
+    /**
+     * Creates a cache instance that stores the objects in binary form using the
+     * given codec, instead of JSON strings
+     *
+     * @param memcachedClient         the memcached client used to store the objects
+     * @param fetchFunction           the function to fetch the underlying object if
+     *                                not found in the cache
+     * @param keyPrefix               the prefix that will be used to create the
+     *                                keys - since several caches can use the same
+     *                                memcached instance, it is important that every
+     *                                one has its own prefix to avoid collisions
+     * @param objectClass             type of objects that will be stored in the
+     *                                cache
+     * @param codec                   the codec used to convert the objects from/to
+     *                                bytes (e.g.
+     *                                {@link com.ensolvers.fox.cache.codec.JacksonCacheCodec#smile(Class)})
+     * @param expirationTimeInSeconds the item expiration time in seconds
+     */
+    public MemcachedCache(MemcachedClient memcachedClient, Function<String, T> fetchFunction, String keyPrefix, Class<T> objectClass,
+            CacheCodec<T> codec, int expirationTimeInSeconds, boolean allowNullValues) {
+        this(memcachedClient, fetchFunction, keyPrefix, f -> f.constructType(objectClass), expirationTimeInSeconds, allowNullValues, null,
+                null, codec);
+    }
+
+    protected MemcachedCache(MemcachedClient memcachedClient, Function<String, T> fetchFunction, String keyPrefix,
+            Function<TypeFactory, JavaType> objectTypeFactory, int expirationTimeInSeconds, boolean allowNullValues,
+            Function<T, String> customSerializer, Function<String, T> customDeserializer, CacheCodec<T> codec) {
         this.memcachedClient = memcachedClient;
         this.fetchFunction = fetchFunction;
         this.keyPrefix = keyPrefix;
@@ -65,6 +138,7 @@ public class MemcachedCache<T> implements GenericCache<T> {
         this.allowNullValues = allowNullValues;
         this.customSerializer = customSerializer;
         this.customDeserializer = customDeserializer;
+        this.codec = codec;
     }
 
     /**
@@ -143,24 +217,322 @@ public class MemcachedCache<T> implements GenericCache<T> {
      */
     @Override
     public T get(String key) {
+        if (this.hotKeys != null) {
+            T promoted = this.hotKeys.get(key);
+            if (promoted != null) {
+                this.metrics.recordHit();
+                return promoted;
+            }
+        }
+
         String computedKey = this.computeKey(key);
-        String serializedObject = (String) this.memcachedClient.get(computedKey);
+        long startTime = this.metrics.startTimer();
+        Object serializedObject = this.memcachedClient.get(computedKey);
+        this.metrics.recordLatency(Operation.GET, startTime);
 
         // return the object
         if (serializedObject != null) {
-            try {
-                return this.convertToObject(serializedObject);
-            } catch (IOException e) {
-                throw CacheSerializingException.with(keyPrefix, objectType.getTypeName(), serializedObject, e);
+            this.metrics.recordHit();
+            T object = this.decodeHit(serializedObject);
+            if (this.isStale(serializedObject)) {
+                this.refreshInBackground(key, object);
+            } else if (this.hotKeys != null) {
+                this.hotKeys.offer(key, object);
+            }
+            return object;
+        }
+
+        // cache miss, go get the object (only once if several threads miss at the
+        // same time)
+        this.metrics.recordMiss();
+        CompletableFuture<T> load = new CompletableFuture<>();
+        CompletableFuture<T> inFlightLoad = this.inFlightLoads.putIfAbsent(key, load);
+        if (inFlightLoad != null) {
+            return awaitLoad(inFlightLoad);
+        }
+
+        try {
+            T freshObject = this.fetchWithLease(key, computedKey);
+            if (this.hotKeys != null) {
+                this.hotKeys.offer(key, freshObject);
+            }
+            load.complete(freshObject);
+            return freshObject;
+        } catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            this.inFlightLoads.remove(key, load);
+        }
+    }
+
+    /**
+     * Enables a distributed lease so that, when a key is missing, only one node
+     * fetches it while the others wait (up to the lease time) for the value to be
+     * stored. Loads are always coalesced within the same JVM, the lease extends
+     * that to every node sharing the memcached instance.
+     *
+     * @param leaseTimeInSeconds max time a node can hold the lease, 0 to disable it
+     * 
+     * @return this cache
+     */
+    public MemcachedCache<T> withDistributedLease(int leaseTimeInSeconds) {
+        this.leaseTimeInSeconds = leaseTimeInSeconds;
+        return this;
+    }
+
+    /**
+     * Enables stale-while-revalidate: entries older than the soft expiration time
+     * are still returned, but a refresh is triggered in background so the next
+     * readers get a fresh value without waiting for the fetch. Entries are removed
+     * after the (hard) expiration time of the cache as usual. Stored entries carry
+     * their write time, entries written before enabling this mode are considered
+     * fresh. Timestamped entries can only be read while this mode is enabled.
+     *
+     * @param softExpirationTimeInSeconds time in seconds after which an entry is
+     *                                    refreshed in background, must be lower
+     *                                    than the expiration time of the cache
+     * @param refreshExecutor             the executor used to refresh entries, it
+     *                                    should be bounded (e.g. see
+     *                                    {@link #newRefreshExecutor(int, int)}) -
+     *                                    if it rejects a refresh the stale value is
+     *                                    kept until the next read
+     * 
+     * @return this cache
+     */
+    public MemcachedCache<T> withStaleWhileRevalidate(int softExpirationTimeInSeconds, Executor refreshExecutor) {
+        this.softExpirationTimeInSeconds = softExpirationTimeInSeconds;
+        this.refreshExecutor = refreshExecutor;
+        return this;
+    }
+
+    /**
+     * Records hits, misses and latencies of this cache in the given metrics (see
+     * {@link com.ensolvers.fox.cache.metrics.CacheMetricsRegistry}).
+     *
+     * @param metrics the metrics of the cache
+     * 
+     * @return this cache
+     */
+    public MemcachedCache<T> withMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Keeps a local copy of the hot keys of the cache (see {@link HotKeyTier}), so
+     * the most accessed keys do not saturate a single memcached node. Local copies
+     * are evicted when the key is written or invalidated through this instance,
+     * otherwise they expire after the local expiration time.
+     *
+     * @param detector                     the detector used to find the hot keys
+     * @param localExpirationTimeInSeconds time in seconds for the local copies to
+     *                                     expire
+     * 
+     * @return this cache
+     */
+    public MemcachedCache<T> withHotKeys(HotKeyDetector detector, int localExpirationTimeInSeconds) {
+        this.hotKeys = new HotKeyTier<>(detector, localExpirationTimeInSeconds);
+        return this;
+    }
+
+    /**
+     * @return the current hot keys of the cache, most accessed first (empty if hot
+     *         key detection is not enabled)
+     */
+    public List<HotKey> getHotKeys() {
+        return this.hotKeys == null ? Collections.emptyList() : this.hotKeys.getTopKeys();
+    }
+
+    /**
+     * Creates a bounded executor suitable for background refreshes, which rejects
+     * refreshes when every thread is busy and the queue is full.
+     *
+     * @param threads   amount of threads used to refresh entries
+     * @param queueSize max amount of pending refreshes
+     * 
+     * @return the executor
+     */
+    public static ThreadPoolExecutor newRefreshExecutor(int threads, int queueSize) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "fox-cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private boolean isStale(Object stored) {
+        if (this.softExpirationTimeInSeconds <= 0) {
+            return false;
+        }
+
+        long writeTime = writeTimeOf(stored);
+        return writeTime > 0 && System.currentTimeMillis() - writeTime > this.softExpirationTimeInSeconds * 1000L;
+    }
+
+    private void refreshInBackground(String key, T staleObject) {
+        CompletableFuture<T> load = new CompletableFuture<>();
+        if (this.inFlightLoads.putIfAbsent(key, load) != null) {
+            // already being refreshed
+            return;
+        }
+
+        try {
+            this.refreshExecutor.execute(() -> {
+                try {
+                    T freshObject = this.fetch(key);
+                    this.put(key, freshObject);
+                    load.complete(freshObject);
+                } catch (RuntimeException e) {
+                    logger.warn("Error when refreshing key {} of cache with prefix {}", key, keyPrefix, e);
+                    load.complete(staleObject);
+                } finally {
+                    this.inFlightLoads.remove(key, load);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.inFlightLoads.remove(key, load);
+            load.complete(staleObject);
+        }
+    }
+
+    private T fetchWithLease(String key, String computedKey) {
+        if (this.leaseTimeInSeconds <= 0) {
+            T freshObject = this.fetch(key);
+            this.put(key, freshObject);
+            return freshObject;
+        }
+
+        String leaseKey = computedKey + LEASE_SUFFIX;
+        boolean leaseAcquired = this.acquireLease(leaseKey);
+        if (!leaseAcquired) {
+            // another node is fetching the object, wait for it to be stored
+            long deadline = System.currentTimeMillis() + this.leaseTimeInSeconds * 1000L;
+            while (System.currentTimeMillis() < deadline) {
+                Object serializedObject = this.memcachedClient.get(computedKey);
+                if (serializedObject != null) {
+                    return this.decodeHit(serializedObject);
+                }
+                sleep(LEASE_POLLING_INTERVAL_IN_MILLIS);
+            }
+        }
+
+        try {
+            T freshObject = this.fetch(key);
+            this.put(key, freshObject);
+            return freshObject;
+        } finally {
+            if (leaseAcquired) {
+                this.memcachedClient.delete(leaseKey);
+            }
+        }
+    }
+
+    private T fetch(String key) {
+        long startTime = this.metrics.startTimer();
+        try {
+            return this.fetchFunction.apply(key);
+        } finally {
+            this.metrics.recordLatency(Operation.FETCH, startTime);
+        }
+    }
+
+    private boolean acquireLease(String leaseKey) {
+        try {
+            return this.memcachedClient.add(leaseKey, this.leaseTimeInSeconds, "lease").get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheExecutionException("Interrupted while acquiring lease " + leaseKey, e);
+        } catch (ExecutionException e) {
+            throw new CacheExecutionException("Error when trying to acquire lease " + leaseKey, e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheExecutionException("Interrupted while waiting for a value to be loaded", e);
+        }
+    }
+
+    /**
+     * Registers the loads of the given keys, so concurrent misses of the same keys
+     * wait for them instead of fetching them again.
+     *
+     * @param keys the missed keys
+     * 
+     * @return the loads that are already in flight for some of the keys, the rest
+     *         are registered as owned by the caller in {@code ownedLoads}
+     */
+    protected Map<String, CompletableFuture<T>> registerLoads(Collection<String> keys, Map<String, CompletableFuture<T>> ownedLoads) {
+        Map<String, CompletableFuture<T>> inFlight = new HashMap<>();
+        for (String key : keys) {
+            CompletableFuture<T> load = new CompletableFuture<>();
+            CompletableFuture<T> inFlightLoad = this.inFlightLoads.putIfAbsent(key, load);
+            if (inFlightLoad == null) {
+                ownedLoads.put(key, load);
+            } else {
+                inFlight.put(key, inFlightLoad);
             }
         }
+        return inFlight;
+    }
 
-        // cache miss, go get the object
-        T freshObject = fetchFunction.apply(key);
+    /**
+     * Completes and unregisters loads previously registered by
+     * {@link #registerLoads(Collection, Map)}.
+     *
+     * @param ownedLoads the loads to complete
+     * @param values     the loaded values, null if loading failed
+     * @param error      the loading error, if any
+     */
+    protected void completeLoads(Map<String, CompletableFuture<T>> ownedLoads, Map<String, T> values, RuntimeException error) {
+        ownedLoads.forEach((key, load) -> {
+            if (error != null) {
+                load.completeExceptionally(error);
+            } else {
+                load.complete(values.get(key));
+            }
+            this.inFlightLoads.remove(key, load);
+        });
+    }
 
-        this.put(key, freshObject);
+    /**
+     * Waits for a load started by another thread.
+     *
+     * @param load the load to wait for
+     * 
+     * @return the loaded value
+     */
+    protected T awaitLoad(CompletableFuture<T> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new CacheExecutionException("Error when trying to load an item for the cache", e.getCause());
+        }
+    }
 
-        return freshObject;
+    /**
+     * Decodes a value obtained from memcached (see {@link #decode(Object)}),
+     * wrapping any deserialization problem in an unchecked exception
+     */
+    protected T decodeHit(Object serializedObject) {
+        long startTime = this.metrics.startTimer();
+        try {
+            return this.decode(serializedObject);
+        } catch (IOException e) {
+            throw CacheSerializingException.with(keyPrefix, objectType.getTypeName(), String.valueOf(serializedObject), e);
+        } finally {
+            this.metrics.recordLatency(Operation.SERIALIZE, startTime);
+        }
     }
 
     /**
@@ -179,10 +551,21 @@ public class MemcachedCache<T> implements GenericCache<T> {
                     "Cache with prefix '" + keyPrefix + "' is configured to not allow null values but null was provided");
         }
 
+        Object encoded;
+        long startTime = this.metrics.startTimer();
         try {
-            this.memcachedClient.set(this.computeKey(key), this.expirationTimeInSeconds, this.convertToString(freshObject));
+            encoded = this.timestamped(this.encode(freshObject));
         } catch (JsonProcessingException e) {
             throw CacheSerializingException.with(this.computeKey(key), freshObject.getClass(), e);
+        } finally {
+            this.metrics.recordLatency(Operation.SERIALIZE, startTime);
+        }
+
+        startTime = this.metrics.startTimer();
+        this.memcachedClient.set(this.computeKey(key), this.expirationTimeInSeconds, encoded);
+        this.metrics.recordLatency(Operation.PUT, startTime);
+        if (this.hotKeys != null) {
+            this.hotKeys.invalidate(key);
         }
     }
 
@@ -190,6 +573,129 @@ public class MemcachedCache<T> implements GenericCache<T> {
     public void invalidate(String key) {
         String finalKey = this.computeKey(key);
         this.memcachedClient.delete(finalKey);
+        if (this.hotKeys != null) {
+            this.hotKeys.invalidate(key);
+        }
+    }
+
+    /**
+     * Converts the object to the representation stored in memcached: a byte array
+     * if a codec was provided (an empty one for nulls), or a string otherwise
+     */
+    protected Object encode(T object) throws JsonProcessingException {
+        if (this.codec == null) {
+            return this.convertToString(object);
+        }
+
+        return object == null ? new byte[0] : this.codec.encode(object);
+    }
+
+    /**
+     * Converts back a value obtained from memcached, see {@link #encode(Object)}
+     */
+    protected T decode(Object stored) throws IOException {
+        stored = this.payloadOf(stored);
+        if (stored instanceof byte[]) {
+            byte[] bytes = (byte[]) stored;
+            if (bytes.length == 0) {
+                return null;
+            }
+            if (this.codec == null) {
+                throw new CacheSerializingException("Cache with prefix '" + keyPrefix + "' has no codec to decode binary values", null);
+            }
+            return this.codec.decode(bytes);
+        }
+
+        return this.convertToObject((String) stored);
+    }
+
+    /**
+     * Adds the write time to the value if stale-while-revalidate is enabled
+     */
+    private Object timestamped(Object encoded) {
+        if (this.softExpirationTimeInSeconds <= 0) {
+            return encoded;
+        }
+
+        long now = System.currentTimeMillis();
+        if (encoded instanceof String) {
+            return TIMESTAMPED_STRING_PREFIX + now + ":" + encoded;
+        }
+
+        byte[] bytes = (byte[]) encoded;
+        ByteBuffer buffer = ByteBuffer.allocate(TIMESTAMPED_BINARY_HEADER_LENGTH + bytes.length);
+        buffer.put(TIMESTAMPED_BINARY_HEADER).put(TIMESTAMPED_BINARY_VERSION).putLong(now).put(bytes);
+        return buffer.array();
+    }
+
+    /**
+     * @return the write time of a stored value, or -1 if it does not have one (or
+     *         stale-while-revalidate is disabled)
+     */
+    private long writeTimeOf(Object stored) {
+        if (this.softExpirationTimeInSeconds <= 0) {
+            return -1;
+        }
+        if (stored instanceof String) {
+            String string = (String) stored;
+            int separator = timestampSeparatorOf(string);
+            return separator < 0 ? -1 : Long.parseLong(string, TIMESTAMPED_STRING_PREFIX.length(), separator, 10);
+        }
+        if (isTimestampedBinary(stored)) {
+            return ByteBuffer.wrap((byte[]) stored, 2, 8).getLong();
+        }
+        return -1;
+    }
+
+    /**
+     * @return the stored value without its write time, if any - values are only
+     *         unwrapped when stale-while-revalidate is enabled, so payloads that
+     *         look like an envelope are kept as they are otherwise
+     */
+    private Object payloadOf(Object stored) {
+        if (this.softExpirationTimeInSeconds <= 0) {
+            return stored;
+        }
+        if (stored instanceof String) {
+            String string = (String) stored;
+            int separator = timestampSeparatorOf(string);
+            return separator < 0 ? string : string.substring(separator + 1);
+        }
+        if (isTimestampedBinary(stored)) {
+            byte[] bytes = (byte[]) stored;
+            return Arrays.copyOfRange(bytes, TIMESTAMPED_BINARY_HEADER_LENGTH, bytes.length);
+        }
+        return stored;
+    }
+
+    /**
+     * @return the index of the separator that follows the write time of a
+     *         timestamped string, or -1 if the string is not timestamped
+     */
+    private static int timestampSeparatorOf(String string) {
+        if (!string.startsWith(TIMESTAMPED_STRING_PREFIX)) {
+            return -1;
+        }
+        int separator = string.indexOf(':', TIMESTAMPED_STRING_PREFIX.length());
+        if (separator <= TIMESTAMPED_STRING_PREFIX.length()) {
+            return -1;
+        }
+        for (int i = TIMESTAMPED_STRING_PREFIX.length(); i < separator; i++) {
+            char c = string.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+        return separator;
+    }
+
+    private static boolean isTimestampedBinary(Object stored) {
+        if (!(stored instanceof byte[])) {
+            return false;
+        }
+        byte[] bytes = (byte[]) stored;
+        return bytes.length >= TIMESTAMPED_BINARY_HEADER_LENGTH && bytes[0] == TIMESTAMPED_BINARY_HEADER
+                && bytes[1] == TIMESTAMPED_BINARY_VERSION;
     }
 
     protected String convertToString(T object) throws JsonProcessingException {
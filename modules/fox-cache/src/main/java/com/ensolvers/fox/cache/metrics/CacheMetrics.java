@@ -0,0 +1,166 @@
+package com.ensolvers.fox.cache.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Hit/miss/eviction counters and latency histograms of a single cache.
+ * Recording is lock-free so it can be done on every operation, latencies are
+ * kept in HDR histograms which are flipped every time a {@link #snapshot()} is
+ * taken.
+ *
+ * Caches are not instrumented unless an instance is provided to them (see
+ * {@link CacheMetricsRegistry}), {@link #DISABLED} is used otherwise and
+ * discards every record.
+ */
+public class CacheMetrics {
+    /** The operations whose latency is recorded */
+    public enum Operation {
+        /** a lookup in the cache, not including fetching missed values */
+        GET,
+        /** a write to the cache */
+        PUT,
+        /** a call to the function that fetches missed values */
+        FETCH,
+        /** the serialization or deserialization of a value */
+        SERIALIZE
+    }
+
+    public static final CacheMetrics DISABLED = new CacheMetrics(null, false);
+
+    private static final long MAX_TRACKABLE_LATENCY_IN_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final String cacheName;
+    private final boolean enabled;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Map<Operation, Recorder> latencies = new EnumMap<>(Operation.class);
+    private long lastSnapshotHits;
+    private long lastSnapshotMisses;
+    private long lastSnapshotEvictions;
+
+    /**
+     * @param cacheName the name of the instrumented cache
+     */
+    public CacheMetrics(String cacheName) {
+        this(cacheName, true);
+    }
+
+    private CacheMetrics(String cacheName, boolean enabled) {
+        this.cacheName = cacheName;
+        this.enabled = enabled;
+        if (enabled) {
+            for (Operation operation : Operation.values()) {
+                this.latencies.put(operation, new Recorder(MAX_TRACKABLE_LATENCY_IN_NANOS, SIGNIFICANT_DIGITS));
+            }
+        }
+    }
+
+    public void recordHit() {
+        this.recordHits(1);
+    }
+
+    public void recordMiss() {
+        this.recordMisses(1);
+    }
+
+    public void recordHits(long count) {
+        if (this.enabled && count > 0) {
+            this.hits.add(count);
+        }
+    }
+
+    public void recordMisses(long count) {
+        if (this.enabled && count > 0) {
+            this.misses.add(count);
+        }
+    }
+
+    /**
+     * Records an entry removed by the cache to honor its size, weight or memory
+     * bounds
+     */
+    public void recordEviction() {
+        if (this.enabled) {
+            this.evictions.increment();
+        }
+    }
+
+    /**
+     * @return the start time to pass to {@link #recordLatency(Operation, long)}, 0
+     *         if metrics are disabled (so the clock is not read)
+     */
+    public long startTimer() {
+        return this.enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @param operation the timed operation
+     * @param startTime the value returned by {@link #startTimer()} when the
+     *                  operation started
+     */
+    public void recordLatency(Operation operation, long startTime) {
+        if (this.enabled) {
+            long latency = Math.max(0, System.nanoTime() - startTime);
+            this.latencies.get(operation).recordValue(Math.min(latency, MAX_TRACKABLE_LATENCY_IN_NANOS));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    /** @return the amount of hits since the cache was created */
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /** @return the amount of misses since the cache was created */
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    /** @return the amount of evictions since the cache was created */
+    public long getEvictionCount() {
+        return this.evictions.sum();
+    }
+
+    /** @return the ratio of hits since the cache was created, 0 if unused */
+    public double getHitRatio() {
+        long hitCount = this.getHitCount();
+        long total = hitCount + this.getMissCount();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Takes a snapshot of the hits, misses, evictions and latencies recorded since
+     * the previous snapshot. Snapshots are meant to be taken periodically by a
+     * single exporter (see {@link CacheMetricsRegistry#startExporting}).
+     *
+     * @return the snapshot
+     */
+    public synchronized CacheMetricsSnapshot snapshot() {
+        long hitCount = this.getHitCount();
+        long missCount = this.getMissCount();
+        long evictionCount = this.getEvictionCount();
+        Map<Operation, Histogram> intervalLatencies = new EnumMap<>(Operation.class);
+        this.latencies.forEach((operation, recorder) -> intervalLatencies.put(operation, recorder.getIntervalHistogram()));
+
+        CacheMetricsSnapshot snapshot = new CacheMetricsSnapshot(cacheName, hitCount - lastSnapshotHits, missCount - lastSnapshotMisses,
+                evictionCount - lastSnapshotEvictions, intervalLatencies);
+        this.lastSnapshotHits = hitCount;
+        this.lastSnapshotMisses = missCount;
+        this.lastSnapshotEvictions = evictionCount;
+        return snapshot;
+    }
+}
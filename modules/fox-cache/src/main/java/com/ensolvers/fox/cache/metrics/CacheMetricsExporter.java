@@ -0,0 +1,15 @@
+package com.ensolvers.fox.cache.metrics;
+
+import java.util.List;
+
+/**
+ * Publishes cache metrics to a monitoring system, see
+ * {@link CacheMetricsRegistry#startExporting(CacheMetricsExporter, long)}.
+ */
+public interface CacheMetricsExporter {
+    /**
+     * @param snapshots the metrics recorded by every cache since the previous
+     *                  export
+     */
+    void export(List<CacheMetricsSnapshot> snapshots);
+}
@@ -0,0 +1,84 @@
+package com.ensolvers.fox.cache.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the {@link CacheMetrics} of several caches indexed by cache name, and
+ * periodically exports them (e.g. to Micrometer or Cloudwatch, see
+ * {@link MicrometerCacheMetricsExporter} and
+ * {@link CloudwatchCacheMetricsExporter}).
+ */
+public class CacheMetricsRegistry implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CacheMetricsRegistry.class);
+
+    private final ConcurrentMap<String, CacheMetrics> metrics = new ConcurrentHashMap<>();
+    private ScheduledExecutorService exportScheduler;
+
+    /**
+     * @param cacheName the name of the cache
+     *
+     * @return the metrics of the cache, created if it is the first time they are
+     *         requested
+     */
+    public CacheMetrics getOrCreate(String cacheName) {
+        return this.metrics.computeIfAbsent(cacheName, CacheMetrics::new);
+    }
+
+    public Collection<CacheMetrics> getAll() {
+        return this.metrics.values();
+    }
+
+    /**
+     * @return a snapshot of the metrics of every cache, see
+     *         {@link CacheMetrics#snapshot()}
+     */
+    public List<CacheMetricsSnapshot> snapshot() {
+        List<CacheMetricsSnapshot> snapshots = new ArrayList<>(this.metrics.size());
+        this.metrics.values().forEach(cacheMetrics -> snapshots.add(cacheMetrics.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * Starts exporting the metrics of every cache periodically, in a background
+     * daemon thread.
+     *
+     * @param exporter        the exporter
+     * @param periodInSeconds time in seconds between exports
+     */
+    public synchronized void startExporting(CacheMetricsExporter exporter, long periodInSeconds) {
+        if (this.exportScheduler != null) {
+            throw new IllegalStateException("Metrics are already being exported");
+        }
+
+        this.exportScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fox-cache-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.exportScheduler.scheduleAtFixedRate(() -> {
+            try {
+                exporter.export(this.snapshot());
+            } catch (RuntimeException e) {
+                logger.error("There was an error when exporting cache metrics", e);
+            }
+        }, periodInSeconds, periodInSeconds, TimeUnit.SECONDS);
+    }
+
+    /** Stops exporting metrics, if started. */
+    @Override
+    public synchronized void close() {
+        if (this.exportScheduler != null) {
+            this.exportScheduler.shutdown();
+            this.exportScheduler = null;
+        }
+    }
+}
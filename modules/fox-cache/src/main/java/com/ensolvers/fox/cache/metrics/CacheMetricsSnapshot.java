@@ -0,0 +1,71 @@
+package com.ensolvers.fox.cache.metrics;
+
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import java.util.Map;
+import org.HdrHistogram.Histogram;
+
+/**
+ * The hits, misses, evictions and latencies recorded by a cache during an
+ * interval, see {@link CacheMetrics#snapshot()}. Latencies are expressed in
+ * nanoseconds.
+ */
+public class CacheMetricsSnapshot {
+    private final String cacheName;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final Map<Operation, Histogram> latencies;
+
+    public CacheMetricsSnapshot(String cacheName, long hitCount, long missCount, long evictionCount, Map<Operation, Histogram> latencies) {
+        this.cacheName = cacheName;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.latencies = latencies;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /** @return the ratio of hits during the interval, 0 if unused */
+    public double getHitRatio() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /** @return the amount of times the operation was recorded */
+    public long getCount(Operation operation) {
+        return latencies.get(operation).getTotalCount();
+    }
+
+    /**
+     * @param operation  the operation
+     * @param percentile the percentile, between 0 and 100 (e.g. 99.9)
+     *
+     * @return the latency at the given percentile
+     */
+    public long getLatencyAtPercentile(Operation operation, double percentile) {
+        return latencies.get(operation).getValueAtPercentile(percentile);
+    }
+
+    public double getMeanLatency(Operation operation) {
+        return latencies.get(operation).getMean();
+    }
+
+    public long getMaxLatency(Operation operation) {
+        return latencies.get(operation).getMaxValue();
+    }
+}
@@ -0,0 +1,48 @@
+package com.ensolvers.fox.cache.metrics;
+
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import com.ensolvers.fox.cloudwatch.CloudwatchService;
+import java.util.List;
+
+/**
+ * Exports cache metrics to Cloudwatch through a {@link CloudwatchService},
+ * using the cache name as dimension: hits, misses and evictions as counts, and
+ * the amount of operations plus their p50/p99/max latencies (in milliseconds)
+ * for every operation recorded during the interval. Requires fox-metrics in the
+ * classpath.
+ */
+public class CloudwatchCacheMetricsExporter implements CacheMetricsExporter {
+    private static final String DIMENSION_NAME = "CACHE";
+    private static final double NANOS_PER_MILLISECOND = 1_000_000.0;
+
+    private final CloudwatchService cloudwatchService;
+
+    public CloudwatchCacheMetricsExporter(CloudwatchService cloudwatchService) {
+        this.cloudwatchService = cloudwatchService;
+    }
+
+    @Override
+    public void export(List<CacheMetricsSnapshot> snapshots) {
+        for (CacheMetricsSnapshot snapshot : snapshots) {
+            String cacheName = snapshot.getCacheName();
+            this.cloudwatchService.putCount(DIMENSION_NAME, cacheName, "HITS", snapshot.getHitCount());
+            this.cloudwatchService.putCount(DIMENSION_NAME, cacheName, "MISSES", snapshot.getMissCount());
+            this.cloudwatchService.putCount(DIMENSION_NAME, cacheName, "EVICTIONS", snapshot.getEvictionCount());
+
+            for (Operation operation : Operation.values()) {
+                long count = snapshot.getCount(operation);
+                if (count == 0) {
+                    continue;
+                }
+
+                this.cloudwatchService.putCount(DIMENSION_NAME, cacheName, operation + "_COUNT", count);
+                this.cloudwatchService.putMilliseconds(DIMENSION_NAME, cacheName, operation + "_P50",
+                        snapshot.getLatencyAtPercentile(operation, 50) / NANOS_PER_MILLISECOND);
+                this.cloudwatchService.putMilliseconds(DIMENSION_NAME, cacheName, operation + "_P99",
+                        snapshot.getLatencyAtPercentile(operation, 99) / NANOS_PER_MILLISECOND);
+                this.cloudwatchService.putMilliseconds(DIMENSION_NAME, cacheName, operation + "_MAX",
+                        snapshot.getMaxLatency(operation) / NANOS_PER_MILLISECOND);
+            }
+        }
+    }
+}
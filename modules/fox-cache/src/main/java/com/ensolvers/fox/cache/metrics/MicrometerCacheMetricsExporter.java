@@ -0,0 +1,55 @@
+package com.ensolvers.fox.cache.metrics;
+
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exports cache metrics to a Micrometer registry: hits, misses, evictions and
+ * operations as counters, and the latency percentiles of the last interval as
+ * gauges (in seconds), every meter tagged with the cache name. Requires
+ * micrometer-core in the classpath.
+ */
+public class MicrometerCacheMetricsExporter implements CacheMetricsExporter {
+    private static final String PREFIX = "fox.cache.";
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicLong> gaugeValues = new ConcurrentHashMap<>();
+
+    public MicrometerCacheMetricsExporter(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void export(List<CacheMetricsSnapshot> snapshots) {
+        for (CacheMetricsSnapshot snapshot : snapshots) {
+            Tags tags = Tags.of("cache", snapshot.getCacheName());
+            this.registry.counter(PREFIX + "hits", tags).increment(snapshot.getHitCount());
+            this.registry.counter(PREFIX + "misses", tags).increment(snapshot.getMissCount());
+            this.registry.counter(PREFIX + "evictions", tags).increment(snapshot.getEvictionCount());
+
+            for (Operation operation : Operation.values()) {
+                Tags operationTags = tags.and("operation", operation.name().toLowerCase(Locale.ROOT));
+                this.registry.counter(PREFIX + "operations", operationTags).increment(snapshot.getCount(operation));
+                this.setLatency("latency.p50", operationTags, snapshot.getLatencyAtPercentile(operation, 50));
+                this.setLatency("latency.p99", operationTags, snapshot.getLatencyAtPercentile(operation, 99));
+                this.setLatency("latency.max", operationTags, snapshot.getMaxLatency(operation));
+            }
+        }
+    }
+
+    private void setLatency(String name, Tags tags, long latencyInNanos) {
+        this.gaugeValues.computeIfAbsent(name + tags, id -> {
+            AtomicLong value = new AtomicLong();
+            Gauge.builder(PREFIX + name, value, v -> v.get() / NANOS_PER_SECOND).tags(tags).baseUnit("seconds").register(this.registry);
+            return value;
+        }).set(latencyInNanos);
+    }
+}
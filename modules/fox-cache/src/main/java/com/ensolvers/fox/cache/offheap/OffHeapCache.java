@@ -0,0 +1,188 @@
+package com.ensolvers.fox.cache.offheap;
+
+import com.ensolvers.fox.cache.codec.CacheCodec;
+import com.ensolvers.fox.cache.common.GenericBulkCache;
+import com.ensolvers.fox.cache.exception.CacheInvalidArgumentException;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An in-process cache that keeps its values serialized outside of the Java heap
+ * (see {@link OffHeapStore}), for hot datasets too large to be kept as objects
+ * without hurting GC pauses but that should not pay a network round-trip
+ * either. Values are converted using a {@link CacheCodec} (e.g.
+ * {@link com.ensolvers.fox.cache.codec.JacksonCacheCodec}), so every read
+ * deserializes a fresh copy.
+ *
+ * @param <T> Type of objects that will be stored in the cache
+ */
+public class OffHeapCache<T> implements GenericBulkCache<T> {
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapCache.class);
+    private static final byte[] NULL_VALUE = new byte[0];
+
+    private final OffHeapStore store;
+    private final String keyPrefix;
+    private final CacheCodec<T> codec;
+    private final Function<String, T> fetchFunction;
+    private final Function<Collection<String>, Map<String, T>> fetchMultiFunction;
+    private final long expirationTimeMillis;
+    private final boolean allowNullValues;
+    private CacheMetrics metrics = CacheMetrics.DISABLED;
+
+    /**
+     * @param store                   the store where values are kept, it can be
+     *                                shared by several caches
+     * @param keyPrefix               the prefix used to create the keys, unique
+     *                                among the caches sharing the store
+     * @param codec                   the codec used to convert the objects from/to
+     *                                bytes
+     * @param fetchFunction           the function to fetch an object if not found
+     *                                in the cache
+     * @param fetchMultiFunction      the function to fetch several objects at once,
+     *                                used by {@link #getMap(Collection)}
+     * @param expirationTimeInSeconds the item expiration time in seconds, 0 for no
+     *                                expiration
+     * @param allowNullValues         if null values are allowed
+     */
+    public OffHeapCache(OffHeapStore store, String keyPrefix, CacheCodec<T> codec, Function<String, T> fetchFunction,
+            Function<Collection<String>, Map<String, T>> fetchMultiFunction, int expirationTimeInSeconds, boolean allowNullValues) {
+        this.store = store;
+        this.keyPrefix = keyPrefix;
+        this.codec = codec;
+        this.fetchFunction = fetchFunction;
+        this.fetchMultiFunction = fetchMultiFunction;
+        this.expirationTimeMillis = TimeUnit.SECONDS.toMillis(expirationTimeInSeconds);
+        this.allowNullValues = allowNullValues;
+    }
+
+    /**
+     * Records hits, misses and latencies of this cache in the given metrics (see
+     * {@link com.ensolvers.fox.cache.metrics.CacheMetricsRegistry}).
+     *
+     * @param metrics the metrics of the cache
+     * 
+     * @return this cache
+     */
+    public OffHeapCache<T> withMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    @Override
+    public T get(String key) {
+        long startTime = this.metrics.startTimer();
+        byte[] stored = this.store.get(this.computeKey(key));
+        this.metrics.recordLatency(Operation.GET, startTime);
+
+        if (stored != null) {
+            this.metrics.recordHit();
+            return this.decode(stored);
+        }
+
+        this.metrics.recordMiss();
+        startTime = this.metrics.startTimer();
+        T freshObject = this.fetchFunction.apply(key);
+        this.metrics.recordLatency(Operation.FETCH, startTime);
+        this.put(key, freshObject);
+        return freshObject;
+    }
+
+    @Override
+    public Map<String, T> getMap(Collection<String> keys) {
+        Set<String> missedKeys = new HashSet<>();
+        Map<String, T> objects = new HashMap<>(keys.size());
+
+        long startTime = this.metrics.startTimer();
+        for (String key : keys) {
+            byte[] stored = this.store.get(this.computeKey(key));
+            if (stored == null) {
+                missedKeys.add(key);
+            } else if (stored.length > 0) {
+                objects.put(key, this.decode(stored));
+            }
+        }
+        this.metrics.recordLatency(Operation.GET, startTime);
+        this.metrics.recordMisses(missedKeys.size());
+        this.metrics.recordHits(keys.size() - (long) missedKeys.size());
+
+        if (!missedKeys.isEmpty()) {
+            logger.debug("Cache missed for {} objects in cache with prefix {}", missedKeys.size(), keyPrefix);
+            startTime = this.metrics.startTimer();
+            Map<String, T> freshObjects = this.fetchMultiFunction.apply(missedKeys);
+            this.metrics.recordLatency(Operation.FETCH, startTime);
+
+            missedKeys.forEach(missedKey -> {
+                T freshObject = freshObjects.get(missedKey);
+                this.put(missedKey, freshObject);
+                if (freshObject != null) {
+                    objects.put(missedKey, freshObject);
+                }
+            });
+        }
+
+        return objects;
+    }
+
+    @Override
+    public List<T> getList(Collection<String> keys) {
+        Map<String, T> resultMap = getMap(keys);
+        return keys.stream().map(resultMap::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public void put(String key, T object) {
+        if (!allowNullValues && object == null) {
+            throw new CacheInvalidArgumentException(
+                    "Cache with prefix '" + keyPrefix + "' is configured to not allow null values but null was provided");
+        }
+
+        long startTime = this.metrics.startTimer();
+        byte[] encoded = object == null ? NULL_VALUE : this.codec.encode(object);
+        this.metrics.recordLatency(Operation.SERIALIZE, startTime);
+
+        startTime = this.metrics.startTimer();
+        if (!this.store.put(this.computeKey(key), encoded, this.expirationTimeMillis)) {
+            logger.debug("Value of key {} in cache with prefix {} is too large ({} bytes) to be stored", key, keyPrefix, encoded.length);
+        }
+        this.metrics.recordLatency(Operation.PUT, startTime);
+    }
+
+    @Override
+    public void invalidate(String key) {
+        this.store.remove(this.computeKey(key));
+    }
+
+    /** Removes every entry of this cache from the store */
+    public void invalidateAll() {
+        this.store.removeByPrefix(this.keyPrefix + "-");
+    }
+
+    private T decode(byte[] stored) {
+        if (stored.length == 0) {
+            return null;
+        }
+
+        long startTime = this.metrics.startTimer();
+        try {
+            return this.codec.decode(stored);
+        } finally {
+            this.metrics.recordLatency(Operation.SERIALIZE, startTime);
+        }
+    }
+
+    private String computeKey(String key) {
+        return this.keyPrefix + "-" + key;
+    }
+}
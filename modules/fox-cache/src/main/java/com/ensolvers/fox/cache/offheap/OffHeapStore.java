@@ -0,0 +1,394 @@
+package com.ensolvers.fox.cache.offheap;
+
+import com.ensolvers.fox.cache.exception.CacheInitializationException;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stores binary values outside of the Java heap, so large datasets can be
+ * cached in-process without increasing GC pauses. The memory is split in
+ * segments (each one guarded by its own lock), every segment being a direct
+ * {@link ByteBuffer} (or a region of a memory-mapped file) divided in
+ * fixed-size blocks. A value takes as many blocks as needed, and when a segment
+ * runs out of free blocks entries are evicted following the CLOCK algorithm
+ * (entries read since the clock hand last passed get a second chance).
+ *
+ * Only the index (key, block numbers and expiration of every entry) is kept in
+ * the heap. Several caches can share a store as long as they use different key
+ * prefixes (see {@link OffHeapCache}).
+ */
+public class OffHeapStore implements AutoCloseable {
+    public static final int DEFAULT_BLOCK_SIZE = 256;
+    private static final int DEFAULT_CONCURRENCY = 16;
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final Segment[] segments;
+    private final long capacityInBytes;
+    private volatile CacheMetrics metrics = CacheMetrics.DISABLED;
+
+    private OffHeapStore(Segment[] segments) {
+        this.segments = segments;
+        long capacity = 0;
+        for (Segment segment : segments) {
+            capacity += segment.slab.capacity();
+        }
+        this.capacityInBytes = capacity;
+    }
+
+    /**
+     * Creates a store backed by direct buffers, the total capacity must fit in the
+     * max direct memory of the JVM (see {@code -XX:MaxDirectMemorySize})
+     *
+     * @param capacityInBytes the total capacity of the store
+     * @param blockSize       the size of the blocks values are split in, e.g.
+     *                        {@link #DEFAULT_BLOCK_SIZE} (the last block of every
+     *                        value is partially wasted)
+     *
+     * @return the store
+     */
+    public static OffHeapStore direct(long capacityInBytes, int blockSize) {
+        long segmentSize = segmentSize(capacityInBytes, blockSize);
+        Segment[] segments = new Segment[segmentCount(capacityInBytes)];
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment(ByteBuffer.allocateDirect((int) segmentSize), blockSize);
+        }
+        return new OffHeapStore(segments);
+    }
+
+    /**
+     * Creates a store backed by a memory-mapped file, so the OS can page out the
+     * values that are not being used. The file is only scratch space: its contents
+     * are overwritten and not reloaded when a new store is created.
+     *
+     * @param file            the file, created if it does not exist
+     * @param capacityInBytes the total capacity of the store (and size of the file)
+     * @param blockSize       the size of the blocks values are split in, e.g.
+     *                        {@link #DEFAULT_BLOCK_SIZE}
+     *
+     * @return the store
+     */
+    public static OffHeapStore mapped(Path file, long capacityInBytes, int blockSize) {
+        long segmentSize = segmentSize(capacityInBytes, blockSize);
+        Segment[] segments = new Segment[segmentCount(capacityInBytes)];
+        // mappings remain valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < segments.length; i++) {
+                segments[i] = new Segment(channel.map(FileChannel.MapMode.READ_WRITE, i * segmentSize, segmentSize), blockSize);
+            }
+        } catch (IOException e) {
+            throw new CacheInitializationException("Could not map file " + file + " to create an off-heap store", e);
+        }
+        return new OffHeapStore(segments);
+    }
+
+    private static int segmentCount(long capacityInBytes) {
+        int count = DEFAULT_CONCURRENCY;
+        while (capacityInBytes / count > MAX_SEGMENT_SIZE) {
+            count <<= 1;
+        }
+        return count;
+    }
+
+    private static long segmentSize(long capacityInBytes, int blockSize) {
+        long segmentSize = capacityInBytes / segmentCount(capacityInBytes);
+        if (segmentSize < blockSize) {
+            throw new IllegalArgumentException("Capacity " + capacityInBytes + " is too small for blocks of " + blockSize + " bytes");
+        }
+        return segmentSize - segmentSize % blockSize;
+    }
+
+    /**
+     * Records the evictions of the store in the given metrics
+     *
+     * @param metrics the metrics
+     *
+     * @return this store
+     */
+    public OffHeapStore withMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * @param key the key
+     *
+     * @return a copy of the value, or null if it is not stored or expired
+     */
+    public byte[] get(String key) {
+        return this.segmentFor(key).get(key, System.currentTimeMillis());
+    }
+
+    /**
+     * Stores a value, evicting other entries of the same segment if there is no
+     * room for it
+     *
+     * @param key                  the key
+     * @param value                the value
+     * @param expirationTimeMillis time in milliseconds for the entry to expire, 0
+     *                             to never expire
+     *
+     * @return false if the value is too large to be stored
+     */
+    public boolean put(String key, byte[] value, long expirationTimeMillis) {
+        long expiresAt = expirationTimeMillis > 0 ? System.currentTimeMillis() + expirationTimeMillis : 0;
+        int evictions = this.segmentFor(key).put(key, value, expiresAt);
+        if (evictions < 0) {
+            return false;
+        }
+        for (int i = 0; i < evictions; i++) {
+            this.metrics.recordEviction();
+        }
+        return true;
+    }
+
+    public void remove(String key) {
+        this.segmentFor(key).remove(key);
+    }
+
+    /**
+     * Removes every entry whose key starts with the prefix, iterating the whole
+     * index
+     *
+     * @param prefix the prefix
+     */
+    public void removeByPrefix(String prefix) {
+        for (Segment segment : this.segments) {
+            segment.removeByPrefix(prefix);
+        }
+    }
+
+    /** @return the amount of entries stored, including expired ones */
+    public long size() {
+        long size = 0;
+        for (Segment segment : this.segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long getCapacityInBytes() {
+        return capacityInBytes;
+    }
+
+    /**
+     * Removes every entry. The memory is released once the store is garbage
+     * collected, since direct and mapped buffers cannot be freed explicitly.
+     */
+    @Override
+    public void close() {
+        this.removeByPrefix("");
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return this.segments[hash & (this.segments.length - 1)];
+    }
+
+    private static final class Entry {
+        private final String key;
+        private final int[] blocks;
+        private final int length;
+        private final long expiresAt;
+        private boolean referenced;
+        private boolean removed;
+
+        private Entry(String key, int[] blocks, int length, long expiresAt) {
+            this.key = key;
+            this.blocks = blocks;
+            this.length = length;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return this.expiresAt > 0 && this.expiresAt <= now;
+        }
+    }
+
+    private static final class Segment {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer slab;
+        private final int blockSize;
+        private final int[] freeBlocks;
+        private int freeCount;
+        private final Map<String, Entry> index = new HashMap<>();
+        // entries in insertion order, the head being the clock hand
+        private final ArrayDeque<Entry> clock = new ArrayDeque<>();
+
+        private Segment(ByteBuffer slab, int blockSize) {
+            this.slab = slab;
+            this.blockSize = blockSize;
+            this.freeBlocks = new int[slab.capacity() / blockSize];
+            for (int i = 0; i < this.freeBlocks.length; i++) {
+                this.freeBlocks[i] = this.freeBlocks.length - 1 - i;
+            }
+            this.freeCount = this.freeBlocks.length;
+        }
+
+        private byte[] get(String key, long now) {
+            this.lock.lock();
+            try {
+                Entry entry = this.index.get(key);
+                if (entry == null) {
+                    return null;
+                }
+                if (entry.isExpired(now)) {
+                    this.release(entry);
+                    return null;
+                }
+
+                entry.referenced = true;
+                byte[] value = new byte[entry.length];
+                int offset = 0;
+                for (int block : entry.blocks) {
+                    int length = Math.min(this.blockSize, value.length - offset);
+                    this.slab.position(block * this.blockSize);
+                    this.slab.get(value, offset, length);
+                    offset += length;
+                }
+                return value;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * @return the amount of entries evicted to make room for the value, -1 if it
+         *         does not fit in the segment
+         */
+        private int put(String key, byte[] value, long expiresAt) {
+            int neededBlocks = Math.max(1, (value.length + this.blockSize - 1) / this.blockSize);
+            if (neededBlocks > this.freeBlocks.length) {
+                this.remove(key);
+                return -1;
+            }
+
+            this.lock.lock();
+            try {
+                Entry previous = this.index.get(key);
+                if (previous != null) {
+                    this.release(previous);
+                }
+
+                int evictions = 0;
+                long now = System.currentTimeMillis();
+                while (this.freeCount < neededBlocks) {
+                    if (this.evictNext(now)) {
+                        evictions++;
+                    }
+                }
+
+                int[] blocks = new int[neededBlocks];
+                int offset = 0;
+                for (int i = 0; i < neededBlocks; i++) {
+                    blocks[i] = this.freeBlocks[--this.freeCount];
+                    int length = Math.min(this.blockSize, value.length - offset);
+                    this.slab.position(blocks[i] * this.blockSize);
+                    this.slab.put(value, offset, length);
+                    offset += length;
+                }
+
+                Entry entry = new Entry(key, blocks, value.length, expiresAt);
+                this.index.put(key, entry);
+                this.clock.addLast(entry);
+                this.compactClock();
+                return evictions;
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        private void remove(String key) {
+            this.lock.lock();
+            try {
+                Entry entry = this.index.get(key);
+                if (entry != null) {
+                    this.release(entry);
+                }
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        private void removeByPrefix(String prefix) {
+            this.lock.lock();
+            try {
+                Iterator<Entry> entries = this.index.values().iterator();
+                while (entries.hasNext()) {
+                    Entry entry = entries.next();
+                    if (entry.key.startsWith(prefix)) {
+                        entries.remove();
+                        this.free(entry);
+                    }
+                }
+                this.compactClock();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        private int size() {
+            this.lock.lock();
+            try {
+                return this.index.size();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+
+        /**
+         * Advances the clock hand one entry: expired entries and the ones not read
+         * since the hand last passed are removed, the rest get a second chance
+         *
+         * @return true if an entry was evicted (not counting expired ones)
+         */
+        private boolean evictNext(long now) {
+            Entry entry = this.clock.pollFirst();
+            if (entry.removed) {
+                return false;
+            }
+            if (entry.isExpired(now)) {
+                this.index.remove(entry.key);
+                this.free(entry);
+                return false;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+                this.clock.addLast(entry);
+                return false;
+            }
+
+            this.index.remove(entry.key);
+            this.free(entry);
+            return true;
+        }
+
+        private void release(Entry entry) {
+            this.index.remove(entry.key);
+            this.free(entry);
+        }
+
+        private void free(Entry entry) {
+            entry.removed = true;
+            for (int block : entry.blocks) {
+                this.freeBlocks[this.freeCount++] = block;
+            }
+        }
+
+        /** Drops removed entries from the clock once they outnumber the live ones */
+        private void compactClock() {
+            if (this.clock.size() > 2 * this.index.size() + 16) {
+                this.clock.removeIf(entry -> entry.removed);
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ensolvers.fox.cache.redis;
+
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link RedisListCache} that also exposes non-blocking operations built on
+ * top of Lettuce's async API.
+ *
+ * @param <V> Type of objects that will be stored in the cache
+ */
+public class RedisAsyncListCache<V> extends RedisListCache<V> {
+    protected final RedisClusterAsyncCommands<String, String> redisAsync;
+
+    public RedisAsyncListCache(StatefulRedisConnection<String, String> connection, String name, int expirationTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        this(connection.sync(), connection.async(), name, expirationTime, valueClass, customSerializer, customDeserializer,
+                maxEntriesPerBlock);
+    }
+
+    public RedisAsyncListCache(RedisClusterCommands<String, String> redis, RedisClusterAsyncCommands<String, String> redisAsync,
+            String name, int expirationTime, Class<V> valueClass, CheckedFunction<V, String> customSerializer,
+            CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        super(redis, name, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
+        this.redisAsync = redisAsync;
+    }
+
+    /**
+     * Given a key returns a future with all the elements of the list. IMPORTANT: If
+     * the key does not exists the future will complete with an empty list.
+     *
+     * @param key The key of the list.
+     * 
+     * @return A future of the list elements.
+     */
+    public CompletableFuture<List<V>> getAsync(String key) {
+        return this.redisAsync.lrange(this.computeKey(key), 0L, -1L).thenApply(representationList -> {
+            List<V> result = new ArrayList<>(representationList.size());
+            for (String representation : representationList) {
+                result.add(this.deserializeValueUnchecked(representation));
+            }
+            return result;
+        }).toCompletableFuture();
+    }
+
+    /**
+     * Prepends a value to a list without blocking.
+     *
+     * @param key   The key of the list.
+     * @param value to be added
+     * 
+     * @return A future that completes when the value has been pushed and the TTL
+     *         refreshed.
+     */
+    public CompletableFuture<Void> pushAsync(String key, V value) {
+        notNull(value);
+        return this.pushAsync(key, Collections.singletonList(value));
+    }
+
+    /**
+     * Prepends multiple values to a list without blocking. The push and the TTL
+     * refresh are done atomically by a script in a single round-trip.
+     *
+     * @param key    The key of the list.
+     * @param values to be added.
+     * 
+     * @return A future that completes when the values have been pushed and the TTL
+     *         refreshed.
+     */
+    public CompletableFuture<Void> pushAsync(String key, Collection<V> values) {
+        notNull(key);
+        notEmpty(values);
+
+        return PUSH_SCRIPT.<Long>evalAsync(this.redisAsync, ScriptOutputType.INTEGER, new String[] { this.computeKey(key) },
+                this.pushScriptArgs(LPUSH, values, expirationTime, 0)).thenAccept(size -> {
+                });
+    }
+
+    /**
+     * Returns a future with the number of elements in a list.
+     *
+     * @param key The key of the list.
+     * 
+     * @return A future of the list size.
+     */
+    public CompletableFuture<Long> sizeAsync(String key) {
+        return this.redisAsync.llen(this.computeKey(key)).toCompletableFuture();
+    }
+}
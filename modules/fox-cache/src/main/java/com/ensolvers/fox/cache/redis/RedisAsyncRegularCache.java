@@ -0,0 +1,107 @@
+package com.ensolvers.fox.cache.redis;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link RedisRegularCache} that also exposes non-blocking operations built
+ * on top of Lettuce's async API. Both the sync and the async commands share the
+ * same (multiplexed) connection, so a caller can fan out several reads without
+ * parking a thread per request.
+ *
+ * @param <V> Type of objects that will be stored in the cache
+ */
+public class RedisAsyncRegularCache<V> extends RedisRegularCache<V> {
+    protected final RedisClusterAsyncCommands<String, String> redisAsync;
+
+    public RedisAsyncRegularCache(StatefulRedisConnection<String, String> connection, String name, int expirationTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        this(connection.sync(), connection.async(), name, expirationTime, valueClass, customSerializer, customDeserializer,
+                maxEntriesPerBlock);
+    }
+
+    public RedisAsyncRegularCache(RedisClusterCommands<String, String> redis, RedisClusterAsyncCommands<String, String> redisAsync,
+            String name, int expirationTime, Class<V> valueClass, CheckedFunction<V, String> customSerializer,
+            CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        super(redis, name, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
+        this.redisAsync = redisAsync;
+    }
+
+    /**
+     * Given a key returns a future with the associated value. The future completes
+     * with null if there's no such key.
+     *
+     * @param key The key of the element to retrieve.
+     * 
+     * @return A future of the value associated with the key.
+     */
+    public CompletableFuture<V> getAsync(String key) {
+        return this.redisAsync.get(this.computeKey(key)).thenApply(this::recordHitOrMiss).thenApply(this::deserializeValueUnchecked)
+                .toCompletableFuture();
+    }
+
+    /**
+     * Retrieves several keys at once using a single MGET.
+     *
+     * @param keys The keys of the elements to retrieve.
+     * 
+     * @return A future of a map key -> value, missing keys are not included.
+     */
+    public CompletableFuture<Map<String, V>> getAllAsync(Collection<String> keys) {
+        notNull(keys);
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(new HashMap<>());
+        }
+
+        Map<String, String> cacheKeyToOriginalKey = new HashMap<>(keys.size());
+        keys.forEach(key -> cacheKeyToOriginalKey.put(this.computeKey(key), key));
+
+        return this.redisAsync.mget(cacheKeyToOriginalKey.keySet().toArray(new String[0])).thenApply(keyValues -> {
+            Map<String, V> result = new HashMap<>(keyValues.size());
+            for (KeyValue<String, String> keyValue : keyValues) {
+                if (keyValue.hasValue()) {
+                    result.put(cacheKeyToOriginalKey.get(keyValue.getKey()), this.deserializeValueUnchecked(keyValue.getValue()));
+                }
+            }
+            return result;
+        }).toCompletableFuture();
+    }
+
+    /**
+     * Sets a value to a key without blocking. Overrides previous value if key
+     * already exists. Sets TTL.
+     *
+     * @param key   The key of the element to store.
+     * @param value The element to store.
+     * 
+     * @return A future that completes when Redis acknowledges the write.
+     */
+    public CompletableFuture<Void> setAsync(String key, V value) {
+        notNull(key);
+        notNull(value);
+        // evicted before and after the write, so a concurrent get cannot promote
+        // the old value again while the command is in flight
+        this.invalidateHotKey(key);
+        return this.redisAsync.set(this.computeKey(key), this.serializeValueUnchecked(value), new SetArgs().ex(expirationTime))
+                .thenAccept(reply -> this.invalidateHotKey(key)).toCompletableFuture();
+    }
+
+    /**
+     * Removes the entry from the cache without blocking.
+     *
+     * @param key The key of the entry to remove.
+     * 
+     * @return A future that completes when the entry has been removed.
+     */
+    public CompletableFuture<Void> invalidateAsync(String key) {
+        this.invalidateHotKey(key);
+        return this.redisAsync.del(this.computeKey(key)).thenAccept(deleted -> this.invalidateHotKey(key)).toCompletableFuture();
+    }
+}
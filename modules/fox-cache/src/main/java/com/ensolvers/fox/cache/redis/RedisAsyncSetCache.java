@@ -0,0 +1,96 @@
+package com.ensolvers.fox.cache.redis;
+
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link RedisSetCache} that also exposes non-blocking operations built on
+ * top of Lettuce's async API.
+ *
+ * @param <V> Type of objects that will be stored in the cache
+ */
+public class RedisAsyncSetCache<V> extends RedisSetCache<V> {
+    protected final RedisClusterAsyncCommands<String, String> redisAsync;
+
+    public RedisAsyncSetCache(StatefulRedisConnection<String, String> connection, String cacheName, int expirationTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        this(connection.sync(), connection.async(), cacheName, expirationTime, valueClass, customSerializer, customDeserializer,
+                maxEntriesPerBlock);
+    }
+
+    public RedisAsyncSetCache(RedisClusterCommands<String, String> redis, RedisClusterAsyncCommands<String, String> redisAsync,
+            String cacheName, int expirationTime, Class<V> valueClass, CheckedFunction<V, String> customSerializer,
+            CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        super(redis, cacheName, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
+        this.redisAsync = redisAsync;
+    }
+
+    /**
+     * Given a key returns a future with all the elements of the set. IMPORTANT: If
+     * the key does not exists the future will complete with an empty set.
+     *
+     * @param key The key of the set.
+     * 
+     * @return A future of the set elements.
+     */
+    public CompletableFuture<Set<V>> getAsync(String key) {
+        return this.redisAsync.smembers(this.computeKey(key)).thenApply(representations -> {
+            Set<V> result = new HashSet<>();
+            for (String representation : representations) {
+                result.add(this.deserializeValueUnchecked(representation));
+            }
+            return result;
+        }).toCompletableFuture();
+    }
+
+    /**
+     * Adds a value to a set without blocking.
+     *
+     * @param key   The key of the set.
+     * @param value to be added
+     * 
+     * @return A future that completes when the value has been added and the TTL
+     *         refreshed.
+     */
+    public CompletableFuture<Void> pushAsync(String key, V value) {
+        notNull(value);
+        return this.pushAsync(key, Collections.singletonList(value));
+    }
+
+    /**
+     * Adds multiple values to a set without blocking. The add and the TTL refresh
+     * are done atomically by a script in a single round-trip.
+     *
+     * @param key    The key of the set.
+     * @param values to be added.
+     * 
+     * @return A future that completes when the values have been added and the TTL
+     *         refreshed.
+     */
+    public CompletableFuture<Void> pushAsync(String key, Collection<V> values) {
+        notNull(key);
+        notEmpty(values);
+
+        return PUSH_SCRIPT.<Long>evalAsync(this.redisAsync, ScriptOutputType.INTEGER, new String[] { this.computeKey(key) },
+                this.pushScriptArgs(SADD, values, expirationTime, 0)).thenAccept(size -> {
+                });
+    }
+
+    /**
+     * Returns a future with the number of elements in a set.
+     *
+     * @param key The key of the set.
+     * 
+     * @return A future of the set size.
+     */
+    public CompletableFuture<Long> sizeAsync(String key) {
+        return this.redisAsync.scard(this.computeKey(key)).toCompletableFuture();
+    }
+}
@@ -0,0 +1,82 @@
+package com.ensolvers.fox.cache.redis;
+
+import com.ensolvers.fox.cache.codec.CacheCodec;
+import com.ensolvers.fox.cache.common.GenericCache;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+
+/**
+ * A regular (key/value) cache that stores values in binary form using a
+ * {@link CacheCodec} (e.g. Smile or CBOR) instead of JSON strings, reducing
+ * both the payload size and the serialization cost.
+ *
+ * @param <V> Type of objects that will be stored in the cache
+ */
+public class RedisBinaryCache<V> extends RedisCache<V> implements GenericCache<V> {
+    protected final RedisClusterCommands<String, byte[]> binaryRedis;
+    protected final CacheCodec<V> codec;
+
+    /**
+     * @param redis          the commands used for key-only operations (e.g.
+     *                       invalidations)
+     * @param binaryRedis    the commands used to read and write the values
+     * @param name           of the cache, serves as "topic"
+     * @param expirationTime time in seconds for the elements in the cache to
+     *                       expire.
+     * @param valueClass     Class of the values.
+     * @param codec          the codec used to convert the values from/to bytes
+     */
+    public RedisBinaryCache(RedisClusterCommands<String, String> redis, RedisClusterCommands<String, byte[]> binaryRedis, String name,
+            int expirationTime, Class<V> valueClass, CacheCodec<V> codec) {
+        super(redis, name, expirationTime, valueClass, null, null, null);
+        this.binaryRedis = binaryRedis;
+        this.codec = codec;
+    }
+
+    /**
+     * Given a key returns the associated value. Return null if there's no such key.
+     *
+     * @param key The key of the element to retrieve.
+     *
+     * @return The value associated with the key.
+     */
+    @Override
+    public V get(String key) {
+        long startTime = this.metrics.startTimer();
+        byte[] bytes = this.recordHitOrMiss(this.binaryRedis.get(this.computeKey(key)));
+        this.metrics.recordLatency(Operation.GET, startTime);
+        if (bytes == null) {
+            return null;
+        }
+
+        startTime = this.metrics.startTimer();
+        V value = this.codec.decode(bytes);
+        this.metrics.recordLatency(Operation.SERIALIZE, startTime);
+        return value;
+    }
+
+    /**
+     * Sets a value to a key. Overrides previous value if key already exists. Sets
+     * TTL.
+     *
+     * @param key   The key of the element to store.
+     * @param value The element to store.
+     */
+    public void set(String key, V value) {
+        notNull(key);
+        notNull(value);
+        long startTime = this.metrics.startTimer();
+        byte[] bytes = this.codec.encode(value);
+        this.metrics.recordLatency(Operation.SERIALIZE, startTime);
+
+        startTime = this.metrics.startTimer();
+        this.binaryRedis.set(this.computeKey(key), bytes, new SetArgs().ex(expirationTime));
+        this.metrics.recordLatency(Operation.PUT, startTime);
+    }
+
+    @Override
+    public void put(String key, V object) {
+        this.set(key, object);
+    }
+}
@@ -0,0 +1,264 @@
+package com.ensolvers.fox.cache.redis;
+
+import com.ensolvers.fox.cache.common.CacheString;
+import com.ensolvers.fox.cache.common.GenericBulkCache;
+import com.ensolvers.fox.cache.exception.CacheExecutionException;
+import com.ensolvers.fox.cache.exception.CacheInvalidArgumentException;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * A Redis-based cache that supports bulk loading, analogous to
+ * {@link com.ensolvers.fox.cache.memcached.MemcachedBulkCache}. Hits are
+ * obtained with a single MGET, misses are fetched with a single call to the
+ * bulk fetch function and written back in one pipelined batch of SET ... EX
+ * commands.
+ *
+ * @param <V> Type of objects that will be stored in the cache
+ */
+public class RedisBulkCache<V> extends RedisAsyncRegularCache<V> implements GenericBulkCache<V> {
+    private final Function<String, V> fetchFunction;
+    private final Function<Collection<String>, Map<String, V>> fetchMultiFunction;
+    private final boolean allowNullValues;
+    private final Duration timeout;
+
+    /**
+     * @param connection         the connection used to access Redis
+     * @param name               of the cache, serves as "topic"
+     * @param expirationTime     time in seconds for the elements in the cache to
+     *                           expire.
+     * @param valueClass         Class of the values.
+     * @param customSerializer   custom serializer that will be used instead of
+     *                           default, can be null.
+     * @param customDeserializer custom deserializer that will be used instead of
+     *                           default, can be null.
+     * @param fetchFunction      the function to fetch the underlying object if not
+     *                           found in the cache
+     * @param fetchMultiFunction the function to fetch several underlying objects at
+     *                           once if not found in the cache
+     * @param allowNullValues    if null values are allowed
+     */
+    public RedisBulkCache(StatefulRedisConnection<String, String> connection, String name, int expirationTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Function<String, V> fetchFunction,
+            Function<Collection<String>, Map<String, V>> fetchMultiFunction, boolean allowNullValues) {
+        this(connection.sync(), connection.async(), connection.getTimeout(), name, expirationTime, valueClass, customSerializer,
+                customDeserializer, fetchFunction, fetchMultiFunction, allowNullValues);
+    }
+
+    /**
+     * Same as
+     * {@link #RedisBulkCache(StatefulRedisConnection, String, int, Class, CheckedFunction, CheckedFunction, Function, Function, boolean)}
+     * but built from the commands of any kind of connection (standalone,
+     * master/replica or cluster).
+     *
+     * @param redis      the sync commands used to access Redis
+     * @param redisAsync the async commands used to access Redis
+     * @param timeout    max time to wait for pipelined writes to complete
+     */
+    public RedisBulkCache(RedisClusterCommands<String, String> redis, RedisClusterAsyncCommands<String, String> redisAsync,
+            Duration timeout, String name, int expirationTime, Class<V> valueClass, CheckedFunction<V, String> customSerializer,
+            CheckedFunction<String, V> customDeserializer, Function<String, V> fetchFunction,
+            Function<Collection<String>, Map<String, V>> fetchMultiFunction, boolean allowNullValues) {
+        super(redis, redisAsync, name, expirationTime, valueClass, customSerializer, customDeserializer, null);
+        this.fetchFunction = fetchFunction;
+        this.fetchMultiFunction = fetchMultiFunction;
+        this.allowNullValues = allowNullValues;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Returns the value associated with the key, using the fetch function (and
+     * storing the result) if it is not present in the cache.
+     *
+     * @param key The key of the element to retrieve.
+     * 
+     * @return The value associated with the key.
+     */
+    @Override
+    public V get(String key) {
+        if (this.hotKeys != null) {
+            V promoted = this.hotKeys.get(key);
+            if (promoted != null) {
+                this.metrics.recordHit();
+                return promoted;
+            }
+        }
+
+        long startTime = this.metrics.startTimer();
+        String serializedObject = this.recordHitOrMiss(this.commands.get(this.computeKey(key)));
+        this.metrics.recordLatency(Operation.GET, startTime);
+
+        if (serializedObject != null) {
+            V object = this.convertToObject(serializedObject);
+            this.offerHotKey(key, object);
+            return object;
+        }
+
+        // cache miss, go get the object
+        startTime = this.metrics.startTimer();
+        V freshObject = fetchFunction.apply(key);
+        this.metrics.recordLatency(Operation.FETCH, startTime);
+
+        this.put(key, freshObject);
+        this.offerHotKey(key, freshObject);
+
+        return freshObject;
+    }
+
+    @Override
+    public void put(String key, V value) {
+        notNull(key);
+        String serializedValue = this.convertToString(value);
+        long startTime = this.metrics.startTimer();
+        this.commands.set(this.computeKey(key), serializedValue, new SetArgs().ex(expirationTime));
+        this.metrics.recordLatency(Operation.PUT, startTime);
+        this.invalidateHotKey(key);
+    }
+
+    /**
+     * Stores several entries at once, pipelining every SET ... EX command so only
+     * one round-trip is awaited. Every value is validated and serialized before
+     * sending any command, so either all entries are sent or none is.
+     *
+     * @param values the entries to store
+     * 
+     * @throws IllegalArgumentException      if a key is null
+     * @throws CacheInvalidArgumentException if a value is null and null values are
+     *                                       not allowed
+     */
+    public void putAll(Map<String, V> values) {
+        // serialize everything first so nothing is written if a value is invalid
+        Map<String, String> serializedValues = new HashMap<>((int) (values.size() / 0.75f) + 1);
+        values.forEach((key, value) -> {
+            notNull(key);
+            serializedValues.put(this.computeKey(key), this.convertToString(value));
+        });
+
+        List<RedisFuture<String>> futures = new ArrayList<>(serializedValues.size());
+        SetArgs setArgs = new SetArgs().ex(expirationTime);
+        serializedValues.forEach((cacheKey, serializedValue) -> futures.add(this.redisAsync.set(cacheKey, serializedValue, setArgs)));
+
+        long startTime = this.metrics.startTimer();
+        if (!LettuceFutures.awaitAll(timeout, futures.toArray(new RedisFuture[0]))) {
+            throw new CacheExecutionException("Timeout when trying to store " + values.size() + " entries in cache " + cacheName);
+        }
+        this.metrics.recordLatency(Operation.PUT, startTime);
+        values.keySet().forEach(this::invalidateHotKey);
+    }
+
+    /**
+     * Uses the fetch lambda Functions
+     *
+     * @param keys a collection of keys
+     * 
+     * @return the objects found or fetched, indexed by key
+     */
+    @Override
+    public Map<String, V> getMap(Collection<String> keys) {
+        // Filter duplicated keys
+        Set<String> keySet = new HashSet<>(keys);
+        Map<String, V> objects = new HashMap<>(keySet.size());
+
+        if (keySet.isEmpty()) {
+            return objects;
+        }
+
+        // Computation of keys keeping the correspondence with the original version
+        Map<String, String> cacheKeyToOriginalKey = keySet.stream().collect(Collectors.toMap(this::computeKey, Function.identity()));
+
+        // Hot keys kept locally are served without hitting Redis
+        if (this.hotKeys != null) {
+            for (String key : keySet) {
+                V promoted = this.hotKeys.get(key);
+                if (promoted != null) {
+                    objects.put(key, promoted);
+                    cacheKeyToOriginalKey.remove(this.computeKey(key));
+                }
+            }
+        }
+
+        // Get cached objects with a single MGET
+        List<KeyValue<String, String>> hits = Collections.emptyList();
+        if (!cacheKeyToOriginalKey.isEmpty()) {
+            long startTime = this.metrics.startTimer();
+            hits = this.commands.mget(cacheKeyToOriginalKey.keySet().toArray(new String[0]));
+            this.metrics.recordLatency(Operation.GET, startTime);
+        }
+
+        // Convert hits to objects (V)
+        for (KeyValue<String, String> hit : hits) {
+            if (hit.hasValue()) {
+                V object = this.convertToObject(hit.getValue());
+                if (object != null) {
+                    String originalKey = cacheKeyToOriginalKey.get(hit.getKey());
+                    objects.put(originalKey, object);
+                    this.offerHotKey(originalKey, object);
+                }
+
+                // Remove the hit
+                cacheKeyToOriginalKey.remove(hit.getKey());
+            }
+        }
+
+        this.metrics.recordHits(keySet.size() - (long) cacheKeyToOriginalKey.size());
+        this.metrics.recordMisses(cacheKeyToOriginalKey.size());
+
+        // Check hits missed
+        if (!cacheKeyToOriginalKey.isEmpty()) {
+            logger.debug("Cache missed for {} objects for class {}", cacheKeyToOriginalKey.size(), this.valueType.getTypeName());
+
+            // cache miss, go get the objects
+            long startTime = this.metrics.startTimer();
+            Map<String, V> freshObjects = fetchMultiFunction.apply(cacheKeyToOriginalKey.values());
+            this.metrics.recordLatency(Operation.FETCH, startTime);
+
+            // Save the fresh objects to the cache in a single pipelined batch
+            Map<String, V> toStore = new HashMap<>(cacheKeyToOriginalKey.size());
+            cacheKeyToOriginalKey.values()
+                    .forEach(originalMissedKey -> toStore.put(originalMissedKey, freshObjects.get(originalMissedKey)));
+            this.putAll(toStore);
+            freshObjects.forEach(this::offerHotKey);
+
+            // Add fresh objects to the result
+            objects.putAll(freshObjects);
+        }
+
+        return objects;
+    }
+
+    @Override
+    public List<V> getList(Collection<String> keys) {
+        Map<String, V> resultMap = getMap(keys);
+        return keys.stream().map(resultMap::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    private String convertToString(V value) {
+        if (value == null) {
+            if (!allowNullValues) {
+                throw new CacheInvalidArgumentException(
+                        "Cache '" + cacheName + "' is configured to not allow null values but null was provided");
+            }
+            return CacheString.NULL_STRING;
+        }
+
+        return this.serializeValueUnchecked(value);
+    }
+
+    private V convertToObject(String serializedObject) {
+        if (serializedObject.equals(CacheString.NULL_STRING)) {
+            return null;
+        }
+
+        return this.deserializeValueUnchecked(serializedObject);
+    }
+}
@@ -1,35 +1,102 @@
 package com.ensolvers.fox.cache.redis;
 
+import com.ensolvers.fox.cache.common.CacheGeneration;
+import com.ensolvers.fox.cache.exception.CacheExecutionException;
+import com.ensolvers.fox.cache.exception.CacheSerializingException;
+import com.ensolvers.fox.cache.hotkeys.HotKey;
+import com.ensolvers.fox.cache.hotkeys.HotKeyDetector;
+import com.ensolvers.fox.cache.hotkeys.HotKeyTier;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import io.lettuce.core.KeyScanCursor;
-import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public abstract class RedisCache<V> {
     Logger logger = LoggerFactory.getLogger(RedisCache.class);
 
+    /**
+     * Commands of the shared connection, null when the cache works against a Redis
+     * Cluster (use {@link #commands} instead, which is always set)
+     */
     protected RedisCommands<String, String> redis;
+    /** Commands of the shared connection, for any kind of Redis deployment */
+    protected RedisClusterCommands<String, String> commands;
     protected long expirationTime;
     protected String cacheName;
-    private static final int KEY_SCAN_MAX_LIMIT = 1000;
     private static final String KEY_SEPARATOR = "::";
+    private static final String GENERATION_KEY_PREFIX = "fox-cache-generation::";
+    protected static final String SERIALIZATION_PROBLEM = "There was a problem during serialization";
+
+    /**
+     * Pushes values (ARGV[4..n]) to a collection using the given command (ARGV[1]),
+     * then trims it to the max amount of entries (ARGV[3], if positive) and
+     * refreshes its TTL (ARGV[2], if positive). Everything is done atomically in a
+     * single round-trip. Values are pushed in chunks to avoid exceeding the Lua
+     * stack when unpacking them. Returns the resulting size of the collection.
+     */
+    protected static final RedisScript PUSH_SCRIPT = new RedisScript(String.join("\n", //
+            "local command = ARGV[1]", //
+            "local ttl = tonumber(ARGV[2])", //
+            "local maxEntries = tonumber(ARGV[3])", //
+            "for i = 4, #ARGV, 1000 do", //
+            "  redis.call(command, KEYS[1], unpack(ARGV, i, math.min(i + 999, #ARGV)))", //
+            "end", //
+            "if maxEntries > 0 then", //
+            "  redis.call('LTRIM', KEYS[1], 0, maxEntries - 1)", //
+            "end", //
+            "if ttl > 0 then", //
+            "  redis.call('EXPIRE', KEYS[1], ttl)", //
+            "end", //
+            "if command == 'SADD' then", //
+            "  return redis.call('SCARD', KEYS[1])", //
+            "end", //
+            "return redis.call('LLEN', KEYS[1])"));
+    protected static final String LPUSH = "LPUSH";
+    protected static final String RPUSH = "RPUSH";
+    protected static final String SADD = "SADD";
     protected final Class<V> valueClass;
     private final CheckedFunction<V, String> customSerializer;
     private final CheckedFunction<String, V> customDeserializer;
     protected final JavaType valueType;
     private final ObjectMapper objectMapper;
     protected final Integer maxEntriesPerBlock;
+    private GenericObjectPool<StatefulRedisConnection<String, String>> connectionPool;
+    private String keyPrefix;
+    private final CacheGeneration generation;
+    protected CacheMetrics metrics = CacheMetrics.DISABLED;
+    protected HotKeyTier<V> hotKeys;
 
     public RedisCache(RedisCommands<String, String> redis, String cacheName, int expirationTime, Class<V> valueClass,
             CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
-        this.redis = redis;
+        this((RedisClusterCommands<String, String>) redis, cacheName, expirationTime, valueClass, customSerializer, customDeserializer,
+                maxEntriesPerBlock);
+    }
+
+    /**
+     * Creates a cache that works against any kind of Redis deployment, including a
+     * Redis Cluster (in which case transactions and blocking commands are not
+     * supported)
+     */
+    public RedisCache(RedisClusterCommands<String, String> commands, String cacheName, int expirationTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        this.commands = commands;
+        this.redis = commands instanceof RedisCommands ? (RedisCommands<String, String>) commands : null;
         this.cacheName = cacheName;
         this.expirationTime = expirationTime;
         this.valueClass = valueClass;
@@ -38,18 +105,116 @@ public abstract class RedisCache<V> {
         this.objectMapper = new ObjectMapper();
         this.valueType = this.objectMapper.getTypeFactory().constructType(valueClass);
         this.maxEntriesPerBlock = maxEntriesPerBlock;
+        this.keyPrefix = cacheName;
+        this.generation = new CacheGeneration(() -> this.commands.get(GENERATION_KEY_PREFIX + cacheName),
+                value -> this.commands.set(GENERATION_KEY_PREFIX + cacheName, value), CacheGeneration.DEFAULT_REFRESH_INTERVAL_IN_MILLIS);
+    }
+
+    /**
+     * Sets the pool used to borrow dedicated connections, see
+     * {@link #withDedicatedConnection(Function)}.
+     *
+     * @param connectionPool the pool, null if the cache works in non-pooled mode
+     */
+    void setConnectionPool(GenericObjectPool<StatefulRedisConnection<String, String>> connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    /**
+     * Sets whether the cache name should be used as a hash tag when computing keys,
+     * so every key of the cache maps to the same Redis Cluster slot and multi-key
+     * commands (e.g. MGET) can be used.
+     *
+     * @param hashTagged true if the cache works against a Redis Cluster
+     */
+    void setHashTagged(boolean hashTagged) {
+        this.keyPrefix = hashTagged ? "{" + cacheName + "}" : cacheName;
+    }
+
+    /**
+     * Sets the metrics where hits, misses and latencies of this cache are recorded.
+     *
+     * @param metrics the metrics of the cache
+     */
+    void setMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Enables hot key detection: the most accessed keys of the cache are kept in a
+     * local tier for a short time (see {@link HotKeyTier}), so they do not saturate
+     * a single Redis shard. Only caches of single values (e.g.
+     * {@link RedisRegularCache}) keep local copies.
+     *
+     * @param detector                     the detector used to find the hot keys
+     * @param localExpirationTimeInSeconds time in seconds for the local copies to
+     *                                     expire
+     */
+    void setHotKeys(HotKeyDetector detector, int localExpirationTimeInSeconds) {
+        this.hotKeys = new HotKeyTier<>(detector, localExpirationTimeInSeconds);
+    }
+
+    /**
+     * @return the current hot keys of the cache, most accessed first (empty if hot
+     *         key detection is not enabled)
+     */
+    public List<HotKey> getHotKeys() {
+        return this.hotKeys == null ? Collections.emptyList() : this.hotKeys.getTopKeys();
+    }
+
+    /**
+     * Keeps a local copy of the value if hot key detection is enabled and the key
+     * is hot.
+     *
+     * @param key   The key of the element.
+     * @param value The value read from (or just stored in) Redis.
+     */
+    protected void offerHotKey(String key, V value) {
+        if (this.hotKeys != null) {
+            this.hotKeys.offer(key, value);
+        }
+    }
+
+    /**
+     * Evicts the local copy of the key, if it was promoted as a hot key.
+     *
+     * @param key The key whose local copy must be evicted.
+     */
+    protected void invalidateHotKey(String key) {
+        if (this.hotKeys != null) {
+            this.hotKeys.invalidate(key);
+        }
+    }
+
+    /**
+     * Records a hit if the value obtained from Redis is present, or a miss
+     * otherwise.
+     *
+     * @param value the value obtained from Redis
+     * @param <R>   the type of the value
+     * 
+     * @return the value
+     */
+    protected <R> R recordHitOrMiss(R value) {
+        if (value != null) {
+            this.metrics.recordHit();
+        } else {
+            this.metrics.recordMiss();
+        }
+        return value;
     }
 
     /**
      * Obtains the final key adding a prefix so a single Redis instance can be
-     * shared by several caches.
+     * shared by several caches. Once the cache was cleared the prefix also includes
+     * the current generation (see {@link #invalidateAll()}).
      *
      * @param key The Key to compute.
      * 
      * @return The computed key.
      */
     protected String computeKey(String key) {
-        return cacheName + KEY_SEPARATOR + key;
+        return this.generation.namespace(this.keyPrefix) + KEY_SEPARATOR + key;
     }
 
     /**
@@ -60,10 +225,15 @@ public abstract class RedisCache<V> {
      * @return The serialized value.
      */
     protected String serializeValue(V value) throws JsonProcessingException {
-        if (customSerializer != null) {
-            return this.customSerializer.apply(value);
-        } else {
-            return this.objectMapper.writeValueAsString(value);
+        long startTime = this.metrics.startTimer();
+        try {
+            if (customSerializer != null) {
+                return this.customSerializer.apply(value);
+            } else {
+                return this.objectMapper.writeValueAsString(value);
+            }
+        } finally {
+            this.metrics.recordLatency(Operation.SERIALIZE, startTime);
         }
     }
 
@@ -78,10 +248,48 @@ public abstract class RedisCache<V> {
         if (serializedValue == null) {
             return null;
         }
-        if (customDeserializer != null) {
-            return this.customDeserializer.apply(serializedValue);
-        } else {
-            return this.objectMapper.readValue(serializedValue, valueType);
+        long startTime = this.metrics.startTimer();
+        try {
+            if (customDeserializer != null) {
+                return this.customDeserializer.apply(serializedValue);
+            } else {
+                return this.objectMapper.readValue(serializedValue, valueType);
+            }
+        } finally {
+            this.metrics.recordLatency(Operation.SERIALIZE, startTime);
+        }
+    }
+
+    /**
+     * Same as {@link #serializeValue(Object)} but wraps any serialization problem
+     * in an unchecked exception, so it can be used inside async/reactive pipelines.
+     *
+     * @param value The value to be serialized.
+     * 
+     * @return The serialized value.
+     */
+    protected String serializeValueUnchecked(V value) {
+        try {
+            return this.serializeValue(value);
+        } catch (JsonProcessingException e) {
+            throw new CacheSerializingException(SERIALIZATION_PROBLEM, e);
+        }
+    }
+
+    /**
+     * Same as {@link #deserializeValue(String)} but wraps any deserialization
+     * problem in an unchecked exception, so it can be used inside async/reactive
+     * pipelines.
+     *
+     * @param serializedValue The serialized Value.
+     * 
+     * @return The original Value.
+     */
+    protected V deserializeValueUnchecked(String serializedValue) {
+        try {
+            return this.deserializeValue(serializedValue);
+        } catch (IOException e) {
+            throw new CacheSerializingException(SERIALIZATION_PROBLEM, e);
         }
     }
 
@@ -102,24 +310,75 @@ public abstract class RedisCache<V> {
         return valuesAsString;
     }
 
+    /**
+     * Builds the arguments expected by {@link #PUSH_SCRIPT}.
+     *
+     * @param command    the command used to push the values (LPUSH, RPUSH or SADD)
+     * @param values     the values to push
+     * @param ttl        the TTL to set in seconds, 0 to keep the current one
+     * @param maxEntries max amount of entries to keep (only for lists), 0 for no
+     *                   limit
+     * 
+     * @return the script arguments
+     */
+    protected String[] pushScriptArgs(String command, Collection<V> values, long ttl, long maxEntries) {
+        String[] args = new String[values.size() + 3];
+        args[0] = command;
+        args[1] = String.valueOf(ttl);
+        args[2] = String.valueOf(maxEntries);
+        int i = 3;
+        for (V value : values) {
+            args[i] = this.serializeValueUnchecked(value);
+            i++;
+        }
+        return args;
+    }
+
+    /**
+     * Atomically pushes the values to the collection stored in the key, trimming it
+     * and refreshing its TTL in a single round-trip (see {@link #PUSH_SCRIPT}).
+     *
+     * @param command    the command used to push the values (LPUSH, RPUSH or SADD)
+     * @param key        the key of the collection
+     * @param values     the values to push
+     * @param ttl        the TTL to set in seconds, 0 to keep the current one
+     * @param maxEntries max amount of entries to keep (only for lists), 0 for no
+     *                   limit
+     * 
+     * @return the size of the collection after the push
+     */
+    protected Long atomicPush(String command, String key, Collection<V> values, long ttl, long maxEntries) {
+        return PUSH_SCRIPT.eval(this.commands, ScriptOutputType.INTEGER, new String[] { this.computeKey(key) },
+                this.pushScriptArgs(command, values, ttl, maxEntries));
+    }
+
     /**
      * Removes the entry from the cache.
      *
      * @param key The key of the entry to remove.
      */
     public void invalidate(String key) {
-        this.redis.del(this.computeKey(key));
+        this.commands.del(this.computeKey(key));
+        if (this.hotKeys != null) {
+            this.hotKeys.invalidate(key);
+        }
     }
 
-    /** Invalidates every entry of the cache. */
+    /**
+     * Invalidates every entry of the cache in O(1) by moving it to a new generation
+     * (see {@link CacheGeneration}). The keys of previous generations are removed
+     * in background by a {@link RedisKeyReaper}.
+     */
     public void invalidateAll() {
-        KeyScanCursor<String> cursor;
-        do {
-            cursor = redis.scan(ScanArgs.Builder.limit(KEY_SCAN_MAX_LIMIT).match(this.cacheName + KEY_SEPARATOR + "*"));
-            if (cursor.getKeys() != null && cursor.getKeys().size() > 0) {
-                this.redis.del(cursor.getKeys().toArray(new String[0]));
-            }
-        } while (!cursor.isFinished() && cursor.getKeys() != null && cursor.getKeys().size() > 0);
+        this.generation.increment();
+        if (this.hotKeys != null) {
+            this.hotKeys.invalidateAll();
+        }
+
+        String currentPrefix = this.computeKey("");
+        String prefix = RedisKeyReaper.escapePattern(this.keyPrefix);
+        RedisKeyReaper.reap(this.commands, Arrays.asList(prefix + KEY_SEPARATOR + "*", prefix + CacheGeneration.SEPARATOR + "*"),
+                key -> key.startsWith(currentPrefix));
     }
 
     /**
@@ -130,7 +389,7 @@ public abstract class RedisCache<V> {
      * @return True if the key exists, False if it doesn't.
      */
     public Boolean keyExists(String key) {
-        return this.redis.exists(this.computeKey(key)) > 0;
+        return this.commands.exists(this.computeKey(key)) > 0;
     }
 
     /**
@@ -140,7 +399,7 @@ public abstract class RedisCache<V> {
      */
     public void resetTTL(String key) {
         notNull(key);
-        this.redis.expire(this.computeKey(key), expirationTime);
+        this.commands.expire(this.computeKey(key), expirationTime);
     }
 
     /**
@@ -148,19 +407,111 @@ public abstract class RedisCache<V> {
      * parameter atomically.
      *
      * @param callable () -> { redis command; reds command; [...] return null; }
+     * 
+     * @deprecated MULTI/EXEC is not safe on the shared connection and takes several
+     *             round-trips, use a {@link RedisScript} instead (see
+     *             {@link #atomicPush}) or {@link #transaction(Consumer)}.
      */
+    @Deprecated
     protected void redisTransaction(Callable<?> callable) {
-        this.redis.multi();
+        RedisCommands<String, String> standalone = this.standaloneCommands();
+        standalone.multi();
         try {
             callable.call();
-            this.redis.exec();
+            standalone.exec();
         } catch (Exception e) {
             logger.error("[REDIS_CACHE] There was an error when executing the transaction", e);
-            this.redis.discard();
+            standalone.discard();
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Runs the action on a dedicated connection borrowed from the pool, so that
+     * transactions do not interleave with the commands that other caches send
+     * through the shared connection. If the factory is not in pooled mode the
+     * shared connection is used instead. Blocking commands must use
+     * {@link #withBlockingConnection(Function)}.
+     *
+     * @param action the commands to run
+     * @param <T>    the type of the result
+     * 
+     * @return the result of the action
+     */
+    protected <T> T withDedicatedConnection(Function<RedisCommands<String, String>, T> action) {
+        if (this.connectionPool == null) {
+            return action.apply(this.standaloneCommands());
+        }
+
+        StatefulRedisConnection<String, String> dedicatedConnection;
+        try {
+            dedicatedConnection = this.connectionPool.borrowObject();
+        } catch (Exception e) {
+            throw new CacheExecutionException("Could not borrow a Redis connection for cache " + cacheName, e);
+        }
+
+        // closing a pooled connection returns it to the pool
+        try (StatefulRedisConnection<String, String> borrowed = dedicatedConnection) {
+            return action.apply(borrowed.sync());
+        }
+    }
+
+    /**
+     * Runs a blocking command (e.g. BLPOP) on a dedicated connection borrowed from
+     * the pool. Unlike {@link #withDedicatedConnection(Function)} it never falls
+     * back to the shared connection, since that would block every other command
+     * sent through it until the blocking command returns.
+     *
+     * @param action the commands to run
+     * @param <T>    the type of the result
+     * 
+     * @return the result of the action
+     * 
+     * @throws CacheExecutionException if the factory is not in pooled mode
+     */
+    protected <T> T withBlockingConnection(Function<RedisCommands<String, String>, T> action) {
+        if (this.connectionPool == null) {
+            throw new CacheExecutionException("Blocking commands need a dedicated connection, but cache " + cacheName
+                    + " was not created by a factory in pooled mode");
+        }
+        return this.withDedicatedConnection(action);
+    }
+
+    /**
+     * Opens a Redis Transaction on a dedicated connection (see
+     * {@link #withDedicatedConnection(Function)}), and executes all commands sent
+     * to the given commands instance atomically.
+     *
+     * @param commands redis -> { redis.command(); redis.command(); [...] }
+     */
+    protected void transaction(Consumer<RedisCommands<String, String>> commands) {
+        this.withDedicatedConnection(dedicated -> {
+            dedicated.multi();
+            try {
+                commands.accept(dedicated);
+                return dedicated.exec();
+            } catch (RuntimeException e) {
+                logger.error("[REDIS_CACHE] There was an error when executing the transaction", e);
+                dedicated.discard();
+                throw e;
+            }
+        });
+    }
+
+    /**
+     * Returns the shared connection commands, failing if they cannot be used to run
+     * transactions (e.g. when the cache works against a Redis Cluster).
+     *
+     * @return the commands of the shared standalone connection
+     */
+    private RedisCommands<String, String> standaloneCommands() {
+        if (this.redis == null) {
+            throw new CacheExecutionException("Transactions and blocking commands are not supported for cache " + cacheName
+                    + " since it is not connected to a standalone Redis");
+        }
+        return this.redis;
+    }
+
     // Validators - for internal use
     protected void notEmpty(Collection collection) {
         if (collection == null || collection.size() == 0) {
@@ -1,24 +1,192 @@
 package com.ensolvers.fox.cache.redis;
 
+import com.ensolvers.fox.cache.codec.CacheCodec;
 import com.ensolvers.fox.cache.exception.CacheInitializationException;
+import com.ensolvers.fox.cache.hotkeys.HotKeyDetector;
+import com.ensolvers.fox.cache.metrics.CacheMetricsRegistry;
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.ReadFrom;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulConnection;
 import io.lettuce.core.api.StatefulRedisConnection;
-import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.reactive.RedisClusterReactiveCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.codec.StringCodec;
+import io.lettuce.core.masterreplica.MasterReplica;
+import io.lettuce.core.masterreplica.StatefulRedisMasterReplicaConnection;
+import io.lettuce.core.support.ConnectionPoolSupport;
 import java.security.InvalidParameterException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 
 public class RedisCacheFactory {
-    private final RedisClient client;
-    private final StatefulRedisConnection<String, String> connection;
-    private final RedisCommands<String, String> redis;
+    private static final RedisCodec<String, byte[]> BINARY_CODEC = RedisCodec.of(StringCodec.UTF8, ByteArrayCodec.INSTANCE);
+
+    private final AbstractRedisClient client;
+    private final StatefulConnection<String, String> connection;
+    private final RedisClusterCommands<String, String> redis;
+    private final RedisClusterAsyncCommands<String, String> redisAsync;
+    private final RedisClusterReactiveCommands<String, String> redisReactive;
+    private final GenericObjectPool<StatefulRedisConnection<String, String>> pool;
+    private final boolean hashTagged;
+    private final Supplier<StatefulConnection<String, byte[]>> binaryConnector;
+    private StatefulConnection<String, byte[]> binaryConnection;
+    private CacheMetricsRegistry metricsRegistry;
+    private double hotKeySampleRate;
+    private int hotKeyTopK;
+    private long hotKeyMinAccesses;
+    private int hotKeyLocalExpirationTimeInSeconds;
     protected List<String> caches;
 
+    /**
+     * Creates a factory where every cache shares a single multiplexed connection.
+     *
+     * @param client the client used to connect to Redis
+     */
     public RedisCacheFactory(RedisClient client) {
-        caches = new ArrayList<>();
+        this(client, (GenericObjectPoolConfig<StatefulRedisConnection<String, String>>) null);
+    }
+
+    /**
+     * Creates a factory in pooled mode: simple commands keep using a single shared
+     * multiplexed connection, while transactions and blocking commands borrow a
+     * dedicated connection from a pool.
+     *
+     * @param client        the client used to connect to Redis
+     * @param minIdle       min amount of idle connections kept in the pool
+     * @param maxIdle       max amount of idle connections kept in the pool
+     * @param maxTotal      max amount of connections the pool can hold
+     * @param borrowTimeout max time to wait for a connection to be available
+     */
+    public RedisCacheFactory(RedisClient client, int minIdle, int maxIdle, int maxTotal, Duration borrowTimeout) {
+        this(client, poolConfig(minIdle, maxIdle, maxTotal, borrowTimeout));
+    }
+
+    /**
+     * Creates a factory in pooled mode using a custom pool configuration.
+     *
+     * @param client     the client used to connect to Redis
+     * @param poolConfig the configuration of the pool of dedicated connections, if
+     *                   null the factory works in non-pooled mode
+     */
+    public RedisCacheFactory(RedisClient client, GenericObjectPoolConfig<StatefulRedisConnection<String, String>> poolConfig) {
+        this(client, client.connect(), () -> client.connect(BINARY_CODEC), poolConfig);
+    }
+
+    /**
+     * Creates a factory on top of a master/replica setup, where reads are routed
+     * according to {@code readFrom} (e.g. {@link ReadFrom#REPLICA_PREFERRED}) and
+     * writes always go to the master. Note that reads from replicas can be slightly
+     * behind the latest writes.
+     *
+     * @param client   the client used to connect to Redis
+     * @param nodes    a single node to discover the topology from, or every node of
+     *                 the setup to use a static topology
+     * @param readFrom the read routing strategy
+     */
+    public RedisCacheFactory(RedisClient client, List<RedisURI> nodes, ReadFrom readFrom) {
+        this(client, connectMasterReplica(client, StringCodec.UTF8, nodes, readFrom),
+                () -> connectMasterReplica(client, BINARY_CODEC, nodes, readFrom), null);
+    }
+
+    /**
+     * Creates a factory on top of a Redis Cluster, where reads are routed to
+     * replicas when available ({@link ReadFrom#REPLICA_PREFERRED}).
+     *
+     * @param client the cluster client used to connect to Redis
+     */
+    public RedisCacheFactory(RedisClusterClient client) {
+        this(client, ReadFrom.REPLICA_PREFERRED);
+    }
+
+    /**
+     * Creates a factory on top of a Redis Cluster. Keys are hash-tagged with the
+     * cache name so multi-key operations of a cache stay in a single slot.
+     * Transactions and blocking commands on a dedicated connection are not
+     * available in this mode.
+     *
+     * @param client   the cluster client used to connect to Redis
+     * @param readFrom the read routing strategy
+     */
+    public RedisCacheFactory(RedisClusterClient client, ReadFrom readFrom) {
+        this(client, connectCluster(client, StringCodec.UTF8, readFrom), () -> connectCluster(client, BINARY_CODEC, readFrom));
+    }
+
+    private RedisCacheFactory(RedisClient client, StatefulRedisConnection<String, String> connection,
+            Supplier<StatefulConnection<String, byte[]>> binaryConnector,
+            GenericObjectPoolConfig<StatefulRedisConnection<String, String>> poolConfig) {
+        this(client, connection, connection.sync(), connection.async(), connection.reactive(),
+                poolConfig == null ? null : ConnectionPoolSupport.createGenericObjectPool(client::connect, poolConfig), false,
+                binaryConnector);
+    }
+
+    private RedisCacheFactory(RedisClusterClient client, StatefulRedisClusterConnection<String, String> connection,
+            Supplier<StatefulConnection<String, byte[]>> binaryConnector) {
+        this(client, connection, connection.sync(), connection.async(), connection.reactive(), null, true, binaryConnector);
+    }
+
+    private RedisCacheFactory(AbstractRedisClient client, StatefulConnection<String, String> connection,
+            RedisClusterCommands<String, String> redis, RedisClusterAsyncCommands<String, String> redisAsync,
+            RedisClusterReactiveCommands<String, String> redisReactive, GenericObjectPool<StatefulRedisConnection<String, String>> pool,
+            boolean hashTagged, Supplier<StatefulConnection<String, byte[]>> binaryConnector) {
+        this.caches = new ArrayList<>();
         this.client = client;
-        this.connection = client.connect();
-        this.redis = connection.sync();
+        this.connection = connection;
+        this.redis = redis;
+        this.redisAsync = redisAsync;
+        this.redisReactive = redisReactive;
+        this.pool = pool;
+        this.hashTagged = hashTagged;
+        this.binaryConnector = binaryConnector;
+    }
+
+    private static <V> StatefulRedisMasterReplicaConnection<String, V> connectMasterReplica(RedisClient client, RedisCodec<String, V> codec,
+            List<RedisURI> nodes, ReadFrom readFrom) {
+        StatefulRedisMasterReplicaConnection<String, V> connection = MasterReplica.connect(client, codec, nodes);
+        connection.setReadFrom(readFrom);
+        return connection;
+    }
+
+    private static <V> StatefulRedisClusterConnection<String, V> connectCluster(RedisClusterClient client, RedisCodec<String, V> codec,
+            ReadFrom readFrom) {
+        StatefulRedisClusterConnection<String, V> connection = client.connect(codec);
+        connection.setReadFrom(readFrom);
+        return connection;
+    }
+
+    private static GenericObjectPoolConfig<StatefulRedisConnection<String, String>> poolConfig(int minIdle, int maxIdle, int maxTotal,
+            Duration borrowTimeout) {
+        GenericObjectPoolConfig<StatefulRedisConnection<String, String>> config = new GenericObjectPoolConfig<>();
+        config.setMinIdle(minIdle);
+        config.setMaxIdle(maxIdle);
+        config.setMaxTotal(maxTotal);
+        config.setMaxWaitMillis(borrowTimeout.toMillis());
+        config.setJmxEnabled(false);
+        return config;
+    }
+
+    /**
+     * Returns the current utilization of the pool of dedicated connections.
+     *
+     * @return a snapshot of the pool metrics, or null if the factory is not in
+     *         pooled mode
+     */
+    public RedisPoolMetrics getPoolMetrics() {
+        return pool == null ? null : RedisPoolMetrics.of(pool);
     }
 
     /**
@@ -134,6 +302,231 @@ public class RedisCacheFactory {
         return this.getCache(name, expireTime, valueClass, RedisSetCache.class, customSerializer, customDeserializer, maxEntriesPerBlock);
     }
 
+    /**
+     * Creates a new RedisAsyncRegularCache, which shares the factory connection and
+     * supports both blocking and non-blocking operations.
+     *
+     * @param name       of the cache, serves as "topic"
+     * @param expireTime time in seconds for the elements in the cache to expire.
+     * @param valueClass Class of the values.
+     * @param <V>        Class of the values.
+     */
+    public <V> RedisAsyncRegularCache<V> getAsyncRegularCache(String name, int expireTime, Class<V> valueClass) {
+        return this.registerCache(name,
+                () -> new RedisAsyncRegularCache<>(redis, redisAsync, name, expireTime, valueClass, null, null, null));
+    }
+
+    /**
+     * Creates a new RedisAsyncRegularCache with custom serializers.
+     *
+     * @param name               of the cache, serves as "topic"
+     * @param expireTime         time in seconds for the elements in the cache to
+     *                           expire.
+     * @param valueClass         Class of the values.
+     * @param <V>                Class of the values.
+     * @param customSerializer   Serializer
+     * @param customDeserializer Deserializer
+     */
+    public <V> RedisAsyncRegularCache<V> getAsyncRegularCache(String name, int expireTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer) {
+        return this.registerCache(name, () -> new RedisAsyncRegularCache<>(redis, redisAsync, name, expireTime, valueClass,
+                customSerializer, customDeserializer, null));
+    }
+
+    /**
+     * Creates a new RedisAsyncListCache, which shares the factory connection and
+     * supports both blocking and non-blocking operations.
+     *
+     * @param name       of the cache, serves as "topic"
+     * @param expireTime time in seconds for the elements in the cache to expire.
+     * @param valueClass Class of the values.
+     * @param <V>        Class of the values.
+     */
+    public <V> RedisAsyncListCache<V> getAsyncListCache(String name, int expireTime, Class<V> valueClass) {
+        return this.registerCache(name, () -> new RedisAsyncListCache<>(redis, redisAsync, name, expireTime, valueClass, null, null, null));
+    }
+
+    /**
+     * Creates a new RedisAsyncListCache with custom serializers.
+     *
+     * @param name               of the cache, serves as "topic"
+     * @param expireTime         time in seconds for the elements in the cache to
+     *                           expire.
+     * @param valueClass         Class of the values.
+     * @param <V>                Class of the values.
+     * @param customSerializer   Serializer
+     * @param customDeserializer Deserializer
+     */
+    public <V> RedisAsyncListCache<V> getAsyncListCache(String name, int expireTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer) {
+        return this.registerCache(name, () -> new RedisAsyncListCache<>(redis, redisAsync, name, expireTime, valueClass, customSerializer,
+                customDeserializer, null));
+    }
+
+    /**
+     * Creates a new RedisAsyncSetCache, which shares the factory connection and
+     * supports both blocking and non-blocking operations.
+     *
+     * @param name       of the cache, serves as "topic"
+     * @param expireTime time in seconds for the elements in the cache to expire.
+     * @param valueClass Class of the values.
+     * @param <V>        Class of the values.
+     */
+    public <V> RedisAsyncSetCache<V> getAsyncSetCache(String name, int expireTime, Class<V> valueClass) {
+        return this.registerCache(name, () -> new RedisAsyncSetCache<>(redis, redisAsync, name, expireTime, valueClass, null, null, null));
+    }
+
+    /**
+     * Creates a new RedisAsyncSetCache with custom serializers.
+     *
+     * @param name               of the cache, serves as "topic"
+     * @param expireTime         time in seconds for the elements in the cache to
+     *                           expire.
+     * @param valueClass         Class of the values.
+     * @param <V>                Class of the values.
+     * @param customSerializer   Serializer
+     * @param customDeserializer Deserializer
+     */
+    public <V> RedisAsyncSetCache<V> getAsyncSetCache(String name, int expireTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer) {
+        return this.registerCache(name, () -> new RedisAsyncSetCache<>(redis, redisAsync, name, expireTime, valueClass, customSerializer,
+                customDeserializer, null));
+    }
+
+    /**
+     * Creates a new RedisReactiveRegularCache, which shares the factory connection
+     * and supports both blocking and Reactor based operations.
+     *
+     * @param name       of the cache, serves as "topic"
+     * @param expireTime time in seconds for the elements in the cache to expire.
+     * @param valueClass Class of the values.
+     * @param <V>        Class of the values.
+     */
+    public <V> RedisReactiveRegularCache<V> getReactiveRegularCache(String name, int expireTime, Class<V> valueClass) {
+        return this.registerCache(name,
+                () -> new RedisReactiveRegularCache<>(redis, redisReactive, name, expireTime, valueClass, null, null, null));
+    }
+
+    /**
+     * Creates a new RedisReactiveRegularCache with custom serializers.
+     *
+     * @param name               of the cache, serves as "topic"
+     * @param expireTime         time in seconds for the elements in the cache to
+     *                           expire.
+     * @param valueClass         Class of the values.
+     * @param <V>                Class of the values.
+     * @param customSerializer   Serializer
+     * @param customDeserializer Deserializer
+     */
+    public <V> RedisReactiveRegularCache<V> getReactiveRegularCache(String name, int expireTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer) {
+        return this.registerCache(name, () -> new RedisReactiveRegularCache<>(redis, redisReactive, name, expireTime, valueClass,
+                customSerializer, customDeserializer, null));
+    }
+
+    /**
+     * Creates a new RedisReactiveListCache, which shares the factory connection and
+     * supports both blocking and Reactor based operations.
+     *
+     * @param name       of the cache, serves as "topic"
+     * @param expireTime time in seconds for the elements in the cache to expire.
+     * @param valueClass Class of the values.
+     * @param <V>        Class of the values.
+     */
+    public <V> RedisReactiveListCache<V> getReactiveListCache(String name, int expireTime, Class<V> valueClass) {
+        return this.registerCache(name,
+                () -> new RedisReactiveListCache<>(redis, redisReactive, name, expireTime, valueClass, null, null, null));
+    }
+
+    /**
+     * Creates a new RedisReactiveListCache with custom serializers.
+     *
+     * @param name               of the cache, serves as "topic"
+     * @param expireTime         time in seconds for the elements in the cache to
+     *                           expire.
+     * @param valueClass         Class of the values.
+     * @param <V>                Class of the values.
+     * @param customSerializer   Serializer
+     * @param customDeserializer Deserializer
+     */
+    public <V> RedisReactiveListCache<V> getReactiveListCache(String name, int expireTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer) {
+        return this.registerCache(name, () -> new RedisReactiveListCache<>(redis, redisReactive, name, expireTime, valueClass,
+                customSerializer, customDeserializer, null));
+    }
+
+    /**
+     * Creates a new RedisReactiveSetCache, which shares the factory connection and
+     * supports both blocking and Reactor based operations.
+     *
+     * @param name       of the cache, serves as "topic"
+     * @param expireTime time in seconds for the elements in the cache to expire.
+     * @param valueClass Class of the values.
+     * @param <V>        Class of the values.
+     */
+    public <V> RedisReactiveSetCache<V> getReactiveSetCache(String name, int expireTime, Class<V> valueClass) {
+        return this.registerCache(name,
+                () -> new RedisReactiveSetCache<>(redis, redisReactive, name, expireTime, valueClass, null, null, null));
+    }
+
+    /**
+     * Creates a new RedisReactiveSetCache with custom serializers.
+     *
+     * @param name               of the cache, serves as "topic"
+     * @param expireTime         time in seconds for the elements in the cache to
+     *                           expire.
+     * @param valueClass         Class of the values.
+     * @param <V>                Class of the values.
+     * @param customSerializer   Serializer
+     * @param customDeserializer Deserializer
+     */
+    public <V> RedisReactiveSetCache<V> getReactiveSetCache(String name, int expireTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer) {
+        return this.registerCache(name, () -> new RedisReactiveSetCache<>(redis, redisReactive, name, expireTime, valueClass,
+                customSerializer, customDeserializer, null));
+    }
+
+    /**
+     * Creates a new RedisBulkCache, which supports bulk loading through MGET and
+     * pipelined writes.
+     *
+     * @param name               of the cache, serves as "topic"
+     * @param expireTime         time in seconds for the elements in the cache to
+     *                           expire.
+     * @param valueClass         Class of the values.
+     * @param <V>                Class of the values.
+     * @param fetchFunction      function used to fetch a single missing value
+     * @param fetchMultiFunction function used to fetch several missing values at
+     *                           once
+     * @param allowNullValues    if null values are allowed
+     */
+    public <V> RedisBulkCache<V> getBulkCache(String name, int expireTime, Class<V> valueClass, Function<String, V> fetchFunction,
+            Function<Collection<String>, Map<String, V>> fetchMultiFunction, boolean allowNullValues) {
+        return this.getBulkCache(name, expireTime, valueClass, null, null, fetchFunction, fetchMultiFunction, allowNullValues);
+    }
+
+    /**
+     * Creates a new RedisBulkCache with custom serializers.
+     *
+     * @param name               of the cache, serves as "topic"
+     * @param expireTime         time in seconds for the elements in the cache to
+     *                           expire.
+     * @param valueClass         Class of the values.
+     * @param <V>                Class of the values.
+     * @param customSerializer   Serializer
+     * @param customDeserializer Deserializer
+     * @param fetchFunction      function used to fetch a single missing value
+     * @param fetchMultiFunction function used to fetch several missing values at
+     *                           once
+     * @param allowNullValues    if null values are allowed
+     */
+    public <V> RedisBulkCache<V> getBulkCache(String name, int expireTime, Class<V> valueClass, CheckedFunction<V, String> customSerializer,
+            CheckedFunction<String, V> customDeserializer, Function<String, V> fetchFunction,
+            Function<Collection<String>, Map<String, V>> fetchMultiFunction, boolean allowNullValues) {
+        return this.registerCache(name, () -> new RedisBulkCache<>(redis, redisAsync, connection.getTimeout(), name, expireTime, valueClass,
+                customSerializer, customDeserializer, fetchFunction, fetchMultiFunction, allowNullValues));
+    }
+
     /**
      * Creates a new cache if there's no other cache with the same name already
      * created.
@@ -152,15 +545,65 @@ public class RedisCacheFactory {
      */
     private <V, C extends RedisCache<V>> C getCache(String name, int expireTime, Class<V> valueClass, Class<C> cacheType,
             CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        return this.registerCache(name,
+                () -> cacheType
+                        .getDeclaredConstructor(RedisClusterCommands.class, String.class, int.class, Class.class, CheckedFunction.class,
+                                CheckedFunction.class, Integer.class)
+                        .newInstance(redis, name, expireTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock));
+    }
+
+    /**
+     * Creates a new RedisBinaryCache, which stores the values in binary form using
+     * the given codec. Binary caches share a second connection, opened the first
+     * time one of them is created.
+     *
+     * @param name       of the cache, serves as "topic"
+     * @param expireTime time in seconds for the elements in the cache to expire.
+     * @param valueClass Class of the values.
+     * @param codec      the codec used to convert the values from/to bytes (e.g.
+     *                   {@link com.ensolvers.fox.cache.codec.JacksonCacheCodec#smile(Class)})
+     * @param <V>        Class of the values.
+     */
+    public <V> RedisBinaryCache<V> getBinaryCache(String name, int expireTime, Class<V> valueClass, CacheCodec<V> codec) {
+        RedisClusterCommands<String, byte[]> binaryRedis = this.binaryCommands();
+        return this.registerCache(name, () -> new RedisBinaryCache<>(redis, binaryRedis, name, expireTime, valueClass, codec));
+    }
+
+    private synchronized RedisClusterCommands<String, byte[]> binaryCommands() {
+        if (this.binaryConnection == null) {
+            this.binaryConnection = this.binaryConnector.get();
+        }
+        if (this.binaryConnection instanceof StatefulRedisClusterConnection) {
+            return ((StatefulRedisClusterConnection<String, byte[]>) this.binaryConnection).sync();
+        }
+        return ((StatefulRedisConnection<String, byte[]>) this.binaryConnection).sync();
+    }
+
+    /**
+     * Instantiates and registers a cache, checking that there's no other cache with
+     * the same name already created.
+     *
+     * @param name        of the cache, serves as "topic"
+     * @param constructor creates the actual cache instance
+     * 
+     * @return a new cache.
+     */
+    private <C extends RedisCache<?>> C registerCache(String name, Callable<C> constructor) {
         if (name == null || name.length() == 0) {
             throw new IllegalArgumentException("Cache name cannot be empty");
         }
         if (!caches.contains(name)) {
             try {
-                C cache = cacheType
-                        .getDeclaredConstructor(RedisCommands.class, String.class, int.class, Class.class, CheckedFunction.class,
-                                CheckedFunction.class, Integer.class)
-                        .newInstance(redis, name, expireTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
+                C cache = constructor.call();
+                cache.setConnectionPool(pool);
+                cache.setHashTagged(hashTagged);
+                if (metricsRegistry != null) {
+                    cache.setMetrics(metricsRegistry.getOrCreate(name));
+                }
+                if (hotKeyTopK > 0) {
+                    HotKeyDetector detector = new HotKeyDetector(hotKeySampleRate, hotKeyTopK, hotKeyMinAccesses);
+                    cache.setHotKeys(detector, hotKeyLocalExpirationTimeInSeconds);
+                }
                 caches.add(name);
                 return cache;
             } catch (Exception e) {
@@ -170,8 +613,55 @@ public class RedisCacheFactory {
         throw new InvalidParameterException("Cache with name " + name + " already exist");
     }
 
-    /** Closes the connection to Redis and shutdown the client. */
+    /**
+     * Records hits, misses and latencies of the caches created from now on in the
+     * given registry, indexed by cache name.
+     *
+     * @param metricsRegistry the registry
+     * 
+     * @return this factory
+     */
+    public RedisCacheFactory withMetrics(CacheMetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        return this;
+    }
+
+    /**
+     * Enables hot key detection in the caches created from now on: a sample of the
+     * accesses of every cache is counted to find its top-K keys, and the values of
+     * those keys are kept locally for a short time (see
+     * {@link com.ensolvers.fox.cache.hotkeys.HotKeyTier}).
+     *
+     * @param sampleRate                   fraction of the accesses that are
+     *                                     counted, e.g.
+     *                                     {@link HotKeyDetector#DEFAULT_SAMPLE_RATE}
+     * @param topK                         max amount of hot keys per cache
+     * @param minAccesses                  approximate amount of recent accesses
+     *                                     needed for a key to be considered hot
+     * @param localExpirationTimeInSeconds time in seconds for the local copies to
+     *                                     expire
+     * 
+     * @return this factory
+     */
+    public RedisCacheFactory withHotKeyDetection(double sampleRate, int topK, long minAccesses, int localExpirationTimeInSeconds) {
+        this.hotKeySampleRate = sampleRate;
+        this.hotKeyTopK = topK;
+        this.hotKeyMinAccesses = minAccesses;
+        this.hotKeyLocalExpirationTimeInSeconds = localExpirationTimeInSeconds;
+        return this;
+    }
+
+    /**
+     * Closes the connection (and the pool, if any) to Redis and shutdown the
+     * client.
+     */
     public void destroy() {
+        if (this.pool != null) {
+            this.pool.close();
+        }
+        if (this.binaryConnection != null) {
+            this.binaryConnection.close();
+        }
         this.connection.close();
         this.client.shutdown();
     }
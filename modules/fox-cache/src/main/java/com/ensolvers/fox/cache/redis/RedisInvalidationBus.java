@@ -0,0 +1,83 @@
+package com.ensolvers.fox.cache.redis;
+
+import com.ensolvers.fox.cache.tiered.InvalidationBus;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An {@link InvalidationBus} built on top of Redis pub/sub. Every cache uses
+ * its own channel and messages carry the id of the publishing node, so a node
+ * does not evict the copies it has just written.
+ */
+public class RedisInvalidationBus implements InvalidationBus, AutoCloseable {
+    private static final String CHANNEL_PREFIX = "fox-cache-invalidation::";
+    private static final String NODE_SEPARATOR = "|";
+
+    private final String nodeId;
+    private final StatefulRedisConnection<String, String> connection;
+    private final StatefulRedisPubSubConnection<String, String> pubSubConnection;
+    private final Map<String, List<Consumer<String>>> listeners;
+
+    /**
+     * Opens the connections used to publish and receive invalidations.
+     *
+     * @param client the client used to connect to Redis
+     */
+    public RedisInvalidationBus(RedisClient client) {
+        this.nodeId = UUID.randomUUID().toString();
+        this.listeners = new ConcurrentHashMap<>();
+        this.connection = client.connect();
+        this.pubSubConnection = client.connectPubSub();
+        this.pubSubConnection.addListener(new RedisPubSubAdapter<>() {
+            @Override
+            public void message(String channel, String message) {
+                onMessage(channel, message);
+            }
+        });
+    }
+
+    @Override
+    public void publish(String cacheName, String key) {
+        this.connection.async().publish(CHANNEL_PREFIX + cacheName, nodeId + NODE_SEPARATOR + key);
+    }
+
+    @Override
+    public synchronized void subscribe(String cacheName, Consumer<String> listener) {
+        String channel = CHANNEL_PREFIX + cacheName;
+        List<Consumer<String>> channelListeners = this.listeners.get(channel);
+        if (channelListeners == null) {
+            channelListeners = new CopyOnWriteArrayList<>();
+            this.listeners.put(channel, channelListeners);
+            this.pubSubConnection.sync().subscribe(channel);
+        }
+        channelListeners.add(listener);
+    }
+
+    private void onMessage(String channel, String message) {
+        int separatorIndex = message.indexOf(NODE_SEPARATOR);
+        // skip malformed messages and the ones published by this node
+        if (separatorIndex < 0 || (separatorIndex == nodeId.length() && message.startsWith(nodeId))) {
+            return;
+        }
+
+        String key = message.substring(separatorIndex + 1);
+        List<Consumer<String>> channelListeners = this.listeners.get(channel);
+        if (channelListeners != null) {
+            channelListeners.forEach(listener -> listener.accept(key));
+        }
+    }
+
+    @Override
+    public void close() {
+        this.pubSubConnection.close();
+        this.connection.close();
+    }
+}
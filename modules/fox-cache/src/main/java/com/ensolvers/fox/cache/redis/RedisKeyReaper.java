@@ -0,0 +1,106 @@
+package com.ensolvers.fox.cache.redis;
+
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Removes the keys of old cache generations in background, iterating them with
+ * SCAN and deleting them with UNLINK so neither the caller nor Redis blocks
+ * while a large cache is cleared.
+ */
+public final class RedisKeyReaper {
+    private static final Logger logger = LoggerFactory.getLogger(RedisKeyReaper.class);
+    private static final int KEY_SCAN_MAX_LIMIT = 1000;
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "fox-cache-reaper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private RedisKeyReaper() {
+    }
+
+    /**
+     * Schedules the removal of every key matching the patterns.
+     *
+     * @param redis    the commands used to scan and unlink the keys
+     * @param patterns the (glob) patterns of the keys to remove
+     * @param keep     the keys to keep among the matching ones
+     *
+     * @return the amount of removed keys, once every key was scanned
+     */
+    public static CompletableFuture<Long> reap(RedisClusterCommands<String, String> redis, Collection<String> patterns,
+            Predicate<String> keep) {
+        return CompletableFuture.supplyAsync(() -> {
+            long removed = 0;
+            for (String pattern : patterns) {
+                removed += unlinkMatching(redis, pattern, keep);
+            }
+            return removed;
+        }, EXECUTOR).whenComplete((removed, e) -> {
+            if (e != null) {
+                logger.error("[REDIS_CACHE] There was an error when removing the keys matching {}", patterns, e);
+            }
+        });
+    }
+
+    /**
+     * Removes every key matching the pattern, continuing the scan from the cursor
+     * returned by each page until the whole keyspace was iterated.
+     *
+     * @param redis   the commands used to scan and unlink the keys
+     * @param pattern the (glob) pattern of the keys to remove
+     * @param keep    the keys to keep among the matching ones
+     *
+     * @return the amount of removed keys
+     */
+    public static long unlinkMatching(RedisClusterCommands<String, String> redis, String pattern, Predicate<String> keep) {
+        ScanArgs args = ScanArgs.Builder.limit(KEY_SCAN_MAX_LIMIT).match(pattern);
+        long removed = 0;
+        KeyScanCursor<String> cursor = redis.scan(ScanCursor.INITIAL, args);
+        while (true) {
+            List<String> keys = new ArrayList<>(cursor.getKeys().size());
+            for (String key : cursor.getKeys()) {
+                if (!keep.test(key)) {
+                    keys.add(key);
+                }
+            }
+            if (!keys.isEmpty()) {
+                removed += redis.unlink(keys.toArray(new String[0]));
+            }
+            if (cursor.isFinished()) {
+                return removed;
+            }
+            cursor = redis.scan(cursor, args);
+        }
+    }
+
+    /**
+     * @param literal a fragment of a key
+     *
+     * @return the fragment with the glob special characters escaped, so it can be
+     *         used to build a SCAN pattern
+     */
+    public static String escapePattern(String literal) {
+        StringBuilder escaped = new StringBuilder(literal.length());
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
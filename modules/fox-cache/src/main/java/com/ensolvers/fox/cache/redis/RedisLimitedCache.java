@@ -1,6 +1,7 @@
 package com.ensolvers.fox.cache.redis;
 
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
 import java.util.Collection;
 import java.util.Collections;
 
@@ -11,6 +12,11 @@ public class RedisLimitedCache<V> extends RedisListCache<V> {
         super(redis, name, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
     }
 
+    public RedisLimitedCache(RedisClusterCommands<String, String> commands, String name, int expirationTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        super(commands, name, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
+    }
+
     /**
      * Pushes an element to a non-expiring list cache that is clipped to the
      * maxEntriesPerBlock
@@ -48,7 +54,8 @@ public class RedisLimitedCache<V> extends RedisListCache<V> {
     }
 
     /**
-     * Pushes an element to a list cache that is clipped to the maxEntriesPerBlock
+     * Pushes a collection of elements to a list cache that is clipped to the
+     * maxEntriesPerBlock, keeping the newest elements
      *
      * @param key    of the collection
      * @param values to be added
@@ -58,22 +65,7 @@ public class RedisLimitedCache<V> extends RedisListCache<V> {
         notNull(key);
         notEmpty(values);
 
-        boolean keyExists = this.keyExists(key);
-        boolean overflowEntries = this.size(key) >= this.maxEntriesPerBlock;
-
-        this.redisTransaction(() -> {
-            // Takes the first element if block size reached
-            if (keyExists && overflowEntries) {
-                this.redis.rpop(this.computeKey(key));
-            }
-
-            this.redis.lpush(this.computeKey(key), this.collectionOfVToStringArray(values));
-
-            if (expire) {
-                this.redis.expire(this.computeKey(key), expirationTime);
-            }
-
-            return null;
-        });
+        // Push, trim and (optionally) expire are done atomically in a single round-trip
+        this.atomicPush(LPUSH, key, values, expire ? expirationTime : 0, this.maxEntriesPerBlock);
     }
 }
@@ -1,8 +1,11 @@
 package com.ensolvers.fox.cache.redis;
 
+import com.ensolvers.fox.cache.exception.CacheExecutionException;
 import com.ensolvers.fox.cache.exception.CacheSerializingException;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import io.lettuce.core.KeyValue;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -10,18 +13,21 @@ import java.util.Collections;
 import java.util.List;
 
 public class RedisListCache<V> extends RedisCache<V> implements RedisCollection<V> {
-    private static final String SERIALIZATION_PROBLEM = "There was a problem during serialization";
-
     public RedisListCache(RedisCommands<String, String> redis, String name, int expirationTime, Class<V> valueClass,
             CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
         super(redis, name, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
     }
 
+    public RedisListCache(RedisClusterCommands<String, String> commands, String name, int expirationTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        super(commands, name, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
+    }
+
     @Override
     public List<V> get(String key) {
         try {
             List<V> result = new ArrayList<>();
-            List<String> representationList = this.redis.lrange(this.computeKey(key), 0L, -1L);
+            List<String> representationList = this.commands.lrange(this.computeKey(key), 0L, -1L);
             for (String representation : representationList) {
                 result.add(this.deserializeValue(representation));
             }
@@ -40,16 +46,34 @@ public class RedisListCache<V> extends RedisCache<V> implements RedisCollection<
      */
     public V pop(String key) {
         try {
-            return this.deserializeValue(this.redis.lpop(this.computeKey(key)));
+            return this.deserializeValue(this.commands.lpop(this.computeKey(key)));
         } catch (IOException e) {
             throw new CacheSerializingException(SERIALIZATION_PROBLEM, e);
         }
     }
 
+    /**
+     * Remove and get the first element of the list, waiting for an element to be
+     * pushed if the list is empty. The BLPOP is run on a dedicated connection, so
+     * the cache must be created by a factory in pooled mode.
+     *
+     * @param key              The key of the list.
+     * @param timeoutInSeconds max time to wait for an element, 0 to wait forever.
+     * 
+     * @return the first element of the list, or null if the timeout is reached.
+     * 
+     * @throws CacheExecutionException if the factory is not in pooled mode
+     */
+    public V pop(String key, long timeoutInSeconds) {
+        String computedKey = this.computeKey(key);
+        KeyValue<String, String> popped = this.withBlockingConnection(dedicated -> dedicated.blpop(timeoutInSeconds, computedKey));
+        return popped == null || !popped.hasValue() ? null : this.deserializeValueUnchecked(popped.getValue());
+    }
+
     @Override
     public void del(String key, V value) {
         try {
-            this.redis.lrem(this.computeKey(key), 0, this.serializeValue(value));
+            this.commands.lrem(this.computeKey(key), 0, this.serializeValue(value));
         } catch (JsonProcessingException e) {
             throw new CacheSerializingException(SERIALIZATION_PROBLEM, e);
         }
@@ -70,16 +94,12 @@ public class RedisListCache<V> extends RedisCache<V> implements RedisCollection<
     public void push(String key, Collection<V> values) {
         notNull(key);
         notEmpty(values);
-        this.redisTransaction(() -> {
-            this.redis.lpush(this.computeKey(key), this.collectionOfVToStringArray(values));
-            this.redis.expire(this.computeKey(key), expirationTime);
-            return null;
-        });
+        this.atomicPush(LPUSH, key, values, expirationTime, 0);
     }
 
     @Override
     public Long size(String key) {
-        return this.redis.llen(this.computeKey(key));
+        return this.commands.llen(this.computeKey(key));
     }
 
     /**
@@ -101,10 +121,6 @@ public class RedisListCache<V> extends RedisCache<V> implements RedisCollection<
     public void append(String key, List<V> values) {
         notNull(key);
         notEmpty(values);
-        this.redisTransaction(() -> {
-            this.redis.rpush(this.computeKey(key), this.collectionOfVToStringArray(values));
-            this.redis.expire(this.computeKey(key), expirationTime);
-            return null;
-        });
+        this.atomicPush(RPUSH, key, values, expirationTime, 0);
     }
 }
@@ -0,0 +1,74 @@
+package com.ensolvers.fox.cache.redis;
+
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+
+/**
+ * A snapshot of the utilization of the connection pool used by
+ * {@link RedisCacheFactory} when it is created in pooled mode.
+ */
+public class RedisPoolMetrics {
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final int maxTotal;
+    private final long borrowedCount;
+    private final long meanBorrowWaitTimeMillis;
+    private final long maxBorrowWaitTimeMillis;
+
+    public RedisPoolMetrics(int active, int idle, int waiters, int maxTotal, long borrowedCount, long meanBorrowWaitTimeMillis,
+            long maxBorrowWaitTimeMillis) {
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+        this.maxTotal = maxTotal;
+        this.borrowedCount = borrowedCount;
+        this.meanBorrowWaitTimeMillis = meanBorrowWaitTimeMillis;
+        this.maxBorrowWaitTimeMillis = maxBorrowWaitTimeMillis;
+    }
+
+    static RedisPoolMetrics of(GenericObjectPool<StatefulRedisConnection<String, String>> pool) {
+        return new RedisPoolMetrics(pool.getNumActive(), pool.getNumIdle(), pool.getNumWaiters(), pool.getMaxTotal(),
+                pool.getBorrowedCount(), pool.getMeanBorrowWaitTimeMillis(), pool.getMaxBorrowWaitTimeMillis());
+    }
+
+    /** @return the number of connections currently borrowed */
+    public int getActive() {
+        return active;
+    }
+
+    /** @return the number of connections currently idle in the pool */
+    public int getIdle() {
+        return idle;
+    }
+
+    /** @return the number of threads currently waiting to borrow a connection */
+    public int getWaiters() {
+        return waiters;
+    }
+
+    /** @return the max amount of connections the pool can hold */
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    /** @return the amount of connections borrowed since the pool was created */
+    public long getBorrowedCount() {
+        return borrowedCount;
+    }
+
+    /** @return the mean time threads waited to borrow a connection */
+    public long getMeanBorrowWaitTimeMillis() {
+        return meanBorrowWaitTimeMillis;
+    }
+
+    /** @return the max time a thread waited to borrow a connection */
+    public long getMaxBorrowWaitTimeMillis() {
+        return maxBorrowWaitTimeMillis;
+    }
+
+    /** @return the ratio of borrowed connections over the max pool size */
+    public double getUtilization() {
+        return maxTotal <= 0 ? 0 : (double) active / maxTotal;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ensolvers.fox.cache.redis;
+
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.reactive.RedisClusterReactiveCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import java.util.Collection;
+import java.util.Collections;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A {@link RedisListCache} that also exposes Reactor based operations built on
+ * top of Lettuce's reactive API.
+ *
+ * @param <V> Type of objects that will be stored in the cache
+ */
+public class RedisReactiveListCache<V> extends RedisListCache<V> {
+    protected final RedisClusterReactiveCommands<String, String> redisReactive;
+
+    public RedisReactiveListCache(StatefulRedisConnection<String, String> connection, String name, int expirationTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        this(connection.sync(), connection.reactive(), name, expirationTime, valueClass, customSerializer, customDeserializer,
+                maxEntriesPerBlock);
+    }
+
+    public RedisReactiveListCache(RedisClusterCommands<String, String> redis, RedisClusterReactiveCommands<String, String> redisReactive,
+            String name, int expirationTime, Class<V> valueClass, CheckedFunction<V, String> customSerializer,
+            CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        super(redis, name, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
+        this.redisReactive = redisReactive;
+    }
+
+    /**
+     * Given a key emits all the elements of the list. If the key does not exists
+     * the Flux is empty.
+     *
+     * @param key The key of the list.
+     * 
+     * @return A Flux of the list elements.
+     */
+    public Flux<V> getReactive(String key) {
+        return this.redisReactive.lrange(this.computeKey(key), 0L, -1L).map(this::deserializeValueUnchecked);
+    }
+
+    /**
+     * Prepends a value to a list.
+     *
+     * @param key   The key of the list.
+     * @param value to be added
+     * 
+     * @return A Mono that completes when the value has been pushed and the TTL
+     *         refreshed.
+     */
+    public Mono<Void> pushReactive(String key, V value) {
+        notNull(value);
+        return this.pushReactive(key, Collections.singletonList(value));
+    }
+
+    /**
+     * Prepends multiple values to a list. The push and the TTL refresh are done
+     * atomically by a script in a single round-trip.
+     *
+     * @param key    The key of the list.
+     * @param values to be added.
+     * 
+     * @return A Mono that completes when the values have been pushed and the TTL
+     *         refreshed.
+     */
+    public Mono<Void> pushReactive(String key, Collection<V> values) {
+        notNull(key);
+        notEmpty(values);
+        return Mono.fromCallable(() -> this.pushScriptArgs(LPUSH, values, expirationTime, 0)).flatMap(args -> PUSH_SCRIPT
+                .<Long>evalReactive(this.redisReactive, ScriptOutputType.INTEGER, new String[] { this.computeKey(key) }, args).then());
+    }
+
+    /**
+     * Returns the number of elements in a list.
+     *
+     * @param key The key of the list.
+     * 
+     * @return A Mono of the list size.
+     */
+    public Mono<Long> sizeReactive(String key) {
+        return this.redisReactive.llen(this.computeKey(key));
+    }
+}
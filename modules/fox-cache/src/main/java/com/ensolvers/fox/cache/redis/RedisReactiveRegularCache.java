@@ -0,0 +1,107 @@
+package com.ensolvers.fox.cache.redis;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.reactive.RedisClusterReactiveCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A {@link RedisRegularCache} that also exposes Reactor based operations built
+ * on top of Lettuce's reactive API. Both the sync and the reactive commands
+ * share the same (multiplexed) connection.
+ *
+ * @param <V> Type of objects that will be stored in the cache
+ */
+public class RedisReactiveRegularCache<V> extends RedisRegularCache<V> {
+    protected final RedisClusterReactiveCommands<String, String> redisReactive;
+
+    public RedisReactiveRegularCache(StatefulRedisConnection<String, String> connection, String name, int expirationTime,
+            Class<V> valueClass, CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer,
+            Integer maxEntriesPerBlock) {
+        this(connection.sync(), connection.reactive(), name, expirationTime, valueClass, customSerializer, customDeserializer,
+                maxEntriesPerBlock);
+    }
+
+    public RedisReactiveRegularCache(RedisClusterCommands<String, String> redis, RedisClusterReactiveCommands<String, String> redisReactive,
+            String name, int expirationTime, Class<V> valueClass, CheckedFunction<V, String> customSerializer,
+            CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        super(redis, name, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
+        this.redisReactive = redisReactive;
+    }
+
+    /**
+     * Given a key returns a Mono with the associated value. The Mono is empty if
+     * there's no such key.
+     *
+     * @param key The key of the element to retrieve.
+     * 
+     * @return A Mono of the value associated with the key.
+     */
+    public Mono<V> getReactive(String key) {
+        return this.redisReactive.get(this.computeKey(key)).doOnSuccess(this::recordHitOrMiss).map(this::deserializeValueUnchecked);
+    }
+
+    /**
+     * Retrieves several keys at once using a single MGET. Missing keys are not
+     * emitted.
+     *
+     * @param keys The keys of the elements to retrieve.
+     * 
+     * @return A Flux of key -> value pairs, where keys are the original (not
+     *         computed) ones.
+     */
+    public Flux<KeyValue<String, V>> getAllReactive(Collection<String> keys) {
+        notNull(keys);
+        if (keys.isEmpty()) {
+            return Flux.empty();
+        }
+
+        Map<String, String> cacheKeyToOriginalKey = new HashMap<>(keys.size());
+        keys.forEach(key -> cacheKeyToOriginalKey.put(this.computeKey(key), key));
+
+        return this.redisReactive.mget(cacheKeyToOriginalKey.keySet().toArray(new String[0])).filter(KeyValue::hasValue)
+                .map(keyValue -> KeyValue.just(cacheKeyToOriginalKey.get(keyValue.getKey()),
+                        this.deserializeValueUnchecked(keyValue.getValue())));
+    }
+
+    /**
+     * Sets a value to a key. Overrides previous value if key already exists. Sets
+     * TTL.
+     *
+     * @param key   The key of the element to store.
+     * @param value The element to store.
+     * 
+     * @return A Mono that completes when Redis acknowledges the write.
+     */
+    public Mono<Void> setReactive(String key, V value) {
+        notNull(key);
+        notNull(value);
+        // evicted before and after the write, so a concurrent get cannot promote
+        // the old value again while the command is in flight
+        return Mono.fromCallable(() -> {
+            this.invalidateHotKey(key);
+            return this.serializeValueUnchecked(value);
+        }).flatMap(serializedValue -> this.redisReactive.set(this.computeKey(key), serializedValue, new SetArgs().ex(expirationTime)))
+                .doOnSuccess(reply -> this.invalidateHotKey(key)).then();
+    }
+
+    /**
+     * Removes the entry from the cache.
+     *
+     * @param key The key of the entry to remove.
+     * 
+     * @return A Mono that completes when the entry has been removed.
+     */
+    public Mono<Void> invalidateReactive(String key) {
+        return Mono.defer(() -> {
+            this.invalidateHotKey(key);
+            return this.redisReactive.del(this.computeKey(key));
+        }).doOnSuccess(deleted -> this.invalidateHotKey(key)).then();
+    }
+}
@@ -0,0 +1,88 @@
+package com.ensolvers.fox.cache.redis;
+
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.cluster.api.reactive.RedisClusterReactiveCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import java.util.Collection;
+import java.util.Collections;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * A {@link RedisSetCache} that also exposes Reactor based operations built on
+ * top of Lettuce's reactive API.
+ *
+ * @param <V> Type of objects that will be stored in the cache
+ */
+public class RedisReactiveSetCache<V> extends RedisSetCache<V> {
+    protected final RedisClusterReactiveCommands<String, String> redisReactive;
+
+    public RedisReactiveSetCache(StatefulRedisConnection<String, String> connection, String cacheName, int expirationTime,
+            Class<V> valueClass, CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer,
+            Integer maxEntriesPerBlock) {
+        this(connection.sync(), connection.reactive(), cacheName, expirationTime, valueClass, customSerializer, customDeserializer,
+                maxEntriesPerBlock);
+    }
+
+    public RedisReactiveSetCache(RedisClusterCommands<String, String> redis, RedisClusterReactiveCommands<String, String> redisReactive,
+            String cacheName, int expirationTime, Class<V> valueClass, CheckedFunction<V, String> customSerializer,
+            CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        super(redis, cacheName, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
+        this.redisReactive = redisReactive;
+    }
+
+    /**
+     * Given a key emits all the elements of the set. If the key does not exists the
+     * Flux is empty.
+     *
+     * @param key The key of the set.
+     * 
+     * @return A Flux of the set elements.
+     */
+    public Flux<V> getReactive(String key) {
+        return this.redisReactive.smembers(this.computeKey(key)).map(this::deserializeValueUnchecked);
+    }
+
+    /**
+     * Adds a value to a set.
+     *
+     * @param key   The key of the set.
+     * @param value to be added
+     * 
+     * @return A Mono that completes when the value has been added and the TTL
+     *         refreshed.
+     */
+    public Mono<Void> pushReactive(String key, V value) {
+        notNull(value);
+        return this.pushReactive(key, Collections.singletonList(value));
+    }
+
+    /**
+     * Adds multiple values to a set. The add and the TTL refresh are done
+     * atomically by a script in a single round-trip.
+     *
+     * @param key    The key of the set.
+     * @param values to be added.
+     * 
+     * @return A Mono that completes when the values have been added and the TTL
+     *         refreshed.
+     */
+    public Mono<Void> pushReactive(String key, Collection<V> values) {
+        notNull(key);
+        notEmpty(values);
+        return Mono.fromCallable(() -> this.pushScriptArgs(SADD, values, expirationTime, 0)).flatMap(args -> PUSH_SCRIPT
+                .<Long>evalReactive(this.redisReactive, ScriptOutputType.INTEGER, new String[] { this.computeKey(key) }, args).then());
+    }
+
+    /**
+     * Returns the number of elements in a set.
+     *
+     * @param key The key of the set.
+     * 
+     * @return A Mono of the set size.
+     */
+    public Mono<Long> sizeReactive(String key) {
+        return this.redisReactive.scard(this.computeKey(key));
+    }
+}
@@ -2,9 +2,11 @@ package com.ensolvers.fox.cache.redis;
 
 import com.ensolvers.fox.cache.common.GenericCache;
 import com.ensolvers.fox.cache.exception.CacheSerializingException;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import io.lettuce.core.SetArgs;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
 import java.io.IOException;
 
 public class RedisRegularCache<V> extends RedisCache<V> implements GenericCache<V> {
@@ -14,6 +16,11 @@ public class RedisRegularCache<V> extends RedisCache<V> implements GenericCache<
         super(redis, name, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
     }
 
+    public RedisRegularCache(RedisClusterCommands<String, String> commands, String name, int expirationTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        super(commands, name, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
+    }
+
     /**
      * Given a key returns the associated value. Return null if there's no such key.
      *
@@ -22,8 +29,23 @@ public class RedisRegularCache<V> extends RedisCache<V> implements GenericCache<
      * @return The value associated with the key.
      */
     public V get(String key) {
+        if (this.hotKeys != null) {
+            V promoted = this.hotKeys.get(key);
+            if (promoted != null) {
+                this.metrics.recordHit();
+                return promoted;
+            }
+        }
+
         try {
-            return this.deserializeValue(this.redis.get(this.computeKey(key)));
+            long startTime = this.metrics.startTimer();
+            String serializedValue = this.recordHitOrMiss(this.commands.get(this.computeKey(key)));
+            this.metrics.recordLatency(Operation.GET, startTime);
+            V value = this.deserializeValue(serializedValue);
+            if (this.hotKeys != null) {
+                this.hotKeys.offer(key, value);
+            }
+            return value;
         } catch (IOException e) {
             throw new CacheSerializingException("There was a problem during serialization", e);
         }
@@ -40,7 +62,13 @@ public class RedisRegularCache<V> extends RedisCache<V> implements GenericCache<
         notNull(key);
         notNull(value);
         try {
-            this.redis.set(this.computeKey(key), this.serializeValue(value), new SetArgs().ex(expirationTime));
+            String serializedValue = this.serializeValue(value);
+            long startTime = this.metrics.startTimer();
+            this.commands.set(this.computeKey(key), serializedValue, new SetArgs().ex(expirationTime));
+            this.metrics.recordLatency(Operation.PUT, startTime);
+            if (this.hotKeys != null) {
+                this.hotKeys.invalidate(key);
+            }
         } catch (JsonProcessingException e) {
             throw new CacheSerializingException("There was a problem during serialization", e);
         }
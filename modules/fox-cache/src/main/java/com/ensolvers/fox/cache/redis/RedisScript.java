@@ -0,0 +1,122 @@
+package com.ensolvers.fox.cache.redis;
+
+import com.ensolvers.fox.cache.exception.CacheInitializationException;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.cluster.api.reactive.RedisClusterReactiveCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import reactor.core.publisher.Flux;
+
+/**
+ * A Lua script that is executed server-side with EVALSHA, so several commands
+ * can be run atomically in a single round-trip. The script is loaded with
+ * SCRIPT LOAD the first time it is needed (or again if Redis has lost it, e.g.
+ * after a restart or a SCRIPT FLUSH).
+ */
+public class RedisScript {
+    private final String source;
+    private final String sha;
+    private volatile boolean loaded;
+
+    public RedisScript(String source) {
+        this.source = source;
+        this.sha = sha1(source);
+    }
+
+    /**
+     * Runs the script blocking until the reply is received.
+     *
+     * @param redis the commands used to run the script
+     * @param type  the expected output type
+     * @param keys  the keys accessed by the script
+     * @param args  the arguments of the script
+     * @param <T>   the type of the reply
+     * 
+     * @return the script reply
+     */
+    public <T> T eval(RedisClusterCommands<String, String> redis, ScriptOutputType type, String[] keys, String... args) {
+        if (!loaded) {
+            this.load(redis);
+        }
+        try {
+            return redis.evalsha(sha, type, keys, args);
+        } catch (RedisNoScriptException e) {
+            this.load(redis);
+            return redis.evalsha(sha, type, keys, args);
+        }
+    }
+
+    /**
+     * Runs the script without blocking. If the script is not present in Redis it is
+     * sent again with EVAL, which also caches it server-side.
+     *
+     * @param redis the commands used to run the script
+     * @param type  the expected output type
+     * @param keys  the keys accessed by the script
+     * @param args  the arguments of the script
+     * @param <T>   the type of the reply
+     * 
+     * @return a future of the script reply
+     */
+    public <T> CompletableFuture<T> evalAsync(RedisClusterAsyncCommands<String, String> redis, ScriptOutputType type, String[] keys,
+            String... args) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        redis.<T>evalsha(sha, type, keys, args).whenComplete((reply, error) -> {
+            if (error == null) {
+                result.complete(reply);
+            } else if (error instanceof RedisNoScriptException) {
+                redis.<T>eval(source, type, keys, args).whenComplete((retryReply, retryError) -> {
+                    if (retryError == null) {
+                        result.complete(retryReply);
+                    } else {
+                        result.completeExceptionally(retryError);
+                    }
+                });
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Runs the script using the reactive API. If the script is not present in Redis
+     * it is sent again with EVAL, which also caches it server-side.
+     *
+     * @param redis the commands used to run the script
+     * @param type  the expected output type
+     * @param keys  the keys accessed by the script
+     * @param args  the arguments of the script
+     * @param <T>   the type of the reply
+     * 
+     * @return a Flux of the script reply
+     */
+    public <T> Flux<T> evalReactive(RedisClusterReactiveCommands<String, String> redis, ScriptOutputType type, String[] keys,
+            String... args) {
+        return redis.<T>evalsha(sha, type, keys, args).onErrorResume(RedisNoScriptException.class,
+                e -> redis.<T>eval(source, type, keys, args));
+    }
+
+    private void load(RedisClusterCommands<String, String> redis) {
+        redis.scriptLoad(source);
+        this.loaded = true;
+    }
+
+    private static String sha1(String source) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new CacheInitializationException("SHA-1 is not available to compute the script digest", e);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.ensolvers.fox.cache.redis;
 import com.ensolvers.fox.cache.exception.CacheSerializingException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.cluster.api.sync.RedisClusterCommands;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Collections;
@@ -16,11 +17,16 @@ public class RedisSetCache<V> extends RedisCache<V> implements RedisCollection<V
         super(redis, cacheName, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
     }
 
+    public RedisSetCache(RedisClusterCommands<String, String> commands, String cacheName, int expirationTime, Class<V> valueClass,
+            CheckedFunction<V, String> customSerializer, CheckedFunction<String, V> customDeserializer, Integer maxEntriesPerBlock) {
+        super(commands, cacheName, expirationTime, valueClass, customSerializer, customDeserializer, maxEntriesPerBlock);
+    }
+
     @Override
     public Set<V> get(String key) {
         try {
             Set<V> result = new HashSet<>();
-            Set<String> representationList = this.redis.smembers(this.computeKey(key));
+            Set<String> representationList = this.commands.smembers(this.computeKey(key));
             for (String representation : representationList) {
                 result.add(this.deserializeValue(representation));
             }
@@ -38,7 +44,7 @@ public class RedisSetCache<V> extends RedisCache<V> implements RedisCollection<V
     @Override
     public void del(String key, Collection<V> values) {
         try {
-            this.redis.srem(this.computeKey(key), this.collectionOfVToStringArray(values));
+            this.commands.srem(this.computeKey(key), this.collectionOfVToStringArray(values));
         } catch (JsonProcessingException e) {
             throw new CacheSerializingException("There was a problem during serialization", e);
         }
@@ -54,15 +60,11 @@ public class RedisSetCache<V> extends RedisCache<V> implements RedisCollection<V
     public void push(String key, Collection<V> values) {
         notNull(key);
         notEmpty(values);
-        this.redisTransaction(() -> {
-            this.redis.sadd(this.computeKey(key), this.collectionOfVToStringArray(values));
-            this.redis.expire(this.computeKey(key), expirationTime);
-            return null;
-        });
+        this.atomicPush(SADD, key, values, expirationTime, 0);
     }
 
     @Override
     public Long size(String key) {
-        return this.redis.scard(this.computeKey(key));
+        return this.commands.scard(this.computeKey(key));
     }
 }
@@ -0,0 +1,125 @@
+package com.ensolvers.fox.cache.spring.key;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Builds the final keys used by the Spring cache providers, writing the prefix
+ * of the cache and the params of the method straight into a thread-local
+ * buffer, so the only allocation per key is the resulting String (instead of a
+ * builder, the delimited params of {@link CustomCacheKey#toString()} and the
+ * copy made to replace spaces).
+ *
+ * Keys longer than the max key length (e.g. the 250 bytes allowed by memcached)
+ * are replaced by the prefix followed by a 128-bit hash of the whole key.
+ */
+public class CacheKeyEncoder {
+    public static final int MEMCACHED_MAX_KEY_LENGTH = 250;
+    private static final String SEPARATOR = "-";
+    private static final String EMPTY_KEY = "UNIQUE";
+    private static final String HASHED_KEY_MARKER = "#h";
+    private static final int MAX_RETAINED_CAPACITY = 4096;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private final int maxKeyLength;
+
+    /** Creates an encoder that never hashes keys. */
+    public CacheKeyEncoder() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxKeyLength max length in bytes (UTF-8) of the keys, longer ones are
+     *                     hashed
+     */
+    public CacheKeyEncoder(int maxKeyLength) {
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    /**
+     * @param prefix the prefix of every key of the cache (usually its name), must
+     *               not contain spaces
+     * @param key    a {@link CustomCacheKey}, a Collection or a "simple" type
+     *               (String, Integer, etc)
+     *
+     * @return the prefix followed by the params of the key, separated by dashes and
+     *         with spaces replaced by dashes
+     */
+    public String encode(String prefix, Object key) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        buffer.append(prefix);
+
+        if (key instanceof CustomCacheKey) {
+            Object[] params = ((CustomCacheKey) key).getParams();
+            if (params.length == 0) {
+                buffer.append(SEPARATOR).append(EMPTY_KEY);
+            }
+            for (Object param : params) {
+                appendParam(buffer.append(SEPARATOR), param);
+            }
+        } else if (key instanceof Collection) {
+            for (Object param : (Collection<?>) key) {
+                appendParam(buffer.append(SEPARATOR), param);
+            }
+        } else {
+            appendParam(buffer.append(SEPARATOR), key);
+        }
+
+        String encoded = exceedsMaxLength(buffer) ? prefix + SEPARATOR + HASHED_KEY_MARKER + hash(buffer) : buffer.toString();
+        if (buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            // do not retain the memory used by an unusually large key
+            BUFFER.remove();
+        }
+        return encoded;
+    }
+
+    private static void appendParam(StringBuilder buffer, Object param) {
+        if (param instanceof Integer || param instanceof Long || param instanceof Short || param instanceof Byte) {
+            buffer.append(((Number) param).longValue());
+            return;
+        }
+
+        String value = String.valueOf(param);
+        if (value.indexOf(' ') < 0) {
+            buffer.append(value);
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            buffer.append(c == ' ' ? '-' : c);
+        }
+    }
+
+    private boolean exceedsMaxLength(CharSequence key) {
+        // a char takes at most 3 bytes in UTF-8, so short keys are not measured
+        if (key.length() <= maxKeyLength / 3) {
+            return false;
+        }
+        if (key.length() > maxKeyLength) {
+            return true;
+        }
+
+        int bytes = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes > maxKeyLength;
+    }
+
+    private static String hash(CharSequence key) {
+        return Hashing.murmur3_128().hashString(key, StandardCharsets.UTF_8).toString();
+    }
+}
@@ -1,5 +1,7 @@
 package com.ensolvers.fox.cache.spring.key;
 
+import com.ensolvers.fox.cache.exception.CacheExecutionException;
+import com.ensolvers.fox.cache.exception.CacheInvalidArgumentException;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
@@ -7,9 +9,11 @@ import org.springframework.util.StringUtils;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * The instances of this class are created in {@link CustomKeyGenerator} The
@@ -70,4 +74,32 @@ public class CustomCacheKey implements Serializable {
     public Object getTarget() {
         return target;
     }
+
+    /**
+     * Invokes the annotated bulk method with the given keys, passed in a collection
+     * of the same class as the one the method was originally called with
+     *
+     * @param keys the keys to pass to the method
+     * @return the map returned by the method
+     */
+    public Map<Object, Object> invokeBulk(Collection<Object> keys) {
+        Class<?> collectionClass = params[0].getClass();
+        Collection<Object> argument;
+        if (keys.getClass() == collectionClass) {
+            argument = keys;
+        } else {
+            try {
+                argument = (Collection<Object>) collectionClass.getDeclaredConstructor().newInstance();
+                argument.addAll(keys);
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+                throw CacheInvalidArgumentException.collectionError(collectionClass, e);
+            }
+        }
+
+        try {
+            return (Map<Object, Object>) method.invoke(target, argument);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new CacheExecutionException("Error trying to execute annotated method. Check stack trace for more information.", e);
+        }
+    }
 }
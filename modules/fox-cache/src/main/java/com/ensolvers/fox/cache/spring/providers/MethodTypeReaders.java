@@ -0,0 +1,47 @@
+package com.ensolvers.fox.cache.spring.providers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the readers used to deserialize the values returned by cached methods,
+ * so the generic return type of a method is resolved only once instead of on
+ * every cache hit.
+ */
+class MethodTypeReaders {
+    private final ObjectMapper objectMapper;
+    private final Map<Method, ObjectReader> returnTypeReaders = new ConcurrentHashMap<>();
+    private final Map<Method, ObjectReader> mapValueTypeReaders = new ConcurrentHashMap<>();
+
+    MethodTypeReaders(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param method the cached method
+     *
+     * @return a reader for the (generic) return type of the method
+     */
+    ObjectReader forReturnType(Method method) {
+        return returnTypeReaders.computeIfAbsent(method, m -> this.readerFor(m.getGenericReturnType()));
+    }
+
+    /**
+     * @param method a cached method that returns a Map
+     *
+     * @return a reader for the type of the values of the returned Map
+     */
+    ObjectReader forMapValueType(Method method) {
+        return mapValueTypeReaders.computeIfAbsent(method,
+                m -> this.readerFor(((ParameterizedType) m.getGenericReturnType()).getActualTypeArguments()[1]));
+    }
+
+    private ObjectReader readerFor(Type type) {
+        return objectMapper.readerFor(objectMapper.getTypeFactory().constructType(type));
+    }
+}
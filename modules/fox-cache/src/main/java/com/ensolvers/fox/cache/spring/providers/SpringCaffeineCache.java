@@ -0,0 +1,278 @@
+package com.ensolvers.fox.cache.spring.providers;
+
+import com.ensolvers.fox.cache.common.CacheString;
+import com.ensolvers.fox.cache.common.ChunkedFetcher;
+import com.ensolvers.fox.cache.exception.CacheInvalidArgumentException;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import com.ensolvers.fox.cache.spring.key.CacheKeyEncoder;
+import com.ensolvers.fox.cache.spring.key.CustomCacheKey;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Weigher;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * Spring Cache compatible implementation using Caffeine as the underlying
+ * in-memory cache, a replacement for {@link SpringGuavaCache} that scales
+ * better under concurrent reads and can be bounded, evicting using W-TinyLFU
+ */
+public class SpringCaffeineCache implements org.springframework.cache.Cache {
+    private final String name;
+    private final Cache<String, Object> caffeineCache;
+    private final boolean allowNullValues;
+    private final String keyPrefix;
+    private final CacheKeyEncoder keyEncoder;
+    private CacheMetrics metrics = CacheMetrics.DISABLED;
+    private ChunkedFetcher missFetcher = ChunkedFetcher.DISABLED;
+
+    /**
+     * @param name                    an identifier for the cache
+     * @param expirationTimeInSeconds time in seconds since an entry was written for
+     *                                it to expire
+     * @param maximumSize             max amount of entries
+     * @param allowNullValues         if null values are allowed
+     */
+    public SpringCaffeineCache(String name, long expirationTimeInSeconds, long maximumSize, boolean allowNullValues) {
+        this(name, Caffeine.newBuilder().expireAfterWrite(expirationTimeInSeconds, TimeUnit.SECONDS).maximumSize(maximumSize),
+                allowNullValues);
+    }
+
+    /**
+     * Creates a cache bounded by weight, so large values (e.g. the maps returned by
+     * bulk methods) cannot make the heap grow without bound until they expire
+     *
+     * @param name                    an identifier for the cache
+     * @param expirationTimeInSeconds time in seconds since an entry was written for
+     *                                it to expire
+     * @param allowNullValues         if null values are allowed
+     * @param maximumWeight           max total weight of the entries
+     * @param weigher                 computes the weight of every entry, e.g. a
+     *                                {@link com.ensolvers.fox.cache.common.SerializedSizeWeigher}
+     */
+    public SpringCaffeineCache(String name, long expirationTimeInSeconds, boolean allowNullValues, long maximumWeight,
+            Weigher<String, Object> weigher) {
+        this(name, Caffeine.newBuilder().expireAfterWrite(expirationTimeInSeconds, TimeUnit.SECONDS).maximumWeight(maximumWeight)
+                .weigher(weigher), allowNullValues);
+    }
+
+    /**
+     * Creates a cache from a custom specification, e.g. to bound it by weight (see
+     * {@link Caffeine#maximumWeight(long)}) or to keep values through soft
+     * references (see {@link Caffeine#softValues()}). Evictions are recorded in the
+     * metrics of the cache (see {@link #withMetrics(CacheMetrics)}), so the
+     * specification must not have a removal listener.
+     *
+     * @param name            an identifier for the cache
+     * @param specification   the Caffeine builder used to create the cache
+     * @param allowNullValues if null values are allowed
+     */
+    public SpringCaffeineCache(String name, Caffeine<? super String, Object> specification, boolean allowNullValues) {
+        this.name = name;
+        this.keyPrefix = name.replace(" ", "-");
+        this.keyEncoder = new CacheKeyEncoder();
+        Caffeine<String, Object> builder = specification.removalListener(this::onRemoval);
+        this.caffeineCache = builder.build();
+        this.allowNullValues = allowNullValues;
+    }
+
+    /**
+     * Records hits, misses and latencies of this cache in the given metrics (see
+     * {@link com.ensolvers.fox.cache.metrics.CacheMetricsRegistry})
+     *
+     * @param metrics the metrics of the cache
+     * @return this cache
+     */
+    public SpringCaffeineCache withMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Fetches the misses of bulk gets in chunks, in parallel (see
+     * {@link ChunkedFetcher}), instead of passing every missed key to the annotated
+     * method in a single call. The annotated method must not depend on thread bound
+     * state (e.g. the current transaction).
+     *
+     * @param chunkSize max amount of keys passed to each call
+     * @param executor  the executor used to fetch chunks, e.g. see
+     *                  {@link ChunkedFetcher#newFetchExecutor(int)}
+     * @return this cache
+     */
+    public SpringCaffeineCache withChunkedFetch(int chunkSize, Executor executor) {
+        this.missFetcher = new ChunkedFetcher(chunkSize, executor);
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return caffeineCache;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        // Check if is a bulk get or not
+        if (CustomCacheKey.class.isInstance(key) && ((CustomCacheKey) key).isBulk()) {
+            return getBulk((CustomCacheKey) key);
+        } else {
+            return getSingle(key);
+        }
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> aClass) {
+        ValueWrapper wrapper = this.get(key);
+        return wrapper == null ? null : (T) wrapper.get();
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> callable) {
+        ValueWrapper wrapper = this.get(key);
+        return wrapper == null ? null : (T) wrapper.get();
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            if (!allowNullValues) {
+                throw new CacheInvalidArgumentException(
+                        "Cache '" + name + "' is configured to not allow null values but null was provided");
+            } else {
+                caffeineCache.put(getCacheKey(key), CacheString.NULL_STRING);
+                return;
+            }
+        }
+
+        caffeineCache.put(getCacheKey(key), value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        caffeineCache.invalidate(getCacheKey(key));
+    }
+
+    @Override
+    public void clear() {
+        caffeineCache.invalidateAll();
+    }
+
+    private void onRemoval(String cacheKey, Object value, RemovalCause cause) {
+        if (cause.wasEvicted()) {
+            metrics.recordEviction();
+        }
+    }
+
+    /**
+     * Build the final key to use in the cache
+     * 
+     * @param key the key of the object
+     * @return the final key (a string conformed with the name of the cache and the
+     *         params of the method)
+     */
+    private String getCacheKey(Object key) {
+        return keyEncoder.encode(keyPrefix, key);
+    }
+
+    private void putSingle(Object key, Object value) {
+        // Check null value
+        if ((!allowNullValues) && value == null) {
+            throw new CacheInvalidArgumentException("Cache '" + name + "' is configured to not allow null values but null was provided");
+        }
+
+        caffeineCache.put(getCacheKey(key), value == null ? CacheString.NULL_STRING : value);
+    }
+
+    private ValueWrapper getSingle(Object key) {
+        // Get cached object
+        long startTime = metrics.startTimer();
+        Object result = this.caffeineCache.getIfPresent(getCacheKey(key));
+        metrics.recordLatency(Operation.GET, startTime);
+
+        if (result == null) {
+            metrics.recordMiss();
+            return null;
+        }
+        metrics.recordHit();
+
+        if (result.equals(CacheString.NULL_STRING)) {
+            return new SimpleValueWrapper(null);
+        }
+
+        return new SimpleValueWrapper(result);
+    }
+
+    private ValueWrapper getBulk(CustomCacheKey customCacheKey) {
+        // Check that return type is subclass of Map
+        if (!Map.class.isAssignableFrom(customCacheKey.getMethod().getReturnType())) {
+            throw new CacheInvalidArgumentException("Expected an instance of Map class in return type");
+        }
+
+        // Get the collection of requested keys
+        Collection<Object> collection = (Collection<Object>) customCacheKey.getParams()[0];
+
+        // Convert key to cache key
+        Map<String, Object> cacheKeyToOriginalKey = new HashMap<>((int) (collection.size() / 0.75f) + 1);
+        for (Object originalKey : collection) {
+            cacheKeyToOriginalKey.putIfAbsent(getCacheKey(originalKey), originalKey);
+        }
+        Map<Object, Object> result = new HashMap<>();
+
+        // Get cached objects
+        Map<String, Object> hits = caffeineCache.getAllPresent(cacheKeyToOriginalKey.keySet());
+
+        metrics.recordHits(hits.size());
+        metrics.recordMisses(cacheKeyToOriginalKey.size() - (long) hits.size());
+
+        // Deserialize cached objects
+        hits.forEach((cacheKey, hit) -> {
+            result.put(cacheKeyToOriginalKey.get(cacheKey), hit == CacheString.NULL_STRING ? null : hit);
+            cacheKeyToOriginalKey.remove(cacheKey);
+        });
+
+        // Check missed hits
+        if (!cacheKeyToOriginalKey.isEmpty()) {
+            // Create a new instance of the collection class and collect the missed keys to
+            // pass it to the annotated method
+            Collection missedKeys;
+            try {
+                missedKeys = (Collection) customCacheKey.getParams()[0].getClass().getDeclaredConstructor().newInstance();
+                missedKeys.addAll(cacheKeyToOriginalKey.values());
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+                throw CacheInvalidArgumentException.collectionError(customCacheKey.getParams()[0].getClass(), e);
+            }
+
+            // Execute the method to retrieve the missed hits
+            Map missedHits;
+            long startTime = metrics.startTimer();
+            try {
+                missedHits = missFetcher.fetch((Collection<Object>) missedKeys, customCacheKey::invokeBulk);
+            } finally {
+                metrics.recordLatency(Operation.FETCH, startTime);
+            }
+
+            // Cache the missed hits and add to the result
+            missedKeys.forEach(missedKey -> {
+                this.putSingle(missedKey, missedHits.get(missedKey));
+                result.put(missedKey, missedHits.get(missedKey));
+            });
+        }
+
+        // Return the result
+        return new SimpleValueWrapper(result);
+    }
+}
@@ -1,20 +1,24 @@
 package com.ensolvers.fox.cache.spring.providers;
 
 import com.ensolvers.fox.cache.common.CacheString;
-import com.ensolvers.fox.cache.exception.CacheExecutionException;
+import com.ensolvers.fox.cache.common.ChunkedFetcher;
 import com.ensolvers.fox.cache.exception.CacheInvalidArgumentException;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import com.ensolvers.fox.cache.spring.key.CacheKeyEncoder;
 import com.ensolvers.fox.cache.spring.key.CustomCacheKey;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import org.springframework.cache.support.SimpleValueWrapper;
 
@@ -26,13 +30,82 @@ public class SpringGuavaCache implements org.springframework.cache.Cache {
     private final String name;
     private final Cache<String, Object> guavaCache;
     private final boolean allowNullValues;
+    private final String keyPrefix;
+    private final CacheKeyEncoder keyEncoder;
+    private CacheMetrics metrics = CacheMetrics.DISABLED;
+    private ChunkedFetcher missFetcher = ChunkedFetcher.DISABLED;
 
     public SpringGuavaCache(String name, long expirationTimeInSeconds, boolean allowNullValues) {
+        this(name, CacheBuilder.newBuilder().expireAfterWrite(expirationTimeInSeconds, TimeUnit.SECONDS), allowNullValues);
+    }
+
+    /**
+     * Creates a cache bounded by weight, so large values (e.g. the maps returned by
+     * bulk methods) cannot make the heap grow without bound until they expire
+     *
+     * @param name                    an identifier for the cache
+     * @param expirationTimeInSeconds time in seconds since an entry was written for
+     *                                it to expire
+     * @param allowNullValues         if null values are allowed
+     * @param maximumWeight           max total weight of the entries
+     * @param weigher                 computes the weight of every entry, e.g. a
+     *                                {@link com.ensolvers.fox.cache.common.SerializedSizeWeigher}
+     */
+    public SpringGuavaCache(String name, long expirationTimeInSeconds, boolean allowNullValues, long maximumWeight,
+            Weigher<String, Object> weigher) {
+        this(name, CacheBuilder.newBuilder().expireAfterWrite(expirationTimeInSeconds, TimeUnit.SECONDS).maximumWeight(maximumWeight)
+                .weigher(weigher), allowNullValues);
+    }
+
+    /**
+     * Creates a cache from a custom specification, e.g. to bound it by size or
+     * weight, or to keep values through soft references (see
+     * {@link CacheBuilder#softValues()}) so they can be collected under memory
+     * pressure. Evictions are recorded in the metrics of the cache (see
+     * {@link #withMetrics(CacheMetrics)}), so the specification must not have a
+     * removal listener.
+     *
+     * @param name            an identifier for the cache
+     * @param specification   the Guava builder used to create the cache
+     * @param allowNullValues if null values are allowed
+     */
+    public SpringGuavaCache(String name, CacheBuilder<? super String, Object> specification, boolean allowNullValues) {
         this.name = name;
-        this.guavaCache = CacheBuilder.newBuilder().expireAfterWrite(expirationTimeInSeconds, TimeUnit.SECONDS).build();
+        this.keyPrefix = name.replace(" ", "-");
+        this.keyEncoder = new CacheKeyEncoder();
+        CacheBuilder<String, Object> builder = specification.removalListener(this::onRemoval);
+        this.guavaCache = builder.build();
         this.allowNullValues = allowNullValues;
     }
 
+    /**
+     * Records hits, misses and latencies of this cache in the given metrics (see
+     * {@link com.ensolvers.fox.cache.metrics.CacheMetricsRegistry})
+     *
+     * @param metrics the metrics of the cache
+     * @return this cache
+     */
+    public SpringGuavaCache withMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Fetches the misses of bulk gets in chunks, in parallel (see
+     * {@link ChunkedFetcher}), instead of passing every missed key to the annotated
+     * method in a single call. The annotated method must not depend on thread bound
+     * state (e.g. the current transaction).
+     *
+     * @param chunkSize max amount of keys passed to each call
+     * @param executor  the executor used to fetch chunks, e.g. see
+     *                  {@link ChunkedFetcher#newFetchExecutor(int)}
+     * @return this cache
+     */
+    public SpringGuavaCache withChunkedFetch(int chunkSize, Executor executor) {
+        this.missFetcher = new ChunkedFetcher(chunkSize, executor);
+        return this;
+    }
+
     @Override
     public String getName() {
         return name;
@@ -90,6 +163,12 @@ public class SpringGuavaCache implements org.springframework.cache.Cache {
         guavaCache.invalidateAll();
     }
 
+    private void onRemoval(RemovalNotification<String, Object> notification) {
+        if (notification.wasEvicted()) {
+            metrics.recordEviction();
+        }
+    }
+
     /**
      * Build the final key to use in the cache
      * 
@@ -98,22 +177,7 @@ public class SpringGuavaCache implements org.springframework.cache.Cache {
      *         params of the method)
      */
     private String getCacheKey(Object key) {
-        StringBuilder finalKeyBuilder = new StringBuilder();
-        finalKeyBuilder.append(name);
-
-        if (key instanceof CustomCacheKey) {
-            if (((CustomCacheKey) key).isEmpty()) {
-                finalKeyBuilder.append("-").append("UNIQUE");
-            } else {
-                finalKeyBuilder.append("-").append(key);
-            }
-        } else if (key instanceof Collection) {
-            ((Collection) key).forEach(o -> finalKeyBuilder.append("-").append(o));
-        } else {
-            finalKeyBuilder.append("-").append(key);
-        }
-
-        return finalKeyBuilder.toString().replace(" ", "-");
+        return keyEncoder.encode(keyPrefix, key);
     }
 
     private void putSingle(Object key, Object value) {
@@ -127,11 +191,15 @@ public class SpringGuavaCache implements org.springframework.cache.Cache {
 
     private ValueWrapper getSingle(Object key) {
         // Get cached object
+        long startTime = metrics.startTimer();
         Object result = this.guavaCache.asMap().get(getCacheKey(key));
+        metrics.recordLatency(Operation.GET, startTime);
 
         if (result == null) {
+            metrics.recordMiss();
             return null;
         }
+        metrics.recordHit();
 
         if (result.equals(CacheString.NULL_STRING)) {
             return new SimpleValueWrapper(null);
@@ -150,8 +218,10 @@ public class SpringGuavaCache implements org.springframework.cache.Cache {
         Collection<Object> collection = (Collection<Object>) customCacheKey.getParams()[0];
 
         // Convert key to cache key
-        Map<String, Object> cacheKeyToOriginalKey = collection.stream()
-                .collect(Collectors.toMap(this::getCacheKey, Function.identity(), (v1, v2) -> v1));
+        Map<String, Object> cacheKeyToOriginalKey = new HashMap<>((int) (collection.size() / 0.75f) + 1);
+        for (Object originalKey : collection) {
+            cacheKeyToOriginalKey.putIfAbsent(getCacheKey(originalKey), originalKey);
+        }
         Map<Object, Object> result = new HashMap<>();
 
         // Get cached objects
@@ -163,6 +233,9 @@ public class SpringGuavaCache implements org.springframework.cache.Cache {
             }
         });
 
+        metrics.recordHits(hits.size());
+        metrics.recordMisses(cacheKeyToOriginalKey.size() - (long) hits.size());
+
         // Deserialize cached objects
         hits.forEach((cacheKey, hit) -> {
             result.put(cacheKeyToOriginalKey.get(cacheKey), hit == CacheString.NULL_STRING ? null : hit);
@@ -183,10 +256,11 @@ public class SpringGuavaCache implements org.springframework.cache.Cache {
 
             // Execute the method to retrieve the missed hits
             Map missedHits;
+            long startTime = metrics.startTimer();
             try {
-                missedHits = (Map) customCacheKey.getMethod().invoke(customCacheKey.getTarget(), missedKeys);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new CacheExecutionException("Error trying to execute annotated method. Check stack trace for more information.", e);
+                missedHits = missFetcher.fetch((Collection<Object>) missedKeys, customCacheKey::invokeBulk);
+            } finally {
+                metrics.recordLatency(Operation.FETCH, startTime);
             }
 
             // Cache the missed hits and add to the result
@@ -1,34 +1,53 @@
 package com.ensolvers.fox.cache.spring.providers;
 
+import com.ensolvers.fox.cache.common.CacheGeneration;
 import com.ensolvers.fox.cache.common.CacheString;
+import com.ensolvers.fox.cache.common.ChunkedFetcher;
 import com.ensolvers.fox.cache.exception.CacheExecutionException;
 import com.ensolvers.fox.cache.exception.CacheInvalidArgumentException;
 import com.ensolvers.fox.cache.exception.CacheSerializingException;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import com.ensolvers.fox.cache.spring.key.CacheKeyEncoder;
 import com.ensolvers.fox.cache.spring.key.CustomCacheKey;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import net.spy.memcached.MemcachedClient;
 import org.springframework.cache.Cache;
 import org.springframework.cache.support.SimpleValueWrapper;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.util.*;
 import java.util.concurrent.Callable;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Memcached implementation. Instances of this class must be passed to the cache
  * manager.
  */
 public class SpringMemcachedCache implements Cache {
+    private static final String GENERATION_KEY_PREFIX = "fox-spring-cache-generation::";
+
     private final String name;
     private final MemcachedClient memcachedClient;
     private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+    private final MethodTypeReaders typeReaders;
     private final boolean allowNullValues;
     private final int expirationTimeInSeconds;
+    private final boolean asyncWriteBack;
+    private final CacheGeneration generation;
+    private final String keyPrefix;
+    private final CacheKeyEncoder keyEncoder;
+    private CacheMetrics metrics = CacheMetrics.DISABLED;
+    private ChunkedFetcher missFetcher = ChunkedFetcher.DISABLED;
 
     /**
      * @param name                    an identifier for the cache
@@ -41,11 +60,66 @@ public class SpringMemcachedCache implements Cache {
      *                                null value is detected)
      */
     public SpringMemcachedCache(String name, MemcachedClient memcachedClient, int expirationTimeInSeconds, boolean allowNullValues) {
+        this(name, memcachedClient, expirationTimeInSeconds, allowNullValues, false);
+    }
+
+    /**
+     * @param name                    an identifier for the cache
+     * @param memcachedClient         the client to do the request to memcached
+     *                                service
+     * @param expirationTimeInSeconds expiration time of the entries saved in
+     *                                memcached
+     * @param allowNullValues         if null values are allowed (if true throws a
+     *                                {@link CacheInvalidArgumentException} when a
+     *                                null value is detected)
+     * @param asyncWriteBack          if true, the values fetched after a bulk get
+     *                                miss are written to memcached without waiting
+     *                                for the writes to complete
+     */
+    public SpringMemcachedCache(String name, MemcachedClient memcachedClient, int expirationTimeInSeconds, boolean allowNullValues,
+            boolean asyncWriteBack) {
         this.name = name;
+        this.asyncWriteBack = asyncWriteBack;
         this.memcachedClient = memcachedClient;
         this.objectMapper = new ObjectMapper();
+        this.objectWriter = this.objectMapper.writer();
+        this.typeReaders = new MethodTypeReaders(this.objectMapper);
         this.allowNullValues = allowNullValues;
         this.expirationTimeInSeconds = expirationTimeInSeconds;
+        this.keyPrefix = name.replace(" ", "-");
+        this.keyEncoder = new CacheKeyEncoder(CacheKeyEncoder.MEMCACHED_MAX_KEY_LENGTH);
+        String generationKey = GENERATION_KEY_PREFIX + keyPrefix;
+        this.generation = new CacheGeneration(() -> (String) memcachedClient.get(generationKey),
+                value -> memcachedClient.set(generationKey, 0, value), CacheGeneration.DEFAULT_REFRESH_INTERVAL_IN_MILLIS);
+    }
+
+    /**
+     * Records hits, misses and latencies of this cache in the given metrics (see
+     * {@link com.ensolvers.fox.cache.metrics.CacheMetricsRegistry})
+     *
+     * @param metrics the metrics of the cache
+     * @return this cache
+     */
+    public SpringMemcachedCache withMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Fetches the misses of bulk gets in chunks, in parallel (see
+     * {@link ChunkedFetcher}), instead of passing every missed key to the annotated
+     * method in a single call. The annotated method must not depend on thread bound
+     * state (e.g. the current transaction). Bulk gets of more keys than the chunk
+     * size are also split in chunks, issued concurrently.
+     *
+     * @param chunkSize max amount of keys passed to each call
+     * @param executor  the executor used to fetch chunks, e.g. see
+     *                  {@link ChunkedFetcher#newFetchExecutor(int)}
+     * @return this cache
+     */
+    public SpringMemcachedCache withChunkedFetch(int chunkSize, Executor executor) {
+        this.missFetcher = new ChunkedFetcher(chunkSize, executor);
+        return this;
     }
 
     @Override
@@ -109,9 +183,11 @@ public class SpringMemcachedCache implements Cache {
                 throw new CacheInvalidArgumentException("Expected an instance of Map class in param type");
             }
 
+            Map<String, Object> entries = new HashMap<>();
             for (String k : (Collection<? extends String>) ((CustomCacheKey) key).getParams()[0]) {
-                putSingle(k, ((Map<?, ?>) value).get(k));
+                entries.put(getCacheKey(k), ((Map<?, ?>) value).get(k));
             }
+            putMulti(entries, true);
         } else {
             putSingle(key, value);
         }
@@ -129,87 +205,126 @@ public class SpringMemcachedCache implements Cache {
     }
 
     /**
-     * Delete all entries in the cache Note that this will delete all entries in
-     * memcached service (global)
+     * Delete all entries in the cache in O(1) by moving it to a new generation (see
+     * {@link CacheGeneration}). Entries of other caches sharing the memcached
+     * service are not affected, and the ones of previous generations are left to
+     * expire
      */
     @Override
     public void clear() {
-        memcachedClient.flush();
+        this.generation.increment();
     }
 
     /**
      * Build the final key to use in the cache
      * 
      * @param key the key of the object
-     * @return the final key (a string conformed with the name of the cache and the
-     *         params of the method)
+     * @return the final key (a string conformed with the name of the cache, its
+     *         current generation and the params of the method)
      */
     private String getCacheKey(Object key) {
-        StringBuilder cacheKeyBuilder = new StringBuilder();
-        cacheKeyBuilder.append(name);
-
-        if (key instanceof CustomCacheKey) {
-            if (((CustomCacheKey) key).isEmpty()) {
-                cacheKeyBuilder.append("-").append("UNIQUE");
-            } else {
-                cacheKeyBuilder.append("-").append(key);
-            }
-        } else if (key instanceof Collection) {
-            ((Collection) key).forEach(o -> cacheKeyBuilder.append("-").append(o));
-        } else {
-            cacheKeyBuilder.append("-").append(key);
-        }
-
-        return cacheKeyBuilder.toString().replace(" ", "-");
+        return keyEncoder.encode(generation.namespace(keyPrefix), key);
     }
 
     private Object deserializeUsingMapArgumentType(CustomCacheKey customCacheKey, String cacheKey, String hit) {
-        // Get the type of the serialized object
-        Type type = ((ParameterizedType) customCacheKey.getMethod().getGenericReturnType()).getActualTypeArguments()[1];
+        ObjectReader reader = typeReaders.forMapValueType(customCacheKey.getMethod());
+        long startTime = metrics.startTimer();
         try {
-            return objectMapper.readValue(hit, objectMapper.getTypeFactory().constructType(type));
-        } catch (JsonProcessingException e) {
-            throw CacheSerializingException.with(cacheKey, type.getTypeName(), e);
+            return reader.readValue(hit);
+        } catch (IOException e) {
+            throw CacheSerializingException.with(cacheKey, reader.getValueType().getTypeName(), e);
+        } finally {
+            metrics.recordLatency(Operation.SERIALIZE, startTime);
         }
     }
 
     private Object deserializeUsingReturnType(CustomCacheKey customCacheKey, String cacheKey, String hit) {
-        // Get the type of the serialized object
-        Type type = customCacheKey.getMethod().getGenericReturnType();
+        ObjectReader reader = typeReaders.forReturnType(customCacheKey.getMethod());
+        long startTime = metrics.startTimer();
         try {
-            return objectMapper.readValue(hit, objectMapper.getTypeFactory().constructType(type));
-        } catch (JsonProcessingException e) {
-            throw CacheSerializingException.with(cacheKey, type.getTypeName(), e);
+            return reader.readValue(hit);
+        } catch (IOException e) {
+            throw CacheSerializingException.with(cacheKey, reader.getValueType().getTypeName(), e);
+        } finally {
+            metrics.recordLatency(Operation.SERIALIZE, startTime);
         }
     }
 
-    private void putSingle(Object key, Object value) {
+    private String serializeValue(String cacheKey, Object value) {
         // Check null value
         if ((!allowNullValues) && value == null) {
             throw new CacheInvalidArgumentException("Cache '" + name + "' is configured to not allow null values but null was provided");
         }
 
-        String cacheKey = getCacheKey(key);
+        if (value == null) {
+            return CacheString.NULL_STRING;
+        }
+        long startTime = metrics.startTimer();
         try {
-            String serializedValue = CacheString.NULL_STRING;
-            if (value != null) {
-                serializedValue = objectMapper.writeValueAsString(value);
-            }
-            memcachedClient.set(cacheKey, expirationTimeInSeconds, serializedValue);
+            return objectWriter.writeValueAsString(value);
         } catch (JsonProcessingException e) {
             throw CacheSerializingException.with(cacheKey, value.getClass(), e);
+        } finally {
+            metrics.recordLatency(Operation.SERIALIZE, startTime);
+        }
+    }
+
+    private void putSingle(Object key, Object value) {
+        String cacheKey = getCacheKey(key);
+        String serializedValue = serializeValue(cacheKey, value);
+        long startTime = metrics.startTimer();
+        memcachedClient.set(cacheKey, expirationTimeInSeconds, serializedValue);
+        metrics.recordLatency(Operation.PUT, startTime);
+    }
+
+    /**
+     * Stores several entries sending every write before waiting for any of them, so
+     * they are pipelined by the client instead of taking a round-trip each.
+     *
+     * @param entries     the entries to store, by final cache key
+     * @param awaitWrites if the method must block until every write completes
+     */
+    private void putMulti(Map<String, Object> entries, boolean awaitWrites) {
+        // serialize everything first so nothing is written if a value is invalid
+        Map<String, String> serializedEntries = new HashMap<>();
+        entries.forEach((cacheKey, value) -> serializedEntries.put(cacheKey, serializeValue(cacheKey, value)));
+
+        List<Future<Boolean>> futures = new ArrayList<>(serializedEntries.size());
+        serializedEntries.forEach(
+                (cacheKey, serializedValue) -> futures.add(memcachedClient.set(cacheKey, expirationTimeInSeconds, serializedValue)));
+
+        if (!awaitWrites) {
+            return;
+        }
+
+        long startTime = metrics.startTimer();
+        long deadline = System.currentTimeMillis() + memcachedClient.getOperationTimeout();
+        try {
+            for (Future<Boolean> future : futures) {
+                future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            }
+            metrics.recordLatency(Operation.PUT, startTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheExecutionException("Interrupted while storing entries in cache '" + name + "'", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new CacheExecutionException("Error when trying to store " + futures.size() + " entries in cache '" + name + "'", e);
         }
     }
 
     private ValueWrapper getSingle(Object key) {
         // Get cached object
         String cacheKey = getCacheKey(key);
+        long startTime = metrics.startTimer();
         String hit = (String) memcachedClient.get(cacheKey);
+        metrics.recordLatency(Operation.GET, startTime);
 
         // Missed hit
         if (hit == null) {
+            metrics.recordMiss();
             return null;
         }
+        metrics.recordHit();
 
         if (hit.equals(CacheString.NULL_STRING)) {
             return new SimpleValueWrapper(null);
@@ -219,6 +334,14 @@ public class SpringMemcachedCache implements Cache {
         return new SimpleValueWrapper(deserializedObject);
     }
 
+    private Map<String, Object> getMulti(Collection<String> cacheKeys) {
+        if (cacheKeys.size() <= missFetcher.getChunkSize()) {
+            return memcachedClient.getBulk(cacheKeys);
+        }
+
+        return missFetcher.getAll(cacheKeys, memcachedClient::asyncGetBulk, memcachedClient.getOperationTimeout());
+    }
+
     private ValueWrapper getBulk(CustomCacheKey customCacheKey) {
         // Check that return type is subclass of Map
         if (!Map.class.isAssignableFrom(customCacheKey.getMethod().getReturnType())) {
@@ -229,12 +352,18 @@ public class SpringMemcachedCache implements Cache {
         Collection<Object> collection = (Collection<Object>) customCacheKey.getParams()[0];
 
         // Convert key to cache key
-        Map<String, Object> cacheKeyToOriginalKey = collection.stream()
-                .collect(Collectors.toMap(this::getCacheKey, Function.identity(), (v1, v2) -> v1));
+        Map<String, Object> cacheKeyToOriginalKey = new HashMap<>((int) (collection.size() / 0.75f) + 1);
+        for (Object originalKey : collection) {
+            cacheKeyToOriginalKey.putIfAbsent(getCacheKey(originalKey), originalKey);
+        }
         Map<Object, Object> result = new HashMap<>();
 
         // Get cached objects
-        Map<String, Object> hits = memcachedClient.getBulk(cacheKeyToOriginalKey.keySet());
+        long startTime = metrics.startTimer();
+        Map<String, Object> hits = getMulti(cacheKeyToOriginalKey.keySet());
+        metrics.recordLatency(Operation.GET, startTime);
+        metrics.recordHits(hits.size());
+        metrics.recordMisses(cacheKeyToOriginalKey.size() - (long) hits.size());
 
         // Deserialize cached objects
         hits.forEach((cacheKey, hit) -> {
@@ -260,17 +389,21 @@ public class SpringMemcachedCache implements Cache {
 
             // Execute the method to retrieve the missed hits
             Map missedHits;
+            startTime = metrics.startTimer();
             try {
-                missedHits = (Map) customCacheKey.getMethod().invoke(customCacheKey.getTarget(), missedKeys);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new CacheExecutionException("Error trying to execute annotated method. Check stack trace for more information.", e);
+                missedHits = missFetcher.fetch((Collection<Object>) missedKeys, customCacheKey::invokeBulk);
+            } finally {
+                metrics.recordLatency(Operation.FETCH, startTime);
             }
 
-            // Cache the missed hits and add to the result
-            missedKeys.forEach(missedKey -> {
-                this.putSingle(missedKey, missedHits.get(missedKey));
-                result.put(missedKey, missedHits.get(missedKey));
+            // Cache the missed hits (reusing the computed keys) and add to the result
+            Map<String, Object> missedEntries = new HashMap<>();
+            cacheKeyToOriginalKey.forEach((cacheKey, missedKey) -> {
+                Object missedHit = missedHits.get(missedKey);
+                missedEntries.put(cacheKey, missedHit);
+                result.put(missedKey, missedHit);
             });
+            this.putMulti(missedEntries, !asyncWriteBack);
         }
 
         // Return the result
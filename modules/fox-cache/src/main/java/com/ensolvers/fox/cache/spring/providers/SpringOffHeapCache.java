@@ -0,0 +1,279 @@
+package com.ensolvers.fox.cache.spring.providers;
+
+import com.ensolvers.fox.cache.common.ChunkedFetcher;
+import com.ensolvers.fox.cache.exception.CacheInvalidArgumentException;
+import com.ensolvers.fox.cache.exception.CacheSerializingException;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import com.ensolvers.fox.cache.offheap.OffHeapStore;
+import com.ensolvers.fox.cache.spring.key.CacheKeyEncoder;
+import com.ensolvers.fox.cache.spring.key.CustomCacheKey;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spring Cache compatible implementation that keeps the entries serialized as
+ * JSON outside of the Java heap (see {@link OffHeapStore}), for large
+ * in-process caches that should not increase GC pauses
+ */
+public class SpringOffHeapCache implements Cache {
+    private static final byte[] NULL_VALUE = new byte[0];
+
+    private final String name;
+    private final OffHeapStore store;
+    private final ObjectWriter objectWriter;
+    private final MethodTypeReaders typeReaders;
+    private final boolean allowNullValues;
+    private final long expirationTimeMillis;
+    private final String keyPrefix;
+    private final CacheKeyEncoder keyEncoder;
+    private CacheMetrics metrics = CacheMetrics.DISABLED;
+    private ChunkedFetcher missFetcher = ChunkedFetcher.DISABLED;
+
+    /**
+     * @param name                    an identifier for the cache, unique among the
+     *                                caches sharing the store
+     * @param store                   the store where entries are kept
+     * @param expirationTimeInSeconds expiration time of the entries, 0 for no
+     *                                expiration
+     * @param allowNullValues         if null values are allowed
+     */
+    public SpringOffHeapCache(String name, OffHeapStore store, int expirationTimeInSeconds, boolean allowNullValues) {
+        this.name = name;
+        this.store = store;
+        ObjectMapper objectMapper = new ObjectMapper();
+        this.objectWriter = objectMapper.writer();
+        this.typeReaders = new MethodTypeReaders(objectMapper);
+        this.expirationTimeMillis = TimeUnit.SECONDS.toMillis(expirationTimeInSeconds);
+        this.allowNullValues = allowNullValues;
+        this.keyPrefix = name.replace(" ", "-");
+        this.keyEncoder = new CacheKeyEncoder();
+    }
+
+    /**
+     * Records hits, misses and latencies of this cache in the given metrics (see
+     * {@link com.ensolvers.fox.cache.metrics.CacheMetricsRegistry})
+     *
+     * @param metrics the metrics of the cache
+     * @return this cache
+     */
+    public SpringOffHeapCache withMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Fetches the misses of bulk gets in chunks, in parallel (see
+     * {@link ChunkedFetcher}), instead of passing every missed key to the annotated
+     * method in a single call. The annotated method must not depend on thread bound
+     * state (e.g. the current transaction).
+     *
+     * @param chunkSize max amount of keys passed to each call
+     * @param executor  the executor used to fetch chunks, e.g. see
+     *                  {@link ChunkedFetcher#newFetchExecutor(int)}
+     * @return this cache
+     */
+    public SpringOffHeapCache withChunkedFetch(int chunkSize, Executor executor) {
+        this.missFetcher = new ChunkedFetcher(chunkSize, executor);
+        return this;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return store;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        // Check if is a bulk get or not
+        if (CustomCacheKey.class.isInstance(key) && ((CustomCacheKey) key).isBulk()) {
+            return getBulk((CustomCacheKey) key);
+        } else {
+            return getSingle(key);
+        }
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> aClass) {
+        ValueWrapper wrapper = get(key);
+        return wrapper == null ? null : (T) wrapper.get();
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> callable) {
+        ValueWrapper wrapper = get(key);
+        return wrapper == null ? null : (T) wrapper.get();
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        // Check if is a bulk put or not
+        if (CustomCacheKey.class.isInstance(key) && ((CustomCacheKey) key).isBulk()) {
+            // value to store must be an instance of Map (key with his value)
+            if (!(value instanceof Map)) {
+                throw new CacheInvalidArgumentException("Expected an instance of Map class in param type");
+            }
+
+            for (Object k : (Collection<?>) ((CustomCacheKey) key).getParams()[0]) {
+                putSingle(k, ((Map<?, ?>) value).get(k));
+            }
+        } else {
+            putSingle(key, value);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        store.remove(getCacheKey(key));
+    }
+
+    @Override
+    public void clear() {
+        store.removeByPrefix(keyPrefix + "-");
+    }
+
+    private String getCacheKey(Object key) {
+        return keyEncoder.encode(keyPrefix, key);
+    }
+
+    private byte[] serializeValue(String cacheKey, Object value) {
+        // Check null value
+        if ((!allowNullValues) && value == null) {
+            throw new CacheInvalidArgumentException("Cache '" + name + "' is configured to not allow null values but null was provided");
+        }
+
+        if (value == null) {
+            return NULL_VALUE;
+        }
+        long startTime = metrics.startTimer();
+        try {
+            return objectWriter.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw CacheSerializingException.with(cacheKey, value.getClass(), e);
+        } finally {
+            metrics.recordLatency(Operation.SERIALIZE, startTime);
+        }
+    }
+
+    private Object deserialize(ObjectReader reader, String cacheKey, byte[] hit) {
+        long startTime = metrics.startTimer();
+        try {
+            return reader.readValue(hit);
+        } catch (IOException e) {
+            throw CacheSerializingException.with(cacheKey, reader.getValueType().getTypeName(), e);
+        } finally {
+            metrics.recordLatency(Operation.SERIALIZE, startTime);
+        }
+    }
+
+    private void putSingle(Object key, Object value) {
+        String cacheKey = getCacheKey(key);
+        byte[] serializedValue = serializeValue(cacheKey, value);
+        long startTime = metrics.startTimer();
+        store.put(cacheKey, serializedValue, expirationTimeMillis);
+        metrics.recordLatency(Operation.PUT, startTime);
+    }
+
+    private ValueWrapper getSingle(Object key) {
+        // Get cached object
+        String cacheKey = getCacheKey(key);
+        long startTime = metrics.startTimer();
+        byte[] hit = store.get(cacheKey);
+        metrics.recordLatency(Operation.GET, startTime);
+
+        // Missed hit
+        if (hit == null) {
+            metrics.recordMiss();
+            return null;
+        }
+        metrics.recordHit();
+
+        if (hit.length == 0) {
+            return new SimpleValueWrapper(null);
+        }
+
+        ObjectReader reader = typeReaders.forReturnType(((CustomCacheKey) key).getMethod());
+        return new SimpleValueWrapper(deserialize(reader, cacheKey, hit));
+    }
+
+    private ValueWrapper getBulk(CustomCacheKey customCacheKey) {
+        // Check that return type is subclass of Map
+        if (!Map.class.isAssignableFrom(customCacheKey.getMethod().getReturnType())) {
+            throw new CacheInvalidArgumentException("Expected an instance of Map class in return type");
+        }
+
+        // Get the collection of requested keys
+        Collection<Object> collection = (Collection<Object>) customCacheKey.getParams()[0];
+        ObjectReader reader = typeReaders.forMapValueType(customCacheKey.getMethod());
+        Map<Object, Object> result = new HashMap<>();
+
+        // Get cached objects, collecting the missed keys to pass them to the
+        // annotated method
+        Collection missedKeys;
+        try {
+            missedKeys = (Collection) customCacheKey.getParams()[0].getClass().getDeclaredConstructor().newInstance();
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            throw CacheInvalidArgumentException.collectionError(customCacheKey.getParams()[0].getClass(), e);
+        }
+
+        long startTime = metrics.startTimer();
+        Set<String> cacheKeys = new HashSet<>((int) (collection.size() / 0.75f) + 1);
+        for (Object originalKey : collection) {
+            String cacheKey = getCacheKey(originalKey);
+            if (!cacheKeys.add(cacheKey)) {
+                // repeated keys are looked up (and fetched) once
+                continue;
+            }
+            byte[] hit = store.get(cacheKey);
+            if (hit == null) {
+                missedKeys.add(originalKey);
+            } else {
+                result.put(originalKey, hit.length == 0 ? null : deserialize(reader, cacheKey, hit));
+            }
+        }
+        metrics.recordLatency(Operation.GET, startTime);
+        metrics.recordHits(result.size());
+        metrics.recordMisses(missedKeys.size());
+
+        // Check missed hits
+        if (!missedKeys.isEmpty()) {
+            // Execute the method to retrieve the missed hits
+            Map missedHits;
+            startTime = metrics.startTimer();
+            try {
+                missedHits = missFetcher.fetch((Collection<Object>) missedKeys, customCacheKey::invokeBulk);
+            } finally {
+                metrics.recordLatency(Operation.FETCH, startTime);
+            }
+
+            // Cache the missed hits and add to the result
+            missedKeys.forEach(missedKey -> {
+                putSingle(missedKey, missedHits.get(missedKey));
+                result.put(missedKey, missedHits.get(missedKey));
+            });
+        }
+
+        // Return the result
+        return new SimpleValueWrapper(result);
+    }
+}
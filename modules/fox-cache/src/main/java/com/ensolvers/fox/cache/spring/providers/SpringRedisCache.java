@@ -1,42 +1,169 @@
 package com.ensolvers.fox.cache.spring.providers;
 
+import com.ensolvers.fox.cache.common.CacheGeneration;
 import com.ensolvers.fox.cache.common.CacheString;
+import com.ensolvers.fox.cache.common.ChunkedFetcher;
 import com.ensolvers.fox.cache.exception.CacheExecutionException;
 import com.ensolvers.fox.cache.exception.CacheInvalidArgumentException;
 import com.ensolvers.fox.cache.exception.CacheSerializingException;
+import com.ensolvers.fox.cache.hotkeys.HotKey;
+import com.ensolvers.fox.cache.hotkeys.HotKeyDetector;
+import com.ensolvers.fox.cache.hotkeys.HotKeyTier;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import com.ensolvers.fox.cache.redis.RedisKeyReaper;
+import com.ensolvers.fox.cache.spring.key.CacheKeyEncoder;
 import com.ensolvers.fox.cache.spring.key.CustomCacheKey;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.lettuce.core.*;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.lettuce.core.api.sync.RedisCommands;
 import org.springframework.cache.Cache;
 import org.springframework.cache.support.SimpleValueWrapper;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executor;
 
 public class SpringRedisCache implements Cache {
-    private static final int KEY_SCAN_MAX_LIMIT = 1000;
+    private static final String GENERATION_KEY_PREFIX = "fox-spring-cache-generation::";
 
     private final String name;
     private final RedisCommands<String, String> redisClient;
     private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+    private final MethodTypeReaders typeReaders;
     private final boolean allowNullValues;
     private final int expirationTimeInSeconds;
+    private volatile RedisAsyncCommands<String, String> redisAsyncClient;
+    private volatile Duration timeout;
+    private final boolean asyncWriteBack;
+    private final CacheGeneration generation;
+    private final String keyPrefix;
+    private final CacheKeyEncoder keyEncoder;
+    private CacheMetrics metrics = CacheMetrics.DISABLED;
+    private ChunkedFetcher missFetcher = ChunkedFetcher.DISABLED;
+    private HotKeyTier<ValueWrapper> hotKeys;
 
     public SpringRedisCache(String name, RedisCommands<String, String> redisClient, int expirationTimeInSeconds, boolean allowNullValues) {
+        this(name, redisClient, expirationTimeInSeconds, allowNullValues, false);
+    }
+
+    /**
+     * Same as
+     * {@link #SpringRedisCache(String, RedisCommands, RedisAsyncCommands, Duration, int, boolean, boolean)},
+     * but the async commands (used to pipeline bulk puts) and their timeout are
+     * taken from the connection of the given commands the first time they are
+     * needed.
+     *
+     * @param name                    an identifier for the cache
+     * @param redisClient             the commands used to access Redis
+     * @param expirationTimeInSeconds expiration time of the entries
+     * @param allowNullValues         if null values are allowed
+     * @param asyncWriteBack          if true, the values fetched after a bulk get
+     *                                miss are written to Redis without waiting for
+     *                                the writes to complete
+     */
+    public SpringRedisCache(String name, RedisCommands<String, String> redisClient, int expirationTimeInSeconds, boolean allowNullValues,
+            boolean asyncWriteBack) {
+        this(name, redisClient, null, null, expirationTimeInSeconds, allowNullValues, asyncWriteBack);
+    }
+
+    /**
+     * @param name                    an identifier for the cache
+     * @param redisClient             the commands used to access Redis
+     * @param redisAsyncClient        the async commands used to pipeline bulk puts,
+     *                                null to take them from the connection of
+     *                                redisClient when needed
+     * @param timeout                 max time to wait for pipelined puts, null to
+     *                                use the one of the connection of redisClient
+     * @param expirationTimeInSeconds expiration time of the entries
+     * @param allowNullValues         if null values are allowed
+     * @param asyncWriteBack          if true, the values fetched after a bulk get
+     *                                miss are written to Redis without waiting for
+     *                                the writes to complete
+     */
+    public SpringRedisCache(String name, RedisCommands<String, String> redisClient, RedisAsyncCommands<String, String> redisAsyncClient,
+            Duration timeout, int expirationTimeInSeconds, boolean allowNullValues, boolean asyncWriteBack) {
         this.name = name;
         this.redisClient = redisClient;
+        this.redisAsyncClient = redisAsyncClient;
+        this.timeout = timeout;
+        this.asyncWriteBack = asyncWriteBack;
         this.objectMapper = new ObjectMapper();
+        this.objectWriter = this.objectMapper.writer();
+        this.typeReaders = new MethodTypeReaders(this.objectMapper);
         this.expirationTimeInSeconds = expirationTimeInSeconds;
         this.allowNullValues = allowNullValues;
+        this.keyPrefix = name.replace(" ", "-");
+        this.keyEncoder = new CacheKeyEncoder();
+        String generationKey = GENERATION_KEY_PREFIX + keyPrefix;
+        this.generation = new CacheGeneration(() -> redisClient.get(generationKey), value -> redisClient.set(generationKey, value),
+                CacheGeneration.DEFAULT_REFRESH_INTERVAL_IN_MILLIS);
+    }
+
+    /**
+     * Records hits, misses and latencies of this cache in the given metrics (see
+     * {@link com.ensolvers.fox.cache.metrics.CacheMetricsRegistry})
+     *
+     * @param metrics the metrics of the cache
+     * @return this cache
+     */
+    public SpringRedisCache withMetrics(CacheMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Fetches the misses of bulk gets in chunks, in parallel (see
+     * {@link ChunkedFetcher}), instead of passing every missed key to the annotated
+     * method in a single call. The annotated method must not depend on thread bound
+     * state (e.g. the current transaction).
+     *
+     * @param chunkSize max amount of keys passed to each call
+     * @param executor  the executor used to fetch chunks, e.g. see
+     *                  {@link ChunkedFetcher#newFetchExecutor(int)}
+     * @return this cache
+     */
+    public SpringRedisCache withChunkedFetch(int chunkSize, Executor executor) {
+        this.missFetcher = new ChunkedFetcher(chunkSize, executor);
+        return this;
+    }
+
+    /**
+     * Keeps a local copy of the hot keys of the cache (see {@link HotKeyTier}), so
+     * the most accessed keys do not saturate a single Redis shard. Only single gets
+     * are served locally
+     *
+     * @param detector                     the detector used to find the hot keys
+     * @param localExpirationTimeInSeconds time in seconds for the local copies to
+     *                                     expire
+     * @return this cache
+     */
+    public SpringRedisCache withHotKeys(HotKeyDetector detector, int localExpirationTimeInSeconds) {
+        this.hotKeys = new HotKeyTier<>(detector, localExpirationTimeInSeconds);
+        return this;
+    }
+
+    /**
+     * @return the current hot keys of the cache (as final Redis keys), most
+     *         accessed first, or an empty list if hot key detection is not enabled
+     */
+    public List<HotKey> getHotKeys() {
+        return hotKeys == null ? Collections.emptyList() : hotKeys.getTopKeys();
     }
 
     @Override
@@ -80,9 +207,11 @@ public class SpringRedisCache implements Cache {
                 throw new CacheInvalidArgumentException("Expected an instance of Map class in param type");
             }
 
+            Map<String, Object> entries = new HashMap<>();
             for (String k : (Collection<? extends String>) ((CustomCacheKey) key).getParams()[0]) {
-                putSingle(k, ((Map<?, ?>) value).get(k));
+                entries.put(getCacheKey(k), ((Map<?, ?>) value).get(k));
             }
+            putMulti(entries, true);
         } else {
             putSingle(key, value);
         }
@@ -92,92 +221,178 @@ public class SpringRedisCache implements Cache {
     public void evict(Object key) {
         String cacheKey = getCacheKey(key);
         redisClient.del(cacheKey);
+        if (hotKeys != null) {
+            hotKeys.invalidate(cacheKey);
+        }
     }
 
+    /**
+     * Delete all entries in the cache in O(1) by moving it to a new generation (see
+     * {@link CacheGeneration}), the keys of previous generations are removed in
+     * background by a {@link RedisKeyReaper}
+     */
     @Override
     public void clear() {
-        KeyScanCursor<String> cursor;
-        do {
-            cursor = redisClient.scan(ScanArgs.Builder.limit(KEY_SCAN_MAX_LIMIT).match(name + "-" + "*"));
-            if (cursor.getKeys() != null && cursor.getKeys().size() > 0) {
-                redisClient.del(cursor.getKeys().toArray(new String[0]));
-            }
-        } while (!cursor.isFinished() && cursor.getKeys() != null && cursor.getKeys().size() > 0);
+        this.generation.increment();
+        if (hotKeys != null) {
+            hotKeys.invalidateAll();
+        }
+
+        String currentPrefix = getCacheKey("");
+        String prefix = RedisKeyReaper.escapePattern(keyPrefix);
+        RedisKeyReaper.reap(redisClient, Arrays.asList(prefix + "-*", prefix + CacheGeneration.SEPARATOR + "*"),
+                cacheKey -> cacheKey.startsWith(currentPrefix));
     }
 
     private String getCacheKey(Object key) {
-        StringBuilder cacheKeyBuilder = new StringBuilder();
-        cacheKeyBuilder.append(name);
-
-        if (key instanceof CustomCacheKey) {
-            if (((CustomCacheKey) key).isEmpty()) {
-                cacheKeyBuilder.append("-").append("UNIQUE");
-            } else {
-                cacheKeyBuilder.append("-").append(key);
-            }
-        } else if (key instanceof Collection) {
-            ((Collection) key).forEach(o -> cacheKeyBuilder.append("-").append(o));
-        } else {
-            cacheKeyBuilder.append("-").append(key);
-        }
-
-        return cacheKeyBuilder.toString().replace(" ", "-");
+        return keyEncoder.encode(generation.namespace(keyPrefix), key);
     }
 
     private Object deserializeUsingMapArgumentType(CustomCacheKey customCacheKey, String memcachedKey, String hit) {
-        // Get the type of the serialized object
-        Type type = ((ParameterizedType) customCacheKey.getMethod().getGenericReturnType()).getActualTypeArguments()[1];
+        ObjectReader reader = typeReaders.forMapValueType(customCacheKey.getMethod());
+        long startTime = metrics.startTimer();
         try {
-            return objectMapper.readValue(hit, objectMapper.getTypeFactory().constructType(type));
-        } catch (JsonProcessingException e) {
-            throw CacheSerializingException.with(memcachedKey, type.getTypeName(), e);
+            return reader.readValue(hit);
+        } catch (IOException e) {
+            throw CacheSerializingException.with(memcachedKey, reader.getValueType().getTypeName(), e);
+        } finally {
+            metrics.recordLatency(Operation.SERIALIZE, startTime);
         }
     }
 
     private Object deserializeUsingReturnType(CustomCacheKey customCacheKey, String memcachedKey, String hit) {
-        // Get the type of the serialized object
-        Type type = customCacheKey.getMethod().getGenericReturnType();
+        ObjectReader reader = typeReaders.forReturnType(customCacheKey.getMethod());
+        long startTime = metrics.startTimer();
         try {
-            return objectMapper.readValue(hit, objectMapper.getTypeFactory().constructType(type));
-        } catch (JsonProcessingException e) {
-            throw CacheSerializingException.with(memcachedKey, type.getTypeName(), e);
+            return reader.readValue(hit);
+        } catch (IOException e) {
+            throw CacheSerializingException.with(memcachedKey, reader.getValueType().getTypeName(), e);
+        } finally {
+            metrics.recordLatency(Operation.SERIALIZE, startTime);
         }
     }
 
-    private void putSingle(Object key, Object value) {
+    private String serializeValue(String cacheKey, Object value) {
         // Check null value
         if ((!allowNullValues) && value == null) {
             throw new CacheInvalidArgumentException("Cache '" + name + "' is configured to not allow null values but null was provided");
         }
 
-        String cacheKey = getCacheKey(key);
+        if (value == null) {
+            return CacheString.NULL_STRING;
+        }
+        long startTime = metrics.startTimer();
         try {
-            String serializedValue = CacheString.NULL_STRING;
-            if (value != null) {
-                serializedValue = objectMapper.writeValueAsString(value);
-            }
-            redisClient.set(cacheKey, serializedValue, SetArgs.Builder.ex(expirationTimeInSeconds));
+            return objectWriter.writeValueAsString(value);
         } catch (JsonProcessingException e) {
             throw CacheSerializingException.with(cacheKey, value.getClass(), e);
+        } finally {
+            metrics.recordLatency(Operation.SERIALIZE, startTime);
         }
     }
 
+    private void putSingle(Object key, Object value) {
+        String cacheKey = getCacheKey(key);
+        String serializedValue = serializeValue(cacheKey, value);
+        long startTime = metrics.startTimer();
+        redisClient.set(cacheKey, serializedValue, SetArgs.Builder.ex(expirationTimeInSeconds));
+        metrics.recordLatency(Operation.PUT, startTime);
+        if (hotKeys != null) {
+            hotKeys.invalidate(cacheKey);
+        }
+    }
+
+    /**
+     * Stores several entries pipelining the writes, so they take a single
+     * round-trip instead of one per entry.
+     *
+     * @param entries     the entries to store, by final cache key
+     * @param awaitWrites if the method must block until every write completes
+     */
+    private void putMulti(Map<String, Object> entries, boolean awaitWrites) {
+        // serialize everything first so nothing is written if a value is invalid
+        Map<String, String> serializedEntries = new HashMap<>();
+        entries.forEach((cacheKey, value) -> serializedEntries.put(cacheKey, serializeValue(cacheKey, value)));
+
+        SetArgs setArgs = SetArgs.Builder.ex(expirationTimeInSeconds);
+        List<RedisFuture<String>> futures = new ArrayList<>(serializedEntries.size());
+        RedisAsyncCommands<String, String> asyncCommands = asyncCommands();
+        serializedEntries.forEach((cacheKey, serializedValue) -> futures.add(asyncCommands.set(cacheKey, serializedValue, setArgs)));
+        if (hotKeys != null) {
+            entries.keySet().forEach(hotKeys::invalidate);
+        }
+
+        if (!awaitWrites) {
+            return;
+        }
+
+        long startTime = metrics.startTimer();
+        if (!LettuceFutures.awaitAll(timeout(), futures.toArray(new RedisFuture[0]))) {
+            throw new CacheExecutionException("Timeout when trying to store " + futures.size() + " entries in cache '" + name + "'");
+        }
+        metrics.recordLatency(Operation.PUT, startTime);
+    }
+
+    /**
+     * @return the async commands used to pipeline bulk puts, taken from the
+     *         connection of the sync commands if they were not provided
+     */
+    private RedisAsyncCommands<String, String> asyncCommands() {
+        if (redisAsyncClient == null) {
+            redisAsyncClient = connection().async();
+        }
+        return redisAsyncClient;
+    }
+
+    private Duration timeout() {
+        if (timeout == null) {
+            timeout = connection().getTimeout();
+        }
+        return timeout;
+    }
+
+    private StatefulRedisConnection<String, String> connection() {
+        StatefulRedisConnection<String, String> connection = redisClient.getStatefulConnection();
+        if (connection == null) {
+            throw new CacheExecutionException("Cache '" + name + "' needs async commands to store several entries, "
+                    + "but they were not provided and the sync commands have no connection to take them from");
+        }
+        return connection;
+    }
+
     private ValueWrapper getSingle(Object key) {
         // Get cached object
         String cacheKey = getCacheKey(key);
+        if (hotKeys != null) {
+            ValueWrapper promoted = hotKeys.get(cacheKey);
+            if (promoted != null) {
+                metrics.recordHit();
+                return promoted;
+            }
+        }
+
+        long startTime = metrics.startTimer();
         String hit = redisClient.get(cacheKey);
+        metrics.recordLatency(Operation.GET, startTime);
 
         // Missed hit
         if (hit == null) {
+            metrics.recordMiss();
             return null;
         }
+        metrics.recordHit();
 
+        ValueWrapper wrapper;
         if (hit.equals(CacheString.NULL_STRING)) {
-            return new SimpleValueWrapper(null);
+            wrapper = new SimpleValueWrapper(null);
+        } else {
+            wrapper = new SimpleValueWrapper(deserializeUsingReturnType((CustomCacheKey) key, cacheKey, hit));
         }
 
-        Object deserializedObject = deserializeUsingReturnType((CustomCacheKey) key, cacheKey, hit);
-        return new SimpleValueWrapper(deserializedObject);
+        if (hotKeys != null) {
+            hotKeys.offer(cacheKey, wrapper);
+        }
+        return wrapper;
     }
 
     private ValueWrapper getBulk(CustomCacheKey customCacheKey) {
@@ -190,8 +405,10 @@ public class SpringRedisCache implements Cache {
         Collection<Object> collection = (Collection<Object>) customCacheKey.getParams()[0];
 
         // Convert key to redis key
-        Map<String, Object> cacheKeyToOriginalKey = collection.stream()
-                .collect(Collectors.toMap(this::getCacheKey, Function.identity(), (v1, v2) -> v1));
+        Map<String, Object> cacheKeyToOriginalKey = new HashMap<>((int) (collection.size() / 0.75f) + 1);
+        for (Object originalKey : collection) {
+            cacheKeyToOriginalKey.putIfAbsent(getCacheKey(originalKey), originalKey);
+        }
         Map<Object, Object> result = new HashMap<>();
 
         // Get cached objects
@@ -199,9 +416,17 @@ public class SpringRedisCache implements Cache {
         if (cacheKeyToOriginalKey.isEmpty()) {
             hits = new HashMap<>();
         } else {
-            hits = redisClient.mget(cacheKeyToOriginalKey.keySet().toArray(new String[0])).stream().filter(Value::hasValue)
-                    .collect(Collectors.toMap(KeyValue::getKey, kv -> kv.getValueOrElse(null)));
+            long startTime = metrics.startTimer();
+            hits = new HashMap<>();
+            for (KeyValue<String, String> keyValue : redisClient.mget(cacheKeyToOriginalKey.keySet().toArray(new String[0]))) {
+                if (keyValue.hasValue()) {
+                    hits.put(keyValue.getKey(), keyValue.getValue());
+                }
+            }
+            metrics.recordLatency(Operation.GET, startTime);
         }
+        metrics.recordHits(hits.size());
+        metrics.recordMisses(cacheKeyToOriginalKey.size() - (long) hits.size());
 
         // Deserialize cached objects
         hits.forEach((memcachedKey, hit) -> {
@@ -227,17 +452,21 @@ public class SpringRedisCache implements Cache {
 
             // Execute the method to retrieve the missed hits
             Map missedHits;
+            long startTime = metrics.startTimer();
             try {
-                missedHits = (Map) customCacheKey.getMethod().invoke(customCacheKey.getTarget(), missedKeys);
-            } catch (IllegalAccessException | InvocationTargetException e) {
-                throw new CacheExecutionException("Error trying to execute annotated method. Check stack trace for more information.", e);
+                missedHits = missFetcher.fetch((Collection<Object>) missedKeys, customCacheKey::invokeBulk);
+            } finally {
+                metrics.recordLatency(Operation.FETCH, startTime);
             }
 
-            // Cache the missed hits and add to the result
-            missedKeys.forEach(missedKey -> {
-                putSingle(missedKey, missedHits.get(missedKey));
-                result.put(missedKey, missedHits.get(missedKey));
+            // Cache the missed hits (reusing the computed keys) and add to the result
+            Map<String, Object> missedEntries = new HashMap<>();
+            cacheKeyToOriginalKey.forEach((cacheKey, missedKey) -> {
+                Object missedHit = missedHits.get(missedKey);
+                missedEntries.put(cacheKey, missedHit);
+                result.put(missedKey, missedHit);
             });
+            putMulti(missedEntries, !asyncWriteBack);
         }
 
         // Return the result
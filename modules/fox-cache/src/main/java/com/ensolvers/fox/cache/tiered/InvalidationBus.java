@@ -0,0 +1,27 @@
+package com.ensolvers.fox.cache.tiered;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts key invalidations among every node that holds a local copy of a
+ * cache, see {@link TieredCache}.
+ */
+public interface InvalidationBus {
+
+    /**
+     * Notifies every other node that the key has changed.
+     *
+     * @param cacheName the name of the cache the key belongs to
+     * @param key       the key that must be evicted
+     */
+    void publish(String cacheName, String key);
+
+    /**
+     * Registers a listener that will be called with the keys invalidated by other
+     * nodes.
+     *
+     * @param cacheName the name of the cache to listen to
+     * @param listener  called with every invalidated key
+     */
+    void subscribe(String cacheName, Consumer<String> listener);
+}
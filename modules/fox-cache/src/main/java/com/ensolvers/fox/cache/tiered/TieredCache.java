@@ -0,0 +1,128 @@
+package com.ensolvers.fox.cache.tiered;
+
+import com.ensolvers.fox.cache.common.GenericBulkCache;
+import com.ensolvers.fox.cache.common.GenericCache;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * A two-level cache that keeps a bounded local (in-memory) copy of the entries
+ * of a remote cache (e.g. Redis or Memcached), so read-heavy keys do not need a
+ * network round-trip on every access. Writes and invalidations are broadcast
+ * through an {@link InvalidationBus} so that every node evicts its local copy,
+ * while the local expiration time bounds how stale a copy can be if a message
+ * is lost.
+ *
+ * @param <T> Type of objects that will be stored in the cache
+ */
+public class TieredCache<T> implements GenericBulkCache<T> {
+    private final GenericCache<T> remoteCache;
+    private final InvalidationBus invalidationBus;
+    private final String name;
+    private final Cache<String, T> localCache;
+
+    /**
+     * @param remoteCache                  the shared cache used as second level
+     * @param invalidationBus              the bus used to broadcast invalidations
+     *                                     among nodes
+     * @param name                         of the cache, must be the same in every
+     *                                     node
+     * @param maxLocalEntries              max amount of entries kept locally
+     * @param localExpirationTimeInSeconds time in seconds for the local copies to
+     *                                     expire
+     */
+    public TieredCache(GenericCache<T> remoteCache, InvalidationBus invalidationBus, String name, long maxLocalEntries,
+            int localExpirationTimeInSeconds) {
+        this.remoteCache = remoteCache;
+        this.invalidationBus = invalidationBus;
+        this.name = name;
+        this.localCache = CacheBuilder.newBuilder().maximumSize(maxLocalEntries)
+                .expireAfterWrite(localExpirationTimeInSeconds, TimeUnit.SECONDS).build();
+        this.invalidationBus.subscribe(name, this.localCache::invalidate);
+    }
+
+    /**
+     * Returns the local copy of the value if present, otherwise gets it from the
+     * remote cache and keeps a local copy. Null values are never kept locally.
+     *
+     * @param key the key of the object
+     *
+     * @return the object
+     */
+    @Override
+    public T get(String key) {
+        T value = this.localCache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+
+        value = this.remoteCache.get(key);
+        if (value != null) {
+            this.localCache.put(key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public Map<String, T> getMap(Collection<String> keys) {
+        Map<String, T> result = new HashMap<>(this.localCache.getAllPresent(keys));
+
+        Set<String> missedKeys = keys.stream().filter(key -> !result.containsKey(key)).collect(Collectors.toSet());
+        if (missedKeys.isEmpty()) {
+            return result;
+        }
+
+        Map<String, T> remoteValues;
+        if (this.remoteCache instanceof GenericBulkCache) {
+            remoteValues = ((GenericBulkCache<T>) this.remoteCache).getMap(missedKeys);
+        } else {
+            remoteValues = new HashMap<>();
+            missedKeys.forEach(key -> remoteValues.put(key, this.remoteCache.get(key)));
+        }
+
+        remoteValues.forEach((key, value) -> {
+            if (value != null) {
+                this.localCache.put(key, value);
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public List<T> getList(Collection<String> keys) {
+        Map<String, T> resultMap = getMap(keys);
+        return keys.stream().map(resultMap::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public void put(String key, T object) {
+        this.remoteCache.put(key, object);
+        if (object != null) {
+            this.localCache.put(key, object);
+        } else {
+            this.localCache.invalidate(key);
+        }
+        this.invalidationBus.publish(name, key);
+    }
+
+    @Override
+    public void invalidate(String key) {
+        this.remoteCache.invalidate(key);
+        this.localCache.invalidate(key);
+        this.invalidationBus.publish(name, key);
+    }
+
+    /** Evicts every local copy, without affecting the remote cache. */
+    public void invalidateLocal() {
+        this.localCache.invalidateAll();
+    }
+
+    /** @return the amount of entries currently kept locally */
+    public long localSize() {
+        return this.localCache.size();
+    }
+}
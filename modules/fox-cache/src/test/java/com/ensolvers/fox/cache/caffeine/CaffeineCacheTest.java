@@ -0,0 +1,129 @@
+package com.ensolvers.fox.cache.caffeine;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ensolvers.fox.cache.TestClass;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class CaffeineCacheTest {
+
+    @Test
+    void testFetchingAndInvalidation() {
+        AtomicInteger fetchCount = new AtomicInteger();
+        CaffeineCache<TestClass> cache = new CaffeineCache<>(
+                id -> new TestClass(Long.parseLong(id), "someString", fetchCount.incrementAndGet(), 1L), "testCache1", 60, 100);
+
+        assertEquals(Integer.valueOf(1), cache.get("1").getIntegerValue());
+        assertEquals(Integer.valueOf(1), cache.get("1").getIntegerValue());
+        assertEquals(1, fetchCount.get());
+
+        cache.invalidate("1");
+        assertEquals(Integer.valueOf(2), cache.get("1").getIntegerValue());
+
+        cache.put("1", new TestClass(1L, "someString", 10, 1L));
+        assertEquals(Integer.valueOf(10), cache.get("1").getIntegerValue());
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        CaffeineCache<String> cache = new CaffeineCache<>(id -> "value-" + id, "testCache2",
+                Caffeine.newBuilder().maximumSize(100).executor(Runnable::run));
+
+        for (int i = 0; i < 1000; i++) {
+            cache.get(String.valueOf(i));
+        }
+        assertTrue(cache.size() <= 100, "size was " + cache.size());
+    }
+
+    @Test
+    void testRefreshAfterWrite() {
+        AtomicLong nanos = new AtomicLong();
+        AtomicInteger fetchCount = new AtomicInteger();
+        CaffeineCache<TestClass> cache = new CaffeineCache<>(
+                id -> new TestClass(Long.parseLong(id), "someString", fetchCount.incrementAndGet(), 1L), "testCache3",
+                Caffeine.newBuilder().refreshAfterWrite(10, TimeUnit.SECONDS).ticker(nanos::get).executor(Runnable::run));
+
+        assertEquals(Integer.valueOf(1), cache.get("1").getIntegerValue());
+
+        // once the entry is old enough, the current value is returned while it is
+        // refreshed
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(11));
+        assertEquals(Integer.valueOf(1), cache.get("1").getIntegerValue());
+        assertEquals(Integer.valueOf(2), cache.get("1").getIntegerValue());
+        assertEquals(2, fetchCount.get());
+    }
+
+    @Test
+    void testAsyncLoadsAreShared() throws Exception {
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        AtomicInteger fetchCount = new AtomicInteger();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CaffeineCache<String> cache = new CaffeineCache<>(id -> {
+            fetchCount.incrementAndGet();
+            fetchStarted.countDown();
+            try {
+                releaseFetch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "value-" + id;
+        }, "testCache4", Caffeine.newBuilder().executor(executor));
+
+        CompletableFuture<String> first = cache.getAsync("1");
+        assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = cache.getAsync("1");
+        assertFalse(second.isDone());
+
+        releaseFetch.countDown();
+        assertEquals("value-1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("value-1", second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, fetchCount.get());
+        executor.shutdown();
+    }
+
+    @Test
+    void testConcurrentReads() throws Exception {
+        int keys = 10_000;
+        AtomicInteger fetchCount = new AtomicInteger();
+        CaffeineCache<String> cache = new CaffeineCache<>(id -> {
+            fetchCount.incrementAndGet();
+            return "value-" + id;
+        }, "caffeine", 600, keys);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < 100_000; j++) {
+                    String key = String.valueOf(ThreadLocalRandom.current().nextInt(keys));
+                    assertEquals("value-" + key, cache.get(key));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // every key fits in the cache, so none is loaded more than once
+        assertTrue(fetchCount.get() <= keys);
+    }
+}
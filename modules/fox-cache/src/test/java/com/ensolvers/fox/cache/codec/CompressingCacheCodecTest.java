@@ -0,0 +1,57 @@
+package com.ensolvers.fox.cache.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ensolvers.fox.cache.utils.Profile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CompressingCacheCodecTest {
+
+    @Test
+    void testValuesBelowThresholdAreNotCompressed() {
+        JacksonCacheCodec<Profile> rawCodec = JacksonCacheCodec.json(Profile.class);
+        CompressingCacheCodec<Profile> codec = new CompressingCacheCodec<>(rawCodec, 1024);
+
+        Profile profile = Profile.random();
+        byte[] bytes = codec.encode(profile);
+
+        byte[] raw = rawCodec.encode(profile);
+        assertEquals(CompressingCacheCodec.RAW_HEADER, bytes[0]);
+        assertArrayEquals(raw, Arrays.copyOfRange(bytes, 1, bytes.length));
+        assertEquals(profile, codec.decode(bytes));
+
+        // entries stored before enabling compression can still be decoded
+        assertEquals(profile, codec.decode(raw));
+        assertEquals(1, codec.getRawCount());
+        assertEquals(0, codec.getCompressedCount());
+    }
+
+    @Test
+    void testValuesAboveThresholdAreCompressed() {
+        CacheCodec<List<Profile>> rawCodec = JacksonCacheCodec.json(f -> f.constructCollectionType(List.class, Profile.class));
+        CompressingCacheCodec<List<Profile>> codec = new CompressingCacheCodec<>(rawCodec, 1024);
+
+        List<Profile> profiles = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Profile profile = Profile.random();
+            profile.setName("A quite repetitive name for profile number " + (i % 10));
+            profiles.add(profile);
+        }
+
+        byte[] raw = rawCodec.encode(profiles);
+        byte[] compressed = codec.encode(profiles);
+
+        assertEquals(CompressingCacheCodec.COMPRESSED_HEADER, compressed[0]);
+        assertTrue(compressed.length < raw.length);
+        assertEquals(profiles, codec.decode(compressed));
+
+        // entries stored before enabling compression can still be decoded
+        assertEquals(profiles, codec.decode(raw));
+
+        assertEquals(1, codec.getCompressedCount());
+        assertTrue(codec.getCompressionRatio() > 1);
+    }
+}
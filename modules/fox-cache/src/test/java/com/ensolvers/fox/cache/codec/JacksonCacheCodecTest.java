@@ -0,0 +1,69 @@
+package com.ensolvers.fox.cache.codec;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ensolvers.fox.cache.utils.Profile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class JacksonCacheCodecTest {
+
+    @Test
+    void testRoundTrip() {
+        Profile profile = Profile.random();
+
+        for (CacheCodec<Profile> codec : codecs()) {
+            Profile decoded = codec.decode(codec.encode(profile));
+            assertEquals(profile, decoded);
+            assertEquals(profile.getName(), decoded.getName());
+            assertEquals(profile.getMedia().getTitle(), decoded.getMedia().getTitle());
+            assertEquals(profile, codec.decode(ByteBuffer.wrap(codec.encode(profile))));
+        }
+    }
+
+    @Test
+    void testListRoundTrip() {
+        List<Profile> profiles = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            profiles.add(Profile.random());
+        }
+
+        CacheCodec<List<Profile>> codec = JacksonCacheCodec.smile(f -> f.constructCollectionType(List.class, Profile.class));
+        assertEquals(profiles, codec.decode(codec.encode(profiles)));
+    }
+
+    @Test
+    void testBinaryEncodingsAreSmaller() {
+        List<Profile> profiles = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            profiles.add(Profile.random());
+        }
+
+        // Smile and CBOR values take less space than JSON ones
+        int jsonSize = 0;
+        for (CacheCodec<Profile> codec : codecs()) {
+            int size = 0;
+            for (Profile profile : profiles) {
+                byte[] bytes = codec.encode(profile);
+                size += bytes.length;
+                assertEquals(profile, codec.decode(bytes));
+            }
+
+            if (jsonSize == 0) {
+                jsonSize = size;
+            } else {
+                assertTrue(size < jsonSize);
+            }
+        }
+    }
+
+    private static List<CacheCodec<Profile>> codecs() {
+        List<CacheCodec<Profile>> codecs = new ArrayList<>();
+        codecs.add(JacksonCacheCodec.json(Profile.class));
+        codecs.add(JacksonCacheCodec.smile(Profile.class));
+        codecs.add(JacksonCacheCodec.cbor(Profile.class));
+        return codecs;
+    }
+}
@@ -0,0 +1,60 @@
+package com.ensolvers.fox.cache.common;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class CacheGenerationTest {
+
+    @Test
+    void testGenerationIsRefreshedInBackground() {
+        AtomicReference<String> stored = new AtomicReference<>("5");
+        AtomicInteger reads = new AtomicInteger();
+        List<Runnable> refreshes = new ArrayList<>();
+        CacheGeneration generation = new CacheGeneration(() -> {
+            reads.incrementAndGet();
+            return stored.get();
+        }, stored::set, 0, refreshes::add);
+
+        // the stored generation is read once when created
+        assertEquals(1, reads.get());
+        assertEquals(5, generation.current());
+        assertEquals("prefix#5", generation.namespace("prefix"));
+
+        // reading the generation never reads the store, a single refresh is queued
+        stored.set("7");
+        assertEquals(5, generation.current());
+        assertEquals(5, generation.current());
+        assertEquals(1, reads.get());
+        assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        assertEquals(2, reads.get());
+        assertEquals(7, generation.current());
+    }
+
+    @Test
+    void testIncrementIsNotUndoneByRefreshes() {
+        AtomicReference<String> stored = new AtomicReference<>();
+        List<Runnable> refreshes = new ArrayList<>();
+        CacheGeneration generation = new CacheGeneration(stored::get, stored::set, 0, refreshes::add);
+        assertEquals(0, generation.current());
+        assertEquals("prefix", generation.namespace("prefix"));
+
+        // a refresh that read the old generation must not move the cache back
+        generation.current();
+        long next = generation.increment();
+        stored.set("1");
+        refreshes.get(0).run();
+        assertEquals(next, generation.current());
+
+        // an evicted generation is restored
+        stored.set(null);
+        refreshes.get(1).run();
+        assertEquals(String.valueOf(next), stored.get());
+    }
+}
@@ -0,0 +1,76 @@
+package com.ensolvers.fox.cache.hotkeys;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.junit.jupiter.api.Test;
+
+class HotKeyDetectorTest {
+
+    @Test
+    void testSkewedAccessesAreDetected() {
+        HotKeyDetector detector = new HotKeyDetector(1, 3, 100);
+
+        // 3 hot keys among 10k keys accessed once
+        for (int i = 0; i < 10_000; i++) {
+            detector.record("cold-" + i);
+            detector.record("hot-" + (i % 3));
+        }
+
+        List<HotKey> topKeys = detector.getTopKeys();
+        assertEquals(3, topKeys.size());
+        topKeys.forEach(hotKey -> assertTrue(hotKey.getKey().startsWith("hot-"), hotKey.toString()));
+        assertTrue(detector.isHot("hot-0"));
+        assertFalse(detector.isHot("cold-1"));
+    }
+
+    @Test
+    void testKeysBelowMinAccessesAreNotHot() {
+        HotKeyDetector detector = new HotKeyDetector(1, 10, 5);
+
+        for (int i = 0; i < 4; i++) {
+            detector.record("key");
+        }
+        assertFalse(detector.isHot("key"));
+
+        detector.record("key");
+        assertTrue(detector.isHot("key"));
+        assertEquals(5, detector.getTopKeys().get(0).getEstimatedAccesses());
+    }
+
+    @Test
+    void testCountsDecay() {
+        HotKeyDetector detector = new HotKeyDetector(1, 1, 10);
+        for (int i = 0; i < 100; i++) {
+            detector.record("formerlyHot");
+        }
+        assertTrue(detector.isHot("formerlyHot"));
+
+        // enough other accesses to age the counts several times
+        for (int i = 0; i < 100_000; i++) {
+            detector.record("other-" + (i % 1000));
+        }
+        assertFalse(detector.isHot("formerlyHot"));
+    }
+
+    @Test
+    void testSampledRecordingFindsHotKeys() {
+        HotKeyDetector detector = new HotKeyDetector(HotKeyDetector.DEFAULT_SAMPLE_RATE, 100, 1000);
+        String[] keys = new String[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = "key-" + i;
+        }
+
+        int accesses = 10_000_000;
+        for (int i = 0; i < accesses; i++) {
+            // ~20% of the accesses go to 10 keys
+            int index = i % 5 == 0 ? (i / 5) % 10 : ThreadLocalRandom.current().nextInt(keys.length);
+            detector.record(keys[index]);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(detector.isHot("key-" + i));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.ensolvers.fox.cache.memcache;
 
+import com.ensolvers.fox.cache.common.ChunkedFetcher;
 import com.ensolvers.fox.cache.exception.CacheInvalidArgumentException;
 import com.ensolvers.fox.cache.memcached.MemcachedBulkCache;
 import com.ensolvers.fox.cache.utils.Profile;
@@ -14,6 +15,8 @@ import org.testcontainers.utility.DockerImageName;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -169,6 +172,75 @@ public class MemcachedBulkCacheTest {
         assertEquals(profile2, profileCache.get("profile2"));
     }
 
+    @Test
+    void testConcurrentBulkMissesAreCoalesced() throws Exception {
+        resetCache();
+
+        Map<String, AtomicInteger> fetchCounts = new ConcurrentHashMap<>();
+        MemcachedBulkCache<Profile> cache = new MemcachedBulkCache<>(memcachedClient, id -> Profile.random(), ids -> {
+            ids.forEach(id -> fetchCounts.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet());
+            sleep(500);
+            return ids.stream().collect(Collectors.toMap(Function.identity(), id -> Profile.random()));
+        }, "profileCoalesced", Profile.class, 3600, false);
+
+        // overlapping miss sets requested at the same time
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Map<String, Profile>> first = executor.submit(() -> cache.getMap(Arrays.asList("p1", "p2", "p3")));
+        Future<Map<String, Profile>> second = executor.submit(() -> cache.getMap(Arrays.asList("p2", "p3", "p4")));
+
+        Map<String, Profile> firstResult = first.get(10, TimeUnit.SECONDS);
+        Map<String, Profile> secondResult = second.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // every key was fetched exactly once and both callers got the same objects
+        assertEquals(4, fetchCounts.size());
+        fetchCounts.values().forEach(count -> assertEquals(1, count.get()));
+        assertEquals(3, firstResult.size());
+        assertEquals(3, secondResult.size());
+        assertEquals(firstResult.get("p2"), secondResult.get("p2"));
+        assertEquals(firstResult.get("p3"), secondResult.get("p3"));
+    }
+
+    @Test
+    void testMissesAreFetchedInParallelChunks() {
+        resetCache();
+
+        Set<String> fetchThreads = ConcurrentHashMap.newKeySet();
+        AtomicInteger fetchCalls = new AtomicInteger();
+        ExecutorService executor = ChunkedFetcher.newFetchExecutor(4);
+        MemcachedBulkCache<Profile> cache = new MemcachedBulkCache<>(memcachedClient, id -> Profile.random(), ids -> {
+            assertTrue(ids.size() <= 100);
+            fetchCalls.incrementAndGet();
+            fetchThreads.add(Thread.currentThread().getName());
+            sleep(100);
+            return ids.stream().collect(Collectors.toMap(Function.identity(), id -> Profile.random()));
+        }, "profileChunked", Profile.class, 3600, false).withChunkedFetch(100, executor);
+
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            keys.add("chunked" + i);
+        }
+
+        // misses are fetched in chunks by several threads and merged
+        Map<String, Profile> profiles = cache.getMap(keys);
+        assertEquals(1000, profiles.size());
+        assertEquals(10, fetchCalls.get());
+        assertTrue(fetchThreads.size() > 1);
+
+        // and the bulk get of the hits is split in chunks too
+        assertEquals(profiles, cache.getMap(keys));
+        assertEquals(10, fetchCalls.get());
+        executor.shutdown();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private void resetCache() {
         memcachedClient.flush();
     }
@@ -19,14 +19,27 @@
 package com.ensolvers.fox.cache.memcache;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.ensolvers.fox.cache.TestClass;
+import com.ensolvers.fox.cache.codec.JacksonCacheCodec;
+import com.ensolvers.fox.cache.hotkeys.HotKeyDetector;
 import com.ensolvers.fox.cache.memcached.MemcachedCache;
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import com.ensolvers.fox.cache.metrics.CacheMetricsRegistry;
+import com.ensolvers.fox.cache.metrics.CacheMetricsSnapshot;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import net.spy.memcached.MemcachedClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -141,4 +154,163 @@ class MemcachedCacheTest {
         // check that the deserialized list is structurally the same
         assertEquals(instance, new TestClass(2L, "someString", 1, 1L));
     }
+
+    @Test
+    void testBinaryCodec() {
+        AtomicInteger fetchCount = new AtomicInteger();
+
+        // create a cache that stores TestClass instances as Smile
+        MemcachedCache<TestClass> cache = new MemcachedCache<>(this.memcachedClient, id -> {
+            fetchCount.getAndIncrement();
+            return id.equals("0") ? null : new TestClass(Long.parseLong(id), "someString", 1, 1L);
+        }, "testClassCache4", TestClass.class, JacksonCacheCodec.smile(TestClass.class), 3, true);
+
+        cache.get("2");
+        TestClass instance = cache.get("2");
+        assertEquals(new TestClass(2L, "someString", 1, 1L), instance);
+
+        // null values are cached as well
+        assertNull(cache.get("0"));
+        assertNull(cache.get("0"));
+
+        // only 1 fetching per key should have been done if the cache worked properly
+        assertEquals(2, fetchCount.get());
+    }
+
+    @Test
+    void testConcurrentMissesAreCoalesced() throws Exception {
+        AtomicInteger fetchCount = new AtomicInteger();
+
+        MemcachedCache<TestClass> cache = new MemcachedCache<>(this.memcachedClient, id -> {
+            fetchCount.getAndIncrement();
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new TestClass(Long.parseLong(id), "someString", 1, 1L);
+        }, "testClassCache5", TestClass.class, 30, true);
+
+        // 20 threads missing the same key at the same time
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+        List<Future<TestClass>> results = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            results.add(executor.submit(() -> cache.get("2")));
+        }
+        for (Future<TestClass> result : results) {
+            assertEquals(new TestClass(2L, "someString", 1, 1L), result.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        assertEquals(1, fetchCount.get());
+    }
+
+    @Test
+    void testDistributedLease() throws Exception {
+        AtomicInteger fetchCount = new AtomicInteger();
+        Function<String, TestClass> slowFetch = id -> {
+            fetchCount.getAndIncrement();
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new TestClass(Long.parseLong(id), "someString", 1, 1L);
+        };
+
+        // two instances simulate two nodes sharing the same memcached
+        MemcachedCache<TestClass> node1 = new MemcachedCache<>(this.memcachedClient, slowFetch, "testClassCache6", TestClass.class, 30,
+                true).withDistributedLease(5);
+        MemcachedCache<TestClass> node2 = new MemcachedCache<>(this.memcachedClient, slowFetch, "testClassCache6", TestClass.class, 30,
+                true).withDistributedLease(5);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<TestClass> first = executor.submit(() -> node1.get("3"));
+        Future<TestClass> second = executor.submit(() -> node2.get("3"));
+        assertEquals(first.get(10, TimeUnit.SECONDS), second.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(1, fetchCount.get());
+    }
+
+    @Test
+    void testValuesLookingTimestampedAreKeptWithoutStaleWhileRevalidate() {
+        // values are stored as they are, with stale-while-revalidate disabled
+        MemcachedCache<String> cache = new MemcachedCache<>(this.memcachedClient, id -> "~ts:" + id + ":payload", "testClassCache10",
+                String.class, 30, true, Function.identity(), Function.identity());
+
+        assertEquals("~ts:123:payload", cache.get("123"));
+        assertEquals("~ts:123:payload", cache.get("123"));
+    }
+
+    @Test
+    void testStaleWhileRevalidate() throws InterruptedException {
+        AtomicInteger fetchCount = new AtomicInteger();
+
+        MemcachedCache<TestClass> cache = new MemcachedCache<TestClass>(this.memcachedClient,
+                id -> new TestClass(Long.parseLong(id), "someString", fetchCount.incrementAndGet(), 1L), "testClassCache7", TestClass.class,
+                30, true).withStaleWhileRevalidate(1, MemcachedCache.newRefreshExecutor(1, 10));
+
+        assertEquals(Integer.valueOf(1), cache.get("2").getIntegerValue());
+
+        // wait for the entry to become stale
+        Thread.sleep(1500);
+
+        // the stale value is returned right away while it is refreshed in background
+        assertEquals(Integer.valueOf(1), cache.get("2").getIntegerValue());
+        for (int i = 0; i < 50 && fetchCount.get() < 2; i++) {
+            Thread.sleep(100);
+        }
+        Thread.sleep(100);
+
+        assertEquals(Integer.valueOf(2), cache.get("2").getIntegerValue());
+        assertEquals(2, fetchCount.get());
+    }
+
+    @Test
+    void testMetrics() {
+        CacheMetricsRegistry registry = new CacheMetricsRegistry();
+        MemcachedCache<TestClass> cache = new MemcachedCache<>(this.memcachedClient,
+                id -> id.equals("0") ? null : new TestClass(Long.parseLong(id), "someString", 1, 1L), "testClassCache8", TestClass.class, 3,
+                true).withMetrics(registry.getOrCreate("testClassCache8"));
+
+        cache.get("2");
+        cache.get("2");
+        cache.get("0");
+        cache.get("0");
+
+        CacheMetricsSnapshot snapshot = registry.getOrCreate("testClassCache8").snapshot();
+        assertEquals(2, snapshot.getHitCount());
+        assertEquals(2, snapshot.getMissCount());
+        assertEquals(4, snapshot.getCount(Operation.GET));
+        assertEquals(2, snapshot.getCount(Operation.FETCH));
+        assertEquals(2, snapshot.getCount(Operation.PUT));
+        assertTrue(snapshot.getMaxLatency(Operation.FETCH) > 0);
+    }
+
+    @Test
+    void testHotKeysArePromotedLocally() {
+        AtomicInteger fetchCount = new AtomicInteger();
+        MemcachedCache<TestClass> cache = new MemcachedCache<>(this.memcachedClient,
+                id -> new TestClass(Long.parseLong(id), "someString", fetchCount.incrementAndGet(), 1L), "testClassCache9", TestClass.class,
+                30, true).withHotKeys(new HotKeyDetector(1, 10, 5), 60);
+
+        for (int i = 0; i < 10; i++) {
+            cache.get("1");
+        }
+        cache.get("2");
+        assertEquals("1", cache.getHotKeys().get(0).getKey());
+        assertEquals(1, cache.getHotKeys().size());
+
+        // the hot key is served locally even if removed from memcached behind the
+        // back of the cache, while the cold one is not
+        this.memcachedClient.delete("testClassCache9-1");
+        this.memcachedClient.delete("testClassCache9-2");
+        assertEquals(Integer.valueOf(1), cache.get("1").getIntegerValue());
+        assertEquals(Integer.valueOf(3), cache.get("2").getIntegerValue());
+
+        // invalidating through the cache evicts the local copy
+        cache.invalidate("1");
+        assertEquals(Integer.valueOf(4), cache.get("1").getIntegerValue());
+    }
 }
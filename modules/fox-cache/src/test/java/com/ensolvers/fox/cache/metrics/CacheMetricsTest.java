@@ -0,0 +1,73 @@
+package com.ensolvers.fox.cache.metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ensolvers.fox.cache.metrics.CacheMetrics.Operation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CacheMetricsTest {
+
+    @Test
+    void testSnapshotsContainTheLastInterval() {
+        CacheMetricsRegistry registry = new CacheMetricsRegistry();
+        CacheMetrics metrics = registry.getOrCreate("testCache");
+        assertSame(metrics, registry.getOrCreate("testCache"));
+
+        metrics.recordHits(3);
+        metrics.recordMiss();
+        for (int i = 0; i < 100; i++) {
+            metrics.recordLatency(Operation.GET, metrics.startTimer());
+        }
+
+        List<CacheMetricsSnapshot> snapshots = registry.snapshot();
+        assertEquals(1, snapshots.size());
+        CacheMetricsSnapshot snapshot = snapshots.get(0);
+        assertEquals("testCache", snapshot.getCacheName());
+        assertEquals(3, snapshot.getHitCount());
+        assertEquals(1, snapshot.getMissCount());
+        assertEquals(0.75, snapshot.getHitRatio());
+        assertEquals(100, snapshot.getCount(Operation.GET));
+        assertEquals(0, snapshot.getCount(Operation.FETCH));
+        assertTrue(snapshot.getLatencyAtPercentile(Operation.GET, 99) <= snapshot.getMaxLatency(Operation.GET));
+
+        // the next snapshot only contains what was recorded after the previous one
+        metrics.recordMiss();
+        snapshot = metrics.snapshot();
+        assertEquals(0, snapshot.getHitCount());
+        assertEquals(1, snapshot.getMissCount());
+        assertEquals(0, snapshot.getCount(Operation.GET));
+
+        // while totals are kept
+        assertEquals(3, metrics.getHitCount());
+        assertEquals(2, metrics.getMissCount());
+        assertEquals(0.6, metrics.getHitRatio());
+    }
+
+    @Test
+    void testDisabledMetricsDiscardRecords() {
+        CacheMetrics.DISABLED.recordHit();
+        CacheMetrics.DISABLED.recordLatency(Operation.GET, CacheMetrics.DISABLED.startTimer());
+        assertFalse(CacheMetrics.DISABLED.isEnabled());
+        assertEquals(0, CacheMetrics.DISABLED.getHitCount());
+    }
+
+    @Test
+    void testMicrometerExport() {
+        CacheMetricsRegistry registry = new CacheMetricsRegistry();
+        CacheMetrics metrics = registry.getOrCreate("testCache");
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        MicrometerCacheMetricsExporter exporter = new MicrometerCacheMetricsExporter(meterRegistry);
+
+        metrics.recordHits(2);
+        metrics.recordLatency(Operation.PUT, metrics.startTimer());
+        exporter.export(registry.snapshot());
+        metrics.recordHit();
+        exporter.export(registry.snapshot());
+
+        assertEquals(3, meterRegistry.get("fox.cache.hits").tag("cache", "testCache").counter().count());
+        assertEquals(1, meterRegistry.get("fox.cache.operations").tag("cache", "testCache").tag("operation", "put").counter().count());
+        assertNotNull(meterRegistry.get("fox.cache.latency.p99").tag("operation", "put").gauge());
+    }
+}
@@ -0,0 +1,90 @@
+package com.ensolvers.fox.cache.offheap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ensolvers.fox.cache.TestClass;
+import com.ensolvers.fox.cache.codec.JacksonCacheCodec;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class OffHeapCacheTest {
+
+    @Test
+    void testFetchingAndInvalidation() {
+        AtomicInteger fetchCount = new AtomicInteger();
+        OffHeapStore store = OffHeapStore.direct(1 << 20, OffHeapStore.DEFAULT_BLOCK_SIZE);
+        OffHeapCache<TestClass> cache = new OffHeapCache<>(store, "testClassCache1", JacksonCacheCodec.smile(TestClass.class),
+                id -> new TestClass(Long.parseLong(id), "someString", fetchCount.incrementAndGet(), 1L), keys -> {
+                    Map<String, TestClass> result = new HashMap<>();
+                    keys.forEach(id -> result.put(id, new TestClass(Long.parseLong(id), "someString", fetchCount.incrementAndGet(), 1L)));
+                    return result;
+                }, 60, true);
+
+        TestClass object = cache.get("1");
+        assertEquals(object, cache.get("1"));
+        assertEquals(1, fetchCount.get());
+
+        cache.invalidate("1");
+        assertEquals(Integer.valueOf(2), cache.get("1").getIntegerValue());
+
+        // only missed keys are fetched in bulk
+        Map<String, TestClass> objects = cache.getMap(Arrays.asList("1", "2", "3"));
+        assertEquals(3, objects.size());
+        assertEquals(Integer.valueOf(2), objects.get("1").getIntegerValue());
+        assertEquals(4, fetchCount.get());
+
+        cache.invalidateAll();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void testClockEvictionKeepsReadEntries() {
+        CacheMetrics metrics = new CacheMetrics("store");
+        OffHeapStore store = OffHeapStore.direct(16 * 4096, 256).withMetrics(metrics);
+        byte[] value = new byte[1000];
+        new Random(1).nextBytes(value);
+
+        store.put("hot", value, 0);
+        for (int i = 0; i < 1000; i++) {
+            assertArrayEquals(value, store.get("hot"));
+            store.put("key" + i, value, 0);
+        }
+
+        // 4 blocks per value and 16 blocks per segment
+        assertTrue(store.size() <= 64);
+        assertTrue(metrics.getEvictionCount() > 900);
+        assertArrayEquals(value, store.get("hot"));
+    }
+
+    @Test
+    void testExpirationAndLargeValues() throws InterruptedException {
+        OffHeapStore store = OffHeapStore.direct(16 * 4096, 256);
+
+        store.put("key", new byte[] { 1, 2, 3 }, 10);
+        Thread.sleep(20);
+        assertNull(store.get("key"));
+
+        // values larger than a segment are not stored
+        assertFalse(store.put("key", new byte[5000], 0));
+        assertNull(store.get("key"));
+    }
+
+    @Test
+    void testMappedFile(@TempDir Path directory) {
+        OffHeapStore store = OffHeapStore.mapped(directory.resolve("cache"), 1 << 20, OffHeapStore.DEFAULT_BLOCK_SIZE);
+        byte[] value = new byte[10_000];
+        new Random(1).nextBytes(value);
+
+        store.put("key", value, 0);
+        assertArrayEquals(value, store.get("key"));
+        store.close();
+        assertNull(store.get("key"));
+    }
+}
@@ -0,0 +1,180 @@
+package com.ensolvers.fox.cache.redis;
+
+import com.ensolvers.fox.cache.exception.CacheInvalidArgumentException;
+import com.ensolvers.fox.cache.utils.Profile;
+import io.lettuce.core.RedisClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class RedisBulkCacheTest {
+    @Container
+    public GenericContainer<?> redisContainer = new GenericContainer<>(DockerImageName.parse("redis:6.2.5")).withExposedPorts(6379);
+
+    private RedisCacheFactoryTest factory;
+    private AtomicInteger fetchMultiCalls;
+    private RedisBulkCache<Profile> profileCache;
+    private RedisBulkCache<Profile> profileNullableCache;
+    private RedisBulkCache<Profile> profileNotNullableCacheWithNull;
+
+    @BeforeEach
+    public void initializeCache() {
+        factory = new RedisCacheFactoryTest(RedisClient.create("redis://localhost:" + redisContainer.getMappedPort(6379) + "/0"));
+        fetchMultiCalls = new AtomicInteger();
+
+        profileCache = factory.getBulkCache("profile", 3600, Profile.class, id -> Profile.random(), ids -> {
+            fetchMultiCalls.incrementAndGet();
+            return ids.stream().collect(Collectors.toMap(Function.identity(), id -> Profile.random()));
+        }, false);
+
+        profileNullableCache = factory.getBulkCache("profileNullable", 3600, Profile.class, id -> null, ids -> {
+            Map<String, Profile> result = ids.stream().collect(Collectors.toMap(Function.identity(), id -> Profile.random()));
+            result.remove((new ArrayList<>(ids)).get(Math.min(1, ids.size() - 1)));
+            return result;
+        }, true);
+
+        profileNotNullableCacheWithNull = factory.getBulkCache("profileNotNullableWithNull", 3600, Profile.class, id -> null, ids -> {
+            Map<String, Profile> result = ids.stream().collect(Collectors.toMap(Function.identity(), id -> Profile.random()));
+            result.remove((new ArrayList<>(ids)).get(Math.min(1, ids.size() - 1)));
+            return result;
+        }, false);
+    }
+
+    @AfterEach
+    public void destroy() {
+        factory.destroy();
+    }
+
+    @Test
+    void testGetComplexObjects() {
+        Profile profile1 = profileCache.get("profile1");
+        Profile profile2 = profileCache.get("profile2");
+
+        assertEquals(profile1, profileCache.get("profile1"));
+        assertEquals(profile2, profileCache.get("profile2"));
+    }
+
+    @Test
+    void testBulkGetComplexObjects() {
+        List<String> keys1 = Arrays.asList("profiles1a", "profiles1b");
+        List<String> keys2 = Arrays.asList("profiles2a", "profiles2b");
+
+        Map<String, Profile> profiles1 = profileCache.getMap(keys1);
+        Map<String, Profile> profiles2 = profileCache.getMap(keys2);
+        assertEquals(2, fetchMultiCalls.get());
+
+        assertEquals(profiles1, profileCache.getMap(keys1));
+        assertEquals(profiles2, profileCache.getMap(keys2));
+        assertEquals(2, fetchMultiCalls.get());
+
+        // Test list with repeats
+        List<String> keys3 = Arrays.asList("profiles3a", "profiles3a", "profiles3b");
+        Map<String, Profile> profiles3 = profileCache.getMap(keys3);
+        assertEquals(2, profiles3.size());
+        assertEquals(profiles3, profileCache.getMap(keys3));
+
+        // Test partial hit
+        Set<String> keys4 = new HashSet<>(keys3);
+        keys4.add("profiles3c");
+        Map<String, Profile> profiles4 = profileCache.getMap(keys4);
+        assertEquals(profiles3.get("profiles3a"), profiles4.get("profiles3a"));
+        assertEquals(profiles4, profileCache.getMap(keys4));
+
+        // Test list keeps the order of the keys
+        assertEquals(Arrays.asList(profiles1.get("profiles1b"), profiles1.get("profiles1a")),
+                profileCache.getList(Arrays.asList("profiles1b", "profiles1a")));
+
+        // Test empty key list
+        assertTrue(profileCache.getMap(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    void testNullValues() {
+        List<String> keys1 = Arrays.asList("profiles1a", "profiles1b");
+
+        Map<String, Profile> profiles1 = profileNullableCache.getMap(keys1);
+        assertEquals(1, profiles1.size());
+        assertEquals(profiles1, profileNullableCache.getMap(keys1));
+
+        assertThrows(CacheInvalidArgumentException.class, () -> profileNotNullableCacheWithNull.getMap(keys1));
+
+        // an invalid value prevents every entry from being written
+        Map<String, Profile> profiles = new LinkedHashMap<>();
+        profiles.put("profiles2a", Profile.random());
+        profiles.put("profiles2b", null);
+        assertThrows(CacheInvalidArgumentException.class, () -> profileCache.putAll(profiles));
+        profileCache.getMap(Collections.singletonList("profiles2a"));
+        assertEquals(1, fetchMultiCalls.get());
+    }
+
+    @Test
+    void testPut() {
+        Profile profile = profileCache.get("profile1");
+        Profile profileModified = Profile.random();
+        profileCache.put("profile1", profileModified);
+
+        assertNotEquals(profileModified, profile);
+        assertEquals(profileModified, profileCache.get("profile1"));
+
+        Map<String, Profile> profiles = new HashMap<>();
+        profiles.put("profile2", Profile.random());
+        profiles.put("profile3", Profile.random());
+        profileCache.putAll(profiles);
+
+        assertEquals(profiles, profileCache.getMap(profiles.keySet()));
+        assertEquals(0, fetchMultiCalls.get());
+    }
+
+    @Test
+    void testInvalidate() {
+        Profile profile1 = profileCache.get("profile1");
+        Profile profile2 = profileCache.get("profile2");
+
+        profileCache.invalidate("profile1");
+
+        assertNotEquals(profile1, profileCache.get("profile1"));
+        assertEquals(profile2, profileCache.get("profile2"));
+    }
+
+    @Test
+    void testHotKeysAreServedLocally() {
+        factory.withHotKeyDetection(1, 10, 5, 60);
+        RedisBulkCache<Profile> cache = factory.getBulkCache("profileHotKeys", 3600, Profile.class, id -> Profile.random(),
+                ids -> ids.stream().collect(Collectors.toMap(Function.identity(), id -> Profile.random())), false);
+
+        Profile profile1 = cache.get("profile1");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(profile1, cache.get("profile1"));
+        }
+        Profile profile2 = cache.get("profile2");
+        assertEquals("profile1", cache.getHotKeys().get(0).getKey());
+        assertEquals(1, cache.hotKeys.promotedSize());
+
+        // promoted keys are served by getMap along with the ones read from Redis
+        Map<String, Profile> expected = new HashMap<>();
+        expected.put("profile1", profile1);
+        expected.put("profile2", profile2);
+        assertEquals(expected, cache.getMap(expected.keySet()));
+
+        // writes evict the local copy
+        Profile modified = Profile.random();
+        cache.put("profile1", modified);
+        assertEquals(modified, cache.get("profile1"));
+
+        Profile modifiedAgain = Profile.random();
+        cache.putAll(Collections.singletonMap("profile1", modifiedAgain));
+        assertEquals(modifiedAgain, cache.getMap(Collections.singletonList("profile1")).get("profile1"));
+    }
+}
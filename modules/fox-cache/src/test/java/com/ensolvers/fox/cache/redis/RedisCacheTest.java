@@ -3,12 +3,18 @@ package com.ensolvers.fox.cache.redis;
 import static org.junit.jupiter.api.Assertions.*;
 
 import com.ensolvers.fox.cache.TestClass;
+import com.ensolvers.fox.cache.codec.JacksonCacheCodec;
 import com.ensolvers.fox.cache.exception.CacheExecutionException;
 import com.ensolvers.fox.cache.exception.CacheSerializingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.sync.RedisCommands;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -91,6 +97,8 @@ class RedisCacheTest {
         assertThrows(IllegalArgumentException.class, () -> cache.push(null, (String) null));
         assertThrows(IllegalArgumentException.class, () -> cache.push(null, "shouldRaiseException"));
         assertThrows(IllegalArgumentException.class, () -> cache.push(null, emptyList));
+        // blocking pops need a pooled factory
+        assertThrows(CacheExecutionException.class, () -> cache.pop("testKey-1", 1));
 
         assertEquals(2, cache.get("testKey-1").size());
         assertEquals(3, cache.get("testKey-2").size());
@@ -181,6 +189,47 @@ class RedisCacheTest {
         cache.invalidateAll();
     }
 
+    @Test
+    void testLimitedCacheKeepsLimitWithConcurrentWriters() throws InterruptedException {
+        RedisLimitedCache<String> cache = this.factory.getLimitedListCache("testConcurrentLimitedCache", 60, String.class, 10);
+        RedisListCache<String> listCache = this.factory.getListCache("testConcurrentListCache", 60, String.class);
+        int writers = 8;
+        int pushesPerWriter = 500;
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        for (int i = 0; i < writers; i++) {
+            int writer = i;
+            executor.submit(() -> {
+                for (int j = 0; j < pushesPerWriter; j++) {
+                    cache.push("testKey-1", "writer-" + writer + "-" + j, true);
+                    listCache.push("testKey-1", "writer-" + writer + "-" + j);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        // pushes are atomic, so no entry is lost and the limit is never exceeded
+        assertEquals(10, cache.get("testKey-1").size());
+        assertEquals(writers * pushesPerWriter, listCache.get("testKey-1").size());
+
+        cache.invalidateAll();
+        listCache.invalidateAll();
+    }
+
+    @Test
+    void testPushSurvivesScriptFlush() {
+        RedisListCache<String> cache = this.factory.getListCache("testScriptFlushListCache", 60, String.class);
+
+        cache.push("testKey-1", "testValue-1");
+        client.connect().sync().scriptFlush();
+        cache.push("testKey-1", "testValue-2");
+
+        assertEquals(Arrays.asList("testValue-2", "testValue-1"), cache.get("testKey-1"));
+        cache.append("testKey-1", "testValue-3");
+        assertEquals("testValue-3", cache.get("testKey-1").get(2));
+    }
+
     // Dummy custom deserializer test that adds dummy data to the DTO
     @Test
     void testCustomSerializer() {
@@ -350,4 +399,133 @@ class RedisCacheTest {
         cache.set(cacheKey, cacheValue);
         assertEquals(cacheValue, cache.get(cacheKey));
     }
+
+    @Test
+    void redisAsyncRegularCacheTestCase() {
+        RedisAsyncRegularCache<String> cache = this.factory.getAsyncRegularCache("testAsyncRegularCacheString", 5, String.class);
+
+        CompletableFuture.allOf(cache.setAsync("testKey-1", "testValue-1"), cache.setAsync("testKey-2", "testValue-2")).join();
+
+        assertEquals("testValue-1", cache.getAsync("testKey-1").join());
+        assertEquals("testValue-2", cache.get("testKey-2"));
+        assertNull(cache.getAsync("testKey-3").join());
+
+        Map<String, String> values = cache.getAllAsync(Arrays.asList("testKey-1", "testKey-2", "testKey-3")).join();
+        assertEquals(2, values.size());
+        assertEquals("testValue-1", values.get("testKey-1"));
+        assertEquals("testValue-2", values.get("testKey-2"));
+
+        cache.invalidateAsync("testKey-1").join();
+        assertNull(cache.get("testKey-1"));
+
+        assertThrows(IllegalArgumentException.class, () -> cache.setAsync("shouldRaiseException", null));
+    }
+
+    @Test
+    void redisAsyncCollectionCacheTestCase() {
+        RedisAsyncListCache<String> listCache = this.factory.getAsyncListCache("testAsyncListCacheString", 5, String.class);
+        RedisAsyncSetCache<String> setCache = this.factory.getAsyncSetCache("testAsyncSetCacheString", 5, String.class);
+
+        listCache.pushAsync("testKey-1", "testValue-1").join();
+        listCache.pushAsync("testKey-1", Arrays.asList("testValue-2", "testValue-2")).join();
+        setCache.pushAsync("testKey-1", Arrays.asList("testValue-1", "testValue-1")).join();
+
+        assertEquals(3, listCache.getAsync("testKey-1").join().size());
+        assertEquals(Long.valueOf(3), listCache.sizeAsync("testKey-1").join());
+        assertEquals(Collections.singleton("testValue-1"), setCache.getAsync("testKey-1").join());
+        assertEquals(Long.valueOf(1), setCache.sizeAsync("testKey-1").join());
+    }
+
+    @Test
+    void redisReactiveCacheTestCase() {
+        RedisReactiveRegularCache<String> regularCache = this.factory.getReactiveRegularCache("testReactiveRegularCacheString", 5,
+                String.class);
+        RedisReactiveListCache<String> listCache = this.factory.getReactiveListCache("testReactiveListCacheString", 5, String.class);
+        RedisReactiveSetCache<String> setCache = this.factory.getReactiveSetCache("testReactiveSetCacheString", 5, String.class);
+
+        regularCache.setReactive("testKey-1", "testValue-1").block();
+        assertEquals("testValue-1", regularCache.getReactive("testKey-1").block());
+        assertNull(regularCache.getReactive("testKey-2").block());
+        assertEquals(1, regularCache.getAllReactive(Arrays.asList("testKey-1", "testKey-2")).collectList().block().size());
+
+        listCache.pushReactive("testKey-1", Arrays.asList("testValue-1", "testValue-2")).block();
+        assertEquals(Arrays.asList("testValue-2", "testValue-1"), listCache.getReactive("testKey-1").collectList().block());
+
+        setCache.pushReactive("testKey-1", Arrays.asList("testValue-1", "testValue-1", "testValue-2")).block();
+        assertEquals(new HashSet<>(Arrays.asList("testValue-1", "testValue-2")),
+                setCache.getReactive("testKey-1").collect(Collectors.toSet()).block());
+        assertEquals(Long.valueOf(2), setCache.sizeReactive("testKey-1").block());
+    }
+
+    @Test
+    void testAsyncAndReactiveWritesEvictHotKeys() {
+        this.factory.withHotKeyDetection(1, 10, 5, 60);
+        RedisAsyncRegularCache<String> asyncCache = this.factory.getAsyncRegularCache("testHotKeysAsync", 60, String.class);
+        RedisReactiveRegularCache<String> reactiveCache = this.factory.getReactiveRegularCache("testHotKeysReactive", 60, String.class);
+
+        this.promote(asyncCache, "testKey-1", "testValue-1");
+        asyncCache.setAsync("testKey-1", "testValue-2").join();
+        assertEquals("testValue-2", asyncCache.get("testKey-1"));
+        this.promote(asyncCache, "testKey-1", "testValue-2");
+        asyncCache.invalidateAsync("testKey-1").join();
+        assertNull(asyncCache.get("testKey-1"));
+
+        this.promote(reactiveCache, "testKey-1", "testValue-1");
+        reactiveCache.setReactive("testKey-1", "testValue-2").block();
+        assertEquals("testValue-2", reactiveCache.get("testKey-1"));
+        this.promote(reactiveCache, "testKey-1", "testValue-2");
+        reactiveCache.invalidateReactive("testKey-1").block();
+        assertNull(reactiveCache.get("testKey-1"));
+    }
+
+    private void promote(RedisRegularCache<String> cache, String key, String value) {
+        cache.set(key, value);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(value, cache.get(key));
+        }
+        assertEquals(1, cache.hotKeys.promotedSize());
+    }
+
+    @Test
+    void testBinaryCache() {
+        RedisBinaryCache<TestClass> cache = this.factory.getBinaryCache("testBinaryCache", 5, TestClass.class,
+                JacksonCacheCodec.smile(TestClass.class));
+
+        TestClass value = new TestClass(1L, "someString", 2, 3L);
+        assertNull(cache.get("testKey-1"));
+        cache.set("testKey-1", value);
+        assertTrue(cache.keyExists("testKey-1"));
+        assertEquals(value, cache.get("testKey-1"));
+        assertThrows(IllegalArgumentException.class, () -> cache.set("shouldRaiseException", null));
+
+        cache.invalidateAll();
+        assertNull(cache.get("testKey-1"));
+    }
+
+    @Test
+    void testInvalidateAllReapsPreviousGenerations() throws InterruptedException {
+        RedisRegularCache<String> cache = this.factory.getRegularCache("testGenerationCache", 60, String.class);
+        RedisRegularCache<String> cache2 = this.factory.getRegularCache("testGenerationCache2", 60, String.class);
+        for (int i = 0; i < 2500; i++) {
+            cache.set("testKey-" + i, "testValue-" + i);
+        }
+        cache2.set("testKey-1", "testValue-1");
+
+        cache.invalidateAll();
+        assertNull(cache.get("testKey-1"));
+        assertEquals("testValue-1", cache2.get("testKey-1"));
+
+        // entries of the new generation are kept while the old ones are removed
+        cache.set("testKey-1", "testValue-1");
+        RedisCommands<String, String> redis = this.client.connect().sync();
+        for (int i = 0; i < 50 && !redis.keys("testGenerationCache::*").isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(redis.keys("testGenerationCache::*").isEmpty());
+        assertEquals("testValue-1", cache.get("testKey-1"));
+        assertEquals(1, redis.keys("testGenerationCache2::*").size());
+
+        cache.invalidateAll();
+        assertNull(cache.get("testKey-1"));
+    }
 }
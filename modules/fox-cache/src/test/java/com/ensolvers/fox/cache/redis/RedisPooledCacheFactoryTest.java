@@ -0,0 +1,64 @@
+package com.ensolvers.fox.cache.redis;
+
+import io.lettuce.core.RedisClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class RedisPooledCacheFactoryTest {
+    @Container
+    public GenericContainer<?> redisContainer = new GenericContainer<>(DockerImageName.parse("redis:6.2.5")).withExposedPorts(6379);
+
+    private RedisCacheFactory factory;
+
+    @BeforeEach
+    public void setUp() {
+        RedisClient client = RedisClient.create("redis://localhost:" + redisContainer.getMappedPort(6379) + "/0");
+        this.factory = new RedisCacheFactory(client, 0, 2, 2, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    public void clear() {
+        factory.destroy();
+    }
+
+    @Test
+    void testBlockingPopDoesNotBlockSharedConnection() throws Exception {
+        RedisListCache<String> listCache = this.factory.getListCache("testPooledListCache", 60, String.class);
+        RedisRegularCache<String> regularCache = this.factory.getRegularCache("testPooledRegularCache", 60, String.class);
+
+        CompletableFuture<String> popped = CompletableFuture.supplyAsync(() -> listCache.pop("testKey-1", 10));
+
+        // while the pop is waiting, the shared connection keeps serving other caches
+        regularCache.set("testKey-1", "testValue-1");
+        assertEquals("testValue-1", regularCache.get("testKey-1"));
+        assertFalse(popped.isDone());
+
+        listCache.push("testKey-1", "testValue-2");
+        assertEquals("testValue-2", popped.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testPoolMetrics() {
+        RedisListCache<String> listCache = this.factory.getListCache("testPooledListCache", 60, String.class);
+
+        assertNull(listCache.pop("testKey-1", 1));
+
+        RedisPoolMetrics metrics = this.factory.getPoolMetrics();
+        assertEquals(2, metrics.getMaxTotal());
+        assertEquals(0, metrics.getActive());
+        assertEquals(1, metrics.getBorrowedCount());
+        assertEquals(0.0, metrics.getUtilization());
+    }
+}
@@ -0,0 +1,80 @@
+package com.ensolvers.fox.cache.redis;
+
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+class RedisReplicaCacheFactoryTest {
+    private static final Network network = Network.newNetwork();
+
+    @Container
+    public GenericContainer<?> masterContainer = new GenericContainer<>(DockerImageName.parse("redis:6.2.5")).withExposedPorts(6379)
+            .withNetwork(network).withNetworkAliases("redis-master");
+
+    @Container
+    public GenericContainer<?> replicaContainer = new GenericContainer<>(DockerImageName.parse("redis:6.2.5")).withExposedPorts(6379)
+            .withNetwork(network).withCommand("redis-server", "--replicaof", "redis-master", "6379").dependsOn(masterContainer);
+
+    private RedisCacheFactory factory;
+
+    @BeforeEach
+    public void setUp() {
+        RedisURI master = RedisURI.create("redis://localhost:" + masterContainer.getMappedPort(6379) + "/0");
+        RedisURI replica = RedisURI.create("redis://localhost:" + replicaContainer.getMappedPort(6379) + "/0");
+        this.factory = new RedisCacheFactory(RedisClient.create(), Arrays.asList(master, replica), ReadFrom.REPLICA_PREFERRED);
+    }
+
+    @AfterEach
+    public void clear() {
+        factory.destroy();
+    }
+
+    @Test
+    void testReadsFromReplica() throws InterruptedException {
+        RedisRegularCache<String> cache = this.factory.getRegularCache("testReplicaCache", 60, String.class);
+
+        cache.set("testKey-1", "testValue-1");
+
+        // replication is asynchronous, so the value may take a while to be readable
+        String value = null;
+        for (int i = 0; i < 50 && value == null; i++) {
+            value = cache.get("testKey-1");
+            Thread.sleep(100);
+        }
+        assertEquals("testValue-1", value);
+
+        cache.invalidate("testKey-1");
+        for (int i = 0; i < 50 && value != null; i++) {
+            value = cache.get("testKey-1");
+            Thread.sleep(100);
+        }
+        assertNull(value);
+    }
+
+    @Test
+    void testHashTaggedKeys() {
+        RedisRegularCache<String> cache = this.factory.getRegularCache("testCache", 60, String.class);
+        assertEquals("testCache::testKey-1", cache.computeKey("testKey-1"));
+
+        cache.setHashTagged(true);
+        assertEquals("{testCache}::testKey-1", cache.computeKey("testKey-1"));
+
+        // the generation is kept inside the hash tag braces after a clear
+        cache.invalidateAll();
+        assertTrue(cache.computeKey("testKey-1").startsWith("{testCache}#"));
+        assertTrue(cache.computeKey("testKey-1").endsWith("::testKey-1"));
+    }
+}
@@ -0,0 +1,30 @@
+package com.ensolvers.fox.cache.spring.context.config;
+
+import com.ensolvers.fox.cache.spring.GenericCacheManager;
+import com.ensolvers.fox.cache.spring.key.CustomKeyGenerator;
+import com.ensolvers.fox.cache.spring.providers.SpringCaffeineCache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurerSupport;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.context.annotation.Bean;
+
+@EnableCaching
+public class CaffeineCacheConfig extends CachingConfigurerSupport {
+    @Bean
+    @Override
+    public KeyGenerator keyGenerator() {
+        return new CustomKeyGenerator();
+    }
+
+    @Bean
+    @Override
+    public CacheManager cacheManager() {
+        SpringCaffeineCache testCache = new SpringCaffeineCache("test", 60000, 1000, false);
+        SpringCaffeineCache profileCache = new SpringCaffeineCache("profile", 60000, 1000, false);
+        SpringCaffeineCache profileCacheNullable = new SpringCaffeineCache("profileNullable", 60000, 1000, true);
+
+        return new GenericCacheManager().append("test", testCache).append("profile", profileCache).append("profileNullable",
+                profileCacheNullable);
+    }
+}
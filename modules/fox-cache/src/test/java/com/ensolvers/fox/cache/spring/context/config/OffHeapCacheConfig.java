@@ -0,0 +1,32 @@
+package com.ensolvers.fox.cache.spring.context.config;
+
+import com.ensolvers.fox.cache.offheap.OffHeapStore;
+import com.ensolvers.fox.cache.spring.GenericCacheManager;
+import com.ensolvers.fox.cache.spring.key.CustomKeyGenerator;
+import com.ensolvers.fox.cache.spring.providers.SpringOffHeapCache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurerSupport;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.context.annotation.Bean;
+
+@EnableCaching
+public class OffHeapCacheConfig extends CachingConfigurerSupport {
+    @Bean
+    @Override
+    public KeyGenerator keyGenerator() {
+        return new CustomKeyGenerator();
+    }
+
+    @Bean
+    @Override
+    public CacheManager cacheManager() {
+        OffHeapStore store = OffHeapStore.direct(16 << 20, OffHeapStore.DEFAULT_BLOCK_SIZE);
+        SpringOffHeapCache testCache = new SpringOffHeapCache("test", store, 60, false);
+        SpringOffHeapCache profileCache = new SpringOffHeapCache("profile", store, 60, false);
+        SpringOffHeapCache profileCacheNullable = new SpringOffHeapCache("profileNullable", store, 60, true);
+
+        return new GenericCacheManager().append("test", testCache).append("profile", profileCache).append("profileNullable",
+                profileCacheNullable);
+    }
+}
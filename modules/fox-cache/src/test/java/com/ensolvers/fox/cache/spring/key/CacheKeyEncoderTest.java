@@ -0,0 +1,104 @@
+package com.ensolvers.fox.cache.spring.key;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CacheKeyEncoderTest {
+    private final CacheKeyEncoder encoder = new CacheKeyEncoder();
+
+    public String sampleMethod(String param1, Integer param2) {
+        return null;
+    }
+
+    /** The key format used by the providers before the encoder */
+    private static String legacyKey(String name, Object key) {
+        StringBuilder cacheKeyBuilder = new StringBuilder();
+        cacheKeyBuilder.append(name);
+
+        if (key instanceof CustomCacheKey) {
+            if (((CustomCacheKey) key).isEmpty()) {
+                cacheKeyBuilder.append("-").append("UNIQUE");
+            } else {
+                cacheKeyBuilder.append("-").append(key);
+            }
+        } else if (key instanceof Collection) {
+            ((Collection) key).forEach(o -> cacheKeyBuilder.append("-").append(o));
+        } else {
+            cacheKeyBuilder.append("-").append(key);
+        }
+
+        return cacheKeyBuilder.toString().replace(" ", "-");
+    }
+
+    @Test
+    void testKeysMatchPreviousFormat() throws Exception {
+        Method method = CacheKeyEncoderTest.class.getMethod("sampleMethod", String.class, Integer.class);
+        List<Object> keys = Arrays.asList(new CustomCacheKey(this, method), new CustomCacheKey(this, method, "a value", 42),
+                new CustomCacheKey(this, method, null, -7L), new CustomCacheKey(this, method, Arrays.asList("a b", "c")), "simple key", 42,
+                Arrays.asList("first value", 2, null));
+
+        for (Object key : keys) {
+            assertEquals(legacyKey("test", key), encoder.encode("test", key));
+        }
+    }
+
+    @Test
+    void testLongKeysAreHashed() {
+        CacheKeyEncoder memcachedEncoder = new CacheKeyEncoder(CacheKeyEncoder.MEMCACHED_MAX_KEY_LENGTH);
+        char[] chars = new char[300];
+        Arrays.fill(chars, 'a');
+        String longParam = new String(chars);
+
+        String key = memcachedEncoder.encode("test", longParam);
+        assertTrue(key.startsWith("test-"));
+        assertTrue(key.length() <= CacheKeyEncoder.MEMCACHED_MAX_KEY_LENGTH);
+        assertEquals(key, memcachedEncoder.encode("test", longParam));
+        assertNotEquals(key, memcachedEncoder.encode("test", longParam + "b"));
+
+        // 100 chars that take 3 bytes each exceed the limit too
+        Arrays.fill(chars, 0, 100, '\u20AC');
+        assertTrue(memcachedEncoder.encode("test", new String(chars, 0, 100)).length() < 100);
+
+        // short keys are kept as is
+        assertEquals("test-short-key", memcachedEncoder.encode("test", "short key"));
+        assertEquals("test-" + longParam, encoder.encode("test", longParam));
+    }
+
+    @Test
+    void testAllocatesLessThanLegacyKeys() throws Exception {
+        Method method = CacheKeyEncoderTest.class.getMethod("sampleMethod", String.class, Integer.class);
+        List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            keys.add(new CustomCacheKey(this, method, "param " + i, i));
+        }
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // a few rounds so both implementations get compiled before the last one
+        long legacyBytes = 0;
+        long encoderBytes = 0;
+        for (int round = 0; round < 3; round++) {
+            long fromBytes = threadBean.getThreadAllocatedBytes(threadId);
+            for (Object key : keys) {
+                legacyKey("testCache", key);
+            }
+            legacyBytes = threadBean.getThreadAllocatedBytes(threadId) - fromBytes;
+
+            fromBytes = threadBean.getThreadAllocatedBytes(threadId);
+            for (Object key : keys) {
+                encoder.encode("testCache", key);
+            }
+            encoderBytes = threadBean.getThreadAllocatedBytes(threadId) - fromBytes;
+        }
+
+        assertTrue(encoderBytes < legacyBytes, encoderBytes + " bytes allocated, " + legacyBytes + " before");
+    }
+}
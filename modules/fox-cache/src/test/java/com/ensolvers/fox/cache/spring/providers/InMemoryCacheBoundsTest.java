@@ -0,0 +1,55 @@
+package com.ensolvers.fox.cache.spring.providers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ensolvers.fox.cache.common.SerializedSizeWeigher;
+import com.ensolvers.fox.cache.metrics.CacheMetrics;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+
+class InMemoryCacheBoundsTest {
+    private static final String VALUE = String.join("", Collections.nCopies(1000, "x"));
+
+    @Test
+    void testSerializedSizeWeigher() {
+        SerializedSizeWeigher weigher = new SerializedSizeWeigher();
+        assertEquals(1 + 5, weigher.weigh("k", "abc"));
+        assertEquals(1 + "{\"a\":[1,2]}".length(), weigher.weigh("k", Collections.singletonMap("a", new int[] { 1, 2 })));
+    }
+
+    @Test
+    void testGuavaCacheIsBoundedByWeight() {
+        CacheMetrics metrics = new CacheMetrics("guava");
+        SpringGuavaCache cache = new SpringGuavaCache("guava", 60, true, 10_000, new SerializedSizeWeigher()).withMetrics(metrics);
+
+        assertBoundedByWeight(cache, metrics);
+    }
+
+    @Test
+    void testCaffeineCacheIsBoundedByWeight() {
+        CacheMetrics metrics = new CacheMetrics("caffeine");
+        SpringCaffeineCache cache = new SpringCaffeineCache("caffeine",
+                Caffeine.newBuilder().maximumWeight(10_000).weigher(new SerializedSizeWeigher()).executor(Runnable::run), true)
+                        .withMetrics(metrics);
+
+        assertBoundedByWeight(cache, metrics);
+    }
+
+    private static void assertBoundedByWeight(Cache cache, CacheMetrics metrics) {
+        // every entry weighs ~1KB, so at most 10 of them fit
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, VALUE);
+        }
+
+        int present = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.get("key" + i) != null) {
+                present++;
+            }
+        }
+        assertTrue(present <= 10, present + " entries are present");
+        assertTrue(metrics.getEvictionCount() >= 90, metrics.getEvictionCount() + " evictions were recorded");
+    }
+}
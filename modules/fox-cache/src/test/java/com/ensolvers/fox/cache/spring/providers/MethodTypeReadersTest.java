@@ -0,0 +1,62 @@
+package com.ensolvers.fox.cache.spring.providers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ensolvers.fox.cache.utils.Profile;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class MethodTypeReadersTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public List<Profile> profileList() {
+        return null;
+    }
+
+    public Map<String, Profile> profileMap() {
+        return null;
+    }
+
+    @Test
+    void testReadersAreResolvedOncePerMethod() throws Exception {
+        MethodTypeReaders typeReaders = new MethodTypeReaders(objectMapper);
+        Method listMethod = MethodTypeReadersTest.class.getMethod("profileList");
+        Method mapMethod = MethodTypeReadersTest.class.getMethod("profileMap");
+
+        assertSame(typeReaders.forReturnType(listMethod), typeReaders.forReturnType(listMethod));
+        assertSame(typeReaders.forMapValueType(mapMethod), typeReaders.forMapValueType(mapMethod));
+
+        List<Profile> profiles = new ArrayList<>();
+        profiles.add(Profile.random());
+        List<Profile> deserializedList = typeReaders.forReturnType(listMethod).readValue(objectMapper.writeValueAsString(profiles));
+        assertEquals(profiles, deserializedList);
+
+        Profile profile = Profile.random();
+        assertEquals(profile, typeReaders.forMapValueType(mapMethod).readValue(objectMapper.writeValueAsString(profile)));
+    }
+
+    @Test
+    void testBulkDeserializationMatchesResolvingTheTypePerHit() throws Exception {
+        MethodTypeReaders typeReaders = new MethodTypeReaders(objectMapper);
+        Method mapMethod = MethodTypeReadersTest.class.getMethod("profileMap");
+
+        List<String> hits = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            hits.add(objectMapper.writeValueAsString(Profile.random()));
+        }
+
+        for (String hit : hits) {
+            // resolving the type on every hit (previous behavior)
+            Type type = ((ParameterizedType) mapMethod.getGenericReturnType()).getActualTypeArguments()[1];
+            Object expected = objectMapper.readValue(hit, objectMapper.getTypeFactory().constructType(type));
+
+            assertEquals(expected, typeReaders.forMapValueType(mapMethod).readValue(hit));
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.ensolvers.fox.cache.spring.providers;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class SpringRedisCacheConnectionTest {
+
+    @Test
+    void testCommandsWithoutConnectionCanBeUsed() {
+        // mocked commands have no stateful connection
+        RedisCommands<String, String> redis = mock(RedisCommands.class);
+        SpringRedisCache cache = assertDoesNotThrow(() -> new SpringRedisCache("noConnection", redis, 60, true));
+
+        cache.put("key", "value");
+        verify(redis).set(endsWith("key"), eq("\"value\""), any(SetArgs.class));
+    }
+
+    @Test
+    void testAsyncCommandsCanBeProvided() {
+        RedisCommands<String, String> redis = mock(RedisCommands.class);
+        RedisAsyncCommands<String, String> redisAsync = mock(RedisAsyncCommands.class);
+        SpringRedisCache cache = new SpringRedisCache("explicitAsync", redis, redisAsync, Duration.ofSeconds(1), 60, true, false);
+
+        assertSame(redis, cache.getNativeCache());
+        verifyNoInteractions(redisAsync);
+    }
+}
@@ -0,0 +1,88 @@
+package com.ensolvers.fox.cache.tiered;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.ensolvers.fox.cache.redis.RedisCacheFactory;
+import com.ensolvers.fox.cache.redis.RedisInvalidationBus;
+import com.ensolvers.fox.cache.redis.RedisRegularCache;
+import io.lettuce.core.RedisClient;
+import java.util.Arrays;
+import java.util.Map;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+@Testcontainers
+class TieredCacheTest {
+    @Container
+    public GenericContainer<?> redisContainer = new GenericContainer<>(DockerImageName.parse("redis:6.2.5")).withExposedPorts(6379);
+
+    private RedisCacheFactory factory;
+    private RedisInvalidationBus busA;
+    private RedisInvalidationBus busB;
+
+    @BeforeEach
+    public void setUp() {
+        RedisClient client = RedisClient.create("redis://localhost:" + redisContainer.getMappedPort(6379) + "/0");
+        this.factory = new RedisCacheFactory(client);
+        this.busA = new RedisInvalidationBus(client);
+        this.busB = new RedisInvalidationBus(client);
+    }
+
+    @AfterEach
+    public void clear() {
+        busA.close();
+        busB.close();
+        factory.destroy();
+    }
+
+    @Test
+    void testWritesEvictLocalCopiesOfOtherNodes() throws InterruptedException {
+        RedisRegularCache<String> remoteCache = this.factory.getRegularCache("testTieredCache", 60, String.class);
+
+        // two nodes sharing the same remote cache
+        TieredCache<String> nodeA = new TieredCache<>(remoteCache, busA, "testTieredCache", 100, 60);
+        TieredCache<String> nodeB = new TieredCache<>(remoteCache, busB, "testTieredCache", 100, 60);
+
+        nodeA.put("testKey-1", "testValue-1");
+        assertEquals("testValue-1", nodeB.get("testKey-1"));
+        assertEquals(1, nodeB.localSize());
+
+        // the local copy is served even if the remote entry changes behind its back
+        remoteCache.set("testKey-1", "testValue-2");
+        assertEquals("testValue-1", nodeB.get("testKey-1"));
+
+        // a write through the other node evicts the local copy
+        nodeA.put("testKey-1", "testValue-3");
+        for (int i = 0; i < 50 && nodeB.localSize() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals("testValue-3", nodeB.get("testKey-1"));
+
+        nodeB.invalidate("testKey-1");
+        for (int i = 0; i < 50 && nodeA.localSize() > 0; i++) {
+            Thread.sleep(100);
+        }
+        assertNull(nodeA.get("testKey-1"));
+    }
+
+    @Test
+    void testGetMap() {
+        RedisRegularCache<String> remoteCache = this.factory.getRegularCache("testTieredBulkCache", 60, String.class);
+        TieredCache<String> cache = new TieredCache<>(remoteCache, busA, "testTieredBulkCache", 100, 60);
+
+        cache.put("testKey-1", "testValue-1");
+        remoteCache.set("testKey-2", "testValue-2");
+
+        Map<String, String> values = cache.getMap(Arrays.asList("testKey-1", "testKey-2", "testKey-3"));
+        assertEquals(2, values.size());
+        assertEquals("testValue-1", values.get("testKey-1"));
+        assertEquals("testValue-2", values.get("testKey-2"));
+        assertEquals(2, cache.localSize());
+        assertEquals(Arrays.asList("testValue-1", "testValue-2"), cache.getList(Arrays.asList("testKey-1", "testKey-2", "testKey-3")));
+    }
+}
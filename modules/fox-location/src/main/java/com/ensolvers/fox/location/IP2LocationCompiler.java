@@ -0,0 +1,101 @@
+/* Copyright (c) 2021 Ensolvers
+ * All Rights Reserved
+ *
+ * The contents of this file is dual-licensed under 2 alternative Open Source/Free licenses: LGPL 2.1 or later and
+ * Apache License 2.0. (starting with JNA version 4.0.0).
+ *
+ * You can freely decide which license you want to apply to the project.
+ *
+ * You may obtain a copy of the LGPL License at: http://www.gnu.org/licenses/licenses.html
+ *
+ * A copy is also included in the downloadable source code package
+ * containing JNA, in file "LGPL2.1".
+ *
+ * You may obtain a copy of the Apache License at: http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing JNA, in file "AL2.0".
+ */
+package com.ensolvers.fox.location;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles an IP2Location CSV (plain or as the .tar.gz distributed by
+ * https://lite.ip2location.com/) into a binary database: a versioned file with
+ * the sorted range table and a string pool, which
+ * {@link IP2LocationService#fromBinaryDatabase(Path)} maps into memory instead
+ * of parsing the CSV on every start. Meant to be run at build or deploy time:
+ *
+ * <pre>
+ * java -cp ... com.ensolvers.fox.location.IP2LocationCompiler IP2LOCATION-LITE-DB5.tar.gz ip2location.db
+ * </pre>
+ *
+ * <p>
+ * The IPv6 CSV (IP2LOCATION-LITE-DB5.IPV6) can be passed as a third argument to
+ * include IPv6 ranges in the database.
+ */
+public class IP2LocationCompiler {
+    private static final Logger logger = LoggerFactory.getLogger(IP2LocationCompiler.class);
+
+    private IP2LocationCompiler() {
+    }
+
+    /**
+     * @param source the CSV, if its name ends with .csv it is read as plain text,
+     *               otherwise as a .tar.gz containing the CSV
+     * @param target the binary database to write, replaced if it exists
+     * 
+     * @throws IOException           if the source cannot be read or the target
+     *                               cannot be written
+     * @throws IllegalStateException if the source is corrupt (e.g. unsorted or
+     *                               truncated rows), in which case nothing is
+     *                               written
+     */
+    public static void compile(Path source, Path target) throws IOException {
+        compile(source, null, target);
+    }
+
+    /**
+     * @param source     the IPv4 CSV, if its name ends with .csv it is read as
+     *                   plain text, otherwise as a .tar.gz containing the CSV
+     * @param ipv6Source the IPv6 CSV, plain or as a .tar.gz as well (detected the
+     *                   same way), or null
+     * @param target     the binary database to write, replaced if it exists
+     * 
+     * @throws IOException           if the sources cannot be read or the target
+     *                               cannot be written
+     * @throws IllegalStateException if the sources are corrupt (e.g. unsorted or
+     *                               truncated rows), in which case nothing is
+     *                               written
+     */
+    public static void compile(Path source, Path ipv6Source, Path target) throws IOException {
+        long startTime = System.currentTimeMillis();
+        try (InputStream io = Files.newInputStream(source);
+                InputStream ipv6IO = ipv6Source == null ? null : Files.newInputStream(ipv6Source)) {
+            IP2LocationService service = new IP2LocationService(io, ipv6IO);
+            service.load(isTarGz(source), ipv6Source != null && isTarGz(ipv6Source));
+            service.writeBinaryDatabase(target);
+        }
+        logger.info("Compiled {} into {} in {} ms", source, target, System.currentTimeMillis() - startTime);
+    }
+
+    private static boolean isTarGz(Path source) {
+        return !source.getFileName().toString().endsWith(".csv");
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Usage: IP2LocationCompiler <source csv or tar.gz> <target binary database> [<IPv6 source csv or tar.gz>]");
+            System.exit(1);
+        }
+
+        compile(Paths.get(args[0]), args.length == 3 ? Paths.get(args[2]) : null, Paths.get(args[1]));
+    }
+}
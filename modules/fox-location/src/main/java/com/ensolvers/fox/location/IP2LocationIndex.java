@@ -0,0 +1,674 @@
+/* Copyright (c) 2021 Ensolvers
+ * All Rights Reserved
+ *
+ * The contents of this file is dual-licensed under 2 alternative Open Source/Free licenses: LGPL 2.1 or later and
+ * Apache License 2.0. (starting with JNA version 4.0.0).
+ *
+ * You can freely decide which license you want to apply to the project.
+ *
+ * You may obtain a copy of the LGPL License at: http://www.gnu.org/licenses/licenses.html
+ *
+ * A copy is also included in the downloadable source code package
+ * containing JNA, in file "LGPL2.1".
+ *
+ * You may obtain a copy of the Apache License at: http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing JNA, in file "AL2.0".
+ */
+package com.ensolvers.fox.location;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Columnar index of IPv4 and IPv6 ranges. Instead of keeping an
+ * {@link IP2LocationInfo} per range, ranges are kept in parallel primitive
+ * columns (start, end and location id) and locations are dictionary-encoded
+ * into tables of countries and names, which are shared among every range
+ * pointing to the same place. Lookups are a binary search over the range starts
+ * that does not allocate. IPv6 addresses are kept as two longs (high and low 64
+ * bits) compared as unsigned numbers.
+ *
+ * <p>
+ * Columns are either heap arrays (when the index is built from the CSV) or
+ * views of a memory-mapped binary file (see {@link #writeTo(Path)} and
+ * {@link #map(Path)}), in which case they stay off the heap and only the
+ * country and name tables are decoded when the file is opened.
+ */
+final class IP2LocationIndex {
+
+    /** Identifies binary index files, "FOXL" */
+    static final int MAGIC = 0x464F584C;
+    /** Version of the binary format, increased on every incompatible change */
+    static final int VERSION = 2;
+
+    private static final long UNSIGNED_INT_MASK = 0xFFFFFFFFL;
+    private static final int HEADER_SIZE = 7 * Integer.BYTES;
+
+    // Ranges, sorted by start. IPv4 numbers are kept as unsigned ints
+    private final IntBuffer rangeStarts;
+    private final IntBuffer rangeEnds;
+    private final IntBuffer rangeLocations;
+
+    // IPv6 ranges, sorted by start
+    private final Ipv6Ranges ipv6Ranges;
+
+    // Locations
+    private final ShortBuffer locationCountries;
+    private final IntBuffer locationRegions;
+    private final IntBuffer locationCities;
+    private final DoubleBuffer locationLats;
+    private final DoubleBuffer locationLngs;
+
+    // Countries
+    private final String[] countryCodes;
+    private final String[] countryNames;
+    private final String[] continentCodes;
+
+    // Region and city names
+    private final String[] names;
+
+    private IP2LocationIndex(IntBuffer rangeStarts, IntBuffer rangeEnds, IntBuffer rangeLocations, Ipv6Ranges ipv6Ranges,
+            ShortBuffer locationCountries, IntBuffer locationRegions, IntBuffer locationCities, DoubleBuffer locationLats,
+            DoubleBuffer locationLngs, String[] countryCodes, String[] countryNames, String[] continentCodes, String[] names) {
+        this.rangeStarts = rangeStarts;
+        this.rangeEnds = rangeEnds;
+        this.rangeLocations = rangeLocations;
+        this.ipv6Ranges = ipv6Ranges;
+        this.locationCountries = locationCountries;
+        this.locationRegions = locationRegions;
+        this.locationCities = locationCities;
+        this.locationLats = locationLats;
+        this.locationLngs = locationLngs;
+        this.countryCodes = countryCodes;
+        this.countryNames = countryNames;
+        this.continentCodes = continentCodes;
+        this.names = names;
+    }
+
+    static Builder builder(UnaryOperator<String> countryToContinent) {
+        return new Builder(countryToContinent);
+    }
+
+    /**
+     * Maps a binary index file, written by {@link #writeTo(Path)}, into memory. The
+     * file must not be modified while it is mapped.
+     *
+     * @param file the binary index file
+     * 
+     * @return the index, backed by the mapped file
+     * 
+     * @throws IOException if the file cannot be read or it is not a binary index of
+     *                     the current version
+     */
+    static IP2LocationIndex map(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary index file is too large: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary index file: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary index version " + version + ", expected " + VERSION + ": " + file);
+        }
+
+        int ranges = buffer.getInt();
+        int ipv6RangeCount = buffer.getInt();
+        int locations = buffer.getInt();
+        int countries = buffer.getInt();
+        int poolSize = buffer.getInt();
+
+        IntBuffer rangeStarts = slice(buffer, ranges * Integer.BYTES).asIntBuffer();
+        IntBuffer rangeEnds = slice(buffer, ranges * Integer.BYTES).asIntBuffer();
+        IntBuffer rangeLocations = slice(buffer, ranges * Integer.BYTES).asIntBuffer();
+        Ipv6Ranges ipv6Ranges = new Ipv6Ranges(slice(buffer, ipv6RangeCount * Long.BYTES).asLongBuffer(),
+                slice(buffer, ipv6RangeCount * Long.BYTES).asLongBuffer(), slice(buffer, ipv6RangeCount * Long.BYTES).asLongBuffer(),
+                slice(buffer, ipv6RangeCount * Long.BYTES).asLongBuffer(), slice(buffer, ipv6RangeCount * Integer.BYTES).asIntBuffer());
+        ShortBuffer locationCountries = slice(buffer, locations * Short.BYTES).asShortBuffer();
+        IntBuffer locationRegions = slice(buffer, locations * Integer.BYTES).asIntBuffer();
+        IntBuffer locationCities = slice(buffer, locations * Integer.BYTES).asIntBuffer();
+        DoubleBuffer locationLats = slice(buffer, locations * Double.BYTES).asDoubleBuffer();
+        DoubleBuffer locationLngs = slice(buffer, locations * Double.BYTES).asDoubleBuffer();
+        IntBuffer countryColumns = slice(buffer, 3 * countries * Integer.BYTES).asIntBuffer();
+
+        // the string pool: an offset per string plus the end offset, then UTF-8
+        // bytes
+        IntBuffer offsets = slice(buffer, (poolSize + 1) * Integer.BYTES).asIntBuffer();
+        String[] pool = new String[poolSize];
+        byte[] bytes = new byte[offsets.get(poolSize)];
+        buffer.get(bytes);
+        for (int i = 0; i < poolSize; i++) {
+            pool[i] = new String(bytes, offsets.get(i), offsets.get(i + 1) - offsets.get(i), StandardCharsets.UTF_8);
+        }
+
+        String[] countryCodes = new String[countries];
+        String[] countryNames = new String[countries];
+        String[] continentCodes = new String[countries];
+        for (int i = 0; i < countries; i++) {
+            countryCodes[i] = poolString(pool, countryColumns.get(i));
+            countryNames[i] = poolString(pool, countryColumns.get(countries + i));
+            continentCodes[i] = poolString(pool, countryColumns.get(2 * countries + i));
+        }
+
+        return new IP2LocationIndex(rangeStarts, rangeEnds, rangeLocations, ipv6Ranges, locationCountries, locationRegions, locationCities,
+                locationLats, locationLngs, countryCodes, countryNames, continentCodes, pool);
+    }
+
+    /**
+     * Writes the index to a binary file that can be mapped by {@link #map(Path)}: a
+     * header with the format version and the sizes of the tables, every column one
+     * after the other, and a pool with the region, city and country strings.
+     *
+     * @param file the file to write, replaced if it exists
+     * 
+     * @throws IOException if the file cannot be written
+     */
+    void writeTo(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            this.writeTo(out);
+        }
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        // region and city names keep their ids in the pool, country strings are
+        // appended
+        List<String> pool = new ArrayList<>(Arrays.asList(this.names));
+        Map<String, Integer> poolIds = new HashMap<>();
+        for (int i = 0; i < this.names.length; i++) {
+            poolIds.putIfAbsent(this.names[i], i);
+        }
+        int countries = this.countryCodes.length;
+        int[] countryColumns = new int[3 * countries];
+        for (int i = 0; i < countries; i++) {
+            countryColumns[i] = poolIdOf(this.countryCodes[i], pool, poolIds);
+            countryColumns[countries + i] = poolIdOf(this.countryNames[i], pool, poolIds);
+            countryColumns[2 * countries + i] = poolIdOf(this.continentCodes[i], pool, poolIds);
+        }
+
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(this.size());
+        data.writeInt(this.ipv6Size());
+        data.writeInt(this.locationCountries.limit());
+        data.writeInt(countries);
+        data.writeInt(pool.size());
+
+        for (IntBuffer column : new IntBuffer[] { this.rangeStarts, this.rangeEnds, this.rangeLocations }) {
+            for (int i = 0; i < column.limit(); i++) {
+                data.writeInt(column.get(i));
+            }
+        }
+        for (LongBuffer column : new LongBuffer[] { this.ipv6Ranges.startHighs, this.ipv6Ranges.startLows, this.ipv6Ranges.endHighs,
+                this.ipv6Ranges.endLows }) {
+            for (int i = 0; i < column.limit(); i++) {
+                data.writeLong(column.get(i));
+            }
+        }
+        for (int i = 0; i < this.ipv6Ranges.locations.limit(); i++) {
+            data.writeInt(this.ipv6Ranges.locations.get(i));
+        }
+        for (int i = 0; i < this.locationCountries.limit(); i++) {
+            data.writeShort(this.locationCountries.get(i));
+        }
+        for (IntBuffer column : new IntBuffer[] { this.locationRegions, this.locationCities }) {
+            for (int i = 0; i < column.limit(); i++) {
+                data.writeInt(column.get(i));
+            }
+        }
+        for (DoubleBuffer column : new DoubleBuffer[] { this.locationLats, this.locationLngs }) {
+            for (int i = 0; i < column.limit(); i++) {
+                data.writeDouble(column.get(i));
+            }
+        }
+        for (int countryColumn : countryColumns) {
+            data.writeInt(countryColumn);
+        }
+
+        List<byte[]> encoded = new ArrayList<>(pool.size());
+        int offset = 0;
+        data.writeInt(offset);
+        for (String string : pool) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            offset += bytes.length;
+            data.writeInt(offset);
+        }
+        for (byte[] bytes : encoded) {
+            data.write(bytes);
+        }
+        data.flush();
+    }
+
+    /** @return the amount of IPv4 ranges */
+    int size() {
+        return this.rangeStarts.limit();
+    }
+
+    /** @return the amount of IPv6 ranges */
+    int ipv6Size() {
+        return this.ipv6Ranges.locations.limit();
+    }
+
+    /**
+     * @param ip an IPv4 address as number
+     * 
+     * @return the index of the range that contains the ip, or -1 if none does
+     */
+    int indexOf(long ip) {
+        return this.containing(ip, this.lastStartingAtOrBefore(ip, 0, this.rangeStarts.limit() - 1));
+    }
+
+    /**
+     * Finds the ranges of many IPv4 addresses at once, merge-joining them with the
+     * sorted ranges: each search starts where the previous one ended and gallops
+     * ahead, so it costs less than independent binary searches both for a few
+     * scattered addresses and for many close ones
+     * 
+     * @param ips    IPv4 addresses as numbers, sorted ascending
+     * @param count  the amount of ips to look up
+     * @param result where the index of the range that contains each ip is written,
+     *               or -1 if none does
+     */
+    void indexOfSorted(long[] ips, int count, int[] result) {
+        int size = this.rangeStarts.limit();
+        int cursor = 0;
+
+        for (int i = 0; i < count; i++) {
+            long ip = ips[i];
+            int bound = 1;
+            while (cursor + bound < size && (this.rangeStarts.get(cursor + bound) & UNSIGNED_INT_MASK) <= ip) {
+                bound <<= 1;
+            }
+
+            int last = this.lastStartingAtOrBefore(ip, cursor + (bound >>> 1), Math.min(cursor + bound, size) - 1);
+            result[i] = this.containing(ip, last);
+            cursor = Math.max(last, 0);
+        }
+    }
+
+    /**
+     * @return the last range between low and high (both inclusive) starting before
+     *         or at the ip, or low - 1 if none does
+     */
+    private int lastStartingAtOrBefore(long ip, int low, int high) {
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if ((this.rangeStarts.get(mid) & UNSIGNED_INT_MASK) <= ip) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return high;
+    }
+
+    private int containing(long ip, int index) {
+        return index >= 0 && ip <= (this.rangeEnds.get(index) & UNSIGNED_INT_MASK) ? index : -1;
+    }
+
+    /**
+     * @param high the high 64 bits of an IPv6 address
+     * @param low  the low 64 bits of an IPv6 address
+     * 
+     * @return the index of the IPv6 range that contains the ip, or -1 if none does
+     */
+    int indexOfIpv6(long high, long low) {
+        Ipv6Ranges ranges = this.ipv6Ranges;
+        int first = 0;
+        int last = ranges.locations.limit() - 1;
+
+        // find the last range starting before or at the ip
+        while (first <= last) {
+            int mid = (first + last) >>> 1;
+            if (compareUnsigned128(ranges.startHighs.get(mid), ranges.startLows.get(mid), high, low) <= 0) {
+                first = mid + 1;
+            } else {
+                last = mid - 1;
+            }
+        }
+
+        return last >= 0 && compareUnsigned128(high, low, ranges.endHighs.get(last), ranges.endLows.get(last)) <= 0 ? last : -1;
+    }
+
+    long getFromIP(int index) {
+        return this.rangeStarts.get(index) & UNSIGNED_INT_MASK;
+    }
+
+    long getToIP(int index) {
+        return this.rangeEnds.get(index) & UNSIGNED_INT_MASK;
+    }
+
+    String getCountryCode(int index) {
+        return this.countryCodes[this.locationCountries.get(this.rangeLocations.get(index))];
+    }
+
+    String getContinentCode(int index) {
+        return this.continentCodes[this.locationCountries.get(this.rangeLocations.get(index))];
+    }
+
+    /**
+     * @param index the index of a range
+     * 
+     * @return the information of the range, in a new object
+     */
+    IP2LocationInfo getInfo(int index) {
+        IP2LocationInfo info = this.newInfo(this.rangeLocations.get(index));
+        info.setFromIP(this.getFromIP(index));
+        info.setToIP(this.getToIP(index));
+        return info;
+    }
+
+    String getIpv6ContinentCode(int index) {
+        return this.continentCodes[this.locationCountries.get(this.ipv6Ranges.locations.get(index))];
+    }
+
+    /**
+     * @param index the index of an IPv6 range
+     * 
+     * @return the information of the range, in a new object (without from and to
+     *         IPs, since IPv6 numbers do not fit in a long)
+     */
+    IP2LocationInfo getIpv6Info(int index) {
+        return this.newInfo(this.ipv6Ranges.locations.get(index));
+    }
+
+    private IP2LocationInfo newInfo(int location) {
+        short country = this.locationCountries.get(location);
+
+        IP2LocationInfo info = new IP2LocationInfo();
+        info.setCountryCode(this.countryCodes[country]);
+        info.setCountryName(this.countryNames[country]);
+        info.setContinentCode(this.continentCodes[country]);
+        info.setRegionName(this.names[this.locationRegions.get(location)]);
+        info.setCityName(this.names[this.locationCities.get(location)]);
+        info.setLat(this.locationLats.get(location));
+        info.setLng(this.locationLngs.get(location));
+        return info;
+    }
+
+    /**
+     * @return true if the columns are views of a mapped file instead of heap arrays
+     */
+    boolean isMapped() {
+        return this.rangeStarts.isDirect();
+    }
+
+    /**
+     * @return an estimation of the memory used by the columns of the index, in
+     *         bytes (the strings of the tables are not counted)
+     */
+    long getSizeInBytes() {
+        long ranges = this.size() * (3L * Integer.BYTES) + this.ipv6Size() * (4L * Long.BYTES + Integer.BYTES);
+        long locations = this.locationCountries.limit() * (Short.BYTES + 2L * Integer.BYTES + 2L * Double.BYTES);
+        long references = (3L * this.countryCodes.length + this.names.length) * Integer.BYTES;
+        return ranges + locations + references;
+    }
+
+    private static int compareUnsigned128(long high1, long low1, long high2, long low2) {
+        int comparison = Long.compareUnsigned(high1, high2);
+        return comparison != 0 ? comparison : Long.compareUnsigned(low1, low2);
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int bytes) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(bytes);
+        buffer.position(buffer.position() + bytes);
+        return slice;
+    }
+
+    private static String poolString(String[] pool, int id) {
+        return id < 0 ? null : pool[id];
+    }
+
+    private static int poolIdOf(String string, List<String> pool, Map<String, Integer> poolIds) {
+        if (string == null) {
+            return -1;
+        }
+
+        return poolIds.computeIfAbsent(string, s -> {
+            pool.add(s);
+            return pool.size() - 1;
+        });
+    }
+
+    /**
+     * Collects the ranges of the index, which must be added sorted by start.
+     * Countries, names and locations are deduplicated as they are added.
+     */
+    static final class Builder {
+        private static final int INITIAL_CAPACITY = 1024;
+
+        private final UnaryOperator<String> countryToContinent;
+
+        private int[] rangeStarts = new int[INITIAL_CAPACITY];
+        private int[] rangeEnds = new int[INITIAL_CAPACITY];
+        private int[] rangeLocations = new int[INITIAL_CAPACITY];
+        private int size;
+        private long lastEnd = -1;
+
+        private long[] ipv6Bounds = new long[4 * INITIAL_CAPACITY];
+        private int[] ipv6Locations = new int[INITIAL_CAPACITY];
+        private int ipv6Size;
+
+        private final Map<Location, Integer> locationIds = new HashMap<>();
+        private final Map<String, Short> countryIds = new HashMap<>();
+        private final List<String> countryCodes = new ArrayList<>();
+        private final List<String> countryNames = new ArrayList<>();
+        private final List<String> continentCodes = new ArrayList<>();
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+
+        private Builder(UnaryOperator<String> countryToContinent) {
+            this.countryToContinent = countryToContinent;
+        }
+
+        /**
+         * @param fromIP      first IPv4 number of the range
+         * @param toIP        last IPv4 number of the range
+         * @param countryCode the country code
+         * @param countryName the country name
+         * @param regionName  the region name
+         * @param cityName    the city name
+         * @param lat         the latitude
+         * @param lng         the longitude
+         * 
+         * @return this builder
+         */
+        Builder add(long fromIP, long toIP, String countryCode, String countryName, String regionName, String cityName, double lat,
+                double lng) {
+            if (fromIP <= this.lastEnd || toIP < fromIP || toIP > UNSIGNED_INT_MASK) {
+                throw new IllegalArgumentException("IPv4 ranges must be added sorted and not overlapping, found " + fromIP + "-" + toIP);
+            }
+            this.lastEnd = toIP;
+
+            if (this.size == this.rangeStarts.length) {
+                int capacity = this.size * 2;
+                this.rangeStarts = Arrays.copyOf(this.rangeStarts, capacity);
+                this.rangeEnds = Arrays.copyOf(this.rangeEnds, capacity);
+                this.rangeLocations = Arrays.copyOf(this.rangeLocations, capacity);
+            }
+
+            this.rangeStarts[this.size] = (int) fromIP;
+            this.rangeEnds[this.size] = (int) toIP;
+            this.rangeLocations[this.size] = this.locationIdOf(countryCode, countryName, regionName, cityName, lat, lng);
+            this.size++;
+            return this;
+        }
+
+        /**
+         * @param fromHigh    high 64 bits of the first IPv6 number of the range
+         * @param fromLow     low 64 bits of the first IPv6 number of the range
+         * @param toHigh      high 64 bits of the last IPv6 number of the range
+         * @param toLow       low 64 bits of the last IPv6 number of the range
+         * @param countryCode the country code
+         * @param countryName the country name
+         * @param regionName  the region name
+         * @param cityName    the city name
+         * @param lat         the latitude
+         * @param lng         the longitude
+         * 
+         * @return this builder
+         */
+        Builder addIpv6(long fromHigh, long fromLow, long toHigh, long toLow, String countryCode, String countryName, String regionName,
+                String cityName, double lat, double lng) {
+            boolean sorted = this.ipv6Size == 0 || compareUnsigned128(fromHigh, fromLow, this.ipv6Bounds[4 * this.ipv6Size - 2],
+                    this.ipv6Bounds[4 * this.ipv6Size - 1]) > 0;
+            if (!sorted || compareUnsigned128(fromHigh, fromLow, toHigh, toLow) > 0) {
+                throw new IllegalArgumentException("IPv6 ranges must be added sorted and not overlapping");
+            }
+
+            if (this.ipv6Size == this.ipv6Locations.length) {
+                this.ipv6Bounds = Arrays.copyOf(this.ipv6Bounds, 8 * this.ipv6Size);
+                this.ipv6Locations = Arrays.copyOf(this.ipv6Locations, 2 * this.ipv6Size);
+            }
+
+            int offset = 4 * this.ipv6Size;
+            this.ipv6Bounds[offset] = fromHigh;
+            this.ipv6Bounds[offset + 1] = fromLow;
+            this.ipv6Bounds[offset + 2] = toHigh;
+            this.ipv6Bounds[offset + 3] = toLow;
+            this.ipv6Locations[this.ipv6Size] = this.locationIdOf(countryCode, countryName, regionName, cityName, lat, lng);
+            this.ipv6Size++;
+            return this;
+        }
+
+        IP2LocationIndex build() {
+            int locations = this.locationIds.size();
+            short[] locationCountries = new short[locations];
+            int[] locationRegions = new int[locations];
+            int[] locationCities = new int[locations];
+            double[] locationLats = new double[locations];
+            double[] locationLngs = new double[locations];
+            this.locationIds.forEach((location, id) -> {
+                locationCountries[id] = location.country;
+                locationRegions[id] = location.region;
+                locationCities[id] = location.city;
+                locationLats[id] = location.lat;
+                locationLngs[id] = location.lng;
+            });
+
+            long[][] ipv6Columns = new long[4][this.ipv6Size];
+            for (int i = 0; i < this.ipv6Size; i++) {
+                for (int column = 0; column < 4; column++) {
+                    ipv6Columns[column][i] = this.ipv6Bounds[4 * i + column];
+                }
+            }
+            Ipv6Ranges ipv6Ranges = new Ipv6Ranges(LongBuffer.wrap(ipv6Columns[0]), LongBuffer.wrap(ipv6Columns[1]),
+                    LongBuffer.wrap(ipv6Columns[2]), LongBuffer.wrap(ipv6Columns[3]),
+                    IntBuffer.wrap(Arrays.copyOf(this.ipv6Locations, this.ipv6Size)));
+
+            return new IP2LocationIndex(IntBuffer.wrap(Arrays.copyOf(this.rangeStarts, this.size)),
+                    IntBuffer.wrap(Arrays.copyOf(this.rangeEnds, this.size)), IntBuffer.wrap(Arrays.copyOf(this.rangeLocations, this.size)),
+                    ipv6Ranges, ShortBuffer.wrap(locationCountries), IntBuffer.wrap(locationRegions), IntBuffer.wrap(locationCities),
+                    DoubleBuffer.wrap(locationLats), DoubleBuffer.wrap(locationLngs), this.countryCodes.toArray(new String[0]),
+                    this.countryNames.toArray(new String[0]), this.continentCodes.toArray(new String[0]),
+                    this.names.toArray(new String[0]));
+        }
+
+        private int locationIdOf(String countryCode, String countryName, String regionName, String cityName, double lat, double lng) {
+            Location location = new Location(this.countryIdOf(countryCode, countryName), this.nameIdOf(regionName), this.nameIdOf(cityName),
+                    lat, lng);
+            return this.locationIds.computeIfAbsent(location, l -> this.locationIds.size());
+        }
+
+        private short countryIdOf(String countryCode, String countryName) {
+            Short id = this.countryIds.get(countryCode);
+            if (id == null) {
+                if (this.countryCodes.size() > Short.MAX_VALUE) {
+                    throw new IllegalArgumentException("Too many countries");
+                }
+                id = (short) this.countryCodes.size();
+                this.countryIds.put(countryCode, id);
+                this.countryCodes.add(countryCode);
+                this.countryNames.add(countryName);
+                this.continentCodes.add(this.countryToContinent.apply(countryCode));
+            }
+            return id;
+        }
+
+        private int nameIdOf(String name) {
+            return this.nameIds.computeIfAbsent(name, n -> {
+                this.names.add(n);
+                return this.names.size() - 1;
+            });
+        }
+    }
+
+    private static final class Ipv6Ranges {
+        private final LongBuffer startHighs;
+        private final LongBuffer startLows;
+        private final LongBuffer endHighs;
+        private final LongBuffer endLows;
+        private final IntBuffer locations;
+
+        private Ipv6Ranges(LongBuffer startHighs, LongBuffer startLows, LongBuffer endHighs, LongBuffer endLows, IntBuffer locations) {
+            this.startHighs = startHighs;
+            this.startLows = startLows;
+            this.endHighs = endHighs;
+            this.endLows = endLows;
+            this.locations = locations;
+        }
+    }
+
+    private static final class Location {
+        private final short country;
+        private final int region;
+        private final int city;
+        private final double lat;
+        private final double lng;
+
+        private Location(short country, int region, int city, double lat, double lng) {
+            this.country = country;
+            this.region = region;
+            this.city = city;
+            this.lat = lat;
+            this.lng = lng;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Location)) {
+                return false;
+            }
+            Location other = (Location) o;
+            return this.country == other.country && this.region == other.region && this.city == other.city
+                    && Double.compare(this.lat, other.lat) == 0 && Double.compare(this.lng, other.lng) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.country, this.region, this.city, this.lat, this.lng);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/* Copyright (c) 2021 Ensolvers
+ * All Rights Reserved
+ *
+ * The contents of this file is dual-licensed under 2 alternative Open Source/Free licenses: LGPL 2.1 or later and
+ * Apache License 2.0. (starting with JNA version 4.0.0).
+ *
+ * You can freely decide which license you want to apply to the project.
+ *
+ * You may obtain a copy of the LGPL License at: http://www.gnu.org/licenses/licenses.html
+ *
+ * A copy is also included in the downloadable source code package
+ * containing JNA, in file "LGPL2.1".
+ *
+ * You may obtain a copy of the Apache License at: http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing JNA, in file "AL2.0".
+ */
+package com.ensolvers.fox.location;
+
+/**
+ * The result of looking up an IP through the bulk and streaming methods of
+ * {@link IP2LocationService}, where IPs that are not found or not valid are
+ * reported as results instead of exceptions
+ */
+public class IP2LocationResult {
+
+    public enum Status {
+        FOUND, NOT_FOUND, INVALID_IP
+    }
+
+    private final String ip;
+    private final Status status;
+    private final IP2LocationInfo info;
+
+    IP2LocationResult(String ip, IP2LocationInfo info) {
+        this(ip, info != null ? Status.FOUND : Status.NOT_FOUND, info);
+    }
+
+    IP2LocationResult(String ip, Status status, IP2LocationInfo info) {
+        this.ip = ip;
+        this.status = status;
+        this.info = info;
+    }
+
+    /** @return the IP as it was given */
+    public String getIp() {
+        return ip;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /** @return the information about the ip, or null if it was not found */
+    public IP2LocationInfo getInfo() {
+        return info;
+    }
+
+    public boolean isFound() {
+        return status == Status.FOUND;
+    }
+}
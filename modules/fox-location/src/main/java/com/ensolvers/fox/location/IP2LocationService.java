@@ -19,10 +19,13 @@
 package com.ensolvers.fox.location;
 
 import java.io.*;
-import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
@@ -32,7 +35,6 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
-import org.junit.jupiter.api.Disabled;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,10 +44,22 @@ import org.slf4j.LoggerFactory;
  * https://lite.ip2location.com/
  *
  * <p>
- * Internally, data is loaded into memory: About 50MB and then the search is
- * done by binary search over the sorted array. Performance is less than 1ms per
+ * Internally, data is loaded into a columnar index of primitive arrays (see
+ * {@link IP2LocationIndex}) and then the search is done by binary search over
+ * the sorted range starts, without allocating. Performance is less than 1ms per
  * call.
  *
+ * <p>
+ * Parsing the CSV takes a while, so it is done in background and lookups wait
+ * until it finishes. To start instantly, the CSV can be compiled once into a
+ * binary database (see {@link IP2LocationCompiler}) which is memory-mapped on
+ * startup, see {@link #useBinaryDatabase(Path)}.
+ *
+ * <p>
+ * To enrich many IPs (e.g. access logs) use {@link #getInfoFor(Collection)} or
+ * {@link #getInfoFor(Stream)}, which look IPs up in sorted batches and report
+ * misses as results instead of exceptions.
+ *
  * @author Esteban Robles Luna
  */
 public class IP2LocationService {
@@ -53,10 +67,16 @@ public class IP2LocationService {
     private static final String TEST_FILE = "IP2LOCATION-test.csv";
     private static final Boolean EUROPEAN_IP_DEFAULT_VALUE = false;
     private static final Logger logger = LoggerFactory.getLogger(IP2LocationService.class);
+    // scratch space to parse IPv6 addresses without allocating
+    private static final ThreadLocal<long[]> IPV6_NUMBER = ThreadLocal.withInitial(() -> new long[2]);
+    // amount of IPs looked up at once by the streaming lookups
+    private static final int BATCH_SIZE = 4096;
 
     private static IP2LocationService instance;
     private Map<String, String> countryToContinentMap;
     private static String resourceFile = "IP2LOCATION-LITE-DB5.tar.gz";
+    private static String ipv6ResourceFile = "IP2LOCATION-LITE-DB5.IPV6.tar.gz";
+    private static Path binaryDatabase;
 
     /**
      * Creates a new service and sets its input stream
@@ -65,7 +85,9 @@ public class IP2LocationService {
      */
     private static IP2LocationService build() {
         InputStream io = IP2LocationService.class.getClassLoader().getResourceAsStream(resourceFile);
-        return new IP2LocationService(io);
+        InputStream ipv6IO = ipv6ResourceFile == null ? null
+                : IP2LocationService.class.getClassLoader().getResourceAsStream(ipv6ResourceFile);
+        return new IP2LocationService(io, ipv6IO);
     }
 
     /**
@@ -84,12 +106,25 @@ public class IP2LocationService {
 
             synchronized (IP2LocationService.class) {
 
+                if (binaryDatabase != null) {
+                    try {
+                        instance = IP2LocationService.fromBinaryDatabase(binaryDatabase);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return instance;
+                }
+
                 instance = IP2LocationService.build();
 
                 new Thread() {
                     @Override
                     public void run() {
-                        instance.read();
+                        try {
+                            instance.read();
+                        } catch (RuntimeException e) {
+                            logger.error("Error loading the IP2Location data, lookups will fail", e);
+                        }
                     }
                 }.start();
 
@@ -102,6 +137,32 @@ public class IP2LocationService {
     /** Use the test csv. */
     public static void useTestResource() {
         resourceFile = TEST_FILE;
+        ipv6ResourceFile = null;
+    }
+
+    /**
+     * Makes {@link #getInstance(Boolean)} map the given binary database instead of
+     * parsing the CSV
+     *
+     * @param file a binary database compiled by {@link IP2LocationCompiler}
+     */
+    public static void useBinaryDatabase(Path file) {
+        binaryDatabase = file;
+    }
+
+    /**
+     * Creates a service that serves lookups from a memory-mapped binary database,
+     * so it is ready as soon as it is returned and the ranges stay off the heap
+     *
+     * @param file a binary database compiled by {@link IP2LocationCompiler}
+     * 
+     * @return a new IP2LocationService service instance
+     * 
+     * @throws IOException if the file cannot be mapped or it is not a binary
+     *                     database of the current version
+     */
+    public static IP2LocationService fromBinaryDatabase(Path file) throws IOException {
+        return new IP2LocationService(IP2LocationIndex.map(file));
     }
 
     /**
@@ -178,30 +239,126 @@ public class IP2LocationService {
 
     // The Input stream of the CSV source
     private InputStream csvIO;
-    // The list of sorted IPs obtained from the CSV
-    private List<IP2LocationInfo> infos;
+    // The Input stream of the IPv6 CSV source, optional
+    private InputStream ipv6CsvIO;
+    // The index of sorted IP ranges obtained from the CSV
+    private IP2LocationIndex index;
     // loading lock to avoid blocking when obtaining the instance
     private ReentrantLock loadingLock;
 
     private volatile boolean hasLoaded;
+    // the error that made loading fail, if any
+    private volatile Exception loadFailure;
 
     public IP2LocationService(String csvLocation) throws FileNotFoundException {
-        this.csvIO = new FileInputStream(csvLocation);
+        this(new FileInputStream(csvLocation));
     }
 
     public IP2LocationService(InputStream csvIO) {
+        this(csvIO, null);
+    }
+
+    /**
+     * @param csvIO     the IPv4 CSV (IP2LOCATION-LITE-DB5)
+     * @param ipv6CsvIO the IPv6 CSV (IP2LOCATION-LITE-DB5.IPV6), or null to only
+     *                  load IPv4 ranges
+     */
+    public IP2LocationService(InputStream csvIO, InputStream ipv6CsvIO) {
         this.csvIO = csvIO;
+        this.ipv6CsvIO = ipv6CsvIO;
         this.loadingLock = new ReentrantLock();
         this.hasLoaded = false;
     }
 
+    private IP2LocationService(IP2LocationIndex index) {
+        this.index = index;
+        this.loadingLock = new ReentrantLock();
+        this.hasLoaded = true;
+    }
+
+    /**
+     * Reads the input streams as .tar.gz files containing the CSVs
+     *
+     * @throws UncheckedIOException  if the sources cannot be read
+     * @throws IllegalStateException if the sources are corrupt (e.g. unsorted or
+     *                               truncated rows)
+     */
     public void read() {
+        try {
+            this.load(true, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the input streams as plain (not compressed) CSVs, see {@link #read()}
+     */
+    void readCsv() {
+        try {
+            this.load(false, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Loads the ranges of the sources. If loading fails nothing is published and
+     * the error is thrown, both from here and from every later lookup.
+     *
+     * @param tarGz     if the IPv4 source is a .tar.gz, otherwise a plain CSV
+     * @param ipv6TarGz if the IPv6 source (if any) is a .tar.gz
+     */
+    void load(boolean tarGz, boolean ipv6TarGz) throws IOException {
         this.loadingLock.lock();
-        this.infos = new ArrayList<>(4000000);
-        this.readFromTarGZ(this.csvIO);
+
+        try {
+            if (this.countryToContinentMap == null) {
+                this.countryToContinentMap = this.createMapFromFile();
+            }
+            IP2LocationIndex.Builder builder = IP2LocationIndex.builder(this.countryToContinentMap::get);
+
+            this.readSource(this.csvIO, tarGz, builder, false);
+            if (this.ipv6CsvIO != null) {
+                this.readSource(this.ipv6CsvIO, ipv6TarGz, builder, true);
+            }
+            this.index = builder.build();
+        } catch (IOException e) {
+            this.loadFailure = e;
+            throw e;
+        } catch (RuntimeException e) {
+            IllegalStateException failure = new IllegalStateException("The IP2Location data is corrupt", e);
+            this.loadFailure = failure;
+            throw failure;
+        } finally {
+            this.hasLoaded = true;
+            this.loadingLock.unlock();
+        }
+    }
+
+    private void readSource(InputStream io, boolean tarGz, IP2LocationIndex.Builder builder, boolean ipv6) throws IOException {
+        if (tarGz) {
+            this.readFromTarGZ(io, builder, ipv6);
+        } else {
+            this.basicRead(new BufferedInputStream(io), builder, ipv6);
+        }
+    }
+
+    /**
+     * Writes the loaded ranges to a binary database, which can be memory-mapped
+     * later through {@link #fromBinaryDatabase(Path)}. Waits for the CSV to be
+     * loaded.
+     *
+     * @param file the file to write, replaced if it exists
+     * 
+     * @throws IOException if the file cannot be written
+     */
+    public void writeBinaryDatabase(Path file) throws IOException {
+        this.waitForLoaded();
+        this.index.writeTo(file);
     }
 
-    private void basicRead(InputStream io) throws IOException {
+    private void basicRead(InputStream io, IP2LocationIndex.Builder builder, boolean ipv6) throws IOException {
         Iterator<CSVRecord> iterator;
         Reader reader = new InputStreamReader(io);
         CSVParser parser = new CSVParser(reader, CSVFormat.DEFAULT);
@@ -211,12 +368,11 @@ public class IP2LocationService {
 
             int i = 0;
             while (iterator.hasNext()) {
-                IP2LocationInfo info = this.parse(iterator.next());
-                /*
-                 * IMPROVEMENT (see getIpAsNumber() comments for the reason) make this.infos a
-                 * MAP indexed by info.getFromIP() to search faster
-                 */
-                this.infos.add(info);
+                if (ipv6) {
+                    this.parseIpv6(iterator.next(), builder);
+                } else {
+                    this.parse(iterator.next(), builder);
+                }
                 i++;
 
                 if (i % 10000 == 0) {
@@ -225,17 +381,19 @@ public class IP2LocationService {
             }
 
             parser.close();
-        } catch (IOException e) {
-            logger.error("Error working with stream", e);
+        } catch (IllegalStateException e) {
+            // the CSV iterator wraps the errors of the underlying stream
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
         } finally {
             IOUtils.close(reader);
-            IOUtils.close(this.csvIO);
-            this.hasLoaded = true;
-            this.loadingLock.unlock();
+            IOUtils.close(io);
         }
     }
 
-    private void readFromTarGZ(InputStream tarGz) {
+    private void readFromTarGZ(InputStream tarGz, IP2LocationIndex.Builder builder, boolean ipv6) throws IOException {
         try (InputStream bi = new BufferedInputStream(tarGz);
                 InputStream gzi = new GzipCompressorInputStream(bi);
                 ArchiveInputStream o = new TarArchiveInputStream(gzi)) {
@@ -247,15 +405,14 @@ public class IP2LocationService {
                     // log something?
                     continue;
                 }
-                this.basicRead(o);
+                this.basicRead(o, builder, ipv6);
                 return;
             }
-        } catch (IOException e) {
-            logger.error("Error fetching data from tar gz csv file", e);
         }
+        throw new IOException("No readable CSV found in the tar gz file");
     }
 
-    private IP2LocationInfo parse(CSVRecord csvRecord) throws IOException {
+    private void parse(CSVRecord csvRecord, IP2LocationIndex.Builder builder) {
         long fromIP = Long.parseLong(csvRecord.get(0));
         long toIP = Long.parseLong(csvRecord.get(1));
         String countryCode = csvRecord.get(2);
@@ -265,27 +422,64 @@ public class IP2LocationService {
         double lat = Double.parseDouble(csvRecord.get(6));
         double lng = Double.parseDouble(csvRecord.get(7));
 
-        IP2LocationInfo info = new IP2LocationInfo();
-        info.setFromIP(fromIP);
-        info.setToIP(toIP);
-        info.setCountryCode(countryCode);
-        info.setContinentCode(this.country2Continent(countryCode));
-        info.setCountryName(countryName);
-        info.setRegionName(regionName);
-        info.setCityName(cityName);
-        info.setLat(lat);
-        info.setLng(lng);
-
-        return info;
+        builder.add(fromIP, toIP, countryCode, countryName, regionName, cityName, lat, lng);
+    }
+
+    private void parseIpv6(CSVRecord csvRecord, IP2LocationIndex.Builder builder) {
+        long[] fromIP = parseUnsigned128(csvRecord.get(0));
+        long[] toIP = parseUnsigned128(csvRecord.get(1));
+        String countryCode = csvRecord.get(2);
+        String countryName = csvRecord.get(3);
+        String regionName = csvRecord.get(4);
+        String cityName = csvRecord.get(5);
+        double lat = Double.parseDouble(csvRecord.get(6));
+        double lng = Double.parseDouble(csvRecord.get(7));
+
+        builder.addIpv6(fromIP[0], fromIP[1], toIP[0], toIP[1], countryCode, countryName, regionName, cityName, lat, lng);
+    }
+
+    /**
+     * Parses a decimal number of up to 128 bits, as the IPv6 numbers of the CSV
+     *
+     * @return the high and low 64 bits of the number
+     */
+    static long[] parseUnsigned128(String decimal) {
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < decimal.length(); i++) {
+            // only ASCII digits, unlike Character.digit
+            int digit = decimal.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid number: " + decimal);
+            }
+
+            // (high, low) * 10 + digit, carrying the unsigned overflow of the low bits
+            long lowTimesTen = low * 10;
+            long carry = Math.multiplyHigh(low, 10) + ((low >> 63) & 10);
+            long newLow = lowTimesTen + digit;
+            if (Long.compareUnsigned(newLow, lowTimesTen) < 0) {
+                carry++;
+            }
+            long newHigh = high * 10 + carry;
+            if (Long.compareUnsigned(high, Long.divideUnsigned(-1L, 10)) > 0 || Long.compareUnsigned(newHigh, high * 10) < 0) {
+                throw new NumberFormatException("Number does not fit in 128 bits: " + decimal);
+            }
+            high = newHigh;
+            low = newLow;
+        }
+
+        return new long[] { high, low };
     }
 
     void waitForLoaded() {
-        if (this.hasLoaded) {
-            return;
+        if (!this.hasLoaded) {
+            this.loadingLock.lock();
+            this.loadingLock.unlock();
         }
 
-        this.loadingLock.lock();
-        this.loadingLock.unlock();
+        if (this.loadFailure != null) {
+            throw new IllegalStateException("The IP2Location data could not be loaded", this.loadFailure);
+        }
     }
 
     /**
@@ -307,107 +501,207 @@ public class IP2LocationService {
 
         this.waitForLoaded();
 
-        // Ipv4 logic
-        if (NetworkUtils.isValidIPv4Address(ip)) {
-            return getInfoForIpv4(ip);
+        // Ipv4 logic, the address is validated and converted in a single pass
+        long ipv4 = NetworkUtils.parseIPv4Address(ip);
+        if (ipv4 >= 0) {
+            IP2LocationInfo info = this.findIpv4(ipv4);
+            if (info == null) {
+                throw new IPV4NotFoundException();
+            }
+            return info;
         }
 
         // Ipv6 logic
-        if (Boolean.TRUE.equals(NetworkUtils.isValidIPv6Address(ip))) {
-            return getInfoForIpv6(ip);
+        long[] ipv6 = IPV6_NUMBER.get();
+        if (NetworkUtils.parseIPv6Address(ip, ipv6)) {
+            IP2LocationInfo info = this.findIpv6(ipv6[0], ipv6[1]);
+            if (info == null) {
+                // without IPv6 ranges, IPv4-mapped addresses are looked up as IPv4
+                if (this.index.ipv6Size() == 0) {
+                    throw new IPV4NotFoundException();
+                }
+                throw new IPV6NotFoundException();
+            }
+            return info;
         }
 
         throw new InvalidIPException();
     }
 
-    private IP2LocationInfo getInfoForIpv4(String ip) throws IPV4NotFoundException {
-        IP2LocationInfo toFind = new IP2LocationInfo();
-        long number = this.getIpv4AsNumber(ip);
-        toFind.setFromIP(number);
-        toFind.setToIP(number);
-        /*
-         * see getIpAsNumber() comments If the data is stored in a MAP, x21 faster
-         * access is possible
-         */
-        int index = Collections.binarySearch(this.infos, toFind);
-        if (index >= 0) {
-            return this.infos.get(index);
-        } else {
-            throw new IPV4NotFoundException();
-        }
-    }
+    /**
+     * Returns location information about many IPs at once, e.g. to enrich a batch
+     * of access log lines. IPv4 addresses are sorted and merge-joined against the
+     * ranges, and IPs that are not found or not valid are reported as results
+     * instead of exceptions.
+     *
+     * @param ips the IPs in V4 or V6 format
+     * 
+     * @return the result for each ip, in the same order
+     */
+    public List<IP2LocationResult> getInfoFor(Collection<String> ips) {
+        this.waitForLoaded();
 
-    private long getIpv4AsNumber(String ip) {
+        String[] inputs = ips.toArray(new String[0]);
+        IP2LocationResult[] results = new IP2LocationResult[inputs.length];
+        long[] ipv4s = new long[inputs.length];
+        int[] positions = new int[inputs.length];
+        int ipv4Count = 0;
+        long[] ipv6 = IPV6_NUMBER.get();
+
+        for (int i = 0; i < inputs.length; i++) {
+            String ip = inputs[i];
+            long ipv4 = StringUtils.isEmpty(ip) ? -1 : NetworkUtils.parseIPv4Address(ip);
+            if (ipv4 >= 0) {
+                ipv4s[ipv4Count] = ipv4;
+                positions[ipv4Count] = i;
+                ipv4Count++;
+            } else if (!StringUtils.isEmpty(ip) && NetworkUtils.parseIPv6Address(ip, ipv6)) {
+                results[i] = new IP2LocationResult(ip, this.findIpv6(ipv6[0], ipv6[1]));
+            } else {
+                results[i] = new IP2LocationResult(ip, IP2LocationResult.Status.INVALID_IP, null);
+            }
+        }
 
-        String[] parts = ip.split("\\.");
+        IP2LocationInfo[] infos = this.findIpv4s(ipv4s, ipv4Count);
+        for (int i = 0; i < ipv4Count; i++) {
+            results[positions[i]] = new IP2LocationResult(inputs[positions[i]], infos[i]);
+        }
 
-        /*
-         * IMPROVEMENTS: this is the worst case scenario: a class C address a) compute
-         * only the network part (first byte for class A, two for class B, three for
-         * class C b) use the network for x21 faster search (if the data is stored in a
-         * hashmap)
-         */
-        return (Long.valueOf(parts[0]) * 256 * 256 * 256) + (Long.valueOf(parts[1]) * 256 * 256) + (Long.valueOf(parts[2]) * 256)
-                + (Long.valueOf(parts[3]));
+        return Arrays.asList(results);
     }
 
-    private IP2LocationInfo getInfoForIpv6(String ip) throws IPV6NotFoundException {
-        if (ip != null) {
-            return IP2LocationInfo.generateMockLocation();
-        } else {
-            throw new IPV6NotFoundException();
-        }
+    /**
+     * Returns location information about many IPv4 addresses at once, sorting and
+     * merge-joining them against the ranges
+     *
+     * @param ips IPv4 addresses as numbers (ie: 1.2.3.4 is 16909060)
+     * 
+     * @return the information about each ip, in the same order, or null for the
+     *         ones that were not found
+     */
+    public IP2LocationInfo[] getInfoFor(long[] ips) {
+        this.waitForLoaded();
+        return this.findIpv4s(ips, ips.length);
     }
 
     /**
-     * This method returns the ipv6 address as a BigInteger due to a long not being
-     * big enough to store the value, it's not in use yet because of the mock
-     * approach we are taking, in case we change the approach it might be relevant
-     * again
+     * Returns location information about a stream of IPs, e.g. the IPs of a
+     * multi-million-line access log. IPs are looked up in batches through
+     * {@link #getInfoFor(Collection)}, so misses are reported as results instead of
+     * exceptions. The returned stream is ordered, and parallel if the given one is,
+     * in which case batches are split as the given stream splits (e.g.
+     * {@code service.getInfoFor(Files.lines(log).parallel().map(...))} runs over
+     * the common fork-join pool).
      *
-     * @param addr the ipv6 address
+     * @param ips the IPs in V4 or V6 format
      * 
-     * @return ipv6 in BigInteger format
+     * @return a stream with the result for each ip, in the same order
      */
-    @Disabled("Currently out of use because of Mock approach")
-    private BigInteger ipv6ToNumber(String addr) {
-        int startIndex = addr.indexOf("::");
-        if (startIndex != -1) {
-            String firstStr = addr.substring(0, startIndex);
-            String secondStr = addr.substring(startIndex + 2, addr.length());
-            BigInteger first = BigInteger.valueOf(0);
-            BigInteger second = BigInteger.valueOf(0);
-            if (!firstStr.equals("")) {
-                int x = this.countChar(addr, ':');
-                first = ipv6ToNumber(firstStr).shiftLeft(16 * (7 - x));
+    public Stream<IP2LocationResult> getInfoFor(Stream<String> ips) {
+        return StreamSupport.stream(new BatchSpliterator(ips.spliterator()), ips.isParallel()).onClose(ips::close);
+    }
+
+    /**
+     * @return the information about each of the first count ips, null for the ones
+     *         not found or out of the IPv4 range
+     */
+    private IP2LocationInfo[] findIpv4s(long[] ips, int count) {
+        // sort ips along with their position (ips take 32 bits and positions 31)
+        long[] keys = new long[count];
+        int valid = 0;
+        for (int i = 0; i < count; i++) {
+            if (ips[i] >= 0 && ips[i] <= 0xFFFFFFFFL) {
+                keys[valid++] = (ips[i] << 31) | i;
             }
-            if (!secondStr.equals("")) {
-                second = ipv6ToNumber(secondStr);
+        }
+        Arrays.sort(keys, 0, valid);
+
+        long[] sorted = new long[valid];
+        for (int i = 0; i < valid; i++) {
+            sorted[i] = keys[i] >>> 31;
+        }
+        int[] rangeIndexes = new int[valid];
+        this.index.indexOfSorted(sorted, valid, rangeIndexes);
+
+        IP2LocationInfo[] infos = new IP2LocationInfo[count];
+        for (int i = 0; i < valid; i++) {
+            if (rangeIndexes[i] >= 0) {
+                infos[(int) (keys[i] & Integer.MAX_VALUE)] = this.index.getInfo(rangeIndexes[i]);
             }
-            first = first.add(second);
-            return first;
         }
+        return infos;
+    }
 
-        String[] strArr = addr.split(":");
-        BigInteger retValue = BigInteger.valueOf(0);
-        for (String s : strArr) {
-            BigInteger bi = new BigInteger(s, 16);
-            retValue = retValue.shiftLeft(16).add(bi);
+    private IP2LocationInfo findIpv4(long number) {
+        int rangeIndex = this.index.indexOf(number);
+        return rangeIndex >= 0 ? this.index.getInfo(rangeIndex) : null;
+    }
+
+    private IP2LocationInfo findIpv6(long high, long low) {
+        if (this.index.ipv6Size() == 0) {
+            // without IPv6 ranges, IPv4-mapped addresses (::ffff:a.b.c.d) are looked
+            // up as IPv4 and the rest get a mocked location
+            if (high == 0 && (low >>> 32) == 0xFFFFL) {
+                return this.findIpv4(low & 0xFFFFFFFFL);
+            }
+            return IP2LocationInfo.generateMockLocation();
         }
-        return retValue;
+
+        int rangeIndex = this.index.indexOfIpv6(high, low);
+        return rangeIndex >= 0 ? this.index.getIpv6Info(rangeIndex) : null;
     }
 
-    private int countChar(String str, char reg) {
-        char[] ch = str.toCharArray();
-        int count = 0;
-        for (int i = 0; i < ch.length; ++i) {
-            if (ch[i] == reg) {
-                if (ch[i + 1] == reg) {
-                    break;
+    /**
+     * Looks up the IPs of a source spliterator in batches of {@link #BATCH_SIZE},
+     * splitting as the source does
+     */
+    private class BatchSpliterator implements Spliterator<IP2LocationResult> {
+        private final Spliterator<String> source;
+        private final List<String> batch = new ArrayList<>(BATCH_SIZE);
+        private List<IP2LocationResult> results = Collections.emptyList();
+        private int next;
+
+        BatchSpliterator(Spliterator<String> source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super IP2LocationResult> action) {
+            if (this.next == this.results.size()) {
+                this.batch.clear();
+                while (this.batch.size() < BATCH_SIZE && this.source.tryAdvance(this.batch::add)) {
+                    // keep filling the batch
                 }
-                ++count;
+                if (this.batch.isEmpty()) {
+                    return false;
+                }
+                this.results = IP2LocationService.this.getInfoFor(this.batch);
+                this.next = 0;
+            }
+
+            action.accept(this.results.get(this.next++));
+            return true;
+        }
+
+        @Override
+        public Spliterator<IP2LocationResult> trySplit() {
+            // the ips of a split would come before the pending results of this batch
+            if (this.next < this.results.size()) {
+                return null;
             }
+            Spliterator<String> prefix = this.source.trySplit();
+            return prefix != null ? new BatchSpliterator(prefix) : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = this.source.estimateSize() + (this.results.size() - this.next);
+            return size < 0 ? Long.MAX_VALUE : size;
+        }
+
+        @Override
+        public int characteristics() {
+            return (this.source.characteristics() & (ORDERED | SIZED | SUBSIZED)) | NONNULL;
         }
-        return count;
     }
 }
@@ -1,11 +1,14 @@
 package com.ensolvers.fox.location;
 
+import java.util.regex.Pattern;
+
 public class NetworkUtils {
     private NetworkUtils() {
     }
 
     private static final String IPV4_PATTERN = "(?:25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]\\d|\\d)(?:\\.(?:25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]\\d|\\d)){3}";
     private static final String HEX_PATTERN = "[A-Fa-f\\d]{1,4}";
+    // @formatter:off
     private static final String IPV6_PATTERN = 
     "^(?:" +
     "(?:" + HEX_PATTERN + ":){7}(?:" + HEX_PATTERN + "|:)|" + // 1:2:3:4:5:6:7::  1:2:3:4:5:6:7:8
@@ -16,95 +19,251 @@ public class NetworkUtils {
     "(?:" + HEX_PATTERN + ":){2}(?:(?::" + HEX_PATTERN + "){0,3}:" + IPV4_PATTERN + "|(?::" + HEX_PATTERN + "){1,5}|:)|" + // 1:2::            1:2::4:5:6:7:8   1:2::8          1:2::4:5:6:7:1.2.3.4
     "(?:" + HEX_PATTERN + ":){1}(?:(?::" + HEX_PATTERN + "){0,4}:" + IPV4_PATTERN + "|(?::" + HEX_PATTERN + "){1,6}|:)|" + // 1::              1::3:4:5:6:7:8   1::8            1::3:4:5:6:7:1.2.3.4
     "(?::(?:(?::" + HEX_PATTERN + "){0,5}:" + IPV4_PATTERN + "|(?::" + HEX_PATTERN + "){1,7}|:)))"; // ::2:3:4:5:6:7:8  ::2:3:4:5:6:7:8  ::8             ::1.2.3.4
+    // @formatter:on
+    private static final Pattern IPV6 = Pattern.compile(IPV6_PATTERN);
 
-    
     /**
-     * Check if string is a valid IPv4 address
+     * Check if string is a valid IPv4 address, in a single pass over the text and
+     * without allocating
+     * 
      * @param ip a ip address in string form
      * @return true if a ip is a valid IPv4 address, false otherwise
      */
     public static boolean isValidIPv4Address(String ip) {
-        return (ip.matches(IPV4_PATTERN));
+        return parseIPv4Address(ip) >= 0;
     }
 
     /**
-     * <p>Check if string is a valid IPv6 address</p>
+     * <p>
+     * Check if string is a valid IPv6 address, in a single pass over the text and
+     * without allocating
+     * </p>
      * 
-     * <p>While faster, this one may not check if IPv4 addresses are embedded on IPv6 ones</p>
+     * <p>
+     * IPv4 addresses embedded on IPv6 ones are checked too
+     * </p>
      * 
-     * <p>ie: 2001:db8:122:344::192.0.2.33</p>  
+     * <p>
+     * ie: 2001:db8:122:344::192.0.2.33
+     * </p>
      * 
      * @param ip a ip address in string form
      * @return true if a ip is a valid IPv6 address, false otherwise
      */
-
     public static boolean isValidIPv6Address(String ip) {
-        return isValidIPv6Addressv1(ip);
+        return parseIPv6Address(ip, null);
     }
-    
+
     /**
-     * <p>Check if string is a valid IPv6 address</p>
+     * <p>
+     * Check if string is a valid IPv6 address
+     * </p>
      * 
-     * <p>Slower, but will check if IPv4 addresses are embedded in IPv6 ones</p>   
+     * <p>
+     * Regular expression based, slower than {@link #isValidIPv6Address(String)}
+     * </p>
      * 
-     * <p>ie: 2001:db8:122:344::192.0.2.33</p>  
+     * <p>
+     * ie: 2001:db8:122:344::192.0.2.33
+     * </p>
      * 
      * @param ip a ip address in string form
      * @return true if a ip is a valid IPv6 address, false otherwise
      * @see {@link https://www.juniper.net/documentation/us/en/software/junos/interfaces-next-gen-services/topics/concept/ipv4-address-embedded-ipv6.html}
      */
     public static boolean isValidIPv6Addressv2(String ip) {
-        return ip.matches(IPV6_PATTERN);
+        return IPV6.matcher(ip).matches();
     }
 
-    private static Boolean isValidIPv6Addressv1(String ip) {
-        int simplification = 0;
-        int partCounter = 0;
-        StringBuilder hexadecimalValue = new StringBuilder();
+    /**
+     * Parses an IPv4 address into its number, in a single pass over the text and
+     * without allocating
+     * 
+     * @param ip a ip address in string form
+     * @return the address as number (ie: 1.2.3.4 is 16909060), or -1 if ip is not a
+     *         valid IPv4 address
+     */
+    public static long parseIPv4Address(CharSequence ip) {
+        return parseIPv4Address(ip, 0, ip.length());
+    }
 
-        // Check if the first and last characters are ::, otherwise the ip is invalid
-        if ((ip.charAt(0) == ':' && ip.charAt(1) != ':') || (ip.charAt(ip.length() - 1) == ':' && ip.charAt(ip.length() - 2) != ':')) {
+    /**
+     * <p>
+     * Parses an IPv6 address into its 128 bits, in a single pass over the text and
+     * without allocating.
+     * </p>
+     * 
+     * <p>
+     * IPv4 addresses embedded in the last 32 bits are supported, ie:
+     * ::ffff:192.0.2.33
+     * </p>
+     * 
+     * @param ip     a ip address in string form
+     * @param result an array of (at least) two longs where the high and low 64 bits
+     *               of the address are written, or null to only validate the
+     *               address
+     * @return true if a ip is a valid IPv6 address (and the result was written),
+     *         false otherwise
+     */
+    public static boolean parseIPv6Address(CharSequence ip, long[] result) {
+        int length = ip.length();
+        if (length < 2) {
             return false;
         }
 
-        // Check that every hexadecimal value of the ip is valid, when reaching a ':'
-        // will check if the value is a valid one.
-        // If valid, it will also check if the following value is another ':'
-        for (int i = 0; i < ip.length(); i++) {
-            if (ip.charAt(i) == ':') {
-                // check ip ip part is valid
-                if (hexadecimalValue.length() > 0) {
-                    if (Boolean.FALSE.equals(checkIfHexadecimalValueIsValid(hexadecimalValue.toString()))) {
-                        return false;
-                    } else {
-                        partCounter = partCounter + 1;
-                        hexadecimalValue.setLength(0);
-                    }
+        long headHigh = 0;
+        long headLow = 0;
+        long tailHigh = 0;
+        long tailLow = 0;
+        int headGroups = 0;
+        int tailGroups = 0;
+        boolean compressed = false;
+
+        int i = 0;
+        if (ip.charAt(0) == ':') {
+            if (ip.charAt(1) != ':') {
+                return false;
+            }
+            compressed = true;
+            i = 2;
+        }
+
+        while (i < length) {
+            int start = i;
+            long value = 0;
+            int groups = 1;
+            while (i < length && ip.charAt(i) != ':' && ip.charAt(i) != '.') {
+                int digit = hexDigit(ip.charAt(i));
+                if (digit < 0 || i - start == 4) {
+                    return false;
                 }
-                if (ip.length() > (i + 1) && (ip.charAt(i + 1) == ':')) {
-                    simplification = simplification + 1;
+                value = (value << 4) | digit;
+                i++;
+            }
+
+            if (i < length && ip.charAt(i) == '.') {
+                // an embedded IPv4 address takes the last two groups
+                value = parseIPv4Address(ip, start, length);
+                if (value < 0) {
+                    return false;
                 }
-            } else {
-                hexadecimalValue.append(ip.charAt(i));
+                groups = 2;
+                i = length;
+            } else if (i == start) {
+                return false;
             }
-            // If there are more than one simplification (::) the ip address is not valid
-            if (simplification > 1) {
+
+            if (headGroups + tailGroups + groups > 8) {
                 return false;
             }
-        } // end of for cycle
+            int shift = groups * 16;
+            if (compressed) {
+                tailHigh = (tailHigh << shift) | (tailLow >>> (64 - shift));
+                tailLow = (tailLow << shift) | value;
+                tailGroups += groups;
+            } else {
+                headHigh = (headHigh << shift) | (headLow >>> (64 - shift));
+                headLow = (headLow << shift) | value;
+                headGroups += groups;
+            }
 
-        // Check last value
-        if (Boolean.FALSE.equals(checkIfHexadecimalValueIsValid(hexadecimalValue.toString()))) {
+            if (i < length) {
+                // skip the ':' separator, checking if it starts the '::' simplification
+                i++;
+                if (i == length) {
+                    return false;
+                }
+                if (ip.charAt(i) == ':') {
+                    if (compressed) {
+                        return false;
+                    }
+                    compressed = true;
+                    i++;
+                }
+            }
+        }
+
+        int groups = headGroups + tailGroups;
+        if (compressed ? groups > 7 : groups != 8) {
             return false;
-        } else {
-            partCounter = partCounter + 1;
         }
-        // PartCounter should be 8 without simplification
-        // Or less than 8 with 1 simplification
-        return ((simplification == 1 && partCounter < 8) || (simplification == 0 && partCounter == 8));
+
+        if (result == null) {
+            return true;
+        }
+
+        // move the groups before the simplification to the top bits
+        int shift = (8 - headGroups) * 16;
+        if (shift >= 128) {
+            headHigh = 0;
+            headLow = 0;
+        } else if (shift >= 64) {
+            headHigh = headLow << (shift - 64);
+            headLow = 0;
+        } else if (shift > 0) {
+            headHigh = (headHigh << shift) | (headLow >>> (64 - shift));
+            headLow = headLow << shift;
+        }
+
+        result[0] = headHigh | tailHigh;
+        result[1] = headLow | tailLow;
+        return true;
     }
 
-    private static Boolean checkIfHexadecimalValueIsValid(String hexadecimal) {
-        return hexadecimal.matches(HEX_PATTERN);
+    /**
+     * Parses the IPv4 address between start (inclusive) and end (exclusive)
+     * 
+     * @return the address as number, or -1 if it is not a valid IPv4 address
+     */
+    private static long parseIPv4Address(CharSequence ip, int start, int end) {
+        long result = 0;
+        int octets = 0;
+        int i = start;
+
+        while (i < end) {
+            int octetStart = i;
+            int value = 0;
+            while (i < end && ip.charAt(i) >= '0' && ip.charAt(i) <= '9') {
+                // up to 3 digits, without leading zeros
+                if (i - octetStart == 3 || (i > octetStart && value == 0)) {
+                    return -1;
+                }
+                value = value * 10 + (ip.charAt(i) - '0');
+                i++;
+            }
+            if (i == octetStart || value > 255 || ++octets > 4) {
+                return -1;
+            }
+            result = (result << 8) | value;
+
+            if (i < end) {
+                // skip the '.' separator, which cannot be the last character
+                if (ip.charAt(i) != '.' || i == end - 1) {
+                    return -1;
+                }
+                i++;
+            }
+        }
+
+        return octets == 4 ? result : -1;
+    }
+
+    /**
+     * Unlike {@link Character#digit(char, int)}, only accepts ASCII digits and
+     * letters (e.g. not fullwidth or Arabic-Indic digits)
+     * 
+     * @return the value of the hexadecimal digit, or -1 if it is not one
+     */
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
     }
 }
@@ -0,0 +1,360 @@
+/* Copyright (c) 2021 Ensolvers
+ * All Rights Reserved
+ *
+ * The contents of this file is dual-licensed under 2 alternative Open Source/Free licenses: LGPL 2.1 or later and
+ * Apache License 2.0. (starting with JNA version 4.0.0).
+ *
+ * You can freely decide which license you want to apply to the project.
+ *
+ * You may obtain a copy of the LGPL License at: http://www.gnu.org/licenses/licenses.html
+ *
+ * A copy is also included in the downloadable source code package
+ * containing JNA, in file "LGPL2.1".
+ *
+ * You may obtain a copy of the Apache License at: http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing JNA, in file "AL2.0".
+ */
+package com.ensolvers.fox.location;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IP2LocationIndexTest {
+
+    @Test
+    void testLookups() {
+        IP2LocationIndex index = IP2LocationIndex.builder(countryCode -> countryCode.equals("FR") ? "EU" : "SA")
+                .add(0, 16777215, "-", "-", "-", "-", 0, 0)
+                .add(3649825536L, 3649830911L, "AR", "Argentina", "Buenos Aires", "La Plata", -34.92145, -57.95453)
+                .add(3650225408L, 3650225663L, "FR", "France", "Ile-de-France", "Paris", 48.85341, 2.3488)
+                .add(3650225664L, 3650225664L, "AR", "Argentina", "Buenos Aires", "La Plata", -34.92145, -57.95453)
+                .add(4294967040L, 4294967295L, "FR", "France", "Ile-de-France", "Paris", 48.85341, 2.3488).build();
+
+        assertEquals(5, index.size());
+        assertEquals(0, index.indexOf(0));
+        assertEquals(0, index.indexOf(16777215));
+        assertEquals(-1, index.indexOf(16777216));
+        assertEquals(-1, index.indexOf(3649825535L));
+        assertEquals(1, index.indexOf(3649825536L));
+        assertEquals(1, index.indexOf(3649830911L));
+        assertEquals(2, index.indexOf(3650225500L));
+        assertEquals(3, index.indexOf(3650225664L));
+        assertEquals(4, index.indexOf(4294967295L));
+
+        IP2LocationInfo info = index.getInfo(4);
+        assertEquals(4294967040L, info.getFromIP());
+        assertEquals(4294967295L, info.getToIP());
+        assertEquals("FR", info.getCountryCode());
+        assertEquals("France", info.getCountryName());
+        assertEquals("EU", info.getContinentCode());
+        assertEquals("Ile-de-France", info.getRegionName());
+        assertEquals("Paris", info.getCityName());
+        assertEquals(48.85341, info.getLat());
+        assertEquals(2.3488, info.getLng());
+        assertEquals("SA", index.getContinentCode(3));
+        assertEquals("AR", index.getCountryCode(1));
+    }
+
+    @Test
+    void testBinaryFileIsMapped(@TempDir Path directory) throws IOException {
+        IP2LocationIndex built = IP2LocationIndex.builder(countryCode -> countryCode.equals("FR") ? "EU" : null)
+                .add(16777216, 16777471, "AR", "Argentina", "Buenos Aires", "La Plata", -34.92145, -57.95453)
+                .add(3650225408L, 3650225663L, "FR", "France", "Ile-de-France", "Paris", 48.85341, 2.3488)
+                .add(3650225664L, 3650225919L, "FR", "France", "Ile-de-France", "Ville-d'Avray", 48.82358, 2.19311).build();
+        Path file = directory.resolve("ip2location.db");
+        built.writeTo(file);
+
+        IP2LocationIndex mapped = IP2LocationIndex.map(file);
+        assertTrue(mapped.isMapped());
+        assertFalse(built.isMapped());
+        assertEquals(built.size(), mapped.size());
+        for (long ip : new long[] { 0, 16777216, 16777471, 3650225407L, 3650225408L, 3650225919L, 3650225920L }) {
+            assertEquals(built.indexOf(ip), mapped.indexOf(ip));
+        }
+        for (int i = 0; i < built.size(); i++) {
+            IP2LocationInfo expected = built.getInfo(i);
+            IP2LocationInfo actual = mapped.getInfo(i);
+            assertEquals(expected.getFromIP(), actual.getFromIP());
+            assertEquals(expected.getToIP(), actual.getToIP());
+            assertEquals(expected.getCountryCode(), actual.getCountryCode());
+            assertEquals(expected.getCountryName(), actual.getCountryName());
+            assertEquals(expected.getContinentCode(), actual.getContinentCode());
+            assertEquals(expected.getRegionName(), actual.getRegionName());
+            assertEquals(expected.getCityName(), actual.getCityName());
+            assertEquals(expected.getLat(), actual.getLat());
+            assertEquals(expected.getLng(), actual.getLng());
+        }
+        assertNull(mapped.getContinentCode(0));
+
+        // files of other versions are rejected
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[7] = (byte) (IP2LocationIndex.VERSION + 1);
+        Path otherVersion = directory.resolve("ip2location-other.db");
+        Files.write(otherVersion, bytes);
+        assertThrows(IOException.class, () -> IP2LocationIndex.map(otherVersion));
+    }
+
+    @Test
+    void testCompiledDatabase(@TempDir Path directory) throws Exception {
+        Path csv = directory.resolve("IP2LOCATION-test.csv");
+        try (InputStream io = IP2LocationIndexTest.class.getClassLoader().getResourceAsStream("IP2LOCATION-test.csv")) {
+            Files.copy(io, csv);
+        }
+        Path database = directory.resolve("ip2location.db");
+        IP2LocationCompiler.compile(csv, database);
+
+        IP2LocationService service = IP2LocationService.fromBinaryDatabase(database);
+        IP2LocationInfo info = service.getInfoFor("217.146.5.0");
+        assertEquals("BR", info.getCountryCode());
+        assertEquals("Rio de Janeiro", info.getCityName());
+        assertEquals("SA", info.getContinentCode());
+        assertThrows(IPV4NotFoundException.class, () -> service.getInfoFor("1.0.0.0"));
+    }
+
+    @Test
+    void testCorruptSourcesAreNotCompiled(@TempDir Path directory) throws Exception {
+        byte[] csv;
+        try (InputStream io = IP2LocationIndexTest.class.getClassLoader().getResourceAsStream("IP2LOCATION-test.csv")) {
+            csv = IOUtils.toByteArray(io);
+        }
+        Path database = directory.resolve("ip2location.db");
+
+        // a CSV cut in the middle of a quoted value of its last row
+        Path truncatedCsv = directory.resolve("IP2LOCATION-truncated.csv");
+        Files.write(truncatedCsv, Arrays.copyOf(csv, csv.length - 30));
+        assertThrows(IOException.class, () -> IP2LocationCompiler.compile(truncatedCsv, database));
+        assertFalse(Files.exists(database));
+
+        // a CSV with unsorted rows
+        Path unsortedCsv = directory.resolve("IP2LOCATION-unsorted.csv");
+        Files.write(unsortedCsv, Arrays.asList(new String(csv, StandardCharsets.US_ASCII).trim(),
+                "\"16777216\",\"16777471\",\"AU\",\"Australia\",\"Queensland\",\"Brisbane\",\"-27.46794\",\"153.02809\""));
+        assertThrows(IllegalStateException.class, () -> IP2LocationCompiler.compile(unsortedCsv, database));
+        assertFalse(Files.exists(database));
+
+        // a truncated tar.gz
+        byte[] tarGz = tarGz(csv);
+        Path truncatedTarGz = directory.resolve("IP2LOCATION-truncated.tar.gz");
+        Files.write(truncatedTarGz, Arrays.copyOf(tarGz, tarGz.length / 2));
+        assertThrows(IOException.class, () -> IP2LocationCompiler.compile(truncatedTarGz, database));
+        assertFalse(Files.exists(database));
+
+        // lookups fail instead of using a partial index
+        IP2LocationService service = new IP2LocationService(Files.newInputStream(truncatedCsv));
+        assertThrows(UncheckedIOException.class, service::readCsv);
+        assertThrows(IllegalStateException.class, () -> service.getInfoFor("217.146.5.0"));
+    }
+
+    @Test
+    void testSourceFormatsAreDetectedPerFile(@TempDir Path directory) throws Exception {
+        Path csv = directory.resolve("IP2LOCATION-test.csv");
+        try (InputStream io = IP2LocationIndexTest.class.getClassLoader().getResourceAsStream("IP2LOCATION-test.csv")) {
+            Files.copy(io, csv);
+        }
+        byte[] ipv6Csv = String.join("\n", "\"0\",\"281470681743359\",\"-\",\"-\",\"-\",\"-\",\"0.000000\",\"0.000000\"",
+                "\"42540766411282592856903984951653826560\",\"42540766490510755371168322545197776895\",\"FR\",\"France\",\"Ile-de-France\",\"Paris\",\"48.85341\",\"2.3488\"")
+                .getBytes(StandardCharsets.US_ASCII);
+        Path ipv6TarGz = directory.resolve("IP2LOCATION-test.IPV6.tar.gz");
+        Files.write(ipv6TarGz, tarGz(ipv6Csv));
+
+        // a plain IPv4 CSV along with a compressed IPv6 one
+        Path database = directory.resolve("ip2location.db");
+        IP2LocationCompiler.compile(csv, ipv6TarGz, database);
+
+        IP2LocationService service = IP2LocationService.fromBinaryDatabase(database);
+        assertEquals("Rio de Janeiro", service.getInfoFor("217.146.5.0").getCityName());
+        assertEquals("Paris", service.getInfoFor("2001:db8::1").getCityName());
+    }
+
+    private static byte[] tarGz(byte[] csv) throws IOException {
+        ByteArrayOutputStream tarGz = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(tarGz))) {
+            TarArchiveEntry entry = new TarArchiveEntry("IP2LOCATION.csv");
+            entry.setSize(csv.length);
+            tar.putArchiveEntry(entry);
+            tar.write(csv);
+            tar.closeArchiveEntry();
+        }
+        return tarGz.toByteArray();
+    }
+
+    @Test
+    void testSortedLookups() {
+        Random random = new Random(0);
+        IP2LocationIndex.Builder builder = IP2LocationIndex.builder(countryCode -> "EU");
+        long fromIP = 0;
+        for (int i = 0; i < 10_000; i++) {
+            // ranges of different sizes, with gaps between some of them
+            fromIP += random.nextInt(3) == 0 ? random.nextInt(100_000) : 0;
+            long toIP = fromIP + random.nextInt(100_000);
+            builder.add(fromIP, toIP, "AR", "Argentina", "Buenos Aires", "La Plata", 0, 0);
+            fromIP = toIP + 1;
+        }
+        IP2LocationIndex index = builder.build();
+
+        for (int count : new int[] { 0, 1, 10, 100_000 }) {
+            long[] ips = new long[count];
+            for (int i = 0; i < count; i++) {
+                ips[i] = (random.nextLong() >>> 1) % (fromIP + 1000);
+            }
+            Arrays.sort(ips);
+
+            int[] result = new int[count];
+            index.indexOfSorted(ips, count, result);
+            for (int i = 0; i < count; i++) {
+                assertEquals(index.indexOf(ips[i]), result[i]);
+            }
+        }
+    }
+
+    @Test
+    void testBulkAndStreamingLookups(@TempDir Path directory) throws Exception {
+        Path csv = directory.resolve("IP2LOCATION-test.csv");
+        try (InputStream io = IP2LocationIndexTest.class.getClassLoader().getResourceAsStream("IP2LOCATION-test.csv")) {
+            Files.copy(io, csv);
+        }
+        Path database = directory.resolve("ip2location.db");
+        IP2LocationCompiler.compile(csv, database);
+        IP2LocationService service = IP2LocationService.fromBinaryDatabase(database);
+
+        List<String> ips = Arrays.asList("217.146.5.0", "1.0.0.0", "not an ip", null, "::ffff:217.146.5.0", "217.146.5.0");
+        List<IP2LocationResult> results = service.getInfoFor(ips);
+        assertEquals(ips.size(), results.size());
+        assertEquals(IP2LocationResult.Status.FOUND, results.get(0).getStatus());
+        assertEquals("Rio de Janeiro", results.get(0).getInfo().getCityName());
+        assertEquals(IP2LocationResult.Status.NOT_FOUND, results.get(1).getStatus());
+        assertNull(results.get(1).getInfo());
+        assertEquals(IP2LocationResult.Status.INVALID_IP, results.get(2).getStatus());
+        assertEquals(IP2LocationResult.Status.INVALID_IP, results.get(3).getStatus());
+        assertEquals("BR", results.get(4).getInfo().getCountryCode());
+        assertEquals("217.146.5.0", results.get(5).getIp());
+        assertTrue(results.get(5).isFound());
+
+        IP2LocationInfo[] infos = service.getInfoFor(new long[] { 16777216, 3650225408L, -1 });
+        assertNull(infos[0]);
+        assertEquals("Rio de Janeiro", infos[1].getCityName());
+        assertNull(infos[2]);
+
+        // a parallel stream gets the same results, in the same order
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            lines.add(ips.get(i % ips.size()));
+        }
+        List<IP2LocationResult> streamed = service.getInfoFor(lines.parallelStream()).collect(Collectors.toList());
+        assertEquals(lines.size(), streamed.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(lines.get(i), streamed.get(i).getIp());
+            assertEquals(results.get(i % ips.size()).getStatus(), streamed.get(i).getStatus());
+        }
+    }
+
+    @Test
+    void testIpv6Lookups(@TempDir Path directory) throws IOException {
+        IP2LocationIndex built = IP2LocationIndex.builder(countryCode -> "EU")
+                .add(16777216, 16777471, "AR", "Argentina", "Buenos Aires", "La Plata", -34.92145, -57.95453)
+                .addIpv6(0, 0, 0, 0xFFFFFFFFFFFFL, "-", "-", "-", "-", 0, 0)
+                .addIpv6(0x20010DB800000000L, 0, 0x20010DB8FFFFFFFFL, -1L, "FR", "France", "Ile-de-France", "Paris", 48.85341, 2.3488)
+                .addIpv6(0x8000000000000000L, 0, -1L, -1L, "AR", "Argentina", "Buenos Aires", "La Plata", -34.92145, -57.95453).build();
+        built.writeTo(directory.resolve("ip2location.db"));
+
+        for (IP2LocationIndex index : new IP2LocationIndex[] { built, IP2LocationIndex.map(directory.resolve("ip2location.db")) }) {
+            assertEquals(1, index.size());
+            assertEquals(3, index.ipv6Size());
+            assertEquals(0, index.indexOfIpv6(0, 1));
+            assertEquals(-1, index.indexOfIpv6(0, 0x1000000000000L));
+            assertEquals(1, index.indexOfIpv6(0x20010DB800000000L, 0));
+            assertEquals(1, index.indexOfIpv6(0x20010DB8FFFFFFFFL, -1L));
+            assertEquals(-1, index.indexOfIpv6(0x20010DB900000000L, 0));
+            // the upper half of the space is compared as unsigned
+            assertEquals(2, index.indexOfIpv6(0x8000000000000000L, 0));
+            assertEquals(2, index.indexOfIpv6(-1L, -1L));
+
+            IP2LocationInfo info = index.getIpv6Info(1);
+            assertEquals("FR", info.getCountryCode());
+            assertEquals("Paris", info.getCityName());
+            assertEquals("EU", index.getIpv6ContinentCode(1));
+            assertEquals("La Plata", index.getIpv6Info(2).getCityName());
+        }
+
+        IP2LocationIndex.Builder builder = IP2LocationIndex.builder(countryCode -> null).addIpv6(0, 10, 0, 20, "AR", "Argentina", "", "", 0,
+                0);
+        assertThrows(IllegalArgumentException.class, () -> builder.addIpv6(0, 15, 0, 30, "AR", "Argentina", "", "", 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.addIpv6(-1L, 0, 0, 0, "AR", "Argentina", "", "", 0, 0));
+    }
+
+    @Test
+    void testRangesMustBeSorted() {
+        IP2LocationIndex.Builder builder = IP2LocationIndex.builder(countryCode -> null).add(100, 200, "AR", "Argentina", "", "", 0, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.add(150, 300, "AR", "Argentina", "", "", 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(50, 60, "AR", "Argentina", "", "", 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> builder.add(300, 4294967296L, "AR", "Argentina", "", "", 0, 0));
+    }
+
+    @Test
+    void testMatchesListOfInfosWithLessHeap() {
+        int ranges = 1_000_000;
+        int locations = 10_000;
+        Random random = new Random(0);
+
+        IP2LocationIndex.Builder builder = IP2LocationIndex.builder(countryCode -> "EU");
+        List<IP2LocationInfo> infos = new ArrayList<>(ranges);
+        for (int i = 0; i < ranges; i++) {
+            int location = random.nextInt(locations);
+            String country = "C" + (location % 200);
+            String region = "Region " + (location % 2000);
+            String city = "City " + location;
+            long fromIP = i * 4096L;
+            long toIP = fromIP + 4095;
+            builder.add(fromIP, toIP, country, country, region, city, location, -location);
+
+            IP2LocationInfo info = new IP2LocationInfo();
+            info.setFromIP(fromIP);
+            info.setToIP(toIP);
+            info.setCountryCode(country);
+            info.setCountryName(country);
+            info.setRegionName(region);
+            info.setCityName(city);
+            info.setContinentCode("EU");
+            info.setLat(location);
+            info.setLng(-location);
+            infos.add(info);
+        }
+        IP2LocationIndex index = builder.build();
+
+        // the index finds the same ranges as a binary search over the list
+        for (int i = 0; i < 100_000; i++) {
+            long ip = (random.nextLong() >>> 1) % (ranges * 4096L);
+            IP2LocationInfo toFind = new IP2LocationInfo();
+            toFind.setFromIP(ip);
+            toFind.setToIP(ip);
+            assertEquals(Collections.binarySearch(infos, toFind), index.indexOf(ip));
+        }
+
+        // 2 longs, 2 doubles and 5 references per info (plus a 12 bytes header and
+        // the reference from the list), with compressed oops
+        long listBytes = ranges * (12L + 2 * Long.BYTES + 2 * Double.BYTES + 5 * Integer.BYTES + Integer.BYTES);
+        assertTrue(index.getSizeInBytes() < listBytes);
+    }
+}
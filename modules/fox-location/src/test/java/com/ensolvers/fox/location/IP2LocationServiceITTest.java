@@ -135,6 +135,47 @@ class IP2LocationServiceITTest {
         assertFalse(NetworkUtils.isValidIPv6Address("2001:DB8:::1400:57ab:AC43"));
     }
 
+    @Test
+    void testIpv6AsNumbers() {
+        long[] number = new long[2];
+        assertTrue(NetworkUtils.parseIPv6Address("2001:0DB8:0000:0000:0000::1428:57ab", number));
+        assertArrayEquals(new long[] { 0x20010DB800000000L, 0x142857ABL }, number);
+        assertTrue(NetworkUtils.parseIPv6Address("::", number));
+        assertArrayEquals(new long[] { 0, 0 }, number);
+        assertTrue(NetworkUtils.parseIPv6Address("1::", number));
+        assertArrayEquals(new long[] { 0x0001000000000000L, 0 }, number);
+        assertTrue(NetworkUtils.parseIPv6Address("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff", number));
+        assertArrayEquals(new long[] { -1L, -1L }, number);
+        assertTrue(NetworkUtils.parseIPv6Address("::ffff:192.0.2.33", number));
+        assertArrayEquals(new long[] { 0, 0x0000FFFFC0000221L }, number);
+        assertTrue(NetworkUtils.parseIPv6Address("1:2:3:4:5:6:7::", number));
+        assertArrayEquals(new long[] { 0x0001000200030004L, 0x0005000600070000L }, number);
+
+        assertFalse(NetworkUtils.parseIPv6Address("2001::0DB8::CD30", number));
+        assertFalse(NetworkUtils.parseIPv6Address("2001:DB8:2de::e13:", number));
+        assertFalse(NetworkUtils.parseIPv6Address("2001:0DB85::CD30", number));
+        assertFalse(NetworkUtils.parseIPv6Address("2001:0DB8:1001:0000:1001::1428:57ab:AC43", number));
+        assertFalse(NetworkUtils.parseIPv6Address("2001:0DB8:1428:57ab:AC43", number));
+        assertFalse(NetworkUtils.parseIPv6Address("::ffff:192.0.2.256", number));
+        assertFalse(NetworkUtils.parseIPv6Address("::192.0.2.33:1", number));
+
+        // only ASCII digits are accepted (not fullwidth or Arabic-Indic ones)
+        assertFalse(NetworkUtils.parseIPv6Address("\uFF11::", number));
+        assertFalse(NetworkUtils.parseIPv6Address("2001:db8::\uFF41", number));
+        assertFalse(NetworkUtils.parseIPv6Address("\u0661::1", number));
+        assertFalse(NetworkUtils.isValidIPv6Address("\uFF11::"));
+        assertFalse(NetworkUtils.isValidIPv4Address("\u0661.1.1.1"));
+        assertThrows(NumberFormatException.class, () -> IP2LocationService.parseUnsigned128("\u0661\u0662"));
+        assertThrows(NumberFormatException.class, () -> IP2LocationService.parseUnsigned128("1\uFF12"));
+
+        // the decimal numbers of the IPv6 CSV
+        assertArrayEquals(new long[] { 0, 281470681743360L }, IP2LocationService.parseUnsigned128("281470681743360"));
+        assertArrayEquals(new long[] { 0x20010DB800000000L, 0 },
+                IP2LocationService.parseUnsigned128("42540766411282592856903984951653826560"));
+        assertArrayEquals(new long[] { -1L, -1L }, IP2LocationService.parseUnsigned128("340282366920938463463374607431768211455"));
+        assertThrows(NumberFormatException.class, () -> IP2LocationService.parseUnsigned128("340282366920938463463374607431768211456"));
+    }
+
     /**
      * Should turn an IPv6 Address to a number. Fn is not implemented on the
      * IP2LocationService
@@ -0,0 +1,167 @@
+/* Copyright (c) 2021 Ensolvers
+ * All Rights Reserved
+ *
+ * The contents of this file is dual-licensed under 2 alternative Open Source/Free licenses: LGPL 2.1 or later and
+ * Apache License 2.0. (starting with JNA version 4.0.0).
+ *
+ * You can freely decide which license you want to apply to the project.
+ *
+ * You may obtain a copy of the LGPL License at: http://www.gnu.org/licenses/licenses.html
+ *
+ * A copy is also included in the downloadable source code package
+ * containing JNA, in file "LGPL2.1".
+ *
+ * You may obtain a copy of the Apache License at: http://www.apache.org/licenses/
+ *
+ * A copy is also included in the downloadable source code package
+ * containing JNA, in file "AL2.0".
+ */
+package com.ensolvers.fox.location;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class NetworkUtilsTest {
+    private static final String LEGACY_OCTET_PATTERN = "(?:25[0-5]|2[0-4]\\d|1\\d\\d|[1-9]\\d|\\d)";
+    private static final String LEGACY_IPV4_PATTERN = LEGACY_OCTET_PATTERN + "(?:\\." + LEGACY_OCTET_PATTERN + "){3}";
+    private static final String[] IPV4_TOKENS = { "0", "1", "9", "10", "01", "99", "100", "199", "255", "256", "300", "1000", ".", ".", ".",
+            "-1", "a", " " };
+    private static final String[] IPV6_TOKENS = { "0", "1", "db8", "2001", "ffff", "FFFF", "0000", "00000", "12345", "g", ":", ":", "::",
+            ":::", "1.2.3.4", "192.0.2.33", "256.1.1.1", "01.1.1.1", "." };
+
+    @Test
+    void testIpv4FuzzEquivalence() {
+        Random random = new Random(0);
+        int valid = 0;
+        for (int i = 0; i < 200_000; i++) {
+            String ip = i % 2 == 0 ? randomIpv4(random) : concat(random, IPV4_TOKENS, 1 + random.nextInt(9));
+            long expected = legacyIpv4AsNumber(ip);
+            assertEquals(expected, NetworkUtils.parseIPv4Address(ip), ip);
+            assertEquals(expected >= 0, NetworkUtils.isValidIPv4Address(ip), ip);
+            valid += expected >= 0 ? 1 : 0;
+        }
+        // make sure both valid and invalid addresses were checked
+        assertTrue(valid > 50_000 && valid < 150_000);
+    }
+
+    @Test
+    void testIpv6FuzzEquivalence() throws UnknownHostException {
+        Random random = new Random(0);
+        long[] number = new long[2];
+        int valid = 0;
+        for (int i = 0; i < 200_000; i++) {
+            String ip = i % 2 == 0 ? randomIpv6(random) : concat(random, IPV6_TOKENS, 1 + random.nextInt(12));
+            boolean expected = NetworkUtils.isValidIPv6Addressv2(ip);
+            assertEquals(expected, NetworkUtils.isValidIPv6Address(ip), ip);
+            assertEquals(expected, NetworkUtils.parseIPv6Address(ip, number), ip);
+            if (expected) {
+                assertArrayEquals(inetAddressAsNumber(ip), number, ip);
+                valid++;
+            }
+        }
+        assertTrue(valid > 50_000 && valid < 150_000);
+    }
+
+    @Test
+    void testParsingDoesNotAllocate() {
+        Random random = new Random(0);
+        String[] ipv4s = new String[200_000];
+        String[] ipv6s = new String[ipv4s.length];
+        for (int i = 0; i < ipv4s.length; i++) {
+            ipv4s[i] = randomIpv4(random);
+            ipv6s[i] = randomIpv6(random);
+        }
+
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        // a few rounds so the parsers get compiled before the last one
+        long[] number = new long[2];
+        long allocatedBytes = 0;
+        int valid = 0;
+        for (int round = 0; round < 3; round++) {
+            valid = 0;
+            long fromBytes = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < ipv4s.length; i++) {
+                valid += NetworkUtils.parseIPv4Address(ipv4s[i]) >= 0 ? 1 : 0;
+                valid += NetworkUtils.parseIPv6Address(ipv6s[i], number) ? 1 : 0;
+            }
+            allocatedBytes = threadBean.getThreadAllocatedBytes(threadId) - fromBytes;
+        }
+
+        // way less than a byte per parsed address
+        assertTrue(valid > ipv4s.length);
+        assertTrue(allocatedBytes < ipv4s.length, allocatedBytes + " bytes allocated");
+    }
+
+    /**
+     * How IPv4 addresses were validated and converted before the single pass parser
+     */
+    private static long legacyIpv4AsNumber(String ip) {
+        if (!ip.matches(LEGACY_IPV4_PATTERN)) {
+            return -1;
+        }
+        String[] parts = ip.split("\\.");
+        return (Long.valueOf(parts[0]) * 256 * 256 * 256) + (Long.valueOf(parts[1]) * 256 * 256) + (Long.valueOf(parts[2]) * 256)
+                + (Long.valueOf(parts[3]));
+    }
+
+    private static long[] inetAddressAsNumber(String ip) throws UnknownHostException {
+        byte[] bytes = InetAddress.getByName(ip).getAddress();
+        if (bytes.length == 4) {
+            // IPv4-mapped addresses are returned as IPv4 ones
+            return new long[] { 0, 0xFFFF00000000L | (ByteBuffer.wrap(bytes).getInt() & 0xFFFFFFFFL) };
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new long[] { buffer.getLong(), buffer.getLong() };
+    }
+
+    private static String randomIpv4(Random random) {
+        StringBuilder ip = new StringBuilder();
+        for (int i = 0; i < 4; i++) {
+            if (i > 0) {
+                ip.append('.');
+            }
+            ip.append(random.nextInt(10) == 0 ? random.nextInt(1000) : random.nextInt(256));
+        }
+        return ip.toString();
+    }
+
+    private static String randomIpv6(Random random) {
+        int groups = random.nextInt(10) == 0 ? 6 + random.nextInt(4) : 8;
+        boolean ipv4 = random.nextInt(4) == 0;
+        int compressedAt = random.nextInt(3) == 0 ? random.nextInt(groups + 1) : -1;
+        StringBuilder ip = new StringBuilder();
+        for (int i = 0; i < groups; i++) {
+            if (i == compressedAt) {
+                ip.append(i == 0 ? "::" : ":");
+                // the simplification replaces at least one group
+                i += random.nextInt(3);
+                continue;
+            }
+            if (i > 0) {
+                ip.append(':');
+            }
+            if (ipv4 && i == groups - 2) {
+                ip.append(randomIpv4(random));
+                break;
+            }
+            ip.append(Integer.toHexString(random.nextInt(random.nextBoolean() ? 0x10000 : 0x10)));
+        }
+        return ip.toString();
+    }
+
+    private static String concat(Random random, String[] tokens, int count) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            result.append(tokens[random.nextInt(tokens.length)]);
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,92 @@
+package com.ensolvers.fox.spring.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spring Cache compatible implementation using Caffeine as the underlying
+ * in-memory cache, a replacement for {@link SpringGuavaCache} that scales
+ * better under concurrent reads and can be bounded by size or weight, evicting
+ * using W-TinyLFU
+ * 
+ * @param <CacheType> the type of objects that are going to be cached
+ */
+public class SpringCaffeineCache<CacheType> extends AbstractValueAdaptingCache {
+
+    private static Logger logger = LoggerFactory.getLogger(SpringCaffeineCache.class);
+
+    private String name;
+    private Cache<String, CacheType> cache;
+
+    public SpringCaffeineCache(boolean allowNullValues, String name, long maximumSize) {
+        this(allowNullValues, name, Caffeine.newBuilder().maximumSize(maximumSize).build());
+    }
+
+    public SpringCaffeineCache(boolean allowNullValues, String name, long maximumSize, long expirationTime, TimeUnit expirationTimeUnit) {
+        this(allowNullValues, name,
+                Caffeine.newBuilder().maximumSize(maximumSize).expireAfterAccess(expirationTime, expirationTimeUnit).build());
+    }
+
+    public SpringCaffeineCache(boolean allowNullValues, String name, Cache<String, CacheType> cache) {
+        super(allowNullValues);
+
+        this.name = name;
+        this.cache = cache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return this.cache.getIfPresent(key.toString());
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this.cache;
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        try {
+            return (T) this.cache.get(key.toString(), k -> {
+                try {
+                    return (CacheType) valueLoader.call();
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+            });
+        } catch (ValueRetrievalException e) {
+            logger.error("Error when trying to fetch object from cache, key = " + key.toString(), e.getCause());
+        }
+        return null;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value == null) {
+            return;
+        }
+
+        this.cache.put(key.toString(), (CacheType) value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        this.cache.invalidate(key.toString());
+    }
+
+    @Override
+    public void clear() {
+        this.cache.invalidateAll();
+    }
+}